@@ -0,0 +1,202 @@
+package com.cleanup.todoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.cleanup.todoc.model.Task;
+import com.cleanup.todoc.repository.AppDatabase;
+import com.cleanup.todoc.repository.DatabaseProfile;
+import com.cleanup.todoc.repository.TaskDao;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks, on the connection pool of a real device, that the database profile of the application lets the sorted
+ * list be read while tasks are inserted continuously, without the reads waiting for the writes.
+ * Latencies are written to logcat under the "DatabaseConcurrencyTest" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseConcurrencyTest {
+
+    private static final String DATABASE_NAME = "concurrency_test_database";
+    // Number of tasks in the table before the measure
+    private static final int TASK_COUNT = 10_000;
+    // Number of tasks read by each query, as a long list does
+    private static final int PAGE_SIZE = 1000;
+    // Number of reads measured
+    private static final int READS = 200;
+    // Latency allowed on top of the reads measured without writer, for the scheduling of the writer thread
+    private static final long SLACK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private Context context;
+    private ExecutorService queryExecutor;
+    private ExecutorService transactionExecutor;
+    private AppDatabase database;
+
+    /**
+     * Remove any database left by a previous test, and create the executors of Room.
+     */
+    @Before
+    public void setup() {
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(DATABASE_NAME);
+        queryExecutor = Executors.newFixedThreadPool(4);
+        transactionExecutor = Executors.newSingleThreadExecutor();
+    }
+
+    /**
+     * Close and remove the database, and stop the executors after each test.
+     */
+    @After
+    public void tearDown() {
+        if (database != null) {
+            database.close();
+        }
+        context.deleteDatabase(DATABASE_NAME);
+        queryExecutor.shutdownNow();
+        transactionExecutor.shutdownNow();
+    }
+
+    /**
+     * Test that the connections are opened in write-ahead logging mode with synchronous=NORMAL.
+     */
+    @Test
+    public void profileIsAppliedToTheConnections() {
+        database = AppDatabase.buildDatabase(context, DATABASE_NAME,
+                DatabaseProfile.writeAheadLogging(queryExecutor, transactionExecutor));
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+
+        assertTrue(db.isWriteAheadLoggingEnabled());
+        db.beginTransaction();
+        try (Cursor journal = db.query("PRAGMA journal_mode");
+             Cursor synchronous = db.query("PRAGMA synchronous")) {
+            journal.moveToFirst();
+            synchronous.moveToFirst();
+            assertEquals("wal", journal.getString(0).toLowerCase(Locale.ROOT));
+            assertEquals(1, synchronous.getInt(0));
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Test that the sorted reads of 1000 tasks stay about as fast while another thread inserts tasks
+     * one transaction after the other as they are without writer.
+     */
+    @Test
+    public void readerLatencyStaysBoundedUnderContinuousInserts() throws Exception {
+        database = AppDatabase.buildDatabase(context, DATABASE_NAME,
+                DatabaseProfile.writeAheadLogging(queryExecutor, transactionExecutor));
+        TaskDao taskDao = database.taskDao();
+        insertTasks(database.getOpenHelper().getWritableDatabase());
+
+        long[] alone = measureReads(taskDao);
+
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicInteger inserted = new AtomicInteger();
+        Thread writer = new Thread(() -> {
+            while (writing.get()) {
+                taskDao.insertTask(new Task(0, 1L, "Inserted task " + inserted.get(), System.currentTimeMillis()));
+                inserted.incrementAndGet();
+            }
+        }, "DatabaseConcurrencyTest-writer");
+        writer.start();
+        long[] concurrent;
+        try {
+            concurrent = measureReads(taskDao);
+        } finally {
+            writing.set(false);
+            writer.join();
+        }
+
+        Log.i("DatabaseConcurrencyTest", "Reads of " + PAGE_SIZE + " tasks alone: " + describe(alone)
+                + ", while " + inserted.get() + " tasks were inserted: " + describe(concurrent));
+        assertTrue("The writer did not insert anything", inserted.get() > 0);
+        long bound = 3 * percentile(alone, 95) + SLACK_NANOS;
+        assertTrue("95th percentile " + percentile(concurrent, 95) + "ns above " + bound + "ns",
+                percentile(concurrent, 95) <= bound);
+    }
+
+    /**
+     * Inserts the tasks read by the measure in a single transaction, spread over the three projects.
+     *
+     * @param db the database
+     */
+    private static void insertTasks(SupportSQLiteDatabase db) throws Exception {
+        db.beginTransaction();
+        try (SupportSQLiteStatement insert = db.compileStatement(
+                "INSERT INTO tasks (projectId, taskName, creation_timestamp) VALUES (?, ?, ?)")) {
+            for (int i = 0; i < TASK_COUNT; i++) {
+                insert.bindLong(1, 1 + i % 3);
+                insert.bindString(2, "Task number " + i);
+                insert.bindLong(3, i);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Reads the first tasks in alphabetical order again and again, after a few warm-up reads.
+     *
+     * @param taskDao the DAO reading the tasks
+     * @return the latency of each read, in nanoseconds, sorted
+     */
+    private static long[] measureReads(TaskDao taskDao) {
+        for (int i = 0; i < 10; i++) {
+            taskDao.getFirstPageSortedAlphabetically(PAGE_SIZE);
+        }
+        long[] latencies = new long[READS];
+        for (int i = 0; i < READS; i++) {
+            long start = System.nanoTime();
+            taskDao.getFirstPageSortedAlphabetically(PAGE_SIZE);
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    /**
+     * Returns a percentile of sorted latencies.
+     *
+     * @param sorted  the latencies, sorted
+     * @param percent the percentile
+     * @return the latency below which the given percentage of the reads completed
+     */
+    private static long percentile(long[] sorted, int percent) {
+        return sorted[Math.min(sorted.length - 1, sorted.length * percent / 100)];
+    }
+
+    /**
+     * Describes sorted latencies in milliseconds, for logs.
+     *
+     * @param sorted the latencies, sorted
+     * @return the median, the 95th percentile and the maximum
+     */
+    private static String describe(long[] sorted) {
+        return String.format(Locale.ROOT, "p50 %.2fms, p95 %.2fms, max %.2fms",
+                percentile(sorted, 50) / 1e6, percentile(sorted, 95) / 1e6, sorted[sorted.length - 1] / 1e6);
+    }
+}
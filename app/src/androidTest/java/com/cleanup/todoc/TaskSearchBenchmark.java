@@ -0,0 +1,138 @@
+package com.cleanup.todoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.cleanup.todoc.model.Project;
+import com.cleanup.todoc.model.Task;
+import com.cleanup.todoc.repository.AppDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the latency of the full-text search with a LIKE scan over 100k tasks.
+ * Results are written to logcat under the "TaskSearchBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TaskSearchBenchmark {
+
+    private static final String DATABASE_NAME = "search_benchmark_database";
+    private static final int TASK_COUNT = 100_000;
+    private static final int BATCH_SIZE = 5_000;
+    private static final int RUNS = 21;
+    private static final int LIMIT = 100;
+
+    private static final String[] WORDS = {"appeler", "client", "réunion", "ranger", "bureau", "envoyer", "facture",
+            "préparer", "présentation", "relire", "contrat", "planifier", "sprint", "corriger", "rapport"};
+    // Word found in a handful of tasks only, so that the LIKE scan cannot stop early
+    private static final String RARE_WORD = "xylophone";
+
+    private Context context;
+    private AppDatabase database;
+
+    /**
+     * Creates a database holding 100k tasks made of random words.
+     */
+    @Before
+    public void setup() {
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(DATABASE_NAME);
+        database = AppDatabase.buildDatabase(context, DATABASE_NAME);
+
+        Project project = new Project(1L, "Projet Tartampion", 0xFFEADAD1);
+        database.projectDao().insertAll(Collections.singletonList(project));
+        Random random = new Random(42);
+        for (int start = 0; start < TASK_COUNT; start += BATCH_SIZE) {
+            List<Task> batch = new ArrayList<>(BATCH_SIZE);
+            for (int i = start; i < start + BATCH_SIZE; i++) {
+                String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+                        + " " + WORDS[random.nextInt(WORDS.length)];
+                if (i % 10_000 == 0) {
+                    name += " " + RARE_WORD;
+                }
+                batch.add(new Task(0, project, name, i));
+            }
+            database.runInTransaction(() -> database.taskDao().insertAll(batch));
+        }
+    }
+
+    /**
+     * Closes and deletes the database.
+     */
+    @After
+    public void tearDown() {
+        database.close();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    /**
+     * Measures both searches for a rare word and for a frequent prefix, and checks that the full-text search is faster
+     * when the LIKE scan has to walk the whole table.
+     */
+    @Test
+    public void compareFullTextSearchAndLikeScan() {
+        long ftsRare = medianMicros(() -> assertEquals(10, database.taskDao().searchTasks(RARE_WORD + "*", RARE_WORD, LIMIT).size()));
+        long likeRare = medianMicros(() -> assertEquals(10, likeSearch(RARE_WORD)));
+        long ftsFrequent = medianMicros(() -> database.taskDao().searchTasks("rapp*", "rapp", LIMIT));
+        long likeFrequent = medianMicros(() -> likeSearch("rapp"));
+
+        Log.i("TaskSearchBenchmark", "tasks=" + TASK_COUNT
+                + " rare: fts=" + ftsRare + "us like=" + likeRare + "us"
+                + " frequent: fts=" + ftsFrequent + "us like=" + likeFrequent + "us");
+        assertTrue("Full-text search should beat the LIKE scan: " + ftsRare + "us vs " + likeRare + "us",
+                ftsRare < likeRare);
+    }
+
+    /**
+     * Runs the search a LIKE query would run, reading the rows it returns.
+     *
+     * @param word the searched word
+     * @return the number of matching tasks
+     */
+    private int likeSearch(String word) {
+        try (Cursor cursor = database.query(new SimpleSQLiteQuery(
+                "SELECT * FROM tasks WHERE taskName LIKE ? LIMIT ?", new Object[]{"%" + word + "%", LIMIT}))) {
+            int count = 0;
+            while (cursor.moveToNext()) {
+                count++;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Runs a search several times after a warm-up run.
+     *
+     * @param search the search to measure
+     * @return the median duration of a run, in microseconds
+     */
+    private static long medianMicros(Runnable search) {
+        search.run();
+        long[] durations = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            search.run();
+            durations[i] = (SystemClock.elapsedRealtimeNanos() - start) / 1_000;
+        }
+        Arrays.sort(durations);
+        return durations[RUNS / 2];
+    }
+}
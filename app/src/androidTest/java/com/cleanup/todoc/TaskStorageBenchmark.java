@@ -0,0 +1,141 @@
+package com.cleanup.todoc;
+
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+
+/**
+ * Compares the storage of 100k tasks between the version 3 schema, where every task embeds a copy of its project,
+ * and the version 4 schema, where tasks only keep the projectId foreign key.
+ * Results are written to logcat under the "TaskStorageBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TaskStorageBenchmark {
+
+    private static final int TASK_COUNT = 100_000;
+
+    private static final String CREATE_PROJECTS = "CREATE TABLE `projects` (`projectId` INTEGER NOT NULL, "
+            + "`projectName` TEXT NOT NULL, `projectColor` INTEGER NOT NULL, PRIMARY KEY(`projectId`))";
+
+    private static final String[] EMBEDDED_SCHEMA = {
+            CREATE_PROJECTS,
+            "CREATE TABLE `tasks` (`taskId` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`projectId` INTEGER NOT NULL, `projectName` TEXT NOT NULL, `projectColor` INTEGER NOT NULL, "
+                    + "`taskName` TEXT NOT NULL, `creation_timestamp` INTEGER NOT NULL, "
+                    + "FOREIGN KEY(`projectId`) REFERENCES `projects`(`projectId`))",
+            "CREATE INDEX `index_tasks_projectId` ON `tasks` (`projectId`)",
+            "CREATE INDEX `index_tasks_taskName_taskId` ON `tasks` (`taskName`, `taskId`)",
+            "CREATE INDEX `index_tasks_creation_timestamp_taskId` ON `tasks` (`creation_timestamp`, `taskId`)"
+    };
+
+    private static final String[] NORMALIZED_SCHEMA = {
+            CREATE_PROJECTS,
+            "CREATE TABLE `tasks` (`taskId` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`projectId` INTEGER NOT NULL, `taskName` TEXT NOT NULL, `creation_timestamp` INTEGER NOT NULL, "
+                    + "FOREIGN KEY(`projectId`) REFERENCES `projects`(`projectId`))",
+            "CREATE INDEX `index_tasks_projectId` ON `tasks` (`projectId`)",
+            "CREATE INDEX `index_tasks_taskName_taskId` ON `tasks` (`taskName`, `taskId`)",
+            "CREATE INDEX `index_tasks_creation_timestamp_taskId` ON `tasks` (`creation_timestamp`, `taskId`)"
+    };
+
+    private static final String[] PROJECT_NAMES = {"Projet Tartampion", "Projet Lucidia", "Projet Circus"};
+    private static final int[] PROJECT_COLORS = {0xFFEADAD1, 0xFFB4CDBA, 0xFFA3CED2};
+
+    /**
+     * Inserts 100k tasks in both schemas and checks that the normalized one is smaller on disk.
+     */
+    @Test
+    public void compareEmbeddedAndNormalizedStorage() {
+        Result embedded = run("benchmark_embedded.db", EMBEDDED_SCHEMA,
+                "INSERT INTO tasks (projectId, projectName, projectColor, taskName, creation_timestamp) VALUES (?, ?, ?, ?, ?)",
+                true);
+        Result normalized = run("benchmark_normalized.db", NORMALIZED_SCHEMA,
+                "INSERT INTO tasks (projectId, taskName, creation_timestamp) VALUES (?, ?, ?)",
+                false);
+
+        Log.i("TaskStorageBenchmark", "embedded: " + embedded + ", normalized: " + normalized);
+        assertTrue("Normalized database should be smaller: " + normalized.fileBytes + " vs " + embedded.fileBytes,
+                normalized.fileBytes < embedded.fileBytes);
+    }
+
+    /**
+     * Creates a database with the given schema and inserts the tasks in a single transaction.
+     *
+     * @param name            the name of the database file
+     * @param schema          the statements creating the schema
+     * @param insertSql       the statement inserting a task
+     * @param embedsProject   whether the insert statement takes the project name and color
+     * @return the insertion time and the resulting file size
+     */
+    private Result run(String name, String[] schema, String insertSql, boolean embedsProject) {
+        Context context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(name);
+        File file = context.getDatabasePath(name);
+        file.getParentFile().mkdirs();
+
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(file, null);
+        try {
+            for (String statement : schema) {
+                db.execSQL(statement);
+            }
+            for (int i = 0; i < PROJECT_NAMES.length; i++) {
+                db.execSQL("INSERT INTO projects VALUES (?, ?, ?)", new Object[]{i + 1, PROJECT_NAMES[i], PROJECT_COLORS[i]});
+            }
+
+            long start = SystemClock.elapsedRealtimeNanos();
+            db.beginTransaction();
+            try (SQLiteStatement insert = db.compileStatement(insertSql)) {
+                for (int i = 0; i < TASK_COUNT; i++) {
+                    int project = i % PROJECT_NAMES.length;
+                    int index = 1;
+                    insert.bindLong(index++, project + 1);
+                    if (embedsProject) {
+                        insert.bindString(index++, PROJECT_NAMES[project]);
+                        insert.bindLong(index++, PROJECT_COLORS[project]);
+                    }
+                    insert.bindString(index++, "Task " + i);
+                    insert.bindLong(index, 1_600_000_000_000L + i);
+                    insert.executeInsert();
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            long insertNanos = SystemClock.elapsedRealtimeNanos() - start;
+            return new Result(insertNanos / 1_000_000, file.length());
+        } finally {
+            db.close();
+            context.deleteDatabase(name);
+        }
+    }
+
+    /**
+     * Measurements of one schema.
+     */
+    private static final class Result {
+        final long insertMillis;
+        final long fileBytes;
+
+        Result(long insertMillis, long fileBytes) {
+            this.insertMillis = insertMillis;
+            this.fileBytes = fileBytes;
+        }
+
+        @Override
+        public String toString() {
+            return "insert=" + insertMillis + "ms, size=" + fileBytes + "B";
+        }
+    }
+}
@@ -5,6 +5,7 @@ import androidx.lifecycle.ViewModel;
 
 import com.cleanup.todoc.di.AppInjector;
 import com.cleanup.todoc.model.Project;
+import com.cleanup.todoc.model.ProjectRow;
 import com.cleanup.todoc.model.Task;
 import com.cleanup.todoc.repository.ProjectRepository;
 import com.cleanup.todoc.repository.TaskRepository;
@@ -24,6 +25,8 @@ public class AddTaskViewModel extends ViewModel {
 
     // LiveData for holding the list of all projects
     private LiveData<List<Project>> allProjectsLiveData;
+    // LiveData for holding the list of all projects with the number of their tasks
+    private LiveData<List<ProjectRow>> projectRowsLiveData;
 
     /**
      * Constructor for AddTaskViewModel.
@@ -38,6 +41,7 @@ public class AddTaskViewModel extends ViewModel {
 
         // Get the LiveData for all projects from the project repository
         allProjectsLiveData = projectRepository.getAllProjects();
+        projectRowsLiveData = projectRepository.getProjectRows();
     }
 
     /**
@@ -50,6 +54,15 @@ public class AddTaskViewModel extends ViewModel {
         return allProjectsLiveData;
     }
 
+    /**
+     * Getter for the LiveData of all projects with the number of their tasks, as displayed by the project spinner.
+     *
+     * @return LiveData containing the list of all projects with the number of their tasks
+     */
+    public LiveData<List<ProjectRow>> getProjectRows() {
+        return projectRowsLiveData;
+    }
+
     /**
      * Method to add a new task.
      * This method calls the task repository's method to insert the task into the database.
@@ -60,4 +73,15 @@ public class AddTaskViewModel extends ViewModel {
         // Call the task repository's method to insert the task
         taskRepository.insertTask(task);
     }
+
+    /**
+     * Method to add a new task, shown in the list of tasks before it is committed.
+     * The task disappears from the list if the database rejects it.
+     *
+     * @param task    The task to be added
+     * @param project The project of the task, whose name and color are displayed with the task
+     */
+    public void addTask(Task task, ProjectRow project) {
+        taskRepository.insertTask(task, project.projectName, project.projectColor);
+    }
 }
\ No newline at end of file
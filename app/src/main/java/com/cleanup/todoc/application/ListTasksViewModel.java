@@ -1,53 +1,254 @@
 package com.cleanup.todoc.application;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
-import com.cleanup.todoc.di.AppInjector;
+import com.cleanup.todoc.di.InstrumentedExecutor;
+import com.cleanup.todoc.metrics.Metrics;
+import com.cleanup.todoc.model.ProjectRow;
 import com.cleanup.todoc.model.Task;
+import com.cleanup.todoc.model.TaskRow;
+import com.cleanup.todoc.repository.ProjectRepository;
 import com.cleanup.todoc.repository.TaskRepository;
+import com.cleanup.todoc.repository.TaskSortOrder;
 
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 
 /**
  * ViewModel for listing tasks.
  * This ViewModel provides methods to interact with the Task repository
- * and exposes LiveData for observing the list of all tasks and sorted tasks.
+ * and exposes a single LiveData of the displayed tasks, whose query follows the selected sort order.
+ * Both survive configuration changes, so a recreated screen observes the same stream in the same order.
  */
 public class ListTasksViewModel extends ViewModel {
 
     // Repository for managing tasks
     public TaskRepository taskRepository;
+    // Repository of the projects, providing the summary of the tasks; null when no summary is displayed
+    @Nullable
+    private final ProjectRepository projectRepository;
 
-    // LiveData for holding the list of all tasks
-    public LiveData<List<Task>> allTasksLiveData;
+    // Sort order of the displayed tasks
+    private final MutableLiveData<TaskSortOrder> sortOrder = new MutableLiveData<>(TaskSortOrder.DEFAULT);
+    // Identifiers of the projects whose tasks are displayed, empty to display the tasks of all projects
+    private final MutableLiveData<Set<Long>> projectFilter = new MutableLiveData<>(Collections.emptySet());
+
+    // Pager loading the displayed list page by page, created on first use
+    private TaskPager taskPager;
+    // Serial executor on which the pager loads its pages
+    private final Executor pagerExecutor;
+
+    // Searcher of the tasks by name, created on first use
+    private TaskSearcher taskSearcher;
+    // Executor on which the searches run
+    private final ExecutorService searchExecutor;
+    // Metrics timing the dispatch of the window and of the search results
+    private final Metrics metrics;
 
     /**
-     * Constructor for ListTasksViewModel.
+     * Constructor for ListTasksViewModel loading its pages and running its searches on the same executor.
      *
      * @param taskRepository The repository for managing tasks
+     * @param pagerExecutor  A serial executor on which the pages are loaded
+     */
+    @VisibleForTesting
+    public ListTasksViewModel(TaskRepository taskRepository, Executor pagerExecutor) {
+        this(taskRepository, null, pagerExecutor, new InstrumentedExecutor("search", pagerExecutor));
+    }
+
+    /**
+     * Constructor for ListTasksViewModel.
+     * The executors are shared with the rest of the application, so they are not shut down with the ViewModel.
+     *
+     * @param taskRepository    The repository for managing tasks
+     * @param projectRepository The repository of the projects, or null to display no summary
+     * @param pagerExecutor     A serial executor on which the pages are loaded
+     * @param searchExecutor    The executor on which the searches run
      */
-    public ListTasksViewModel(TaskRepository taskRepository) {
-        // Initialize the repository with the provided instance
+    public ListTasksViewModel(TaskRepository taskRepository, @Nullable ProjectRepository projectRepository,
+                              Executor pagerExecutor, ExecutorService searchExecutor) {
+        this(taskRepository, projectRepository, pagerExecutor, searchExecutor, Metrics.DISABLED);
+    }
+
+    /**
+     * Constructor for ListTasksViewModel timing how its LiveData reach the screen.
+     *
+     * @param taskRepository    The repository for managing tasks
+     * @param projectRepository The repository of the projects, or null to display no summary
+     * @param pagerExecutor     A serial executor on which the pages are loaded
+     * @param searchExecutor    The executor on which the searches run
+     * @param metrics           The metrics receiving the timings of the window and of the search results
+     */
+    public ListTasksViewModel(TaskRepository taskRepository, @Nullable ProjectRepository projectRepository,
+                              Executor pagerExecutor, ExecutorService searchExecutor, Metrics metrics) {
+        // Initialize the repositories with the provided instances
         this.taskRepository = taskRepository;
+        this.projectRepository = projectRepository;
+        this.pagerExecutor = pagerExecutor;
+        this.searchExecutor = searchExecutor;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Getter for the LiveData of the window of tasks to display.
+     * Every call returns the same LiveData, holding the window of keyset pages loaded around the visible tasks,
+     * which is reloaded from the first page when the sort order changes.
+     * The first call starts the pager and loads the first page.
+     *
+     * @return LiveData containing the pages of tasks currently held in memory
+     */
+    public LiveData<TaskWindow> getTaskWindow() {
+        return getTaskPager().getWindow();
+    }
+
+    /**
+     * Getter for the LiveData of the projects with the number of their tasks, summarized above the list.
+     *
+     * @return LiveData containing every project with its number of tasks; it never emits when there is no project repository
+     */
+    public LiveData<List<ProjectRow>> getProjectRows() {
+        return projectRepository != null ? projectRepository.getProjectRows() : new MutableLiveData<>();
+    }
+
+    /**
+     * Getter for the LiveData of the sort order of the displayed tasks.
+     *
+     * @return LiveData containing the current sort order
+     */
+    public LiveData<TaskSortOrder> getSortOrder() {
+        return sortOrder;
+    }
+
+    /**
+     * Method to change the order of the displayed tasks.
+     * The list is reloaded from its first page in the new order, unless it is already displayed in that order.
+     *
+     * @param sortOrder The new order of the tasks
+     */
+    public void setSortOrder(@NonNull TaskSortOrder sortOrder) {
+        if (sortOrder == this.sortOrder.getValue()) {
+            return;
+        }
+        this.sortOrder.setValue(sortOrder);
+        getTaskPager().setSortOrder(sortOrder);
+    }
+
+    /**
+     * Getter for the LiveData of the projects whose tasks are displayed.
+     *
+     * @return LiveData containing the identifiers of the displayed projects, empty when all of them are displayed
+     */
+    public LiveData<Set<Long>> getProjectFilter() {
+        return projectFilter;
+    }
+
+    /**
+     * Method to display only the tasks of some projects.
+     * The list is reloaded from its first page, unless these projects are already the displayed ones.
+     *
+     * @param projectIds The identifiers of the projects whose tasks are displayed, or an empty set to display them all
+     */
+    public void setProjectFilter(@NonNull Set<Long> projectIds) {
+        if (projectIds.equals(projectFilter.getValue())) {
+            return;
+        }
+        Set<Long> filter = Collections.unmodifiableSet(new HashSet<>(projectIds));
+        projectFilter.setValue(filter);
+        getTaskPager().setProjectFilter(filter);
+    }
+
+    /**
+     * Method to report the range of tasks visible on screen, so that the surrounding pages are loaded.
+     *
+     * @param firstVisible The absolute position of the first visible task
+     * @param lastVisible  The absolute position of the last visible task
+     */
+    public void loadAround(int firstVisible, int lastVisible) {
+        getTaskPager().loadAround(firstVisible, lastVisible);
+    }
+
+    /**
+     * Getter for the LiveData of the tasks matching the searched text.
+     *
+     * @return LiveData containing the results of the latest search, empty when no text is searched
+     */
+    public LiveData<List<TaskRow>> getSearchResults() {
+        return getTaskSearcher().getResults();
+    }
+
+    /**
+     * Getter for the text currently searched.
+     *
+     * @return the searched text, empty when no text is searched
+     */
+    @NonNull
+    public String getSearchQuery() {
+        return taskSearcher == null ? "" : taskSearcher.getQuery();
+    }
 
-        // Get the LiveData for all tasks from the task repository
-        allTasksLiveData = taskRepository.getAllTasks();
+    /**
+     * Method to search the tasks by name. Keystrokes are debounced, and a new text cancels the search in flight.
+     *
+     * @param text The text typed by the user, empty to stop searching
+     */
+    public void setSearchQuery(@NonNull String text) {
+        getTaskSearcher().setQuery(text);
     }
 
     /**
-     * Getter for the LiveData of all tasks.
-     * This method provides LiveData that can be observed for changes in the list of all tasks.
+     * Returns the searcher of the tasks, creating and starting it on first use.
      *
-     * @return LiveData containing the list of all tasks
+     * @return the searcher of the tasks
      */
-    public LiveData<List<Task>> getAllTasks() {
-        return allTasksLiveData;
+    private TaskSearcher getTaskSearcher() {
+        if (taskSearcher == null) {
+            taskSearcher = new TaskSearcher(taskRepository, searchExecutor, TaskSearcher.DEFAULT_DEBOUNCE_MILLIS, metrics);
+            taskSearcher.start();
+        }
+        return taskSearcher;
+    }
+
+    /**
+     * Returns the pager of the displayed list, creating and starting it on first use.
+     *
+     * @return the pager of the displayed list
+     */
+    private TaskPager getTaskPager() {
+        if (taskPager == null) {
+            taskPager = new TaskPager(taskRepository.getPageSource(), pagerExecutor, metrics);
+            taskPager.start();
+        }
+        return taskPager;
+    }
+
+    /**
+     * Called when the ViewModel is no longer used.
+     * Stops the pager and the searcher.
+     */
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        if (taskPager != null) {
+            taskPager.close();
+        }
+        if (taskSearcher != null) {
+            taskSearcher.close();
+        }
     }
 
     /**
      * Method to delete a task.
      * This method calls the task repository's method to delete the task from the database.
+     * The task can be restored by {@link #restoreTask(Task)} until it is purged.
      *
      * @param task The task to be deleted
      */
@@ -57,42 +258,48 @@ public class ListTasksViewModel extends ViewModel {
     }
 
     /**
-     * Method to get all tasks sorted alphabetically by name.
-     * This method retrieves tasks sorted alphabetically from the task repository.
+     * Method to delete the selected tasks, all in one transaction.
+     * The tasks can be restored by {@link #restoreTasks(List)} until they are purged.
      *
-     * @return LiveData containing the list of tasks sorted alphabetically
+     * @param taskIds The identifiers of the tasks to be deleted
      */
-    public LiveData<List<Task>> getAllTasksSortedAlphabetically() {
-        return taskRepository.getAllTasksSortedAlphabetically();
+    public void deleteTasks(List<Long> taskIds) {
+        taskRepository.deleteTasks(taskIds);
     }
 
     /**
-     * Method to get all tasks sorted alphabetically by name in inverted order.
-     * This method retrieves tasks sorted alphabetically in inverted order from the task repository.
+     * Method to restore the selected tasks which have just been deleted.
      *
-     * @return LiveData containing the list of tasks sorted alphabetically in inverted order
+     * @param taskIds The identifiers of the tasks to be restored
      */
-    public LiveData<List<Task>> getAllTasksSortedAlphabeticallyInverted() {
-        return taskRepository.getAllTasksSortedAlphabeticallyInverted();
+    public void restoreTasks(List<Long> taskIds) {
+        taskRepository.restoreTasks(taskIds);
     }
 
     /**
-     * Method to get all tasks sorted by date with the most recent first.
-     * This method retrieves tasks sorted by date with the most recent first from the task repository.
+     * Method to move the selected tasks to another project, all in one transaction.
      *
-     * @return LiveData containing the list of tasks sorted by date with the most recent first
+     * @param taskIds   The identifiers of the tasks to be moved
+     * @param projectId The identifier of the project receiving the tasks
      */
-    public LiveData<List<Task>> getAllTasksSortedByDateRecentFirst() {
-        return taskRepository.getAllTasksSortedByDateRecentFirst();
+    public void moveTasks(List<Long> taskIds, long projectId) {
+        taskRepository.moveTasks(taskIds, projectId);
     }
 
     /**
-     * Method to get all tasks sorted by date with the oldest first.
-     * This method retrieves tasks sorted by date with the oldest first from the task repository.
+     * Method to restore a task which has just been deleted.
      *
-     * @return LiveData containing the list of tasks sorted by date with the oldest first
+     * @param task The task to be restored
+     */
+    public void restoreTask(Task task) {
+        taskRepository.restoreTask(task);
+    }
+
+    /**
+     * Method to purge the deleted tasks once they can no longer be restored.
+     * The purge waits for the application to be idle.
      */
-    public LiveData<List<Task>> getAllTasksSortedByDateOldFirst() {
-        return taskRepository.getAllTasksSortedByDateOldFirst();
+    public void purgeDeletedTasks() {
+        taskRepository.purgeDeletedTasks();
     }
 }
\ No newline at end of file
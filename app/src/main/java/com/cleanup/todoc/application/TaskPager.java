@@ -0,0 +1,389 @@
+package com.cleanup.todoc.application;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+
+import com.cleanup.todoc.metrics.Metrics;
+import com.cleanup.todoc.metrics.TimedLiveData;
+import com.cleanup.todoc.model.TaskRow;
+import com.cleanup.todoc.repository.TaskPageSource;
+import com.cleanup.todoc.repository.TaskSortOrder;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Loads the list of tasks page by page as the user scrolls.
+ * Only a bounded number of pages is kept in memory: pages scrolled far away are dropped
+ * and reloaded from their key when the user scrolls back to them.
+ * All the paging state is confined to the given serial executor; the UI only sees {@link TaskWindow} snapshots.
+ */
+public class TaskPager {
+
+    /**
+     * Default number of tasks per page.
+     */
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    /**
+     * Default distance, in items, from the edge of the window at which the next page is loaded.
+     */
+    public static final int DEFAULT_PREFETCH_DISTANCE = 20;
+
+    /**
+     * Default maximum number of pages kept in memory.
+     */
+    public static final int DEFAULT_MAX_PAGES = 4;
+
+    // Source of the pages
+    private final TaskPageSource pageSource;
+    // Serial executor running every load and owning the paging state
+    private final Executor executor;
+    private final int pageSize;
+    private final int prefetchDistance;
+    private final int maxPages;
+
+    // Snapshots published to the UI
+    private final TimedLiveData<TaskWindow> window;
+    // Reloads the window when the "tasks" table changes
+    private final Runnable invalidationCallback = () -> execute(this::reload);
+    // Whether a range check is already scheduled on the executor
+    private final AtomicBoolean rangeCheckPending = new AtomicBoolean();
+    // Last visible range reported by the UI, in absolute positions
+    private volatile int requestedFirst;
+    private volatile int requestedLast;
+
+    // Paging state, only accessed from the executor
+    private TaskSortOrder sortOrder = TaskSortOrder.DEFAULT;
+    // Identifiers of the projects whose tasks are listed, empty to list the tasks of all projects
+    private Set<Long> projectIds = Collections.emptySet();
+    // Key and absolute start position of every page reached so far, rebuilt from the top of the list by every reload
+    private final List<PageAnchor> anchors = new ArrayList<>();
+    // Pages currently held in memory
+    private final ArrayDeque<List<TaskRow>> loadedPages = new ArrayDeque<>();
+    // Index of the first page held in memory
+    private int firstLoadedPage;
+    // Whether the last page of the list has been loaded
+    private boolean endReached;
+    private boolean closed;
+
+    /**
+     * Constructor to initialize the TaskPager with the default paging configuration.
+     *
+     * @param pageSource the source of the pages
+     * @param executor   a serial executor on which pages are loaded
+     */
+    public TaskPager(@NonNull TaskPageSource pageSource, @NonNull Executor executor) {
+        this(pageSource, executor, Metrics.DISABLED);
+    }
+
+    /**
+     * Constructor to initialize the TaskPager with the default paging configuration, timing the dispatch of its windows.
+     *
+     * @param pageSource the source of the pages
+     * @param executor   a serial executor on which pages are loaded
+     * @param metrics    the metrics receiving the "livedata.taskWindow" timings
+     */
+    public TaskPager(@NonNull TaskPageSource pageSource, @NonNull Executor executor, @NonNull Metrics metrics) {
+        this(pageSource, executor, DEFAULT_PAGE_SIZE, DEFAULT_PREFETCH_DISTANCE, DEFAULT_MAX_PAGES, metrics);
+    }
+
+    /**
+     * Constructor to initialize the TaskPager.
+     *
+     * @param pageSource       the source of the pages
+     * @param executor         a serial executor on which pages are loaded
+     * @param pageSize         the number of tasks per page
+     * @param prefetchDistance the distance, in items, from the edge of the window at which the next page is loaded
+     * @param maxPages         the maximum number of pages kept in memory, at least 2
+     */
+    public TaskPager(@NonNull TaskPageSource pageSource, @NonNull Executor executor,
+                     int pageSize, int prefetchDistance, int maxPages) {
+        this(pageSource, executor, pageSize, prefetchDistance, maxPages, Metrics.DISABLED);
+    }
+
+    /**
+     * Constructor to initialize the TaskPager, timing the dispatch of its windows.
+     *
+     * @param pageSource       the source of the pages
+     * @param executor         a serial executor on which pages are loaded
+     * @param pageSize         the number of tasks per page
+     * @param prefetchDistance the distance, in items, from the edge of the window at which the next page is loaded
+     * @param maxPages         the maximum number of pages kept in memory, at least 2
+     * @param metrics          the metrics receiving the "livedata.taskWindow" timings
+     */
+    public TaskPager(@NonNull TaskPageSource pageSource, @NonNull Executor executor,
+                     int pageSize, int prefetchDistance, int maxPages, @NonNull Metrics metrics) {
+        this.window = new TimedLiveData<>(TaskWindow.EMPTY, metrics, "livedata.taskWindow");
+        this.pageSource = pageSource;
+        this.executor = executor;
+        this.pageSize = pageSize;
+        this.prefetchDistance = prefetchDistance;
+        this.maxPages = Math.max(2, maxPages);
+    }
+
+    /**
+     * Starts listening to changes of the tasks and loads the first page.
+     */
+    public void start() {
+        execute(() -> {
+            pageSource.addInvalidationCallback(invalidationCallback);
+            resetTo(sortOrder);
+        });
+    }
+
+    /**
+     * Stops listening to changes of the tasks. No page is loaded afterwards.
+     */
+    public void close() {
+        execute(() -> {
+            closed = true;
+            pageSource.removeInvalidationCallback(invalidationCallback);
+        });
+    }
+
+    /**
+     * Getter for the LiveData of the pages currently held in memory.
+     *
+     * @return LiveData containing the current window of tasks
+     */
+    @NonNull
+    public LiveData<TaskWindow> getWindow() {
+        return window;
+    }
+
+    /**
+     * Changes the order of the tasks and reloads the list from its first page.
+     *
+     * @param sortOrder the new order of the tasks
+     */
+    public void setSortOrder(@NonNull TaskSortOrder sortOrder) {
+        execute(() -> resetTo(sortOrder));
+    }
+
+    /**
+     * Restricts the list to the tasks of some projects and reloads it from its first page.
+     *
+     * @param projectIds the identifiers of the projects whose tasks are listed, or an empty set to list them all
+     */
+    public void setProjectFilter(@NonNull Set<Long> projectIds) {
+        execute(() -> {
+            this.projectIds = projectIds;
+            resetTo(sortOrder);
+        });
+    }
+
+    /**
+     * Reports the range of tasks visible on screen, so that the pages around it are loaded
+     * and the pages far from it are dropped.
+     * Calls are coalesced: only the latest range is taken into account.
+     *
+     * @param firstVisible the absolute position of the first visible task
+     * @param lastVisible  the absolute position of the last visible task
+     */
+    public void loadAround(int firstVisible, int lastVisible) {
+        requestedFirst = firstVisible;
+        requestedLast = lastVisible;
+        if (rangeCheckPending.compareAndSet(false, true)) {
+            execute(() -> {
+                rangeCheckPending.set(false);
+                ensureRangeLoaded(requestedFirst, requestedLast);
+            });
+        }
+    }
+
+    /**
+     * Runs a command on the executor unless the pager has been closed.
+     *
+     * @param command the command to run
+     */
+    private void execute(Runnable command) {
+        executor.execute(() -> {
+            if (!closed) {
+                command.run();
+            }
+        });
+    }
+
+    /**
+     * Drops every page and loads the first page in the given order.
+     *
+     * @param newSortOrder the order of the tasks
+     */
+    private void resetTo(TaskSortOrder newSortOrder) {
+        sortOrder = newSortOrder;
+        anchors.clear();
+        anchors.add(new PageAnchor(null, 0));
+        loadedPages.clear();
+        firstLoadedPage = 0;
+        endReached = false;
+        loadNextPage();
+        publish();
+    }
+
+    /**
+     * Reloads the pages held in memory, keeping the window after the same task.
+     * Tasks inserted or deleted before the window shift it, so the anchors of the pages before it are stale:
+     * the pages are walked again from the top of the list, which rebuilds every anchor and the position of the window.
+     * The walk reads one page per page scrolled past, from the cache when the table fits in memory.
+     */
+    private void reload() {
+        int pageCount = Math.max(1, loadedPages.size());
+        // The last task before the window, null when the window starts at the top of the list
+        TaskRow windowKey = anchors.get(firstLoadedPage).key;
+        anchors.clear();
+        anchors.add(new PageAnchor(null, 0));
+        loadedPages.clear();
+        firstLoadedPage = 0;
+        endReached = false;
+        if (windowKey != null) {
+            seekPageAfter(windowKey);
+        }
+        while (loadedPages.size() < pageCount && !endReached) {
+            loadNextPage();
+        }
+        publish();
+    }
+
+    /**
+     * Walks the pages from the top of the list, anchoring each of them, and loads as the first page of the window
+     * the page holding the first task following the given key.
+     * If no task follows the key anymore, the last page of the list is loaded instead.
+     *
+     * @param key the last task before the window
+     */
+    private void seekPageAfter(TaskRow key) {
+        Comparator<TaskRow> comparator = TaskPageSource.comparator(sortOrder);
+        while (true) {
+            loadNextPage();
+            List<TaskRow> page = loadedPages.getFirst();
+            if (!page.isEmpty() && comparator.compare(page.get(page.size() - 1), key) > 0) {
+                return;
+            }
+            if (endReached) {
+                if (page.isEmpty() && firstLoadedPage > 0) {
+                    // Everything from the window onwards was deleted, show the end of the list
+                    loadedPages.clear();
+                    firstLoadedPage--;
+                    endReached = false;
+                    loadNextPage();
+                }
+                return;
+            }
+            loadedPages.clear();
+            firstLoadedPage++;
+        }
+    }
+
+    /**
+     * Loads or drops pages until the window covers the given range plus the prefetch distance.
+     *
+     * @param firstVisible the absolute position of the first visible task
+     * @param lastVisible  the absolute position of the last visible task
+     */
+    private void ensureRangeLoaded(int firstVisible, int lastVisible) {
+        // Bounded so that a range wider than the window cannot make pages bounce in and out forever
+        for (int attempt = 0; attempt < maxPages; attempt++) {
+            int windowStart = anchors.get(firstLoadedPage).start;
+            int windowEnd = windowStart + loadedCount();
+            if (!endReached && lastVisible >= windowEnd - prefetchDistance) {
+                loadNextPage();
+                if (loadedPages.size() > maxPages) {
+                    loadedPages.removeFirst();
+                    firstLoadedPage++;
+                }
+            } else if (firstLoadedPage > 0 && firstVisible < windowStart + prefetchDistance) {
+                loadPreviousPage();
+                if (loadedPages.size() > maxPages) {
+                    loadedPages.removeLast();
+                    endReached = false;
+                }
+            } else {
+                return;
+            }
+            publish();
+        }
+    }
+
+    /**
+     * Loads the page following the last page held in memory.
+     */
+    private void loadNextPage() {
+        int index = firstLoadedPage + loadedPages.size();
+        PageAnchor anchor = anchors.get(index);
+        List<TaskRow> page = pageSource.loadPage(sortOrder, projectIds, anchor.key, pageSize);
+        if (page.size() < pageSize) {
+            endReached = true;
+        }
+        if (page.isEmpty() && !loadedPages.isEmpty()) {
+            return;
+        }
+        loadedPages.addLast(page);
+
+        // Anchors after this page may be stale, the next one is recomputed from the fresh data
+        while (anchors.size() > index + 1) {
+            anchors.remove(anchors.size() - 1);
+        }
+        if (!page.isEmpty()) {
+            anchors.add(new PageAnchor(page.get(page.size() - 1), anchor.start + page.size()));
+        }
+    }
+
+    /**
+     * Reloads the page preceding the first page held in memory.
+     */
+    private void loadPreviousPage() {
+        int index = firstLoadedPage - 1;
+        PageAnchor anchor = anchors.get(index);
+        loadedPages.addFirst(pageSource.loadPage(sortOrder, projectIds, anchor.key, pageSize));
+        firstLoadedPage = index;
+    }
+
+    /**
+     * Returns the number of tasks held in memory.
+     *
+     * @return the number of loaded tasks
+     */
+    private int loadedCount() {
+        int count = 0;
+        for (List<TaskRow> page : loadedPages) {
+            count += page.size();
+        }
+        return count;
+    }
+
+    /**
+     * Publishes a snapshot of the pages held in memory.
+     */
+    private void publish() {
+        List<TaskRow> tasks = new ArrayList<>(loadedCount());
+        for (List<TaskRow> page : loadedPages) {
+            tasks.addAll(page);
+        }
+        window.postValue(new TaskWindow(sortOrder, projectIds, tasks, anchors.get(firstLoadedPage).start,
+                firstLoadedPage > 0, !endReached));
+    }
+
+    /**
+     * Position of a page in the whole list, with the key needed to load it.
+     */
+    private static final class PageAnchor {
+        // The last task of the previous page, null for the first page
+        @Nullable
+        final TaskRow key;
+        // Absolute position of the first task of the page
+        final int start;
+
+        PageAnchor(@Nullable TaskRow key, int start) {
+            this.key = key;
+            this.start = start;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.cleanup.todoc.application;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+
+import com.cleanup.todoc.metrics.Metrics;
+import com.cleanup.todoc.metrics.TimedLiveData;
+import com.cleanup.todoc.model.TaskRow;
+import com.cleanup.todoc.repository.TaskRepository;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the searches typed by the user.
+ * Keystrokes are debounced: a search only starts once the text has not changed for a while.
+ * A new text cancels the search in flight, and the results of an outdated search are never published.
+ * While a text is searched, the search runs again when the tasks change, so that deleted tasks disappear from the results.
+ */
+public class TaskSearcher {
+
+    /**
+     * Default delay, in milliseconds, without keystroke before a search starts.
+     */
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 300;
+
+    /**
+     * Maximum number of tasks returned by a search.
+     */
+    public static final int MAX_RESULTS = 100;
+
+    // Repository running the searches
+    private final TaskRepository taskRepository;
+    // Executor on which the searches run
+    private final ExecutorService executor;
+    private final long debounceMillis;
+    // Handler of the main thread, on which the debounce timer runs and results are published
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Results of the latest search
+    private final TimedLiveData<List<TaskRow>> results;
+    // Starts the search of the pending text once the debounce delay has elapsed
+    private final Runnable startSearch = this::startSearch;
+    // Runs the search again when the "tasks" table changes
+    private final Runnable invalidationCallback = () -> mainHandler.post(this::refresh);
+
+    // State only accessed from the main thread
+    @NonNull
+    private String query = "";
+    // Incremented by every new text, so that the results of outdated searches are dropped
+    private int generation;
+    private Future<?> searchInFlight;
+
+    /**
+     * Constructor to initialize the TaskSearcher with the default debounce delay.
+     *
+     * @param taskRepository the repository running the searches
+     * @param executor       the executor on which the searches run
+     */
+    public TaskSearcher(@NonNull TaskRepository taskRepository, @NonNull ExecutorService executor) {
+        this(taskRepository, executor, DEFAULT_DEBOUNCE_MILLIS, Metrics.DISABLED);
+    }
+
+    /**
+     * Constructor to initialize the TaskSearcher.
+     *
+     * @param taskRepository the repository running the searches
+     * @param executor       the executor on which the searches run
+     * @param debounceMillis the delay, in milliseconds, without keystroke before a search starts
+     */
+    public TaskSearcher(@NonNull TaskRepository taskRepository, @NonNull ExecutorService executor, long debounceMillis) {
+        this(taskRepository, executor, debounceMillis, Metrics.DISABLED);
+    }
+
+    /**
+     * Constructor to initialize the TaskSearcher, timing the dispatch of its results.
+     *
+     * @param taskRepository the repository running the searches
+     * @param executor       the executor on which the searches run
+     * @param debounceMillis the delay, in milliseconds, without keystroke before a search starts
+     * @param metrics        the metrics receiving the "livedata.searchResults" timings
+     */
+    public TaskSearcher(@NonNull TaskRepository taskRepository, @NonNull ExecutorService executor, long debounceMillis,
+                        @NonNull Metrics metrics) {
+        this.results = new TimedLiveData<>(Collections.<TaskRow>emptyList(), metrics, "livedata.searchResults");
+        this.taskRepository = taskRepository;
+        this.executor = executor;
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * Starts listening to changes of the tasks.
+     */
+    public void start() {
+        executor.execute(() -> taskRepository.getPageSource().addInvalidationCallback(invalidationCallback));
+    }
+
+    /**
+     * Cancels the searches and stops listening to changes of the tasks.
+     */
+    @MainThread
+    public void close() {
+        cancel();
+        executor.execute(() -> taskRepository.getPageSource().removeInvalidationCallback(invalidationCallback));
+    }
+
+    /**
+     * Getter for the LiveData of the results of the latest search.
+     *
+     * @return LiveData containing the tasks matching the latest text, empty when no text is searched
+     */
+    @NonNull
+    public LiveData<List<TaskRow>> getResults() {
+        return results;
+    }
+
+    /**
+     * Getter for the text currently searched.
+     *
+     * @return the searched text, empty when no text is searched
+     */
+    @NonNull
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * Changes the searched text. The search starts once the text has not changed for the debounce delay;
+     * an empty text clears the results immediately.
+     *
+     * @param text the text typed by the user
+     */
+    @MainThread
+    public void setQuery(@NonNull String text) {
+        String newQuery = text.trim();
+        if (newQuery.equals(query)) {
+            return;
+        }
+        query = newQuery;
+        cancel();
+        if (query.isEmpty()) {
+            results.setValue(Collections.emptyList());
+        } else {
+            mainHandler.postDelayed(startSearch, debounceMillis);
+        }
+    }
+
+    /**
+     * Cancels the pending and in-flight searches.
+     */
+    @MainThread
+    public void cancel() {
+        generation++;
+        mainHandler.removeCallbacks(startSearch);
+        if (searchInFlight != null) {
+            searchInFlight.cancel(true);
+            searchInFlight = null;
+        }
+    }
+
+    /**
+     * Runs the search of the current text again, without waiting for the debounce delay.
+     */
+    private void refresh() {
+        if (!query.isEmpty()) {
+            cancel();
+            startSearch();
+        }
+    }
+
+    /**
+     * Starts the search of the current text on the executor.
+     */
+    private void startSearch() {
+        final String searchedQuery = query;
+        final int searchGeneration = generation;
+        searchInFlight = executor.submit(() -> {
+            List<TaskRow> found = taskRepository.searchTasks(searchedQuery, MAX_RESULTS);
+            mainHandler.post(() -> {
+                // Checked on the main thread, where the text changes, so that no outdated result slips through
+                if (searchGeneration == generation) {
+                    searchInFlight = null;
+                    results.setValue(found);
+                }
+            });
+        });
+    }
+}
@@ -0,0 +1,120 @@
+package com.cleanup.todoc.application;
+
+import androidx.annotation.NonNull;
+
+import com.cleanup.todoc.model.TaskRow;
+import com.cleanup.todoc.repository.TaskSortOrder;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of the pages of tasks currently held in memory by a {@link TaskPager}.
+ */
+public final class TaskWindow {
+    /**
+     * The window published before the first page is loaded.
+     */
+    static final TaskWindow EMPTY = new TaskWindow(TaskSortOrder.DEFAULT, Collections.emptySet(),
+            Collections.emptyList(), 0, false, true);
+
+    // The order of the tasks
+    private final TaskSortOrder sortOrder;
+    // The identifiers of the projects whose tasks are listed, empty when the tasks of all projects are
+    private final Set<Long> projectIds;
+    // The tasks of the loaded pages
+    private final List<TaskRow> tasks;
+    // The position of the first loaded task in the whole list
+    private final int offset;
+    // Whether pages before the window have been dropped from memory
+    private final boolean hasMoreBefore;
+    // Whether the end of the list has not been reached yet
+    private final boolean hasMoreAfter;
+
+    /**
+     * Instantiates a new TaskWindow.
+     *
+     * @param sortOrder     the order of the tasks
+     * @param projectIds    the identifiers of the projects whose tasks are listed, empty when all of them are
+     * @param tasks         the tasks of the loaded pages
+     * @param offset        the position of the first loaded task in the whole list
+     * @param hasMoreBefore whether pages before the window have been dropped from memory
+     * @param hasMoreAfter  whether the end of the list has not been reached yet
+     */
+    TaskWindow(@NonNull TaskSortOrder sortOrder, @NonNull Set<Long> projectIds, @NonNull List<TaskRow> tasks,
+               int offset, boolean hasMoreBefore, boolean hasMoreAfter) {
+        this.sortOrder = sortOrder;
+        this.projectIds = projectIds;
+        this.tasks = Collections.unmodifiableList(tasks);
+        this.offset = offset;
+        this.hasMoreBefore = hasMoreBefore;
+        this.hasMoreAfter = hasMoreAfter;
+    }
+
+    /**
+     * Returns the order of the tasks.
+     *
+     * @return the order of the tasks
+     */
+    @NonNull
+    public TaskSortOrder getSortOrder() {
+        return sortOrder;
+    }
+
+    /**
+     * Returns the identifiers of the projects whose tasks are listed.
+     *
+     * @return the identifiers of the listed projects, empty when the tasks of all projects are listed
+     */
+    @NonNull
+    public Set<Long> getProjectIds() {
+        return projectIds;
+    }
+
+    /**
+     * Returns the tasks of the loaded pages.
+     *
+     * @return the tasks of the loaded pages
+     */
+    @NonNull
+    public List<TaskRow> getTasks() {
+        return tasks;
+    }
+
+    /**
+     * Returns the position of the first loaded task in the whole list.
+     *
+     * @return the position of the first loaded task
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns whether pages before the window have been dropped from memory.
+     *
+     * @return true if there are tasks before the window
+     */
+    public boolean hasMoreBefore() {
+        return hasMoreBefore;
+    }
+
+    /**
+     * Returns whether the end of the list has not been reached yet.
+     *
+     * @return true if there may be tasks after the window
+     */
+    public boolean hasMoreAfter() {
+        return hasMoreAfter;
+    }
+
+    /**
+     * Returns whether the whole list of tasks is empty.
+     *
+     * @return true if there is no task at all
+     */
+    public boolean isEmpty() {
+        return tasks.isEmpty() && !hasMoreBefore;
+    }
+}
@@ -4,6 +4,10 @@ import androidx.annotation.NonNull;
 import androidx.lifecycle.ViewModel;
 import androidx.lifecycle.ViewModelProvider;
 
+import com.cleanup.todoc.di.AppExecutors;
+import com.cleanup.todoc.di.AppInjector;
+import com.cleanup.todoc.di.SerialExecutor;
+import com.cleanup.todoc.metrics.Metrics;
 import com.cleanup.todoc.repository.ProjectRepository;
 import com.cleanup.todoc.repository.TaskRepository;
 
@@ -16,16 +20,46 @@ public class ViewModelFactory implements ViewModelProvider.Factory {
     // Repositories for managing projects and tasks
     private final ProjectRepository projectRepository;
     private final TaskRepository taskRepository;
+    // Executors on which the ViewModels run their background work
+    private final AppExecutors executors;
+    // Metrics of the hot paths of the ViewModels
+    private final Metrics metrics;
 
     /**
-     * Constructor for ViewModelFactory.
+     * Constructor for ViewModelFactory, using the executors and the metrics shared by the whole application.
      *
      * @param projectRepository The repository for managing projects
      * @param taskRepository The repository for managing tasks
      */
     public ViewModelFactory(ProjectRepository projectRepository, TaskRepository taskRepository) {
+        this(projectRepository, taskRepository, AppInjector.provideExecutors(), AppInjector.provideMetrics());
+    }
+
+    /**
+     * Constructor for ViewModelFactory.
+     *
+     * @param projectRepository The repository for managing projects
+     * @param taskRepository The repository for managing tasks
+     * @param executors The executors on which the ViewModels run their background work
+     */
+    public ViewModelFactory(ProjectRepository projectRepository, TaskRepository taskRepository, AppExecutors executors) {
+        this(projectRepository, taskRepository, executors, Metrics.DISABLED);
+    }
+
+    /**
+     * Constructor for ViewModelFactory recording the hot paths of the ViewModels.
+     *
+     * @param projectRepository The repository for managing projects
+     * @param taskRepository The repository for managing tasks
+     * @param executors The executors on which the ViewModels run their background work
+     * @param metrics The metrics receiving the timings of the ViewModels
+     */
+    public ViewModelFactory(ProjectRepository projectRepository, TaskRepository taskRepository, AppExecutors executors,
+                            Metrics metrics) {
         this.projectRepository = projectRepository;
         this.taskRepository = taskRepository;
+        this.executors = executors;
+        this.metrics = metrics;
     }
 
     /**
@@ -41,7 +75,8 @@ public class ViewModelFactory implements ViewModelProvider.Factory {
         if (modelClass.isAssignableFrom(AddTaskViewModel.class)) {
             return (T) new AddTaskViewModel(projectRepository, taskRepository);
         } else if (modelClass.isAssignableFrom(ListTasksViewModel.class)) {
-            return (T) new ListTasksViewModel(taskRepository);
+            return (T) new ListTasksViewModel(taskRepository, projectRepository,
+                    new SerialExecutor(executors.dbRead()), executors.dbRead(), metrics);
         }
         throw new IllegalArgumentException("Unknown ViewModel class");
     }
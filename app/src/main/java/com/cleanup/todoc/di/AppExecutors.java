@@ -0,0 +1,138 @@
+package com.cleanup.todoc.di;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Application-wide executors, one pool per kind of work:
+ * <ul>
+ *     <li>database reads, on a few threads since SQLite serves several readers at once;</li>
+ *     <li>database writes, on a single thread since SQLite only has one writer;</li>
+ *     <li>CPU work, sized after the processors;</li>
+ *     <li>background work handed over by the main thread, such as list diffing and file writes, on a single thread.</li>
+ * </ul>
+ * The database and background pools have unbounded queues: Room runs its queries and transactions on the former,
+ * the main thread submits to the latter, and a task rejected back onto the submitting thread could run on the main thread,
+ * or beside the single writer.
+ * Only the CPU pool is bounded, running the overflow on the producer to slow it down, so the main thread must never submit to it.
+ * Every pool is an {@link InstrumentedExecutor}, so its queue depth, active count, wait and run times can be read.
+ * Tests build instances whose pools run the tasks on the calling thread.
+ */
+public class AppExecutors {
+
+    /**
+     * Number of threads reading the database, matching the default query pool of Room
+     * and the connections the framework opens for readers in write-ahead logging mode.
+     */
+    public static final int READ_THREADS = 4;
+
+    /**
+     * Maximum number of tasks waiting in the CPU pool before the producer runs the task itself.
+     */
+    public static final int QUEUE_CAPACITY = 256;
+
+    // Pool of the database reads
+    private final InstrumentedExecutor dbRead;
+    // Pool of the database writes
+    private final InstrumentedExecutor dbWrite;
+    // Pool of the CPU-bound work
+    private final InstrumentedExecutor cpu;
+    // Pool of the work handed over by the main thread
+    private final InstrumentedExecutor background;
+
+    /**
+     * Constructor to initialize the AppExecutors with the given pools.
+     *
+     * @param dbRead  the pool of the database reads
+     * @param dbWrite the pool of the database writes, running one task at a time
+     * @param cpu        the pool of the CPU-bound work
+     * @param background the pool of the work handed over by the main thread, never running it on the submitting thread
+     */
+    public AppExecutors(@NonNull InstrumentedExecutor dbRead, @NonNull InstrumentedExecutor dbWrite,
+                        @NonNull InstrumentedExecutor cpu, @NonNull InstrumentedExecutor background) {
+        this.dbRead = dbRead;
+        this.dbWrite = dbWrite;
+        this.cpu = cpu;
+        this.background = background;
+    }
+
+    /**
+     * Creates the pools used by the application.
+     *
+     * @return the executors of the application
+     */
+    @NonNull
+    public static AppExecutors createDefault() {
+        int cpuThreads = Math.max(2, Runtime.getRuntime().availableProcessors() - 1);
+        return new AppExecutors(
+                InstrumentedExecutor.newUnbounded("db-read", READ_THREADS),
+                InstrumentedExecutor.newUnbounded("db-write", 1),
+                InstrumentedExecutor.newBounded("cpu", cpuThreads, QUEUE_CAPACITY),
+                InstrumentedExecutor.newUnbounded("background", 1));
+    }
+
+    /**
+     * Creates executors running every task on the calling thread, for tests.
+     *
+     * @return synchronous executors
+     */
+    @NonNull
+    public static AppExecutors synchronous() {
+        return new AppExecutors(
+                InstrumentedExecutor.direct("db-read"),
+                InstrumentedExecutor.direct("db-write"),
+                InstrumentedExecutor.direct("cpu"),
+                InstrumentedExecutor.direct("background"));
+    }
+
+    /**
+     * Getter for the pool of the database reads.
+     *
+     * @return the pool of the database reads
+     */
+    @NonNull
+    public InstrumentedExecutor dbRead() {
+        return dbRead;
+    }
+
+    /**
+     * Getter for the pool of the database writes.
+     *
+     * @return the pool of the database writes
+     */
+    @NonNull
+    public InstrumentedExecutor dbWrite() {
+        return dbWrite;
+    }
+
+    /**
+     * Getter for the pool of the CPU-bound work.
+     *
+     * @return the pool of the CPU-bound work
+     */
+    @NonNull
+    public InstrumentedExecutor cpu() {
+        return cpu;
+    }
+
+    /**
+     * Getter for the pool of the work handed over by the main thread.
+     * Unlike the CPU pool, it never runs a task on the submitting thread, however many tasks are waiting.
+     *
+     * @return the pool of the background work
+     */
+    @NonNull
+    public InstrumentedExecutor background() {
+        return background;
+    }
+
+    /**
+     * Returns a one-line summary of the statistics of every pool, for logs.
+     *
+     * @return the statistics of the pools
+     */
+    @NonNull
+    @Override
+    public String toString() {
+        return dbRead + " " + dbWrite + " " + cpu + " " + background;
+    }
+}
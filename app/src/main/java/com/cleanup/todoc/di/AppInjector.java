@@ -1,49 +1,221 @@
 package com.cleanup.todoc.di;
 
 import android.app.Application;
+import android.content.pm.ApplicationInfo;
+import android.os.Trace;
 import android.util.Log;
 
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Observer;
+
+import com.cleanup.todoc.metrics.Metrics;
 import com.cleanup.todoc.repository.AppDatabase;
+import com.cleanup.todoc.repository.DatabaseProfile;
+import com.cleanup.todoc.repository.InvalidationCoalescer;
+import com.cleanup.todoc.repository.ProjectDao;
 import com.cleanup.todoc.repository.ProjectRepository;
+import com.cleanup.todoc.repository.TaskDao;
+import com.cleanup.todoc.repository.TaskExporter;
+import com.cleanup.todoc.repository.TaskImporter;
+import com.cleanup.todoc.repository.TaskPageSource;
+import com.cleanup.todoc.repository.TaskPurger;
 import com.cleanup.todoc.repository.TaskRepository;
+import com.cleanup.todoc.repository.TaskWriteQueue;
+
+import java.util.concurrent.Executor;
 
 /**
  * AppInjector class is responsible for initializing and providing instances of repositories and the database.
  * This class follows the singleton pattern to ensure that only one instance of the database and repositories is created.
+ * <p>
+ * Initialization runs on the database write pool so that opening the database stays off the cold-start critical path.
+ * Every background work of the application runs on the pools of {@link AppExecutors}, which tests can replace.
+ * Screens wait for {@link #whenReady(LifecycleOwner, Runnable)} before asking for a repository.
+ * Every phase is wrapped in a trace section, visible in system traces under the "Todoc:" prefix.
+ * Debuggable builds also record the hot paths into the {@link Metrics} of {@link #provideMetrics()}.
  */
 public class AppInjector {
-    // Singleton instance of the AppDatabase
-    private static AppDatabase database;
+    // Executors shared by the whole application, created on first use
+    private static AppExecutors executors;
+    // Metrics of the hot paths, recording only in debuggable builds
+    private static volatile Metrics metrics = Metrics.DISABLED;
 
     // Singleton instances of repositories
-    private static ProjectRepository projectRepository;
-    private static TaskRepository taskRepository;
+    private static volatile ProjectRepository projectRepository;
+    private static volatile TaskRepository taskRepository;
+    private static volatile TaskImporter taskImporter;
+    private static volatile TaskExporter taskExporter;
+
+    // Whether the initialization has been started
+    private static boolean started;
+    // Becomes true once the database is open and the repositories are built
+    private static final MutableLiveData<Boolean> ready = new MutableLiveData<>(false);
+
+    /**
+     * Private constructor, the injector only has static members.
+     */
+    private AppInjector() {
+    }
 
     /**
-     * Initializes the AppDatabase and repositories.
+     * Starts the initialization of the AppDatabase and repositories on the database write pool.
      * This method should be called once, typically in the Application class of the Android app.
+     * Subsequent calls are ignored so that the write pipeline of the TaskRepository is not started twice.
      *
      * @param application the application context used to initialize the database
      */
     public static void init(Application application) {
-        // Initialize the database instance
-        database = AppDatabase.getDatabase(application);
-        Log.d("AppInjector", "Database initialized.");
+        init(application, provideExecutors().dbWrite());
+    }
+
+    /**
+     * Starts the initialization of the AppDatabase and repositories on the given executor.
+     *
+     * @param application the application context used to initialize the database
+     * @param executor    the executor on which the database is opened and the repositories are built
+     */
+    @VisibleForTesting
+    public static synchronized void init(Application application, Executor executor) {
+        // Already started by a previous activity creation (e.g. configuration change)
+        if (started) {
+            return;
+        }
+        started = true;
+        if ((application.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0) {
+            metrics = new Metrics(true);
+        }
+        executor.execute(() -> initialize(application));
+    }
+
+    /**
+     * Opens the database and builds the repositories, then marks the injector ready.
+     *
+     * @param application the application context used to initialize the database
+     */
+    @WorkerThread
+    private static void initialize(Application application) {
+        Trace.beginSection("Todoc:AppInjector.initialize");
+        try {
+            // Initialize the database instance, and open it so that creation and migrations run here
+            Trace.beginSection("Todoc:AppDatabase.open");
+            AppExecutors appExecutors = provideExecutors();
+            // Reads of the list run on the read pool while the writes go through the single write thread
+            AppDatabase appDatabase = AppDatabase.getDatabase(application,
+                    DatabaseProfile.writeAheadLogging(appExecutors.dbRead(), appExecutors.dbWrite()));
+            appDatabase.getOpenHelper().getWritableDatabase();
+            Trace.endSection();
+            Log.d("AppInjector", "Database initialized.");
+            // The DAOs are decorated by the metrics, and left as they are when metrics are disabled
+            TaskDao taskDao = metrics.instrument(TaskDao.class, appDatabase.taskDao());
+            ProjectDao projectDao = metrics.instrument(ProjectDao.class, appDatabase.projectDao());
+
+            // Initialize the project repository
+            Trace.beginSection("Todoc:ProjectRepository.init");
+            // A burst of writes reloads the project rows and the list once per coalescing window
+            projectRepository = new ProjectRepository(projectDao, appDatabase.getInvalidationTracker(),
+                    appExecutors.dbRead(), InvalidationCoalescer.DEFAULT_WINDOW_MILLIS);
+            Trace.endSection();
+            Log.d("AppInjector", "ProjectRepository initialized.");
+
+            // Initialize the task repository
+            Trace.beginSection("Todoc:TaskRepository.init");
+            TaskWriteQueue writeQueue = new TaskWriteQueue(appDatabase, taskDao, appExecutors.dbWrite());
+            writeQueue.setMetrics(metrics);
+            taskRepository = new TaskRepository(taskDao, writeQueue,
+                    // The tasks of the list share the instances of their projects
+                    new TaskPageSource(taskDao, appDatabase.getInvalidationTracker(),
+                            InvalidationCoalescer.DEFAULT_WINDOW_MILLIS, projectRepository.getProjectCache()),
+                    new TaskPurger(appDatabase, taskDao, appExecutors.dbWrite()));
+            Trace.endSection();
+            Log.d("AppInjector", "TaskRepository initialized.");
+            // Tasks deleted before the application was stopped can no longer be restored
+            taskRepository.purgeDeletedTasks();
+
+            taskImporter = new TaskImporter(appDatabase);
+            taskExporter = new TaskExporter(appDatabase);
+
+            ready.postValue(true);
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+    /**
+     * Runs an action on the main thread once the repositories are available, unless the owner is destroyed first.
+     * The action runs when the owner is at least started, right away if the repositories are already available.
+     *
+     * @param owner  the lifecycle the action is bound to
+     * @param action the action to run
+     */
+    @MainThread
+    public static void whenReady(@NonNull LifecycleOwner owner, @NonNull Runnable action) {
+        ready.observe(owner, new Observer<Boolean>() {
+            @Override
+            public void onChanged(Boolean isReady) {
+                if (isReady) {
+                    ready.removeObserver(this);
+                    action.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * Getter for the readiness of the repositories.
+     *
+     * @return LiveData becoming true once the database is open and the repositories are built
+     */
+    public static LiveData<Boolean> isReady() {
+        return ready;
+    }
 
-        // Initialize the project repository
-        projectRepository = new ProjectRepository(database.projectDao());
-        Log.d("AppInjector", "ProjectRepository initialized.");
+    /**
+     * Provides the executors shared by the whole application, creating them on first use.
+     *
+     * @return the AppExecutors instance
+     */
+    @NonNull
+    public static synchronized AppExecutors provideExecutors() {
+        if (executors == null) {
+            executors = AppExecutors.createDefault();
+        }
+        return executors;
+    }
 
-        // Initialize the task repository
-        taskRepository = new TaskRepository(database.taskDao());
-        Log.d("AppInjector", "TaskRepository initialized.");
+    /**
+     * Replaces the executors shared by the whole application, e.g. by synchronous ones in tests.
+     * Must be called before the first call to {@link #init(Application)}.
+     *
+     * @param appExecutors the executors to use
+     */
+    @VisibleForTesting
+    public static synchronized void setExecutors(@NonNull AppExecutors appExecutors) {
+        executors = appExecutors;
+    }
+
+    /**
+     * Provides the metrics of the hot paths of the application.
+     *
+     * @return the metrics, disabled unless the application is debuggable
+     */
+    @NonNull
+    public static Metrics provideMetrics() {
+        return metrics;
     }
 
     /**
      * Provides the singleton instance of the ProjectRepository.
      *
-     * @return the ProjectRepository instance
+     * @return the ProjectRepository instance, or null until the injector is ready
      */
+    @Nullable
     public static ProjectRepository provideProjectRepository() {
         return projectRepository;
     }
@@ -51,9 +223,44 @@ public class AppInjector {
     /**
      * Provides the singleton instance of the TaskRepository.
      *
-     * @return the TaskRepository instance
+     * @return the TaskRepository instance, or null until the injector is ready
      */
+    @Nullable
     public static TaskRepository provideTaskRepository() {
         return taskRepository;
     }
-}
\ No newline at end of file
+
+    /**
+     * Provides the singleton instance of the TaskImporter.
+     *
+     * @return the TaskImporter instance, or null until the injector is ready
+     */
+    @Nullable
+    public static TaskImporter provideTaskImporter() {
+        return taskImporter;
+    }
+
+    /**
+     * Provides the singleton instance of the TaskExporter.
+     *
+     * @return the TaskExporter instance, or null until the injector is ready
+     */
+    @Nullable
+    public static TaskExporter provideTaskExporter() {
+        return taskExporter;
+    }
+
+    /**
+     * Forgets the repositories so that tests can initialize the injector again.
+     * The database itself is a singleton of AppDatabase and stays open.
+     */
+    @VisibleForTesting
+    public static synchronized void reset() {
+        started = false;
+        projectRepository = null;
+        taskRepository = null;
+        taskImporter = null;
+        taskExporter = null;
+        ready.postValue(false);
+    }
+}
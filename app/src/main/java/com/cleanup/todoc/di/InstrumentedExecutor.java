@@ -0,0 +1,281 @@
+package com.cleanup.todoc.di;
+
+import androidx.annotation.NonNull;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executor measuring the tasks it runs: how many wait in the queue, how many run, how long they waited and ran.
+ * It wraps another executor, either a thread pool created by {@link #newUnbounded(String, int)}
+ * or {@link #newBounded(String, int, int)}, or any executor given by a test, such as one running the tasks on the calling thread.
+ */
+public class InstrumentedExecutor extends AbstractExecutorService {
+
+    // Name of the pool, used for its threads and its statistics
+    private final String name;
+    // Executor actually running the tasks
+    private final Executor delegate;
+    // Whether this executor was shut down, when the delegate is not an ExecutorService
+    private volatile boolean shutdown;
+
+    // Statistics of the tasks
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong totalRunNanos = new AtomicLong();
+
+    /**
+     * Constructor to initialize the InstrumentedExecutor over another executor.
+     *
+     * @param name     the name of the pool
+     * @param delegate the executor actually running the tasks
+     */
+    public InstrumentedExecutor(@NonNull String name, @NonNull Executor delegate) {
+        this.name = name;
+        this.delegate = delegate;
+    }
+
+    /**
+     * Creates an executor running its tasks on a fixed number of threads, fed by an unbounded queue,
+     * so that a task never runs on the thread submitting it. Pools running database work must be built this way:
+     * the submitting thread is often the main thread, where Room refuses to run queries, and the single writer
+     * must stay the only thread writing.
+     * The threads are started right away, so that no thread is created while tasks are submitted.
+     *
+     * @param name    the name of the pool, prefix of the names of its threads
+     * @param threads the number of threads
+     * @return the new executor
+     */
+    @NonNull
+    public static InstrumentedExecutor newUnbounded(@NonNull String name, int threads) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), daemonThreads(name));
+        pool.prestartAllCoreThreads();
+        return new InstrumentedExecutor(name, pool);
+    }
+
+    /**
+     * Creates an executor running its tasks on a fixed number of threads, fed by a bounded queue.
+     * When the queue is full, the task runs on the calling thread, which slows producers down.
+     * Only fit for work which may run on any thread, such as CPU-bound work, never for database work
+     * nor for work submitted by the main thread.
+     * The threads are started right away, so that no thread is created while tasks are submitted.
+     *
+     * @param name          the name of the pool, prefix of the names of its threads
+     * @param threads       the number of threads
+     * @param queueCapacity the maximum number of tasks waiting for a thread
+     * @return the new executor
+     */
+    @NonNull
+    public static InstrumentedExecutor newBounded(@NonNull String name, int threads, int queueCapacity) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), daemonThreads(name),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        pool.prestartAllCoreThreads();
+        return new InstrumentedExecutor(name, pool);
+    }
+
+    /**
+     * Returns a factory of daemon threads named after the pool.
+     *
+     * @param name the name of the pool, prefix of the names of its threads
+     * @return the thread factory
+     */
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Creates an executor running every task on the calling thread, for tests.
+     *
+     * @param name the name of the pool
+     * @return the new executor
+     */
+    @NonNull
+    public static InstrumentedExecutor direct(@NonNull String name) {
+        return new InstrumentedExecutor(name, Runnable::run);
+    }
+
+    /**
+     * Runs a task on the delegate, measuring its wait and run times.
+     *
+     * @param command the task to run
+     */
+    @Override
+    public void execute(@NonNull Runnable command) {
+        if (isShutdown()) {
+            throw new RejectedExecutionException(name + " has been shut down");
+        }
+        final long enqueuedAt = System.nanoTime();
+        queued.incrementAndGet();
+        try {
+            delegate.execute(() -> {
+                long startedAt = System.nanoTime();
+                queued.decrementAndGet();
+                active.incrementAndGet();
+                totalWaitNanos.addAndGet(startedAt - enqueuedAt);
+                try {
+                    command.run();
+                } finally {
+                    totalRunNanos.addAndGet(System.nanoTime() - startedAt);
+                    active.decrementAndGet();
+                    completed.incrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Getter for the name of the pool.
+     *
+     * @return the name of the pool
+     */
+    @NonNull
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number of tasks waiting for a thread.
+     *
+     * @return the depth of the queue
+     */
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    /**
+     * Returns the number of tasks currently running.
+     *
+     * @return the number of active tasks
+     */
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    /**
+     * Returns the number of tasks which ran to completion, successfully or not.
+     *
+     * @return the number of completed tasks
+     */
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    /**
+     * Returns the total time the completed and running tasks waited in the queue.
+     *
+     * @return the total wait time, in nanoseconds
+     */
+    public long getTotalWaitNanos() {
+        return totalWaitNanos.get();
+    }
+
+    /**
+     * Returns the total time the completed tasks ran.
+     *
+     * @return the total run time, in nanoseconds
+     */
+    public long getTotalRunNanos() {
+        return totalRunNanos.get();
+    }
+
+    /**
+     * Returns a one-line summary of the statistics, for logs.
+     *
+     * @return the statistics of the pool
+     */
+    @NonNull
+    @Override
+    public String toString() {
+        long count = Math.max(1, completed.get());
+        return name + "[queued=" + queued.get() + " active=" + active.get() + " completed=" + completed.get()
+                + " avgWaitUs=" + totalWaitNanos.get() / count / 1_000
+                + " avgRunUs=" + totalRunNanos.get() / count / 1_000 + "]";
+    }
+
+    /**
+     * Stops accepting tasks and shuts the delegate down, letting the queued tasks run.
+     */
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        if (delegate instanceof ExecutorService) {
+            ((ExecutorService) delegate).shutdown();
+        }
+    }
+
+    /**
+     * Stops accepting tasks and shuts the delegate down, interrupting the running tasks.
+     *
+     * @return the tasks which were still queued
+     */
+    @NonNull
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown = true;
+        if (delegate instanceof ExecutorService) {
+            return ((ExecutorService) delegate).shutdownNow();
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Returns whether this executor has been shut down.
+     *
+     * @return true once shut down
+     */
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * Returns whether every task has completed after the shutdown.
+     *
+     * @return true once shut down and idle
+     */
+    @Override
+    public boolean isTerminated() {
+        if (delegate instanceof ExecutorService) {
+            return ((ExecutorService) delegate).isTerminated();
+        }
+        return shutdown && active.get() == 0;
+    }
+
+    /**
+     * Waits for the tasks to complete after the shutdown.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of the timeout
+     * @return true if the executor terminated, false if the timeout elapsed first
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Override
+    public boolean awaitTermination(long timeout, @NonNull TimeUnit unit) throws InterruptedException {
+        if (delegate instanceof ExecutorService) {
+            return ((ExecutorService) delegate).awaitTermination(timeout, unit);
+        }
+        return isTerminated();
+    }
+}
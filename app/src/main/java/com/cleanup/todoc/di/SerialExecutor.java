@@ -0,0 +1,59 @@
+package com.cleanup.todoc.di;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+/**
+ * Executor running its tasks one at a time, in submission order, on the threads of a shared pool.
+ * Components whose state is confined to one thread, such as the task pager, get this guarantee
+ * without owning a thread of their own.
+ */
+public class SerialExecutor implements Executor {
+
+    // Pool on which the tasks run
+    private final Executor pool;
+    // Tasks waiting for the current one to complete, guarded by this
+    private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+    // Task currently handed to the pool, guarded by this
+    private Runnable active;
+
+    /**
+     * Constructor to initialize the SerialExecutor.
+     *
+     * @param pool the pool on which the tasks run
+     */
+    public SerialExecutor(@NonNull Executor pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Queues a task, which runs once every task submitted before it has completed.
+     *
+     * @param command the task to run
+     */
+    @Override
+    public synchronized void execute(@NonNull Runnable command) {
+        tasks.offer(() -> {
+            try {
+                command.run();
+            } finally {
+                scheduleNext();
+            }
+        });
+        if (active == null) {
+            scheduleNext();
+        }
+    }
+
+    /**
+     * Hands the next queued task to the pool.
+     */
+    private synchronized void scheduleNext() {
+        active = tasks.poll();
+        if (active != null) {
+            pool.execute(active);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.cleanup.todoc.metrics;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Number of times something happened, such as a mutation queued or a row bound.
+ * Counters of disabled metrics ignore every increment.
+ */
+public final class Counter {
+
+    // Name of the counter, as shown in the overlay and the dumps
+    private final String name;
+    private final boolean enabled;
+    private final AtomicLong count = new AtomicLong();
+
+    /**
+     * Constructor to initialize the Counter.
+     *
+     * @param name    the name of the counter
+     * @param enabled whether increments are recorded
+     */
+    Counter(@NonNull String name, boolean enabled) {
+        this.name = name;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Adds one to the counter.
+     */
+    public void increment() {
+        if (enabled) {
+            count.incrementAndGet();
+        }
+    }
+
+    /**
+     * Adds a number to the counter.
+     *
+     * @param delta the number to add
+     */
+    public void add(long delta) {
+        if (enabled) {
+            count.addAndGet(delta);
+        }
+    }
+
+    /**
+     * Getter for the name of the counter.
+     *
+     * @return the name
+     */
+    @NonNull
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number counted so far.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Sets the counter back to zero.
+     */
+    void reset() {
+        count.set(0);
+    }
+}
@@ -0,0 +1,175 @@
+package com.cleanup.todoc.metrics;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Distribution of recorded values, such as latencies in nanoseconds or batch sizes.
+ * <p>
+ * Values are counted in buckets whose width doubles with every power of two, each power of two being split into
+ * four buckets, so that any non-negative long falls in one of 248 buckets and percentiles are known within 25%.
+ * Recording is lock-free and allocates nothing. Histograms of disabled metrics ignore every value.
+ */
+public final class Histogram {
+
+    // Number of buckets each power of two is split into
+    private static final int SUB_BUCKETS = 4;
+    // Number of buckets covering every non-negative long
+    static final int BUCKET_COUNT = bucketOf(Long.MAX_VALUE) + 1;
+
+    // Name of the histogram, as shown in the overlay and the dumps
+    private final String name;
+    private final boolean enabled;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Constructor to initialize the Histogram.
+     *
+     * @param name    the name of the histogram
+     * @param enabled whether values are recorded
+     */
+    Histogram(@NonNull String name, boolean enabled) {
+        this.name = name;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Records a value. Negative values are recorded as zero.
+     *
+     * @param value the value to record
+     */
+    public void record(long value) {
+        if (!enabled) {
+            return;
+        }
+        long recorded = Math.max(0, value);
+        buckets.incrementAndGet(bucketOf(recorded));
+        count.incrementAndGet();
+        sum.addAndGet(recorded);
+        long currentMax;
+        while (recorded > (currentMax = max.get()) && !max.compareAndSet(currentMax, recorded)) {
+            // Another thread raised the maximum meanwhile, compare again
+        }
+    }
+
+    /**
+     * Getter for the name of the histogram.
+     *
+     * @return the name
+     */
+    @NonNull
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number of recorded values.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Returns the sum of the recorded values.
+     *
+     * @return the sum
+     */
+    public long getSum() {
+        return sum.get();
+    }
+
+    /**
+     * Returns the largest recorded value.
+     *
+     * @return the maximum, 0 if nothing was recorded
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the mean of the recorded values.
+     *
+     * @return the mean, 0 if nothing was recorded
+     */
+    public double getMean() {
+        long recorded = count.get();
+        return recorded == 0 ? 0 : (double) sum.get() / recorded;
+    }
+
+    /**
+     * Returns an upper bound of a percentile of the recorded values: the upper edge of the bucket holding it,
+     * never above the maximum.
+     *
+     * @param percent the percentile, between 0 and 100
+     * @return the value below which the given percentage of the values fall, 0 if nothing was recorded
+     */
+    public long getPercentile(double percent) {
+        long recorded = count.get();
+        if (recorded == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(recorded * percent / 100));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            seen += buckets.get(bucket);
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(bucket), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Forgets every recorded value.
+     */
+    void reset() {
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            buckets.set(bucket, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Returns the bucket of a value: values below four have a bucket each, then every power of two
+     * is split into four buckets of equal width.
+     *
+     * @param value the value, not negative
+     * @return the index of its bucket
+     */
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - 2)) & (SUB_BUCKETS - 1);
+        return (exponent - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Returns the largest value of a bucket.
+     *
+     * @param bucket the index of the bucket
+     * @return the largest value falling in it
+     */
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + 1;
+        int subBucket = bucket % SUB_BUCKETS;
+        long lowerBound = (long) (SUB_BUCKETS + subBucket) << (exponent - 2);
+        long width = 1L << (exponent - 2);
+        // The last bucket ends at the largest long, whose successor would overflow
+        return lowerBound + (width - 1);
+    }
+}
@@ -0,0 +1,295 @@
+package com.cleanup.todoc.metrics;
+
+import android.util.JsonWriter;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the counters, histograms and timers of the hot paths of the application:
+ * DAO calls, write queue, LiveData dispatch and row binding.
+ * <p>
+ * Metrics are looked up by name once, then recorded without lock nor allocation. Disabled metrics hand out
+ * shared instances which ignore every record, and leave the DAOs undecorated, so that release builds pay
+ * a field read per timed operation at most. The recorded values can be read as text by the debug overlay,
+ * or dumped as JSON for offline analysis.
+ */
+public class Metrics {
+
+    /**
+     * Metrics recording nothing, used until the application decides whether to record.
+     */
+    public static final Metrics DISABLED = new Metrics(false);
+
+    private final boolean enabled;
+    // Metrics by name
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<>();
+    // Shared metrics handed out when disabled, recording nothing
+    private final Counter disabledCounter = new Counter("disabled", false);
+    private final Histogram disabledHistogram = new Histogram("disabled", false);
+    private final Timer disabledTimer = new Timer(disabledHistogram, false);
+
+    /**
+     * Constructor to initialize the Metrics.
+     *
+     * @param enabled whether the metrics record anything
+     */
+    public Metrics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns whether the metrics record anything.
+     *
+     * @return true if enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the counter of the given name, creating it on first use.
+     *
+     * @param name the name of the counter
+     * @return the counter, recording nothing when disabled
+     */
+    @NonNull
+    public Counter counter(@NonNull String name) {
+        if (!enabled) {
+            return disabledCounter;
+        }
+        Counter counter = counters.get(name);
+        if (counter == null) {
+            Counter created = new Counter(name, true);
+            counter = counters.putIfAbsent(name, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * Returns the histogram of the given name, creating it on first use.
+     *
+     * @param name the name of the histogram
+     * @return the histogram, recording nothing when disabled
+     */
+    @NonNull
+    public Histogram histogram(@NonNull String name) {
+        if (!enabled) {
+            return disabledHistogram;
+        }
+        Histogram histogram = histograms.get(name);
+        if (histogram == null) {
+            Histogram created = new Histogram(name, true);
+            histogram = histograms.putIfAbsent(name, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Returns the timer of the given name, creating it on first use.
+     *
+     * @param name the name of the timer
+     * @return the timer, recording nothing when disabled
+     */
+    @NonNull
+    public Timer timer(@NonNull String name) {
+        if (!enabled) {
+            return disabledTimer;
+        }
+        Timer timer = timers.get(name);
+        if (timer == null) {
+            Timer created = new Timer(new Histogram(name, true), true);
+            timer = timers.putIfAbsent(name, created);
+            if (timer == null) {
+                timer = created;
+            }
+        }
+        return timer;
+    }
+
+    /**
+     * Decorates a DAO so that every call of its methods is timed under "dao.&lt;interface&gt;.&lt;method&gt;".
+     * Methods returning a LiveData are timed while the LiveData is created, not while its query runs.
+     *
+     * @param type   the interface of the DAO
+     * @param target the DAO generated by Room
+     * @param <T>    the type of the DAO
+     * @return the decorated DAO, or the DAO itself when disabled
+     */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    public <T> T instrument(@NonNull Class<T> type, @NonNull T target) {
+        if (!enabled) {
+            return target;
+        }
+        String prefix = "dao." + type.getSimpleName() + ".";
+        Map<Method, Timer> timersByMethod = new ConcurrentHashMap<>();
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Timer timer = null;
+            if (method.getDeclaringClass() != Object.class) {
+                timer = timersByMethod.get(method);
+                if (timer == null) {
+                    timer = timer(prefix + method.getName());
+                    timersByMethod.put(method, timer);
+                }
+            }
+            long start = timer != null ? timer.start() : 0;
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            } finally {
+                if (timer != null) {
+                    timer.stop(start);
+                }
+            }
+        });
+    }
+
+    /**
+     * Forgets every recorded value, keeping the metrics themselves.
+     */
+    public void reset() {
+        for (Counter counter : counters.values()) {
+            counter.reset();
+        }
+        for (Histogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+        for (Timer timer : timers.values()) {
+            timer.getHistogram().reset();
+        }
+    }
+
+    /**
+     * Describes every metric which recorded something, one per line sorted by name, durations in milliseconds.
+     *
+     * @return the text shown by the debug overlay
+     */
+    @NonNull
+    public String summary() {
+        List<String> lines = new ArrayList<>();
+        for (Counter counter : counters.values()) {
+            if (counter.getCount() > 0) {
+                lines.add(counter.getName() + " " + counter.getCount());
+            }
+        }
+        for (Histogram histogram : histograms.values()) {
+            if (histogram.getCount() > 0) {
+                lines.add(String.format(Locale.ROOT, "%s n=%d p50=%d p95=%d max=%d", histogram.getName(),
+                        histogram.getCount(), histogram.getPercentile(50), histogram.getPercentile(95),
+                        histogram.getMax()));
+            }
+        }
+        for (Timer timer : timers.values()) {
+            Histogram histogram = timer.getHistogram();
+            if (histogram.getCount() > 0) {
+                lines.add(String.format(Locale.ROOT, "%s n=%d p50=%.2fms p95=%.2fms max=%.2fms", histogram.getName(),
+                        histogram.getCount(), histogram.getPercentile(50) / 1e6, histogram.getPercentile(95) / 1e6,
+                        histogram.getMax() / 1e6));
+            }
+        }
+        Collections.sort(lines);
+        StringBuilder summary = new StringBuilder();
+        for (String line : lines) {
+            if (summary.length() > 0) {
+                summary.append('\n');
+            }
+            summary.append(line);
+        }
+        return summary.toString();
+    }
+
+    /**
+     * Writes every metric as a JSON object: the counters, then the histograms and the timers
+     * with their count, sum, mean, percentiles and maximum, durations in nanoseconds.
+     * The writer is flushed but not closed.
+     *
+     * @param writer the destination of the JSON
+     * @throws IOException if the writer fails
+     */
+    @WorkerThread
+    public void dump(@NonNull Writer writer) throws IOException {
+        JsonWriter json = new JsonWriter(writer);
+        json.setIndent("  ");
+        json.beginObject();
+        json.name("timestamp").value(System.currentTimeMillis());
+        json.name("counters").beginObject();
+        for (Counter counter : counters.values()) {
+            json.name(counter.getName()).value(counter.getCount());
+        }
+        json.endObject();
+        json.name("histograms").beginObject();
+        for (Histogram histogram : histograms.values()) {
+            writeHistogram(json, histogram);
+        }
+        json.endObject();
+        json.name("timers").beginObject();
+        for (Timer timer : timers.values()) {
+            writeHistogram(json, timer.getHistogram());
+        }
+        json.endObject();
+        json.endObject();
+        json.flush();
+    }
+
+    /**
+     * Dumps every metric in a new "metrics-&lt;timestamp&gt;.json" file, as written by {@link #dump(Writer)}.
+     *
+     * @param directory the directory of the file
+     * @return the written file
+     * @throws IOException if the file cannot be written
+     */
+    @NonNull
+    @WorkerThread
+    public File dump(@NonNull File directory) throws IOException {
+        File file = new File(directory, "metrics-" + System.currentTimeMillis() + ".json");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            dump(writer);
+        }
+        return file;
+    }
+
+    /**
+     * Writes the statistics of a histogram as a named JSON object.
+     *
+     * @param json      the JSON being written
+     * @param histogram the histogram to write
+     * @throws IOException if the writer fails
+     */
+    private static void writeHistogram(JsonWriter json, Histogram histogram) throws IOException {
+        json.name(histogram.getName()).beginObject();
+        json.name("count").value(histogram.getCount());
+        json.name("sum").value(histogram.getSum());
+        json.name("mean").value(histogram.getMean());
+        json.name("p50").value(histogram.getPercentile(50));
+        json.name("p95").value(histogram.getPercentile(95));
+        json.name("p99").value(histogram.getPercentile(99));
+        json.name("max").value(histogram.getMax());
+        json.endObject();
+    }
+}
@@ -0,0 +1,70 @@
+package com.cleanup.todoc.metrics;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.MutableLiveData;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MutableLiveData timing how its values reach the observers:
+ * "&lt;name&gt;.delay" from {@link #postValue(Object)} on a background thread to the main thread taking the value,
+ * and "&lt;name&gt;.dispatch" while the observers handle it.
+ * When several values are posted before the main thread takes the latest, the delay runs from the first of them.
+ *
+ * @param <T> the type of the values
+ */
+public class TimedLiveData<T> extends MutableLiveData<T> {
+
+    // Time from the post of a value to its dispatch on the main thread
+    private final Timer delay;
+    // Time spent by the observers on a value
+    private final Timer dispatch;
+    // Time of the first value posted since the last dispatch, 0 if none is waiting
+    private final AtomicLong postedAt = new AtomicLong();
+
+    /**
+     * Constructor to initialize the TimedLiveData with an initial value.
+     *
+     * @param value   the initial value
+     * @param metrics the metrics receiving the timings
+     * @param name    the prefix of the names of its timers
+     */
+    public TimedLiveData(T value, @NonNull Metrics metrics, @NonNull String name) {
+        super(value);
+        this.delay = metrics.timer(name + ".delay");
+        this.dispatch = metrics.timer(name + ".dispatch");
+    }
+
+    /**
+     * Posts a value to be dispatched on the main thread, remembering when the first pending value was posted.
+     *
+     * @param value the new value
+     */
+    @Override
+    public void postValue(T value) {
+        if (delay.isEnabled()) {
+            postedAt.compareAndSet(0, System.nanoTime());
+        }
+        super.postValue(value);
+    }
+
+    /**
+     * Dispatches a value to the observers on the main thread, timing the dispatch.
+     *
+     * @param value the new value
+     */
+    @Override
+    public void setValue(T value) {
+        if (!dispatch.isEnabled()) {
+            super.setValue(value);
+            return;
+        }
+        long posted = postedAt.getAndSet(0);
+        long start = dispatch.start();
+        if (posted != 0) {
+            delay.record(start - posted);
+        }
+        super.setValue(value);
+        dispatch.stop(start);
+    }
+}
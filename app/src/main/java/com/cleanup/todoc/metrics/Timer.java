@@ -0,0 +1,78 @@
+package com.cleanup.todoc.metrics;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Durations of an operation, recorded in nanoseconds into a {@link Histogram}.
+ * <pre>
+ * long start = timer.start();
+ * ... the timed operation ...
+ * timer.stop(start);
+ * </pre>
+ * Timers of disabled metrics do not even read the clock, so timing a hot path costs a field read when disabled.
+ */
+public final class Timer {
+
+    // Durations of the operation, in nanoseconds
+    private final Histogram histogram;
+    private final boolean enabled;
+
+    /**
+     * Constructor to initialize the Timer.
+     *
+     * @param histogram the histogram receiving the durations
+     * @param enabled   whether durations are recorded
+     */
+    Timer(@NonNull Histogram histogram, boolean enabled) {
+        this.histogram = histogram;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns whether durations are recorded.
+     *
+     * @return true if the metrics are enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts timing the operation.
+     *
+     * @return the start time to give to {@link #stop(long)}, 0 when disabled
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Stops timing the operation and records its duration.
+     *
+     * @param start the time returned by {@link #start()}
+     */
+    public void stop(long start) {
+        if (enabled) {
+            histogram.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Records a duration measured elsewhere.
+     *
+     * @param nanos the duration, in nanoseconds
+     */
+    public void record(long nanos) {
+        histogram.record(nanos);
+    }
+
+    /**
+     * Getter for the histogram of the durations.
+     *
+     * @return the durations recorded so far, in nanoseconds
+     */
+    @NonNull
+    public Histogram getHistogram() {
+        return histogram;
+    }
+}
@@ -0,0 +1,36 @@
+package com.cleanup.todoc.model;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * <p>Progress of an import of tasks, committed along with each chunk of imported tasks.</p>
+ * <p>An import interrupted by a crash resumes after the last committed chunk instead of importing its rows twice.</p>
+ */
+@Entity(tableName = "import_checkpoints")
+public class ImportCheckpoint {
+
+    /**
+     * The identifier of the imported file.
+     */
+    @PrimaryKey
+    @NonNull
+    public String source;
+
+    /**
+     * The number of rows of the file already read and committed, including the rows which were skipped.
+     */
+    public long committedRows;
+
+    /**
+     * Instantiates a new ImportCheckpoint.
+     *
+     * @param source        the identifier of the imported file to set
+     * @param committedRows the number of rows of the file already committed to set
+     */
+    public ImportCheckpoint(@NonNull String source, long committedRows) {
+        this.source = source;
+        this.committedRows = committedRows;
+    }
+}
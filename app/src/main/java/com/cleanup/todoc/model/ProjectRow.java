@@ -0,0 +1,90 @@
+package com.cleanup.todoc.model;
+
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+import androidx.room.Ignore;
+
+/**
+ * <p>Slim read model of a project for the project spinner and the summary of the list:
+ * its identifier, name and color along with the number of its tasks.</p>
+ * <p>The number of tasks is read from the "project_stats" table, so loading every project costs one row per project.</p>
+ */
+public class ProjectRow {
+
+    /**
+     * The unique identifier of the project.
+     */
+    public long projectId;
+
+    /**
+     * The name of the project.
+     */
+    @NonNull
+    public String projectName;
+
+    /**
+     * The hex (ARGB) code of the color of the project.
+     */
+    @ColorInt
+    public int projectColor;
+
+    /**
+     * The number of tasks of the project.
+     */
+    public int taskCount;
+
+    /**
+     * The label of the project in the spinner, formatted on first use.
+     */
+    @Ignore
+    private String label;
+
+    /**
+     * Instantiates a new ProjectRow.
+     *
+     * @param projectId    the unique identifier of the project to set
+     * @param projectName  the name of the project to set
+     * @param projectColor the hex (ARGB) code of the color of the project to set
+     * @param taskCount    the number of tasks of the project to set
+     */
+    public ProjectRow(long projectId, @NonNull String projectName, @ColorInt int projectColor, int taskCount) {
+        this.projectId = projectId;
+        this.projectName = projectName;
+        this.projectColor = projectColor;
+        this.taskCount = taskCount;
+    }
+
+    /**
+     * Returns the unique identifier of the project.
+     *
+     * @return the unique identifier of the project
+     */
+    public long getId() {
+        return projectId;
+    }
+
+    /**
+     * Returns the number of tasks of the project.
+     *
+     * @return the number of tasks of the project
+     */
+    public int getTaskCount() {
+        return taskCount;
+    }
+
+    /**
+     * Returns the name of the project followed by its number of tasks, as displayed by the project spinner.
+     *
+     * @return the name and the number of tasks of the project
+     */
+    @NonNull
+    @Override
+    public String toString() {
+        // Called by the spinner on every bind of the project
+        if (label == null) {
+            label = projectName + " (" + taskCount + ")";
+        }
+        return label;
+    }
+}
@@ -0,0 +1,49 @@
+package com.cleanup.todoc.model;
+
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * <p>Aggregates of the tasks of a project: how many there are, and when the oldest and newest were created.</p>
+ * <p>Rows are maintained by triggers on the "tasks" table, inside the transaction of each write,
+ * so reading them never scans the tasks. A project without tasks has no row.</p>
+ */
+@Entity(tableName = "project_stats")
+public class ProjectStats {
+
+    /**
+     * The unique identifier of the project.
+     */
+    @PrimaryKey
+    public long projectId;
+
+    /**
+     * The number of tasks of the project.
+     */
+    public int taskCount;
+
+    /**
+     * The creation timestamp of the oldest task of the project.
+     */
+    public long oldestTimestamp;
+
+    /**
+     * The creation timestamp of the newest task of the project.
+     */
+    public long newestTimestamp;
+
+    /**
+     * Instantiates a new ProjectStats.
+     *
+     * @param projectId       the unique identifier of the project to set
+     * @param taskCount       the number of tasks of the project to set
+     * @param oldestTimestamp the creation timestamp of the oldest task to set
+     * @param newestTimestamp the creation timestamp of the newest task to set
+     */
+    public ProjectStats(long projectId, int taskCount, long oldestTimestamp, long newestTimestamp) {
+        this.projectId = projectId;
+        this.taskCount = taskCount;
+        this.oldestTimestamp = oldestTimestamp;
+        this.newestTimestamp = newestTimestamp;
+    }
+}
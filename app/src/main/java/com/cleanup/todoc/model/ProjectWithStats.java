@@ -0,0 +1,92 @@
+package com.cleanup.todoc.model;
+
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.room.Embedded;
+import androidx.room.Ignore;
+
+/**
+ * <p>Read model of a project along with the aggregates of its tasks.</p>
+ * <p>The aggregates are read from the "project_stats" table, so loading every project costs one row per project,
+ * whatever the number of tasks.</p>
+ */
+public class ProjectWithStats {
+
+    /**
+     * The project.
+     */
+    @Embedded
+    @NonNull
+    public Project project;
+
+    /**
+     * The number of tasks of the project.
+     */
+    public int taskCount;
+
+    /**
+     * The creation timestamp of the oldest task of the project, or null if it has no task.
+     */
+    @Nullable
+    public Long oldestTimestamp;
+
+    /**
+     * The creation timestamp of the newest task of the project, or null if it has no task.
+     */
+    @Nullable
+    public Long newestTimestamp;
+
+    /**
+     * Instantiates a new ProjectWithStats, used by Room to map query results.
+     */
+    public ProjectWithStats() {
+    }
+
+    /**
+     * Instantiates a new ProjectWithStats.
+     *
+     * @param project         the project to set
+     * @param taskCount       the number of tasks of the project to set
+     * @param oldestTimestamp the creation timestamp of the oldest task to set, or null if it has no task
+     * @param newestTimestamp the creation timestamp of the newest task to set, or null if it has no task
+     */
+    @Ignore
+    public ProjectWithStats(@NonNull Project project, int taskCount,
+                            @Nullable Long oldestTimestamp, @Nullable Long newestTimestamp) {
+        this.project = project;
+        this.taskCount = taskCount;
+        this.oldestTimestamp = oldestTimestamp;
+        this.newestTimestamp = newestTimestamp;
+    }
+
+    /**
+     * Returns the project.
+     *
+     * @return the project
+     */
+    @NonNull
+    public Project getProject() {
+        return project;
+    }
+
+    /**
+     * Returns the number of tasks of the project.
+     *
+     * @return the number of tasks of the project
+     */
+    public int getTaskCount() {
+        return taskCount;
+    }
+
+    /**
+     * Returns the name of the project followed by its number of tasks, as displayed by the project spinner.
+     *
+     * @return the name and the number of tasks of the project
+     */
+    @NonNull
+    @Override
+    public String toString() {
+        return project.getName() + " (" + taskCount + ")";
+    }
+}
@@ -4,19 +4,36 @@ package com.cleanup.todoc.model;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.room.ColumnInfo;
-import androidx.room.Embedded;
 import androidx.room.Entity;
 import androidx.room.ForeignKey;
+import androidx.room.Ignore;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
 /**
  * <p>Model for the tasks of the application.</p>
- * <p>This class represents a task with a unique identifier, a project associated with the task, a name, and a creation timestamp.</p>
+ * <p>This class represents a task with a unique identifier, the identifier of the project associated with the task, a name, and a creation timestamp.</p>
+ * <p>Only the project identifier is stored with the task; reads needing the project go through {@link TaskWithProject}.</p>
+ * <p>The indices back the foreign key and every order the list of tasks can be sorted in,
+ * with the identifier as tiebreak so that keyset pagination can seek on them.
+ * Each order also has an index led by the project, so that the tasks of a project are paged with the same seeks,
+ * and the oldest and newest tasks of a project are found without visiting its other tasks.</p>
+ * <p>A deleted task is first tombstoned: it keeps its row, with the time of its deletion, so that it can be restored,
+ * until it is purged. The index on the tombstone is declared here so that Room knows it,
+ * but it is created as a partial index over the tombstones only, see {@code AppDatabase#createTombstoneIndex}.</p>
  */
 @Entity(tableName = "tasks",
         foreignKeys = @ForeignKey(entity = Project.class,
                 parentColumns = "projectId",
-                childColumns = "projectId"))
+                childColumns = "projectId"),
+        indices = {
+                @Index({"projectId", "taskId"}),
+                @Index({"projectId", "taskName", "taskId"}),
+                @Index({"projectId", "creation_timestamp", "taskId"}),
+                @Index({"taskName", "taskId"}),
+                @Index({"creation_timestamp", "taskId"}),
+                @Index("deleted_at")
+        })
 public class Task {
     /**
      * The unique identifier of the task.
@@ -25,11 +42,9 @@ public class Task {
     public long taskId;
 
     /**
-     * The project associated with the task.
-     * Using @Embedded annotation to retrieve project data related to the task.
+     * The unique identifier of the project associated with the task.
      */
-    @Embedded
-    public Project project;
+    public long projectId;
 
     /**
      * The name of the task.
@@ -43,21 +58,41 @@ public class Task {
     @ColumnInfo(name = "creation_timestamp")
     public long taskCreationTimestamp;
 
+    /**
+     * The timestamp when the task has been deleted, or null while the task is not deleted.
+     */
+    @ColumnInfo(name = "deleted_at")
+    @Nullable
+    public Long deletedAt;
+
     /**
      * Instantiates a new Task.
      *
      * @param taskId                the unique identifier of the task to set
-     * @param project               the project associated with the task to set
+     * @param projectId             the unique identifier of the project associated with the task to set
      * @param taskName              the name of the task to set
      * @param taskCreationTimestamp the timestamp when the task has been created to set
      */
-    public Task(long taskId, @NonNull Project project, @NonNull String taskName, long taskCreationTimestamp) {
+    public Task(long taskId, long projectId, @NonNull String taskName, long taskCreationTimestamp) {
         this.taskId = taskId;
-        this.project = project;
+        this.projectId = projectId;
         this.taskName = taskName;
         this.taskCreationTimestamp = taskCreationTimestamp;
     }
 
+    /**
+     * Instantiates a new Task associated with the given project.
+     *
+     * @param taskId                the unique identifier of the task to set
+     * @param project               the project associated with the task to set
+     * @param taskName              the name of the task to set
+     * @param taskCreationTimestamp the timestamp when the task has been created to set
+     */
+    @Ignore
+    public Task(long taskId, @NonNull Project project, @NonNull String taskName, long taskCreationTimestamp) {
+        this(taskId, project.getId(), taskName, taskCreationTimestamp);
+    }
+
     /**
      * Returns the unique identifier of the task.
      *
@@ -68,13 +103,12 @@ public class Task {
     }
 
     /**
-     * Returns the project associated with the task.
+     * Returns the unique identifier of the project associated with the task.
      *
-     * @return the project associated with the task
+     * @return the unique identifier of the project associated with the task
      */
-    @Nullable
-    public Project getProject() {
-        return project;
+    public long getProjectId() {
+        return projectId;
     }
 
     /**
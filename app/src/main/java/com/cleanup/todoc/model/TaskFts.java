@@ -0,0 +1,31 @@
+package com.cleanup.todoc.model;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+
+/**
+ * <p>Full-text index of the names of the tasks.</p>
+ * <p>This FTS4 table stores no copy of the names: its content is read from the "tasks" table,
+ * and Room keeps the index in sync with triggers on that table. Its rowid is the identifier of the task.</p>
+ * <p>The unicode61 tokenizer folds case and removes diacritics, so that "reunion" matches "Réunion".</p>
+ */
+@Fts4(contentEntity = Task.class, tokenizer = FtsOptions.TOKENIZER_UNICODE61)
+@Entity(tableName = "tasks_fts")
+public class TaskFts {
+    /**
+     * The name of the task.
+     */
+    @NonNull
+    public String taskName;
+
+    /**
+     * Instantiates a new TaskFts.
+     *
+     * @param taskName the name of the task to set
+     */
+    public TaskFts(@NonNull String taskName) {
+        this.taskName = taskName;
+    }
+}
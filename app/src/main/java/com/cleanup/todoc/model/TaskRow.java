@@ -0,0 +1,210 @@
+package com.cleanup.todoc.model;
+
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.room.ColumnInfo;
+import androidx.room.Ignore;
+
+/**
+ * <p>Slim read model of a task for the list: the columns of the task along with the name and color of its project.</p>
+ * <p>Rows are read from the "tasks" table alone, instead of along with their projects
+ * as {@link TaskWithProject} does: the project cache fills in their project from memory,
+ * so that they reference the shared instance of their project and its name rather than holding a copy each.</p>
+ * <p>Rows are immutable: resolving the project of a row builds a new row, so that a row whose content did not change
+ * can be shared by the pages, the search results and the list from one load to the next, and compared by identity.</p>
+ */
+public class TaskRow {
+
+    /**
+     * First temporary identifier of the tasks shown before their insert is committed,
+     * far above the identifiers assigned by SQLite.
+     */
+    public static final long FIRST_PENDING_ID = Long.MAX_VALUE / 2;
+
+    /**
+     * The unique identifier of the task.
+     */
+    public final long taskId;
+
+    /**
+     * The unique identifier of the project associated with the task.
+     */
+    public final long projectId;
+
+    /**
+     * The name of the task.
+     */
+    @NonNull
+    public final String taskName;
+
+    /**
+     * The timestamp when the task has been created.
+     */
+    @ColumnInfo(name = "creation_timestamp")
+    public final long taskCreationTimestamp;
+
+    /**
+     * The name of the project associated with the task, empty if the row is not resolved.
+     */
+    @Ignore
+    @NonNull
+    public final String projectName;
+
+    /**
+     * The hex (ARGB) code of the color of the project associated with the task, 0 if the row is not resolved.
+     */
+    @Ignore
+    @ColorInt
+    public final int projectColor;
+
+    /**
+     * The shared instance of the project associated with the task, or null if the row is not resolved.
+     */
+    @Ignore
+    @Nullable
+    public final Project project;
+
+    /**
+     * The hash of the content of the row, computed on first use, 0 until then.
+     * Computing it again on another thread gives the same hash, since the content is final.
+     */
+    @Ignore
+    private int contentHash;
+
+    /**
+     * Instantiates a new TaskRow, as read from the database, whose project is not resolved yet.
+     *
+     * @param taskId                the unique identifier of the task to set
+     * @param projectId             the unique identifier of the project associated with the task to set
+     * @param taskName              the name of the task to set
+     * @param taskCreationTimestamp the timestamp when the task has been created to set
+     */
+    public TaskRow(long taskId, long projectId, @NonNull String taskName, long taskCreationTimestamp) {
+        this(taskId, projectId, taskName, taskCreationTimestamp, "", 0);
+    }
+
+    /**
+     * Instantiates a new TaskRow along with the name and color of its project.
+     *
+     * @param taskId                the unique identifier of the task to set
+     * @param projectId             the unique identifier of the project associated with the task to set
+     * @param taskName              the name of the task to set
+     * @param taskCreationTimestamp the timestamp when the task has been created to set
+     * @param projectName           the name of the project associated with the task to set
+     * @param projectColor          the hex (ARGB) code of the color of the project to set
+     */
+    @Ignore
+    public TaskRow(long taskId, long projectId, @NonNull String taskName, long taskCreationTimestamp,
+                   @NonNull String projectName, @ColorInt int projectColor) {
+        this(taskId, projectId, taskName, taskCreationTimestamp, projectName, projectColor, null);
+    }
+
+    /**
+     * Instantiates a new TaskRow with every field.
+     *
+     * @param taskId                the unique identifier of the task to set
+     * @param projectId             the unique identifier of the project associated with the task to set
+     * @param taskName              the name of the task to set
+     * @param taskCreationTimestamp the timestamp when the task has been created to set
+     * @param projectName           the name of the project associated with the task to set
+     * @param projectColor          the hex (ARGB) code of the color of the project to set
+     * @param project               the shared instance of the project to set, or null
+     */
+    private TaskRow(long taskId, long projectId, @NonNull String taskName, long taskCreationTimestamp,
+                    @NonNull String projectName, @ColorInt int projectColor, @Nullable Project project) {
+        this.taskId = taskId;
+        this.projectId = projectId;
+        this.taskName = taskName;
+        this.taskCreationTimestamp = taskCreationTimestamp;
+        this.projectName = projectName;
+        this.projectColor = projectColor;
+        this.project = project;
+    }
+
+    /**
+     * Returns a copy of the row resolved against its project: pointing at the given instance of the project,
+     * and sharing its name instead of holding a copy.
+     *
+     * @param project the instance of the project associated with the task
+     * @return a new row holding the columns of this row and the project
+     */
+    @NonNull
+    public TaskRow withProject(@NonNull Project project) {
+        return new TaskRow(taskId, projectId, taskName, taskCreationTimestamp, project.projectName,
+                project.projectColor, project);
+    }
+
+    /**
+     * Returns the task of the row.
+     *
+     * @return a new task holding the columns of the row
+     */
+    @NonNull
+    public Task toTask() {
+        return new Task(taskId, projectId, taskName, taskCreationTimestamp);
+    }
+
+    /**
+     * Returns whether the row shows a task whose insert is not committed yet. Such a task has a temporary
+     * identifier the database does not know, so it can be neither deleted nor moved until it is committed.
+     *
+     * @return true if the identifier of the task is temporary
+     */
+    public boolean isPending() {
+        return taskId >= FIRST_PENDING_ID;
+    }
+
+    /**
+     * Returns the hash of the content of the row, which tells most rows whose content differs apart
+     * without comparing their strings.
+     *
+     * @return the hash of every column of the row and of its project
+     */
+    public int contentHash() {
+        int hash = contentHash;
+        if (hash == 0) {
+            // Long.hashCode(long) needs API 24
+            hash = (int) (taskId ^ (taskId >>> 32));
+            hash = 31 * hash + (int) (projectId ^ (projectId >>> 32));
+            hash = 31 * hash + taskName.hashCode();
+            hash = 31 * hash + (int) (taskCreationTimestamp ^ (taskCreationTimestamp >>> 32));
+            hash = 31 * hash + projectName.hashCode();
+            hash = 31 * hash + projectColor;
+            hash = 31 * hash + System.identityHashCode(project);
+            // 0 marks the hash as not computed yet
+            hash = hash != 0 ? hash : 1;
+            contentHash = hash;
+        }
+        return hash;
+    }
+
+    /**
+     * Returns whether another row holds the same task, with the same content and the same instance of its project.
+     *
+     * @param other the row to compare to
+     * @return true if the rows display the same
+     */
+    public boolean hasSameContent(@NonNull TaskRow other) {
+        return taskId == other.taskId
+                && contentHash() == other.contentHash()
+                && projectColor == other.projectColor
+                && project == other.project
+                && hasSameColumns(other)
+                && projectName.equals(other.projectName);
+    }
+
+    /**
+     * Returns whether another row holds the same columns of the same task, whatever their projects.
+     *
+     * @param other the row to compare to
+     * @return true if the rows were read from the same state of the task
+     */
+    public boolean hasSameColumns(@NonNull TaskRow other) {
+        return taskId == other.taskId
+                && projectId == other.projectId
+                && taskCreationTimestamp == other.taskCreationTimestamp
+                && taskName.equals(other.taskName);
+    }
+}
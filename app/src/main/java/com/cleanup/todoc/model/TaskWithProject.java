@@ -0,0 +1,67 @@
+package com.cleanup.todoc.model;
+
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.room.Embedded;
+import androidx.room.Ignore;
+import androidx.room.Relation;
+
+/**
+ * <p>Read model of a task along with the project it is associated to.</p>
+ * <p>The project is resolved from the projectId foreign key of the task, so project data is stored once in the "projects" table.</p>
+ */
+public class TaskWithProject {
+
+    /**
+     * The task.
+     */
+    @Embedded
+    @NonNull
+    public Task task;
+
+    /**
+     * The project associated with the task.
+     */
+    @Relation(parentColumn = "projectId", entityColumn = "projectId")
+    @Nullable
+    public Project project;
+
+    /**
+     * Instantiates a new TaskWithProject, used by Room to map query results.
+     */
+    public TaskWithProject() {
+    }
+
+    /**
+     * Instantiates a new TaskWithProject.
+     *
+     * @param task    the task to set
+     * @param project the project associated with the task to set
+     */
+    @Ignore
+    public TaskWithProject(@NonNull Task task, @Nullable Project project) {
+        this.task = task;
+        this.project = project;
+    }
+
+    /**
+     * Returns the task.
+     *
+     * @return the task
+     */
+    @NonNull
+    public Task getTask() {
+        return task;
+    }
+
+    /**
+     * Returns the project associated with the task.
+     *
+     * @return the project associated with the task
+     */
+    @Nullable
+    public Project getProject() {
+        return project;
+    }
+}
@@ -1,26 +1,36 @@
 package com.cleanup.todoc.repository;
 
 import android.content.Context;
+import android.database.Cursor;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
 import androidx.sqlite.db.SupportSQLiteDatabase;
 
+import com.cleanup.todoc.model.ImportCheckpoint;
 import com.cleanup.todoc.model.Project;
+import com.cleanup.todoc.model.ProjectStats;
 import com.cleanup.todoc.model.Task;
+import com.cleanup.todoc.model.TaskFts;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.Executors;
 
 /**
  * Database class representing the Room database for the application.
- * This database holds the Project and Task entities.
+ * This database holds the Project and Task entities, the full-text index of the task names,
+ * the aggregates of the tasks of each project, and the progress of the task imports.
+ * The aggregates are maintained by triggers, and the tombstones of the deleted tasks are indexed by a partial index,
+ * neither of which Room generates, so every builder must go through
+ * {@link #buildDatabase(Context, String)} or {@link #inMemoryBuilder(Context)} to get them.
  */
-@Database(entities = {Project.class, Task.class}, version = 2)
+@Database(entities = {Project.class, Task.class, TaskFts.class, ProjectStats.class, ImportCheckpoint.class},
+        version = 9)
 public abstract class AppDatabase extends RoomDatabase {
 
     /**
@@ -37,9 +47,135 @@ public abstract class AppDatabase extends RoomDatabase {
      */
     public abstract TaskDao taskDao();
 
+    /**
+     * Abstract method to retrieve the ImportCheckpoint DAO.
+     *
+     * @return the ImportCheckpoint DAO.
+     */
+    public abstract ImportCheckpointDao importCheckpointDao();
+
     // Singleton instance of AppDatabase
     private static AppDatabase INSTANCE;
 
+    /**
+     * Migration from version 2 to 3: adds the indices backing the projectId foreign key
+     * and the sort orders of the tasks.
+     */
+    public static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_tasks_projectId` ON `tasks` (`projectId`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_tasks_taskName_taskId` ON `tasks` (`taskName`, `taskId`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_tasks_creation_timestamp_taskId` ON `tasks` (`creation_timestamp`, `taskId`)");
+        }
+    };
+
+    /**
+     * Migration from version 3 to 4: tasks stop embedding a copy of their project and only keep the projectId foreign key.
+     * SQLite cannot drop columns, so the table is rebuilt and its rows copied; the AUTOINCREMENT sequence is carried over
+     * so that the identifiers of deleted tasks are not reused.
+     */
+    public static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            long lastTaskId = 0;
+            try (Cursor cursor = db.query("SELECT seq FROM sqlite_sequence WHERE name = 'tasks'")) {
+                if (cursor.moveToFirst()) {
+                    lastTaskId = cursor.getLong(0);
+                }
+            }
+
+            db.execSQL("CREATE TABLE IF NOT EXISTS `tasks_new` (`taskId` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`projectId` INTEGER NOT NULL, `taskName` TEXT NOT NULL, `creation_timestamp` INTEGER NOT NULL, "
+                    + "FOREIGN KEY(`projectId`) REFERENCES `projects`(`projectId`) ON UPDATE NO ACTION ON DELETE NO ACTION )");
+            db.execSQL("INSERT INTO `tasks_new` (`taskId`, `projectId`, `taskName`, `creation_timestamp`) "
+                    + "SELECT `taskId`, `projectId`, `taskName`, `creation_timestamp` FROM `tasks`");
+            db.execSQL("DROP TABLE `tasks`");
+            db.execSQL("ALTER TABLE `tasks_new` RENAME TO `tasks`");
+            db.execSQL("DELETE FROM sqlite_sequence WHERE name = 'tasks'");
+            db.execSQL("INSERT INTO sqlite_sequence (name, seq) "
+                    + "VALUES ('tasks', MAX(?, (SELECT IFNULL(MAX(`taskId`), 0) FROM `tasks`)))", new Object[]{lastTaskId});
+
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_tasks_projectId` ON `tasks` (`projectId`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_tasks_taskName_taskId` ON `tasks` (`taskName`, `taskId`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_tasks_creation_timestamp_taskId` ON `tasks` (`creation_timestamp`, `taskId`)");
+        }
+    };
+
+    /**
+     * Migration from version 4 to 5: adds the full-text index of the task names and fills it from the existing tasks.
+     * The triggers keeping the index in sync are created by Room once the migration is done.
+     * Older versions seeded the projects on every launch; from now on they are seeded on creation and upgrade only.
+     */
+    public static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `tasks_fts` USING FTS4(`taskName` TEXT NOT NULL, "
+                    + "tokenize=unicode61, content=`tasks`)");
+            db.execSQL("INSERT INTO `tasks_fts`(`tasks_fts`) VALUES ('rebuild')");
+            seedProjects(db);
+        }
+    };
+
+    /**
+     * Migration from version 5 to 6: adds the table recording the progress of the task imports.
+     */
+    public static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `import_checkpoints` (`source` TEXT NOT NULL, "
+                    + "`committedRows` INTEGER NOT NULL, PRIMARY KEY(`source`))");
+        }
+    };
+
+    /**
+     * Migration from version 6 to 7: adds the aggregates of the tasks of each project, computed once from
+     * the existing tasks, then maintained by triggers. The foreign key index gains the creation timestamp.
+     */
+    public static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("DROP INDEX IF EXISTS `index_tasks_projectId`");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_tasks_projectId_creation_timestamp_taskId` "
+                    + "ON `tasks` (`projectId`, `creation_timestamp`, `taskId`)");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `project_stats` (`projectId` INTEGER NOT NULL, "
+                    + "`taskCount` INTEGER NOT NULL, `oldestTimestamp` INTEGER NOT NULL, "
+                    + "`newestTimestamp` INTEGER NOT NULL, PRIMARY KEY(`projectId`))");
+            db.execSQL("INSERT INTO `project_stats` (`projectId`, `taskCount`, `oldestTimestamp`, `newestTimestamp`) "
+                    + "SELECT `projectId`, COUNT(*), MIN(`creation_timestamp`), MAX(`creation_timestamp`) "
+                    + "FROM `tasks` GROUP BY `projectId`");
+            createStatsTriggers(db);
+        }
+    };
+
+    /**
+     * Migration from version 7 to 8: adds the indices led by the project for the other orders of the tasks.
+     */
+    public static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_tasks_projectId_taskId` ON `tasks` (`projectId`, `taskId`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_tasks_projectId_taskName_taskId` "
+                    + "ON `tasks` (`projectId`, `taskName`, `taskId`)");
+        }
+    };
+
+    /**
+     * Migration from version 8 to 9: adds the tombstone of the deleted tasks and its partial index.
+     * The triggers are created again so that the aggregates only count the tasks which are not deleted.
+     */
+    public static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `tasks` ADD COLUMN `deleted_at` INTEGER");
+            createTombstoneIndex(db);
+            db.execSQL("DROP TRIGGER IF EXISTS `project_stats_after_insert`");
+            db.execSQL("DROP TRIGGER IF EXISTS `project_stats_after_delete`");
+            db.execSQL("DROP TRIGGER IF EXISTS `project_stats_after_update`");
+            createStatsTriggers(db);
+        }
+    };
+
     /**
      * Gets a reference to the database instance. If the database doesn't exist yet, it will be created.
      * If it does exist, the existing instance will be returned.
@@ -49,35 +185,106 @@ public abstract class AppDatabase extends RoomDatabase {
      */
     public static synchronized AppDatabase getDatabase(Context context) {
         if (INSTANCE == null) {
-            // Build the database instance
-            INSTANCE = Room.databaseBuilder(context.getApplicationContext(),
-                            AppDatabase.class, "todoc_database")
-                    .addCallback(new RoomDatabase.Callback() {
-                        @Override
-                        public void onCreate(@NonNull SupportSQLiteDatabase db) {
-                            super.onCreate(db);
-                            Log.d("AppDatabase", "Database created.");
-                        }
-                    })
-                    .build();
-
-            // Prepopulate the database with initial data
-            Executors.newSingleThreadScheduledExecutor().execute(new Runnable() {
-                @Override
-                public void run() {
-                    prepopulateDatabase(INSTANCE);
-                }
-            });
+            INSTANCE = buildDatabase(context, "todoc_database");
         }
         return INSTANCE;
     }
 
     /**
-     * Populates the database with initial data if it's empty.
+     * Gets a reference to the database instance, opening its connections with the given profile
+     * when the database doesn't exist yet.
      *
-     * @param db the database instance.
+     * @param context the application context.
+     * @param profile the journal mode, durability and executors of the connections.
+     * @return the database instance.
      */
-    private static void prepopulateDatabase(final AppDatabase db) {
+    public static synchronized AppDatabase getDatabase(Context context, DatabaseProfile profile) {
+        if (INSTANCE == null) {
+            INSTANCE = buildDatabase(context, "todoc_database", profile);
+            Log.d("AppDatabase", "Database opened with " + profile);
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Creates a builder of an in-memory database with the triggers of the application, for tests.
+     * The projects are not seeded.
+     *
+     * @param context the application context.
+     * @return the configured builder.
+     */
+    @VisibleForTesting
+    public static Builder<AppDatabase> inMemoryBuilder(Context context) {
+        return Room.inMemoryDatabaseBuilder(context.getApplicationContext(), AppDatabase.class)
+                .addCallback(new RoomDatabase.Callback() {
+                    @Override
+                    public void onCreate(@NonNull SupportSQLiteDatabase db) {
+                        super.onCreate(db);
+                        createTombstoneIndex(db);
+                        createStatsTriggers(db);
+                    }
+                });
+    }
+
+    /**
+     * Builds a database with the migrations and the seeding stage of the application.
+     * The database file is only opened by its first query.
+     *
+     * @param context the application context.
+     * @param name    the name of the database file.
+     * @return a new database instance.
+     */
+    @VisibleForTesting
+    public static AppDatabase buildDatabase(Context context, String name) {
+        return newBuilder(context, name).build();
+    }
+
+    /**
+     * Builds a database with the migrations and the seeding stage of the application, opening its connections
+     * with the given profile. The database file is only opened by its first query.
+     *
+     * @param context the application context.
+     * @param name    the name of the database file.
+     * @param profile the journal mode, durability and executors of the connections.
+     * @return a new database instance.
+     */
+    @VisibleForTesting
+    public static AppDatabase buildDatabase(Context context, String name, DatabaseProfile profile) {
+        return profile.applyTo(newBuilder(context, name)).build();
+    }
+
+    /**
+     * Creates a builder configured with the migrations and the seeding stage of the application.
+     *
+     * @param context the application context.
+     * @param name    the name of the database file.
+     * @return the configured builder.
+     */
+    private static Builder<AppDatabase> newBuilder(Context context, String name) {
+        return Room.databaseBuilder(context.getApplicationContext(), AppDatabase.class, name)
+                .addMigrations(MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7,
+                        MIGRATION_7_8, MIGRATION_8_9)
+                .addCallback(new RoomDatabase.Callback() {
+                    @Override
+                    public void onCreate(@NonNull SupportSQLiteDatabase db) {
+                        super.onCreate(db);
+                        // Runs inside the transaction creating the schema, before any query can read the tables
+                        createTombstoneIndex(db);
+                        createStatsTriggers(db);
+                        seedProjects(db);
+                        Log.d("AppDatabase", "Database created.");
+                    }
+                });
+    }
+
+    /**
+     * Inserts the projects every database starts with.
+     * Only called while the database is created or upgraded, inside the transaction of that step,
+     * so that warm starts do not write anything. Projects that already exist are left untouched.
+     *
+     * @param db the database being created or upgraded.
+     */
+    static void seedProjects(SupportSQLiteDatabase db) {
         // List of initial projects to insert into the database
         List<Project> projects = Arrays.asList(
                 new Project(1L, "Projet Tartampion", 0xFFEADAD1),
@@ -86,7 +293,61 @@ public abstract class AppDatabase extends RoomDatabase {
         );
 
         // Insert the initial projects into the database
-        db.projectDao().insertAll(projects);
-        Log.d("AppDatabase", "Projects inserted: " + projects.size());
+        for (Project project : projects) {
+            db.execSQL("INSERT OR IGNORE INTO `projects` (`projectId`, `projectName`, `projectColor`) VALUES (?, ?, ?)",
+                    new Object[]{project.getId(), project.getName(), project.getColor()});
+        }
+        Log.d("AppDatabase", "Projects seeded: " + projects.size());
+    }
+
+    /**
+     * Creates the index of the tombstones of the deleted tasks as a partial index, replacing the full index
+     * Room creates from the entity, since Room cannot declare partial indices. Only the tasks waiting to be purged
+     * are indexed, so the index stays tiny while the purge and the restore find their tasks without a scan.
+     * Room validates the name and the columns of the index, which are unchanged.
+     *
+     * @param db the database being created or upgraded.
+     */
+    static void createTombstoneIndex(SupportSQLiteDatabase db) {
+        db.execSQL("DROP INDEX IF EXISTS `index_tasks_deleted_at`");
+        db.execSQL("CREATE INDEX `index_tasks_deleted_at` ON `tasks` (`deleted_at`) WHERE `deleted_at` IS NOT NULL");
+    }
+
+    /**
+     * Creates the triggers keeping the "project_stats" table in sync with the tasks which are not deleted.
+     * They run inside the transaction of each write, so the aggregates are never stale. A deleted or moved task
+     * only recomputes the oldest or newest timestamp when it held it, through a single seek on the foreign key index.
+     * Tombstoning a task removes it from the aggregates and restoring it adds it back; purging a tombstone leaves them
+     * untouched.
+     *
+     * @param db the database being created or upgraded.
+     */
+    static void createStatsTriggers(SupportSQLiteDatabase db) {
+        String addNew = "INSERT OR IGNORE INTO `project_stats` VALUES (NEW.`projectId`, 0, "
+                + "NEW.`creation_timestamp`, NEW.`creation_timestamp`); "
+                + "UPDATE `project_stats` SET `taskCount` = `taskCount` + 1, "
+                + "`oldestTimestamp` = MIN(`oldestTimestamp`, NEW.`creation_timestamp`), "
+                + "`newestTimestamp` = MAX(`newestTimestamp`, NEW.`creation_timestamp`) "
+                + "WHERE `projectId` = NEW.`projectId`; ";
+        String removeOld = "UPDATE `project_stats` SET `taskCount` = `taskCount` - 1, "
+                + "`oldestTimestamp` = CASE WHEN OLD.`creation_timestamp` > `oldestTimestamp` THEN `oldestTimestamp` "
+                + "ELSE IFNULL((SELECT MIN(`creation_timestamp`) FROM `tasks` "
+                + "WHERE `projectId` = OLD.`projectId` AND `deleted_at` IS NULL), 0) END, "
+                + "`newestTimestamp` = CASE WHEN OLD.`creation_timestamp` < `newestTimestamp` THEN `newestTimestamp` "
+                + "ELSE IFNULL((SELECT MAX(`creation_timestamp`) FROM `tasks` "
+                + "WHERE `projectId` = OLD.`projectId` AND `deleted_at` IS NULL), 0) END "
+                + "WHERE `projectId` = OLD.`projectId`; "
+                + "DELETE FROM `project_stats` WHERE `projectId` = OLD.`projectId` AND `taskCount` <= 0; ";
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `project_stats_after_insert` AFTER INSERT ON `tasks` "
+                + "WHEN NEW.`deleted_at` IS NULL BEGIN " + addNew + "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `project_stats_after_delete` AFTER DELETE ON `tasks` "
+                + "WHEN OLD.`deleted_at` IS NULL BEGIN " + removeOld + "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `project_stats_after_update` "
+                + "AFTER UPDATE OF `projectId`, `creation_timestamp` ON `tasks` "
+                + "WHEN OLD.`deleted_at` IS NULL AND NEW.`deleted_at` IS NULL BEGIN " + removeOld + addNew + "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `project_stats_after_tombstone` AFTER UPDATE OF `deleted_at` ON `tasks` "
+                + "WHEN OLD.`deleted_at` IS NULL AND NEW.`deleted_at` IS NOT NULL BEGIN " + removeOld + "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `project_stats_after_restore` AFTER UPDATE OF `deleted_at` ON `tasks` "
+                + "WHEN OLD.`deleted_at` IS NOT NULL AND NEW.`deleted_at` IS NULL BEGIN " + addNew + "END");
     }
-}
\ No newline at end of file
+}
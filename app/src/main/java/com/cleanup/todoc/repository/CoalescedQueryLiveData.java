@@ -0,0 +1,90 @@
+package com.cleanup.todoc.repository;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+import androidx.room.InvalidationTracker;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * LiveData of a query, run again when its tables change, like the LiveData generated by Room,
+ * except that the changes received within a coalescing window run the query once.
+ * <p>
+ * As with Room, the tables are observed from the first time the LiveData becomes active, and changes received
+ * while it has no active observer only mark it invalid: the query runs again once an observer comes back.
+ *
+ * @param <T> the type of the result of the query
+ */
+public class CoalescedQueryLiveData<T> extends LiveData<T> {
+
+    // Tracker notifying the changes of the tables
+    private final InvalidationTracker invalidationTracker;
+    // Executor on which the query runs
+    private final Executor executor;
+    private final Callable<T> query;
+    // Collapses the changes of a burst of writes into a single run of the query
+    private final InvalidationCoalescer coalescer;
+    // Whether the observer has been added to the tracker
+    private final AtomicBoolean observing = new AtomicBoolean();
+    // Whether the tables may have changed since the query last ran
+    private final AtomicBoolean invalid = new AtomicBoolean(true);
+    // Runs the query if the tables changed, starting to observe them the first time
+    private final Runnable refresh = this::refresh;
+    // Marks the result invalid, and runs the query again at the end of the window if someone observes it
+    private final InvalidationTracker.Observer observer;
+
+    /**
+     * Constructor to initialize the CoalescedQueryLiveData.
+     *
+     * @param invalidationTracker    the tracker notifying the changes of the tables
+     * @param tables                 the tables read by the query
+     * @param executor               the executor on which the query runs
+     * @param coalescingWindowMillis the window, in milliseconds, whose changes run the query once
+     * @param query                  the query
+     */
+    public CoalescedQueryLiveData(@NonNull InvalidationTracker invalidationTracker, @NonNull String[] tables,
+                                  @NonNull Executor executor, long coalescingWindowMillis,
+                                  @NonNull Callable<T> query) {
+        this.invalidationTracker = invalidationTracker;
+        this.executor = executor;
+        this.query = query;
+        this.coalescer = new InvalidationCoalescer(coalescingWindowMillis, () -> executor.execute(refresh));
+        this.observer = new InvalidationTracker.Observer(tables) {
+            @Override
+            public void onInvalidated(@NonNull Set<String> changedTables) {
+                invalid.set(true);
+                if (hasActiveObservers()) {
+                    coalescer.invalidate();
+                }
+            }
+        };
+    }
+
+    /**
+     * Runs the query, if needed, when the first observer becomes active.
+     */
+    @Override
+    protected void onActive() {
+        executor.execute(refresh);
+    }
+
+    /**
+     * Runs the query if the tables changed since it last ran, and posts its result.
+     * A change committed while the query runs marks the result invalid again, so that it is not missed.
+     */
+    private void refresh() {
+        if (observing.compareAndSet(false, true)) {
+            invalidationTracker.addObserver(observer);
+        }
+        if (invalid.compareAndSet(true, false)) {
+            try {
+                postValue(query.call());
+            } catch (Exception e) {
+                throw new RuntimeException("Exception while computing the coalesced query.", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.cleanup.todoc.repository;
+
+import androidx.annotation.NonNull;
+import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Settings of the connections opened to the database: journal mode, durability of the commits,
+ * and executors of the asynchronous queries and transactions of Room.
+ * <p>
+ * The profile of the application uses write-ahead logging. Readers then work on a snapshot of the database
+ * while the writer appends to the log, so long reads of the task list no longer wait for the writes of
+ * the repository, and the framework opens a pool of read connections next to the single write connection.
+ * Commits use synchronous=NORMAL: the log is only synced at checkpoints, which keeps the database consistent
+ * after a crash at the cost of the last commits if the device loses power.
+ */
+public class DatabaseProfile {
+
+    /**
+     * How much SQLite waits for the storage before a commit returns, from the fastest to the most durable.
+     */
+    public enum Synchronous {
+        /**
+         * Never syncs, the database may be corrupted if the device loses power.
+         */
+        OFF,
+        /**
+         * Syncs at the checkpoints of the write-ahead log only.
+         */
+        NORMAL,
+        /**
+         * Syncs at every commit.
+         */
+        FULL
+    }
+
+    // Journal mode of the connections
+    private final RoomDatabase.JournalMode journalMode;
+    // Durability of the commits of the write connection
+    private final Synchronous synchronous;
+    // Executor of the asynchronous queries and of the invalidation tracking
+    private final Executor queryExecutor;
+    // Executor of the asynchronous transactions
+    private final Executor transactionExecutor;
+
+    /**
+     * Constructor to initialize the DatabaseProfile.
+     *
+     * @param journalMode         the journal mode of the connections
+     * @param synchronous         the durability of the commits
+     * @param queryExecutor       the executor of the asynchronous queries, which should run as many reads at once
+     *                            as the connection pool serves
+     * @param transactionExecutor the executor of the asynchronous transactions, which should run one at a time
+     */
+    public DatabaseProfile(@NonNull RoomDatabase.JournalMode journalMode, @NonNull Synchronous synchronous,
+                           @NonNull Executor queryExecutor, @NonNull Executor transactionExecutor) {
+        this.journalMode = journalMode;
+        this.synchronous = synchronous;
+        this.queryExecutor = queryExecutor;
+        this.transactionExecutor = transactionExecutor;
+    }
+
+    /**
+     * Creates the profile of the application: write-ahead logging with synchronous=NORMAL.
+     * Write-ahead logging is requested explicitly, so that low-RAM devices, where Room leaves it off by default,
+     * also get concurrent reads.
+     *
+     * @param queryExecutor       the executor of the asynchronous queries
+     * @param transactionExecutor the executor of the asynchronous transactions
+     * @return the profile
+     */
+    @NonNull
+    public static DatabaseProfile writeAheadLogging(@NonNull Executor queryExecutor,
+                                                    @NonNull Executor transactionExecutor) {
+        return new DatabaseProfile(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING, Synchronous.NORMAL,
+                queryExecutor, transactionExecutor);
+    }
+
+    /**
+     * Getter for the journal mode of the connections.
+     *
+     * @return the journal mode
+     */
+    @NonNull
+    public RoomDatabase.JournalMode getJournalMode() {
+        return journalMode;
+    }
+
+    /**
+     * Getter for the durability of the commits.
+     *
+     * @return the synchronous level
+     */
+    @NonNull
+    public Synchronous getSynchronous() {
+        return synchronous;
+    }
+
+    /**
+     * Configures a database builder with this profile.
+     *
+     * @param builder the builder to configure
+     * @param <T>     the type of the database
+     * @return the same builder
+     */
+    @NonNull
+    public <T extends RoomDatabase> RoomDatabase.Builder<T> applyTo(@NonNull RoomDatabase.Builder<T> builder) {
+        return builder
+                .setJournalMode(journalMode)
+                .setQueryExecutor(queryExecutor)
+                .setTransactionExecutor(transactionExecutor)
+                .addCallback(new RoomDatabase.Callback() {
+                    @Override
+                    public void onOpen(@NonNull SupportSQLiteDatabase db) {
+                        super.onOpen(db);
+                        // Only the write connection commits, so setting it there is enough
+                        db.execSQL("PRAGMA synchronous = " + synchronous.name());
+                    }
+                });
+    }
+
+    /**
+     * Returns a one-line summary of the profile, for logs.
+     *
+     * @return the settings of the profile
+     */
+    @NonNull
+    @Override
+    public String toString() {
+        return "DatabaseProfile{journalMode=" + journalMode + ", synchronous=" + synchronous + "}";
+    }
+}
@@ -0,0 +1,41 @@
+package com.cleanup.todoc.repository;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.cleanup.todoc.model.ImportCheckpoint;
+
+/**
+ * Data Access Object (DAO) for the ImportCheckpoint entity.
+ * Defines methods to interact with the "import_checkpoints" table in the database.
+ */
+@Dao
+public interface ImportCheckpointDao {
+
+    /**
+     * Retrieves the number of rows of a file already committed by a previous import.
+     *
+     * @param source the identifier of the imported file.
+     * @return the number of committed rows, or null if the file is not being imported.
+     */
+    @Query("SELECT committedRows FROM import_checkpoints WHERE source = :source")
+    Long getCommittedRows(String source);
+
+    /**
+     * Records the progress of an import, replacing the previous one.
+     *
+     * @param checkpoint the progress of the import.
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void saveCheckpoint(ImportCheckpoint checkpoint);
+
+    /**
+     * Forgets the progress of a finished import.
+     *
+     * @param source the identifier of the imported file.
+     */
+    @Query("DELETE FROM import_checkpoints WHERE source = :source")
+    void deleteCheckpoint(String source);
+}
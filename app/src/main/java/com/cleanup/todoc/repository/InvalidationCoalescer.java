@@ -0,0 +1,104 @@
+package com.cleanup.todoc.repository;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Collapses the invalidations of a table received within a window into a single run of the re-query.
+ * <p>
+ * The first invalidation schedules the re-query at the end of the window, and the following ones are dropped
+ * until it starts. An invalidation received while it runs schedules another one, so the last write is never missed.
+ * The window is not pushed back by every invalidation, so that a continuous stream of writes still refreshes
+ * the screen once per window instead of never. A window of zero runs the re-query on every invalidation.
+ */
+public class InvalidationCoalescer {
+
+    /**
+     * Default window, in milliseconds, short enough for the delay to go unnoticed.
+     */
+    public static final long DEFAULT_WINDOW_MILLIS = 50;
+
+    // Timer shared by every coalescer, created on first use
+    private static ScheduledExecutorService sharedScheduler;
+
+    // Timer running the target at the end of the window, null when the window is zero
+    @Nullable
+    private final ScheduledExecutorService scheduler;
+    private final long windowMillis;
+    private final Runnable target;
+    // Whether a run of the target is scheduled and not started yet
+    private final AtomicBoolean pending = new AtomicBoolean();
+    // Runs the target, letting the invalidations received meanwhile schedule the next run
+    private final Runnable flush;
+
+    /**
+     * Constructor to initialize the InvalidationCoalescer on the timer shared by the application,
+     * which is only started by the first coalescer with a window.
+     *
+     * @param windowMillis the window, in milliseconds, whose invalidations are collapsed, or 0 to collapse none
+     * @param target       the re-query, run on the timer thread, which must hand any slow work to another executor
+     */
+    public InvalidationCoalescer(long windowMillis, @NonNull Runnable target) {
+        this(windowMillis > 0 ? sharedScheduler() : null, windowMillis, target);
+    }
+
+    /**
+     * Constructor to initialize the InvalidationCoalescer.
+     *
+     * @param scheduler    the timer running the target at the end of the window, may be null if the window is zero
+     * @param windowMillis the window, in milliseconds, whose invalidations are collapsed, or 0 to collapse none
+     * @param target       the re-query, run on the timer thread, which must hand any slow work to another executor
+     */
+    public InvalidationCoalescer(@Nullable ScheduledExecutorService scheduler, long windowMillis,
+                                 @NonNull Runnable target) {
+        this.scheduler = scheduler;
+        this.windowMillis = windowMillis;
+        this.target = target;
+        this.flush = () -> {
+            pending.set(false);
+            target.run();
+        };
+    }
+
+    /**
+     * Getter for the window whose invalidations are collapsed.
+     *
+     * @return the window, in milliseconds
+     */
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    /**
+     * Reports an invalidation of the table. Runs the target at the end of the window, unless a run is already pending.
+     * With a window of zero, runs the target right away on the calling thread.
+     */
+    public void invalidate() {
+        if (windowMillis <= 0 || scheduler == null) {
+            target.run();
+        } else if (pending.compareAndSet(false, true)) {
+            scheduler.schedule(flush, windowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Returns the timer shared by every coalescer, running on a single daemon thread.
+     *
+     * @return the shared timer
+     */
+    private static synchronized ScheduledExecutorService sharedScheduler() {
+        if (sharedScheduler == null) {
+            sharedScheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "invalidation-timer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return sharedScheduler;
+    }
+}
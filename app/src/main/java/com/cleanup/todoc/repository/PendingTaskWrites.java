@@ -0,0 +1,181 @@
+package com.cleanup.todoc.repository;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.cleanup.todoc.model.Task;
+import com.cleanup.todoc.model.TaskRow;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Inserts and deletions queued on the write pipeline but not settled yet, laid over the committed pages
+ * so that the list shows them before they are committed.
+ * <p>
+ * Inserted tasks have no identifier until they are committed, so they are shown with temporary identifiers
+ * above any identifier SQLite assigns: they sort after every committed task in the default order, where the
+ * committed task will land. Once a write is settled, committed or failed, it is removed from the overlay
+ * and the committed pages alone tell what the database holds.
+ */
+class PendingTaskWrites {
+
+    /**
+     * First temporary identifier of the inserted tasks, far above the identifiers assigned by SQLite.
+     */
+    static final long FIRST_PENDING_ID = TaskRow.FIRST_PENDING_ID;
+
+    // Next temporary identifier
+    private final AtomicLong nextPendingId = new AtomicLong(FIRST_PENDING_ID);
+    // Rows of the pending inserts, guarded by this
+    private final List<TaskRow> inserts = new ArrayList<>();
+    // Number of pending deletions of each task, guarded by this
+    private final Map<Long, Integer> deletions = new HashMap<>();
+    // Whether some writes are pending, read without lock on every page
+    private volatile boolean pending;
+
+    /**
+     * Adds a pending insert.
+     *
+     * @param task         the task being inserted
+     * @param projectName  the name of the project of the task
+     * @param projectColor the color of the project of the task
+     * @return the row shown until the insert is settled
+     */
+    @NonNull
+    synchronized TaskRow addInsert(@NonNull Task task, @NonNull String projectName, @ColorInt int projectColor) {
+        TaskRow row = new TaskRow(nextPendingId.getAndIncrement(), task.getProjectId(), task.getName(),
+                task.taskCreationTimestamp, projectName, projectColor);
+        inserts.add(row);
+        pending = true;
+        return row;
+    }
+
+    /**
+     * Removes a pending insert once it is settled.
+     *
+     * @param row the row returned by {@link #addInsert(Task, String, int)}
+     */
+    synchronized void removeInsert(@NonNull TaskRow row) {
+        inserts.remove(row);
+        pending = !inserts.isEmpty() || !deletions.isEmpty();
+    }
+
+    /**
+     * Adds pending deletions.
+     *
+     * @param taskIds the identifiers of the tasks being deleted
+     */
+    synchronized void addDeletions(@NonNull Collection<Long> taskIds) {
+        for (Long taskId : taskIds) {
+            Integer count = deletions.get(taskId);
+            deletions.put(taskId, count == null ? 1 : count + 1);
+        }
+        pending = !deletions.isEmpty() || !inserts.isEmpty();
+    }
+
+    /**
+     * Removes pending deletions once they are settled.
+     *
+     * @param taskIds the identifiers given to {@link #addDeletions(Collection)}
+     */
+    synchronized void removeDeletions(@NonNull Collection<Long> taskIds) {
+        for (Long taskId : taskIds) {
+            Integer count = deletions.get(taskId);
+            if (count == null || count == 1) {
+                deletions.remove(taskId);
+            } else {
+                deletions.put(taskId, count - 1);
+            }
+        }
+        pending = !inserts.isEmpty() || !deletions.isEmpty();
+    }
+
+    /**
+     * Returns a copy of the pending writes, to lay over the pages read meanwhile.
+     *
+     * @return the pending writes, or null if there is none
+     */
+    @Nullable
+    synchronized Snapshot snapshot() {
+        if (!pending) {
+            return null;
+        }
+        return new Snapshot(new ArrayList<>(inserts), new HashMap<>(deletions));
+    }
+
+    /**
+     * Pending writes at a point in time.
+     */
+    static final class Snapshot {
+        private final List<TaskRow> inserts;
+        private final Map<Long, Integer> deletions;
+
+        /**
+         * Constructor to initialize the Snapshot.
+         *
+         * @param inserts   the rows of the pending inserts
+         * @param deletions the number of pending deletions of each task
+         */
+        private Snapshot(List<TaskRow> inserts, Map<Long, Integer> deletions) {
+            this.inserts = inserts;
+            this.deletions = deletions;
+        }
+
+        /**
+         * Returns the number of committed tasks to read past the page size, so that enough remain once the tasks
+         * being deleted are dropped.
+         *
+         * @return the number of tasks being deleted
+         */
+        int getDeletionCount() {
+            return deletions.size();
+        }
+
+        /**
+         * Lays the pending writes over a committed page: drops the tasks being deleted and adds the inserted tasks
+         * which fall within the page.
+         *
+         * @param committed  the committed page, read with {@link #getDeletionCount()} extra tasks
+         * @param complete   whether the committed page reaches the end of the list
+         * @param comparator the order of the page
+         * @param projectIds the identifiers of the projects of the tasks, or an empty set for the tasks of all projects
+         * @param afterKey   the last task of the previous page, or null for the first page
+         * @param pageSize   the maximum number of tasks of the page
+         * @return the page as it will be once the pending writes are committed
+         */
+        @NonNull
+        List<TaskRow> apply(@NonNull List<TaskRow> committed, boolean complete, @NonNull Comparator<TaskRow> comparator,
+                            @NonNull Set<Long> projectIds, @Nullable TaskRow afterKey, int pageSize) {
+            List<TaskRow> page = new ArrayList<>(committed.size() + inserts.size());
+            for (TaskRow row : committed) {
+                if (!deletions.containsKey(row.taskId)) {
+                    page.add(row);
+                }
+            }
+            // Inserted tasks past the last committed task belong to a later page, unless the list ends here
+            TaskRow lastCommitted = complete || committed.isEmpty() ? null : committed.get(committed.size() - 1);
+            for (TaskRow row : inserts) {
+                if ((projectIds.isEmpty() || projectIds.contains(row.projectId))
+                        && !deletions.containsKey(row.taskId)
+                        && (afterKey == null || comparator.compare(row, afterKey) > 0)
+                        && (lastCommitted == null || comparator.compare(row, lastCommitted) < 0)) {
+                    page.add(row);
+                }
+            }
+            Collections.sort(page, comparator);
+            if (page.size() > pageSize) {
+                page.subList(pageSize, page.size()).clear();
+            }
+            return page;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.cleanup.todoc.repository;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.collection.LongSparseArray;
+import androidx.room.InvalidationTracker;
+
+import com.cleanup.todoc.model.Project;
+import com.cleanup.todoc.model.TaskRow;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * In-memory copy of the projects, keyed by their identifier, so that the tasks can share one instance of each project
+ * instead of holding a copy of its name and color per row.
+ * <p>
+ * The projects are few and almost never change: they are loaded once, on first use, and loaded again only after
+ * Room's InvalidationTracker reports a change of the "projects" table. The identifiers are held in a
+ * {@link LongSparseArray}, whose lookups neither box the identifiers nor allocate entries.
+ */
+public class ProjectCache {
+
+    // DAO for accessing project data
+    private final ProjectDao projectDao;
+    // Tracker notifying changes of the "projects" table
+    private final InvalidationTracker invalidationTracker;
+    // Marks the cache stale, so that the next read loads the projects again
+    private final InvalidationTracker.Observer observer = new InvalidationTracker.Observer("projects") {
+        @Override
+        public void onInvalidated(@NonNull Set<String> tables) {
+            stale = true;
+        }
+    };
+    // Whether the table may have changed since the projects were loaded
+    private volatile boolean stale = true;
+
+    // Cached state, guarded by this
+    private boolean observing;
+    // Projects by identifier, replaced rather than modified on reload, so that earlier readers keep a consistent copy
+    private LongSparseArray<Project> projects = new LongSparseArray<>();
+
+    /**
+     * Constructor to initialize the ProjectCache.
+     *
+     * @param projectDao          the DAO for accessing project data
+     * @param invalidationTracker the tracker notifying changes of the "projects" table
+     */
+    public ProjectCache(@NonNull ProjectDao projectDao, @NonNull InvalidationTracker invalidationTracker) {
+        this.projectDao = projectDao;
+        this.invalidationTracker = invalidationTracker;
+    }
+
+    /**
+     * Returns the projects by identifier, loading them if the table changed since they were last loaded.
+     *
+     * @return the projects by identifier, which must not be modified
+     */
+    @WorkerThread
+    @NonNull
+    public synchronized LongSparseArray<Project> getProjects() {
+        if (!observing) {
+            invalidationTracker.addObserver(observer);
+            observing = true;
+        }
+        if (stale) {
+            // Cleared first, so that a change committed while loading marks the cache stale again
+            stale = false;
+            List<Project> loaded = projectDao.getAllProjects();
+            LongSparseArray<Project> byId = new LongSparseArray<>(loaded.size());
+            for (Project project : loaded) {
+                byId.put(project.getId(), project);
+            }
+            projects = byId;
+        }
+        return projects;
+    }
+
+    /**
+     * Returns a project.
+     *
+     * @param projectId the identifier of the project
+     * @return the shared instance of the project, or null if it does not exist
+     */
+    @WorkerThread
+    @Nullable
+    public Project getProject(long projectId) {
+        return getProjects().get(projectId);
+    }
+
+    /**
+     * Fills in the project of rows read without it: replaces each of them by a copy pointing at the shared instance
+     * of its project, and sharing its name instead of holding a copy. The rows themselves are left untouched.
+     * Rows already pointing at the shared instance of their project, and rows whose project is unknown, are kept.
+     *
+     * @param rows the rows to resolve, whose elements are replaced
+     */
+    @WorkerThread
+    public void resolve(@NonNull List<TaskRow> rows) {
+        LongSparseArray<Project> byId = getProjects();
+        for (int i = 0, size = rows.size(); i < size; i++) {
+            TaskRow row = rows.get(i);
+            Project project = byId.get(row.projectId);
+            if (project != null && row.project != project) {
+                rows.set(i, row.withProject(project));
+            }
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.cleanup.todoc.repository;
 
+import android.database.Cursor;
+
 import androidx.lifecycle.LiveData;
 import androidx.room.Dao;
 import androidx.room.Insert;
@@ -7,6 +9,8 @@ import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
 
 import com.cleanup.todoc.model.Project;
+import com.cleanup.todoc.model.ProjectRow;
+import com.cleanup.todoc.model.ProjectWithStats;
 
 import java.util.List;
 
@@ -17,6 +21,22 @@ import java.util.List;
 @Dao
 public interface ProjectDao {
 
+    /**
+     * Query joining each project to the aggregates of its tasks, which are absent for a project without tasks.
+     */
+    String PROJECTS_WITH_STATS = "SELECT projects.*, IFNULL(project_stats.taskCount, 0) AS taskCount, "
+            + "project_stats.oldestTimestamp AS oldestTimestamp, project_stats.newestTimestamp AS newestTimestamp "
+            + "FROM projects LEFT JOIN project_stats ON project_stats.projectId = projects.projectId "
+            + "ORDER BY projects.projectId";
+
+    /**
+     * Query reading the columns of {@link ProjectRow}: the identifier, name and color of each project with its number of tasks.
+     */
+    String PROJECT_ROWS = "SELECT projects.projectId, projects.projectName, projects.projectColor, "
+            + "IFNULL(project_stats.taskCount, 0) AS taskCount "
+            + "FROM projects LEFT JOIN project_stats ON project_stats.projectId = projects.projectId "
+            + "ORDER BY projects.projectId";
+
     /**
      * Retrieves all projects from the database.
      *
@@ -25,6 +45,51 @@ public interface ProjectDao {
     @Query("SELECT * FROM projects")
     LiveData<List<Project>> getAllProjectsLiveData();
 
+    /**
+     * Retrieves all projects from the database.
+     *
+     * @return a list of all projects.
+     */
+    @Query("SELECT * FROM projects")
+    List<Project> getAllProjects();
+
+    /**
+     * Retrieves a project by its identifier synchronously.
+     * Must not be called on the main thread.
+     *
+     * @param projectId the identifier of the project.
+     * @return the project, or null if it does not exist.
+     */
+    @Query("SELECT * FROM projects WHERE projectId = :projectId")
+    Project getProjectById(long projectId);
+
+    /**
+     * Retrieves the identifier, name and number of tasks of every project, as displayed by the project spinner.
+     * The number of tasks comes from the "project_stats" table, so the query reads one row per project.
+     *
+     * @return a LiveData list of all projects.
+     */
+    @Query(PROJECT_ROWS)
+    LiveData<List<ProjectRow>> getProjectRowsLiveData();
+
+    /**
+     * Retrieves the identifier, name and number of tasks of every project synchronously.
+     * Must not be called on the main thread.
+     *
+     * @return a list of all projects with the number of their tasks.
+     */
+    @Query(PROJECT_ROWS)
+    List<ProjectRow> getProjectRows();
+
+    /**
+     * Retrieves all projects along with the aggregates of their tasks synchronously.
+     * Must not be called on the main thread.
+     *
+     * @return a list of all projects with their aggregates.
+     */
+    @Query(PROJECTS_WITH_STATS)
+    List<ProjectWithStats> getProjectsWithStats();
+
     /**
      * Inserts a list of projects into the database.
      * If a project already exists, it will be ignored.
@@ -33,4 +98,13 @@ public interface ProjectDao {
      */
     @Insert(onConflict = OnConflictStrategy.IGNORE)
     void insertAll(List<Project> projects);
-}
\ No newline at end of file
+
+    /**
+     * Opens a cursor over every project, with the columns "id", "name" and "color".
+     * Must not be called on the main thread, and the cursor must be closed by the caller.
+     *
+     * @return a cursor over every project.
+     */
+    @Query("SELECT projectId AS id, projectName AS name, projectColor AS color FROM projects ORDER BY projectId")
+    Cursor getProjectsForExport();
+}
@@ -2,11 +2,16 @@ package com.cleanup.todoc.repository;
 
 import android.util.Log;
 
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
 import androidx.lifecycle.LiveData;
+import androidx.room.InvalidationTracker;
 
 import com.cleanup.todoc.model.Project;
+import com.cleanup.todoc.model.ProjectRow;
 
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * Repository for managing Project data operations.
@@ -15,8 +20,21 @@ import java.util.List;
 public class ProjectRepository {
     // DAO for accessing project data
     public final ProjectDao projectDao;
-    // LiveData for holding the list of all projects
+    // LiveData for holding the list of all projects, created on first use
     private LiveData<List<Project>> allProjects;
+    // LiveData for holding the list of all projects with the number of their tasks, created on first use
+    private LiveData<List<ProjectRow>> projectRows;
+    // Tracker notifying the changes of the tables, null to let Room run the query on every change
+    @Nullable
+    private final InvalidationTracker invalidationTracker;
+    // Executor on which the coalesced queries run
+    @Nullable
+    private final Executor queryExecutor;
+    // Window, in milliseconds, whose changes run the coalesced queries once
+    private final long coalescingWindowMillis;
+    // Projects by identifier, loaded once and again on changes of the "projects" table, null without a tracker
+    @Nullable
+    private final ProjectCache projectCache;
 
     /**
      * Constructor to initialize the ProjectRepository.
@@ -24,8 +42,26 @@ public class ProjectRepository {
      * @param projectDao the DAO for accessing project data
      */
     public ProjectRepository(ProjectDao projectDao) {
+        this(projectDao, null, null, 0);
+    }
+
+    /**
+     * Constructor to initialize the ProjectRepository, running the query of the project rows
+     * at most once per coalescing window while the tasks keep changing.
+     * With a tracker, the projects are also cached by identifier.
+     *
+     * @param projectDao             the DAO for accessing project data
+     * @param invalidationTracker    the tracker notifying the changes of the tables, or null to use the LiveData of Room
+     * @param queryExecutor          the executor on which the coalesced queries run
+     * @param coalescingWindowMillis the window, in milliseconds, whose changes run the query once
+     */
+    public ProjectRepository(ProjectDao projectDao, @Nullable InvalidationTracker invalidationTracker,
+                             @Nullable Executor queryExecutor, long coalescingWindowMillis) {
         this.projectDao = projectDao;
-        allProjects = projectDao.getAllProjectsLiveData();
+        this.invalidationTracker = invalidationTracker;
+        this.queryExecutor = queryExecutor;
+        this.coalescingWindowMillis = coalescingWindowMillis;
+        this.projectCache = invalidationTracker != null ? new ProjectCache(projectDao, invalidationTracker) : null;
         Log.d("ProjectRepository", "ProjectRepository initialized.");
     }
 
@@ -34,7 +70,55 @@ public class ProjectRepository {
      *
      * @return LiveData containing the list of all projects
      */
-    public LiveData<List<Project>> getAllProjects() {
+    public synchronized LiveData<List<Project>> getAllProjects() {
+        if (allProjects == null) {
+            allProjects = projectDao.getAllProjectsLiveData();
+        }
         return allProjects;
     }
-}
\ No newline at end of file
+
+    /**
+     * Getter for the cache of the projects by identifier, whose instances are shared by the tasks of the list.
+     *
+     * @return the cache of the projects, or null if the repository has no tracker to invalidate it
+     */
+    @Nullable
+    public ProjectCache getProjectCache() {
+        return projectCache;
+    }
+
+    /**
+     * Returns a project, from the cache when there is one.
+     *
+     * @param projectId the identifier of the project
+     * @return the project, or null if it does not exist
+     */
+    @WorkerThread
+    @Nullable
+    public Project getProject(long projectId) {
+        if (projectCache != null) {
+            return projectCache.getProject(projectId);
+        }
+        return projectDao.getProjectById(projectId);
+    }
+
+    /**
+     * Getter for the LiveData of the identifier, name and number of tasks of all projects.
+     * The numbers of tasks are maintained by the database on every write, so each update reads one row per project.
+     * With a tracker, a burst of writes runs the query once per coalescing window instead of once per transaction.
+     *
+     * @return LiveData containing the list of all projects with the number of their tasks
+     */
+    public synchronized LiveData<List<ProjectRow>> getProjectRows() {
+        if (projectRows == null) {
+            if (invalidationTracker != null && queryExecutor != null) {
+                projectRows = new CoalescedQueryLiveData<>(invalidationTracker,
+                        new String[]{"projects", "project_stats"}, queryExecutor, coalescingWindowMillis,
+                        projectDao::getProjectRows);
+            } else {
+                projectRows = projectDao.getProjectRowsLiveData();
+            }
+        }
+        return projectRows;
+    }
+}
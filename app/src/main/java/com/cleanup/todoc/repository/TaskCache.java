@@ -0,0 +1,547 @@
+package com.cleanup.todoc.repository;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.room.InvalidationTracker;
+
+import com.cleanup.todoc.model.TaskRow;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-memory copy of the tasks, kept sorted in every {@link TaskSortOrder} so that switching order needs no query.
+ * The same task instances are held in three lists sorted by id, by name and by creation timestamp;
+ * inverted orders walk these lists backwards.
+ * <p>
+ * Room's InvalidationTracker marks the cache stale when the "tasks" table changes. The next read then applies
+ * the difference incrementally: new tasks are fetched past the highest known id and inserted by binary search,
+ * and deleted tasks are only looked for when the row count shows that some are missing.
+ * Tasks updated in place, such as tasks moved to another project, are not noticed that way:
+ * the writer reports them through {@link #markUpdated(Collection)}, and the next read reloads these tasks only.
+ * Every row read goes through a {@link TaskRowPool}, so that a task reloaded without change keeps its instance.
+ * The cache is marked stale on every invalidation, but the callbacks, which reload the screen,
+ * may be run once per coalescing window by an {@link InvalidationCoalescer}.
+ * The rows are read without their project, which the {@link ProjectCache} resolves: the cached tasks share
+ * the instances of their projects, and are reloaded when the "projects" table changes.
+ * Tables larger than the maximum size are not cached, and callers fall back to the database.
+ */
+public class TaskCache {
+
+    /**
+     * Default maximum number of tasks held in memory.
+     */
+    public static final int DEFAULT_MAX_SIZE = 10_000;
+
+    static final Comparator<TaskRow> BY_ID = (first, second) -> Long.compare(first.taskId, second.taskId);
+
+    // Matches the BINARY collation of SQLite except between surrogate pairs and characters above U+E000
+    static final Comparator<TaskRow> BY_NAME = (first, second) -> {
+        int result = first.taskName.compareTo(second.taskName);
+        return result != 0 ? result : Long.compare(first.taskId, second.taskId);
+    };
+
+    static final Comparator<TaskRow> BY_TIMESTAMP = (first, second) -> {
+        int result = Long.compare(first.taskCreationTimestamp, second.taskCreationTimestamp);
+        return result != 0 ? result : Long.compare(first.taskId, second.taskId);
+    };
+
+    // DAO for accessing task data
+    private final TaskDao taskDao;
+    // Tracker notifying changes of the "tasks" table
+    private final InvalidationTracker invalidationTracker;
+    private final int maxSize;
+    // Shared instances of the projects, which fill in the project of every row read
+    private final ProjectCache projectCache;
+
+    // Callbacks run after the cache has been marked stale
+    private final List<Runnable> invalidationCallbacks = new CopyOnWriteArrayList<>();
+    // Collapses the invalidations of a burst of writes into a single run of the callbacks
+    private final InvalidationCoalescer coalescer;
+    // Marks the cache stale, then notifies the callbacks so that they read fresh data
+    private final InvalidationTracker.Observer observer;
+    // Whether the table may have changed since the last synchronization
+    private volatile boolean stale = true;
+    // Whether tasks have been updated in place since the last synchronization, and must all be reloaded
+    private volatile boolean updated;
+    // Identifiers of the tasks updated in place since the last synchronization, guarded by itself
+    private final Set<Long> updatedIds = new HashSet<>();
+    // Rows of the previous loads, reused by the next ones when their task did not change
+    private final TaskRowPool rowPool;
+
+    // Cached state, guarded by this
+    private boolean observing;
+    // Whether the lists below hold every task of the table
+    private boolean loaded;
+    private final ArrayList<TaskRow> byId = new ArrayList<>();
+    private final ArrayList<TaskRow> byName = new ArrayList<>();
+    private final ArrayList<TaskRow> byTimestamp = new ArrayList<>();
+
+    /**
+     * Constructor to initialize the TaskCache with the default maximum size.
+     *
+     * @param taskDao             the DAO for accessing task data
+     * @param invalidationTracker the tracker notifying changes of the "tasks" and "projects" tables
+     * @param projectCache        the shared instances of the projects
+     */
+    public TaskCache(@NonNull TaskDao taskDao, @NonNull InvalidationTracker invalidationTracker,
+                     @NonNull ProjectCache projectCache) {
+        this(taskDao, invalidationTracker, DEFAULT_MAX_SIZE, projectCache);
+    }
+
+    /**
+     * Constructor to initialize the TaskCache.
+     *
+     * @param taskDao             the DAO for accessing task data
+     * @param invalidationTracker the tracker notifying changes of the "tasks" and "projects" tables
+     * @param maxSize             the maximum number of tasks held in memory
+     * @param projectCache        the shared instances of the projects
+     */
+    public TaskCache(@NonNull TaskDao taskDao, @NonNull InvalidationTracker invalidationTracker, int maxSize,
+                     @NonNull ProjectCache projectCache) {
+        this(taskDao, invalidationTracker, maxSize, 0, projectCache);
+    }
+
+    /**
+     * Constructor to initialize the TaskCache, running its callbacks at most once per coalescing window.
+     *
+     * @param taskDao                the DAO for accessing task data
+     * @param invalidationTracker    the tracker notifying changes of the "tasks" and "projects" tables
+     * @param maxSize                the maximum number of tasks held in memory
+     * @param coalescingWindowMillis the window, in milliseconds, whose invalidations run the callbacks once,
+     *                               or 0 to run them on every invalidation
+     * @param projectCache           the shared instances of the projects
+     */
+    public TaskCache(@NonNull TaskDao taskDao, @NonNull InvalidationTracker invalidationTracker, int maxSize,
+                     long coalescingWindowMillis, @NonNull ProjectCache projectCache) {
+        this.taskDao = taskDao;
+        this.invalidationTracker = invalidationTracker;
+        this.maxSize = maxSize;
+        this.projectCache = projectCache;
+        this.rowPool = new TaskRowPool(maxSize);
+        this.coalescer = new InvalidationCoalescer(coalescingWindowMillis, this::notifyInvalidation);
+        this.observer = new InvalidationTracker.Observer("tasks", "projects") {
+            @Override
+            public void onInvalidated(@NonNull Set<String> changedTables) {
+                // The cached tasks hold the previous instances of the projects
+                if (changedTables.contains("projects")) {
+                    updated = true;
+                }
+                stale = true;
+                coalescer.invalidate();
+            }
+        };
+    }
+
+    /**
+     * Replaces the rows of unchanged tasks read from the database by their previous instances, then replaces
+     * the others by copies resolved against the shared instances of the projects, which are pooled in turn.
+     *
+     * @param rows the rows read from the database, whose elements are replaced
+     * @return the rows
+     */
+    @NonNull
+    List<TaskRow> internRows(@NonNull List<TaskRow> rows) {
+        // Unchanged tasks keep their pooled row, so that only the rows of changed tasks are copied
+        rowPool.reuse(rows, projectCache.getProjects());
+        projectCache.resolve(rows);
+        rowPool.intern(rows);
+        return rows;
+    }
+
+    /**
+     * Evicts the pooled rows of tasks which are no longer listed, such as tasks just deleted,
+     * which the cache does not notice by itself when the table is too large to be cached.
+     *
+     * @param taskIds the identifiers of the tasks
+     */
+    void evictRows(@NonNull Collection<Long> taskIds) {
+        rowPool.evict(taskIds);
+    }
+
+    /**
+     * Runs the invalidation callbacks, so that they read fresh data.
+     */
+    private void notifyInvalidation() {
+        for (Runnable callback : invalidationCallbacks) {
+            callback.run();
+        }
+    }
+
+    /**
+     * Returns a page of tasks from memory.
+     *
+     * @param sortOrder the order of the tasks
+     * @param afterKey  the last task of the previous page, or null to get the first page
+     * @param pageSize  the maximum number of tasks to return
+     * @return the tasks of the page, or null if the table is too large to be cached
+     */
+    @WorkerThread
+    @Nullable
+    public synchronized List<TaskRow> loadPage(@NonNull TaskSortOrder sortOrder, @Nullable TaskRow afterKey,
+                                           int pageSize) {
+        if (!synchronize()) {
+            return null;
+        }
+        switch (sortOrder) {
+            case ALPHABETICAL:
+                return ascendingPage(byName, BY_NAME, afterKey, pageSize);
+            case ALPHABETICAL_INVERTED:
+                return descendingPage(byName, BY_NAME, afterKey, pageSize);
+            case RECENT_FIRST:
+                return descendingPage(byTimestamp, BY_TIMESTAMP, afterKey, pageSize);
+            case OLD_FIRST:
+                return ascendingPage(byTimestamp, BY_TIMESTAMP, afterKey, pageSize);
+            default:
+                return ascendingPage(byId, BY_ID, afterKey, pageSize);
+        }
+    }
+
+    /**
+     * Marks the cached tasks as updated in place, so that the next read reloads them all.
+     * Must be called once the update is committed, before the invalidation of the table is dispatched.
+     */
+    public void markUpdated() {
+        updated = true;
+        stale = true;
+    }
+
+    /**
+     * Marks tasks as updated in place, so that the next read reloads them.
+     * Must be called once the update is committed, before the invalidation of the table is dispatched.
+     *
+     * @param taskIds the identifiers of the updated tasks
+     */
+    public void markUpdated(@NonNull Collection<Long> taskIds) {
+        synchronized (updatedIds) {
+            updatedIds.addAll(taskIds);
+        }
+        stale = true;
+    }
+
+    /**
+     * Marks the cache stale after a commit whose invalidation may not have been dispatched yet,
+     * so that the next read applies it.
+     */
+    public void markStale() {
+        stale = true;
+    }
+
+    /**
+     * Runs the invalidation callbacks right away, bypassing the coalescing window,
+     * so that a change the user is waiting for is shown without delay.
+     */
+    public void notifyChanged() {
+        notifyInvalidation();
+    }
+
+    /**
+     * Registers a callback run, on a background thread, every time the "tasks" table changes,
+     * or once per coalescing window while it keeps changing.
+     * The cache is already marked stale when the callback runs.
+     *
+     * @param callback the callback to run
+     */
+    @WorkerThread
+    public void addInvalidationCallback(@NonNull Runnable callback) {
+        synchronized (this) {
+            ensureObserving();
+        }
+        invalidationCallbacks.add(callback);
+    }
+
+    /**
+     * Unregisters a callback previously registered with {@link #addInvalidationCallback(Runnable)}.
+     *
+     * @param callback the callback to unregister
+     */
+    public void removeInvalidationCallback(@NonNull Runnable callback) {
+        invalidationCallbacks.remove(callback);
+    }
+
+    /**
+     * Starts observing the "tasks" table. The observer is kept for the lifetime of the cache,
+     * so that changes are noticed even while nothing displays the tasks.
+     */
+    private void ensureObserving() {
+        if (!observing) {
+            invalidationTracker.addObserver(observer);
+            observing = true;
+        }
+    }
+
+    /**
+     * Brings the cache up to date with the table if it is stale.
+     *
+     * @return true if the cache holds every task, false if the table is too large to be cached
+     */
+    private boolean synchronize() {
+        ensureObserving();
+        if (!stale) {
+            return loaded;
+        }
+        // Cleared first, so that a change committed while synchronizing marks the cache stale again
+        stale = false;
+        List<Long> updatedNow = takeUpdatedIds();
+        if (updated) {
+            updated = false;
+            clear();
+        }
+        if (!loaded) {
+            return loadAll();
+        }
+        if (!updatedNow.isEmpty() && !reloadUpdated(updatedNow)) {
+            clear();
+            return loadAll();
+        }
+
+        long maxId = byId.isEmpty() ? 0 : byId.get(byId.size() - 1).taskId;
+        List<TaskRow> added = taskDao.getPageAfter(maxId, maxSize + 1);
+        int count = taskDao.countTasks();
+        if (count > maxSize || byId.size() + added.size() > maxSize) {
+            clear();
+            return false;
+        }
+        internRows(added);
+        if (byId.size() + added.size() != count) {
+            removeDeleted(taskDao.getTaskIds());
+        }
+        for (TaskRow row : added) {
+            insertSorted(byId, BY_ID, row);
+            insertSorted(byName, BY_NAME, row);
+            insertSorted(byTimestamp, BY_TIMESTAMP, row);
+        }
+        if (byId.size() != count) {
+            // Restored tasks came back below the highest identifier, where new tasks are not looked for
+            clear();
+            return loadAll();
+        }
+        return true;
+    }
+
+    /**
+     * Loads every task and sorts them, unless the table is too large.
+     *
+     * @return true if the tasks were loaded
+     */
+    private boolean loadAll() {
+        if (taskDao.countTasks() > maxSize) {
+            return false;
+        }
+        List<TaskRow> tasks = taskDao.getFirstPage(maxSize + 1);
+        if (tasks.size() > maxSize) {
+            return false;
+        }
+        internRows(tasks);
+        byId.addAll(tasks);
+        byName.addAll(tasks);
+        byTimestamp.addAll(tasks);
+        Collections.sort(byName, BY_NAME);
+        Collections.sort(byTimestamp, BY_TIMESTAMP);
+        loaded = true;
+        return true;
+    }
+
+    /**
+     * Returns the identifiers of the tasks updated in place since the last call.
+     *
+     * @return the identifiers of the updated tasks
+     */
+    private List<Long> takeUpdatedIds() {
+        synchronized (updatedIds) {
+            if (updatedIds.isEmpty()) {
+                return Collections.emptyList();
+            }
+            List<Long> taskIds = new ArrayList<>(updatedIds);
+            updatedIds.clear();
+            return taskIds;
+        }
+    }
+
+    /**
+     * Reloads the tasks updated in place, and moves them to their new position in every list.
+     * Beyond a tenth of the cache, reading every task costs about as much, and the tasks are left to a full reload.
+     *
+     * @param taskIds the identifiers of the updated tasks
+     * @return true if the tasks were reloaded, false if every task must be
+     */
+    private boolean reloadUpdated(List<Long> taskIds) {
+        if (taskIds.size() > maxSize / 10) {
+            return false;
+        }
+        List<TaskRow> rows = new ArrayList<>(taskIds.size());
+        for (int start = 0; start < taskIds.size(); start += TaskWriteQueue.MAX_IDS_PER_STATEMENT) {
+            int end = Math.min(taskIds.size(), start + TaskWriteQueue.MAX_IDS_PER_STATEMENT);
+            rows.addAll(taskDao.getTaskRowsById(taskIds.subList(start, end)));
+        }
+        internRows(rows);
+        // Tasks deleted since their update are not read again, and are left out of the lists
+        Set<Long> updatedSet = new HashSet<>(taskIds);
+        if (rows.size() < updatedSet.size()) {
+            Set<Long> deleted = new HashSet<>(updatedSet);
+            for (TaskRow row : rows) {
+                deleted.remove(row.taskId);
+            }
+            rowPool.evict(deleted);
+        }
+        removeAll(byId, updatedSet);
+        removeAll(byName, updatedSet);
+        removeAll(byTimestamp, updatedSet);
+        for (TaskRow row : rows) {
+            insertSorted(byId, BY_ID, row);
+            insertSorted(byName, BY_NAME, row);
+            insertSorted(byTimestamp, BY_TIMESTAMP, row);
+        }
+        return true;
+    }
+
+    /**
+     * Drops every cached task.
+     */
+    private void clear() {
+        byId.clear();
+        byName.clear();
+        byTimestamp.clear();
+        loaded = false;
+    }
+
+    /**
+     * Removes the cached tasks whose identifier is no longer in the table.
+     *
+     * @param ids the identifiers of the tasks in the table, in ascending order
+     */
+    private void removeDeleted(List<Long> ids) {
+        Set<Long> removed = new HashSet<>();
+        int index = 0;
+        for (TaskRow row : byId) {
+            long id = row.taskId;
+            while (index < ids.size() && ids.get(index) < id) {
+                index++;
+            }
+            if (index == ids.size() || ids.get(index) != id) {
+                removed.add(id);
+            }
+        }
+        if (!removed.isEmpty()) {
+            removeAll(byId, removed);
+            removeAll(byName, removed);
+            removeAll(byTimestamp, removed);
+            rowPool.evict(removed);
+        }
+    }
+
+    /**
+     * Removes the given tasks from a sorted list, keeping it sorted.
+     *
+     * @param list    the list to compact
+     * @param removed the identifiers of the tasks to remove
+     */
+    private static void removeAll(ArrayList<TaskRow> list, Set<Long> removed) {
+        int kept = 0;
+        for (int i = 0; i < list.size(); i++) {
+            TaskRow row = list.get(i);
+            if (!removed.contains(row.taskId)) {
+                list.set(kept++, row);
+            }
+        }
+        list.subList(kept, list.size()).clear();
+    }
+
+    /**
+     * Inserts a task at its position in a sorted list.
+     *
+     * @param list       the sorted list
+     * @param comparator the order of the list
+     * @param row        the task to insert
+     */
+    private static void insertSorted(ArrayList<TaskRow> list, Comparator<TaskRow> comparator, TaskRow row) {
+        list.add(upperBound(list, comparator, row), row);
+    }
+
+    /**
+     * Returns the tasks following the key in a list sorted in ascending order.
+     *
+     * @param list       the sorted list
+     * @param comparator the order of the list
+     * @param afterKey   the last task of the previous page, or null to get the first page
+     * @param pageSize   the maximum number of tasks to return
+     * @return a copy of the tasks of the page
+     */
+    private static List<TaskRow> ascendingPage(List<TaskRow> list, Comparator<TaskRow> comparator,
+                                               @Nullable TaskRow afterKey, int pageSize) {
+        int start = afterKey == null ? 0 : upperBound(list, comparator, afterKey);
+        int end = Math.min(list.size(), start + pageSize);
+        return new ArrayList<>(list.subList(start, end));
+    }
+
+    /**
+     * Returns the tasks following the key in a list sorted in ascending order and walked backwards.
+     *
+     * @param list       the sorted list
+     * @param comparator the order of the list
+     * @param afterKey   the last task of the previous page, or null to get the first page
+     * @param pageSize   the maximum number of tasks to return
+     * @return a copy of the tasks of the page, in descending order
+     */
+    private static List<TaskRow> descendingPage(List<TaskRow> list, Comparator<TaskRow> comparator,
+                                                @Nullable TaskRow afterKey, int pageSize) {
+        int end = afterKey == null ? list.size() : lowerBound(list, comparator, afterKey);
+        int start = Math.max(0, end - pageSize);
+        List<TaskRow> page = new ArrayList<>(end - start);
+        for (int i = end - 1; i >= start; i--) {
+            page.add(list.get(i));
+        }
+        return page;
+    }
+
+    /**
+     * Returns the index of the first task of a sorted list which is greater than or equal to the key.
+     *
+     * @param list       the sorted list
+     * @param comparator the order of the list
+     * @param key        the task to look for
+     * @return an index between 0 and the size of the list
+     */
+    private static int lowerBound(List<TaskRow> list, Comparator<TaskRow> comparator, TaskRow key) {
+        int low = 0;
+        int high = list.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (comparator.compare(list.get(middle), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the index of the first task of a sorted list which is strictly greater than the key.
+     *
+     * @param list       the sorted list
+     * @param comparator the order of the list
+     * @param key        the task to look for
+     * @return an index between 0 and the size of the list
+     */
+    private static int upperBound(List<TaskRow> list, Comparator<TaskRow> comparator, TaskRow key) {
+        int low = 0;
+        int high = list.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (comparator.compare(list.get(middle), key) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
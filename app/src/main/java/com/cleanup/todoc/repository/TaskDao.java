@@ -1,62 +1,336 @@
 package com.cleanup.todoc.repository;
 
+import android.database.Cursor;
+
 import androidx.lifecycle.LiveData;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 
 import com.cleanup.todoc.model.Task;
+import com.cleanup.todoc.model.TaskRow;
+import com.cleanup.todoc.model.TaskWithProject;
 
 import java.util.List;
 
 /**
  * Data Access Object (DAO) for the Task entity.
  * Defines methods to interact with the "tasks" table in the database.
+ * The full lists return {@link TaskWithProject} so that the project of each task is resolved from its projectId;
+ * they run in a transaction so that the tasks and their projects are read consistently.
+ * Pages and searches, which feed the displayed list, return the slim {@link TaskRow} projection instead:
+ * only the displayed columns and the sort keys. Their projects are not read again for every task:
+ * the {@link ProjectCache} fills them in from memory.
+ * Deleting a task only tombstones it: every read skips the tombstoned tasks, which stay restorable until
+ * {@link #purgeDeletedTasks(long, int)} removes them. They are few and short-lived, so the reads filter them
+ * while walking their usual indices, and the tombstones themselves are found through a partial index.
  */
 @Dao
 public interface TaskDao {
 
+    /**
+     * Selection of the columns of {@link TaskRow} among the tasks which are not deleted,
+     * to be followed by the other conditions, starting with AND, and the order of the page.
+     * The name and color of the projects are left out, to be filled in by the {@link ProjectCache}.
+     */
+    String TASK_ROWS = "SELECT tasks.taskId, tasks.projectId, tasks.taskName, tasks.creation_timestamp "
+            + "FROM tasks WHERE tasks.deleted_at IS NULL ";
+
     /**
      * Retrieves all tasks from the database.
      *
      * @return a LiveData list of all tasks.
      */
-    @Query("SELECT * FROM tasks")
-    LiveData<List<Task>> getAllTasksLiveData();
+    @Query("SELECT * FROM tasks WHERE deleted_at IS NULL")
+    @Transaction
+    LiveData<List<TaskWithProject>> getAllTasksLiveData();
+
+    /**
+     * Retrieves all tasks from the database synchronously.
+     * Must not be called on the main thread.
+     *
+     * @return a list of all tasks.
+     */
+    @Query("SELECT * FROM tasks WHERE deleted_at IS NULL")
+    List<Task> getAllTasks();
+
+    /**
+     * Counts the tasks in the database which are not deleted.
+     *
+     * @return the number of tasks.
+     */
+    @Query("SELECT COUNT(*) FROM tasks WHERE deleted_at IS NULL")
+    int countTasks();
+
+    /**
+     * Retrieves the identifiers of all tasks which are not deleted, in ascending order.
+     *
+     * @return the identifiers of all tasks.
+     */
+    @Query("SELECT taskId FROM tasks WHERE deleted_at IS NULL ORDER BY taskId ASC")
+    List<Long> getTaskIds();
 
     /**
-     * Retrieves all tasks from the database sorted alphabetically by name.
+     * Retrieves the first page of tasks in creation order.
      *
-     * @return a LiveData list of tasks sorted alphabetically.
+     * @param limit the maximum number of tasks to return.
+     * @return a list of at most {@code limit} tasks.
      */
-    @Query("SELECT * FROM tasks ORDER BY taskName ASC")
-    LiveData<List<Task>> getAllTasksSortedAlphabetically();
+    @Query(TASK_ROWS + "ORDER BY taskId ASC LIMIT :limit")
+    List<TaskRow> getFirstPage(int limit);
 
     /**
-     * Retrieves all tasks from the database sorted alphabetically by name in inverted order.
+     * Retrieves the page of tasks following the given key in creation order.
      *
-     * @return a LiveData list of tasks sorted alphabetically in inverted order.
+     * @param afterId the identifier of the last task of the previous page.
+     * @param limit   the maximum number of tasks to return.
+     * @return a list of at most {@code limit} tasks.
      */
-    @Query("SELECT * FROM tasks ORDER BY taskName DESC")
-    LiveData<List<Task>> getAllTasksSortedAlphabeticallyInverted();
+    @Query(TASK_ROWS + "AND taskId > :afterId ORDER BY taskId ASC LIMIT :limit")
+    List<TaskRow> getPageAfter(long afterId, int limit);
 
     /**
-     * Retrieves all tasks from the database sorted by date with the most recent first.
+     * Retrieves tasks by their identifiers, without their project: the rows only hold its identifier, and must go
+     * through {@link ProjectCache#resolve} to get the name and color of their project before they are used.
+     * SQLite limits the number of bound variables of a statement, so callers split long lists of identifiers.
      *
-     * @return a LiveData list of tasks sorted by date with the most recent first.
+     * @param taskIds the identifiers of the tasks.
+     * @return the tasks which are not deleted, in no particular order.
      */
-    @Query("SELECT * FROM tasks ORDER BY creation_timestamp DESC")
-    LiveData<List<Task>> getAllTasksSortedByDateRecentFirst();
+    @Query(TASK_ROWS + "AND taskId IN (:taskIds)")
+    List<TaskRow> getTaskRowsById(List<Long> taskIds);
 
     /**
-     * Retrieves all tasks from the database sorted by date with the oldest first.
+     * Retrieves the first page of tasks sorted alphabetically by name.
      *
-     * @return a LiveData list of tasks sorted by date with the oldest first.
+     * @param limit the maximum number of tasks to return.
+     * @return a list of at most {@code limit} tasks.
      */
-    @Query("SELECT * FROM tasks ORDER BY creation_timestamp ASC")
-    LiveData<List<Task>> getAllTasksSortedByDateOldFirst();
+    @Query(TASK_ROWS + "ORDER BY taskName ASC, taskId ASC LIMIT :limit")
+    List<TaskRow> getFirstPageSortedAlphabetically(int limit);
+
+    /**
+     * Retrieves the page of tasks following the given key, sorted alphabetically by name.
+     * The key comparison is written so that SQLite can seek on the taskName range.
+     *
+     * @param afterName the name of the last task of the previous page.
+     * @param afterId   the identifier of the last task of the previous page.
+     * @param limit     the maximum number of tasks to return.
+     * @return a list of at most {@code limit} tasks.
+     */
+    @Query(TASK_ROWS + "AND taskName >= :afterName AND (taskName > :afterName OR taskId > :afterId) "
+            + "ORDER BY taskName ASC, taskId ASC LIMIT :limit")
+    List<TaskRow> getPageAfterSortedAlphabetically(String afterName, long afterId, int limit);
+
+    /**
+     * Retrieves the first page of tasks sorted alphabetically by name in inverted order.
+     *
+     * @param limit the maximum number of tasks to return.
+     * @return a list of at most {@code limit} tasks.
+     */
+    @Query(TASK_ROWS + "ORDER BY taskName DESC, taskId DESC LIMIT :limit")
+    List<TaskRow> getFirstPageSortedAlphabeticallyInverted(int limit);
+
+    /**
+     * Retrieves the page of tasks following the given key, sorted alphabetically by name in inverted order.
+     *
+     * @param afterName the name of the last task of the previous page.
+     * @param afterId   the identifier of the last task of the previous page.
+     * @param limit     the maximum number of tasks to return.
+     * @return a list of at most {@code limit} tasks.
+     */
+    @Query(TASK_ROWS + "AND taskName <= :afterName AND (taskName < :afterName OR taskId < :afterId) "
+            + "ORDER BY taskName DESC, taskId DESC LIMIT :limit")
+    List<TaskRow> getPageAfterSortedAlphabeticallyInverted(String afterName, long afterId, int limit);
+
+    /**
+     * Retrieves the first page of tasks sorted by date with the most recent first.
+     *
+     * @param limit the maximum number of tasks to return.
+     * @return a list of at most {@code limit} tasks.
+     */
+    @Query(TASK_ROWS + "ORDER BY creation_timestamp DESC, taskId DESC LIMIT :limit")
+    List<TaskRow> getFirstPageSortedByDateRecentFirst(int limit);
+
+    /**
+     * Retrieves the page of tasks following the given key, sorted by date with the most recent first.
+     *
+     * @param afterTimestamp the creation timestamp of the last task of the previous page.
+     * @param afterId        the identifier of the last task of the previous page.
+     * @param limit          the maximum number of tasks to return.
+     * @return a list of at most {@code limit} tasks.
+     */
+    @Query(TASK_ROWS + "AND creation_timestamp <= :afterTimestamp "
+            + "AND (creation_timestamp < :afterTimestamp OR taskId < :afterId) "
+            + "ORDER BY creation_timestamp DESC, taskId DESC LIMIT :limit")
+    List<TaskRow> getPageAfterSortedByDateRecentFirst(long afterTimestamp, long afterId, int limit);
+
+    /**
+     * Retrieves the first page of tasks sorted by date with the oldest first.
+     *
+     * @param limit the maximum number of tasks to return.
+     * @return a list of at most {@code limit} tasks.
+     */
+    @Query(TASK_ROWS + "ORDER BY creation_timestamp ASC, taskId ASC LIMIT :limit")
+    List<TaskRow> getFirstPageSortedByDateOldFirst(int limit);
+
+    /**
+     * Retrieves the page of tasks following the given key, sorted by date with the oldest first.
+     *
+     * @param afterTimestamp the creation timestamp of the last task of the previous page.
+     * @param afterId        the identifier of the last task of the previous page.
+     * @param limit          the maximum number of tasks to return.
+     * @return a list of at most {@code limit} tasks.
+     */
+    @Query(TASK_ROWS + "AND creation_timestamp >= :afterTimestamp "
+            + "AND (creation_timestamp > :afterTimestamp OR taskId > :afterId) "
+            + "ORDER BY creation_timestamp ASC, taskId ASC LIMIT :limit")
+    List<TaskRow> getPageAfterSortedByDateOldFirst(long afterTimestamp, long afterId, int limit);
+
+    /**
+     * Retrieves the first page of the tasks of a project in creation order.
+     *
+     * @param projectId the identifier of the project.
+     * @param limit     the maximum number of tasks to return.
+     * @return a list of at most {@code limit} tasks.
+     */
+    @Query(TASK_ROWS + "AND tasks.projectId = :projectId ORDER BY tasks.taskId ASC LIMIT :limit")
+    List<TaskRow> getFirstPageOfProject(long projectId, int limit);
+
+    /**
+     * Retrieves the page of the tasks of a project following the given key in creation order.
+     *
+     * @param projectId the identifier of the project.
+     * @param afterId   the identifier of the last task of the previous page.
+     * @param limit     the maximum number of tasks to return.
+     * @return a list of at most {@code limit} tasks.
+     */
+    @Query(TASK_ROWS + "AND tasks.projectId = :projectId AND tasks.taskId > :afterId "
+            + "ORDER BY tasks.taskId ASC LIMIT :limit")
+    List<TaskRow> getPageOfProjectAfter(long projectId, long afterId, int limit);
+
+    /**
+     * Retrieves the first page of the tasks of a project sorted alphabetically by name.
+     *
+     * @param projectId the identifier of the project.
+     * @param limit     the maximum number of tasks to return.
+     * @return a list of at most {@code limit} tasks.
+     */
+    @Query(TASK_ROWS + "AND tasks.projectId = :projectId "
+            + "ORDER BY tasks.taskName ASC, tasks.taskId ASC LIMIT :limit")
+    List<TaskRow> getFirstPageOfProjectSortedAlphabetically(long projectId, int limit);
+
+    /**
+     * Retrieves the page of the tasks of a project following the given key, sorted alphabetically by name.
+     *
+     * @param projectId the identifier of the project.
+     * @param afterName the name of the last task of the previous page.
+     * @param afterId   the identifier of the last task of the previous page.
+     * @param limit     the maximum number of tasks to return.
+     * @return a list of at most {@code limit} tasks.
+     */
+    @Query(TASK_ROWS + "AND tasks.projectId = :projectId AND tasks.taskName >= :afterName "
+            + "AND (tasks.taskName > :afterName OR tasks.taskId > :afterId) "
+            + "ORDER BY tasks.taskName ASC, tasks.taskId ASC LIMIT :limit")
+    List<TaskRow> getPageOfProjectAfterSortedAlphabetically(long projectId, String afterName, long afterId, int limit);
+
+    /**
+     * Retrieves the first page of the tasks of a project sorted alphabetically by name in inverted order.
+     *
+     * @param projectId the identifier of the project.
+     * @param limit     the maximum number of tasks to return.
+     * @return a list of at most {@code limit} tasks.
+     */
+    @Query(TASK_ROWS + "AND tasks.projectId = :projectId "
+            + "ORDER BY tasks.taskName DESC, tasks.taskId DESC LIMIT :limit")
+    List<TaskRow> getFirstPageOfProjectSortedAlphabeticallyInverted(long projectId, int limit);
+
+    /**
+     * Retrieves the page of the tasks of a project following the given key,
+     * sorted alphabetically by name in inverted order.
+     *
+     * @param projectId the identifier of the project.
+     * @param afterName the name of the last task of the previous page.
+     * @param afterId   the identifier of the last task of the previous page.
+     * @param limit     the maximum number of tasks to return.
+     * @return a list of at most {@code limit} tasks.
+     */
+    @Query(TASK_ROWS + "AND tasks.projectId = :projectId AND tasks.taskName <= :afterName "
+            + "AND (tasks.taskName < :afterName OR tasks.taskId < :afterId) "
+            + "ORDER BY tasks.taskName DESC, tasks.taskId DESC LIMIT :limit")
+    List<TaskRow> getPageOfProjectAfterSortedAlphabeticallyInverted(long projectId, String afterName, long afterId,
+                                                                     int limit);
+
+    /**
+     * Retrieves the first page of the tasks of a project sorted by date with the most recent first.
+     *
+     * @param projectId the identifier of the project.
+     * @param limit     the maximum number of tasks to return.
+     * @return a list of at most {@code limit} tasks.
+     */
+    @Query(TASK_ROWS + "AND tasks.projectId = :projectId "
+            + "ORDER BY tasks.creation_timestamp DESC, tasks.taskId DESC LIMIT :limit")
+    List<TaskRow> getFirstPageOfProjectSortedByDateRecentFirst(long projectId, int limit);
+
+    /**
+     * Retrieves the page of the tasks of a project following the given key, sorted by date with the most recent first.
+     *
+     * @param projectId      the identifier of the project.
+     * @param afterTimestamp the creation timestamp of the last task of the previous page.
+     * @param afterId        the identifier of the last task of the previous page.
+     * @param limit          the maximum number of tasks to return.
+     * @return a list of at most {@code limit} tasks.
+     */
+    @Query(TASK_ROWS + "AND tasks.projectId = :projectId AND tasks.creation_timestamp <= :afterTimestamp "
+            + "AND (tasks.creation_timestamp < :afterTimestamp OR tasks.taskId < :afterId) "
+            + "ORDER BY tasks.creation_timestamp DESC, tasks.taskId DESC LIMIT :limit")
+    List<TaskRow> getPageOfProjectAfterSortedByDateRecentFirst(long projectId, long afterTimestamp, long afterId,
+                                                                int limit);
+
+    /**
+     * Retrieves the first page of the tasks of a project sorted by date with the oldest first.
+     *
+     * @param projectId the identifier of the project.
+     * @param limit     the maximum number of tasks to return.
+     * @return a list of at most {@code limit} tasks.
+     */
+    @Query(TASK_ROWS + "AND tasks.projectId = :projectId "
+            + "ORDER BY tasks.creation_timestamp ASC, tasks.taskId ASC LIMIT :limit")
+    List<TaskRow> getFirstPageOfProjectSortedByDateOldFirst(long projectId, int limit);
+
+    /**
+     * Retrieves the page of the tasks of a project following the given key, sorted by date with the oldest first.
+     *
+     * @param projectId      the identifier of the project.
+     * @param afterTimestamp the creation timestamp of the last task of the previous page.
+     * @param afterId        the identifier of the last task of the previous page.
+     * @param limit          the maximum number of tasks to return.
+     * @return a list of at most {@code limit} tasks.
+     */
+    @Query(TASK_ROWS + "AND tasks.projectId = :projectId AND tasks.creation_timestamp >= :afterTimestamp "
+            + "AND (tasks.creation_timestamp > :afterTimestamp OR tasks.taskId > :afterId) "
+            + "ORDER BY tasks.creation_timestamp ASC, tasks.taskId ASC LIMIT :limit")
+    List<TaskRow> getPageOfProjectAfterSortedByDateOldFirst(long projectId, long afterTimestamp, long afterId,
+                                                             int limit);
+
+    /**
+     * Searches the tasks whose name contains words starting with the given prefixes, through the full-text index.
+     * Tasks whose name starts with the first searched word come first, then shorter names, which match more closely.
+     *
+     * @param match     the FTS4 match expression, such as {@code "meet* client*"}.
+     * @param firstWord the first searched word, in lower case.
+     * @param limit     the maximum number of tasks to return.
+     * @return a list of at most {@code limit} matching tasks.
+     */
+    @Query("SELECT tasks.taskId, tasks.projectId, tasks.taskName, tasks.creation_timestamp "
+            + "FROM tasks_fts JOIN tasks ON tasks.taskId = tasks_fts.rowid "
+            + "WHERE tasks_fts MATCH :match AND tasks.deleted_at IS NULL "
+            + "ORDER BY substr(lower(tasks.taskName), 1, length(:firstWord)) = :firstWord DESC, "
+            + "length(tasks.taskName) ASC, tasks.taskId ASC LIMIT :limit")
+    List<TaskRow> searchTasks(String match, String firstWord, int limit);
 
     /**
      * Inserts a list of tasks into the database.
@@ -77,10 +351,92 @@ public interface TaskDao {
     void insertTask(Task task);
 
     /**
-     * Deletes a task from the database.
+     * Deletes a task from the database right away, without going through a tombstone.
      *
      * @param task the task to delete.
      */
     @Delete
     void deleteTask(Task task);
-}
\ No newline at end of file
+
+    /**
+     * Deletes a list of tasks from the database in a single statement batch, without going through a tombstone.
+     *
+     * @param tasks the list of tasks to delete.
+     */
+    @Delete
+    void deleteTasks(List<Task> tasks);
+
+    /**
+     * Deletes tasks by their identifiers in a single statement, without going through a tombstone.
+     * SQLite limits the number of bound variables of a statement, so callers split long lists of identifiers.
+     *
+     * @param taskIds the identifiers of the tasks to delete.
+     * @return the number of tasks deleted.
+     */
+    @Query("DELETE FROM tasks WHERE taskId IN (:taskIds)")
+    int deleteTasksById(List<Long> taskIds);
+
+    /**
+     * Moves tasks to another project in a single statement. Tombstoned tasks stay in their project,
+     * and the aggregates of both projects are updated by the triggers of the table.
+     *
+     * @param taskIds   the identifiers of the tasks to move.
+     * @param projectId the identifier of the project receiving the tasks.
+     * @return the number of tasks moved.
+     */
+    @Query("UPDATE tasks SET projectId = :projectId WHERE taskId IN (:taskIds) AND deleted_at IS NULL")
+    int moveTasks(List<Long> taskIds, long projectId);
+
+    /**
+     * Tombstones tasks: they disappear from every read, but stay in the table until they are purged.
+     * Tasks already tombstoned keep their first deletion time.
+     *
+     * @param taskIds   the identifiers of the tasks to tombstone.
+     * @param deletedAt the time of the deletion.
+     * @return the number of tasks tombstoned.
+     */
+    @Query("UPDATE tasks SET deleted_at = :deletedAt WHERE taskId IN (:taskIds) AND deleted_at IS NULL")
+    int tombstoneTasks(List<Long> taskIds, long deletedAt);
+
+    /**
+     * Restores tombstoned tasks, which have not been purged yet.
+     *
+     * @param taskIds the identifiers of the tasks to restore.
+     * @return the number of tasks restored.
+     */
+    @Query("UPDATE tasks SET deleted_at = NULL WHERE taskId IN (:taskIds) AND deleted_at IS NOT NULL")
+    int restoreTasks(List<Long> taskIds);
+
+    /**
+     * Counts the tombstoned tasks waiting to be purged.
+     *
+     * @return the number of tombstoned tasks.
+     */
+    @Query("SELECT COUNT(*) FROM tasks WHERE deleted_at IS NOT NULL")
+    int countDeletedTasks();
+
+    /**
+     * Deletes for good a batch of the tasks tombstoned before the given time.
+     * The tombstones are found through their partial index, which the range on "deleted_at" lets SQLite use.
+     *
+     * @param deletedBefore the time before which the tasks must have been tombstoned.
+     * @param limit         the maximum number of tasks to delete.
+     * @return the number of tasks deleted.
+     */
+    @Query("DELETE FROM tasks WHERE taskId IN "
+            + "(SELECT taskId FROM tasks WHERE deleted_at <= :deletedBefore LIMIT :limit)")
+    int purgeDeletedTasks(long deletedBefore, int limit);
+
+    /**
+     * Opens a cursor over every task, in creation order, with the name of its project.
+     * The columns are "name", "project" and "timestamp", as read back by {@link TaskImporter}.
+     * Rows are fetched window by window as the cursor moves, so the caller holds a bounded number of them.
+     * Must not be called on the main thread, and the cursor must be closed by the caller.
+     *
+     * @return a cursor over every task.
+     */
+    @Query("SELECT tasks.taskName AS name, projects.projectName AS project, tasks.creation_timestamp AS timestamp "
+            + "FROM tasks INNER JOIN projects ON projects.projectId = tasks.projectId "
+            + "WHERE tasks.deleted_at IS NULL ORDER BY tasks.taskId")
+    Cursor getTasksForExport();
+}
@@ -0,0 +1,216 @@
+package com.cleanup.todoc.repository;
+
+import android.database.Cursor;
+import android.util.JsonWriter;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports the tasks and the projects to a CSV or JSON file, optionally gzipped.
+ * <p>
+ * Rows are read through a cursor and written to a buffered stream as they are read, so no entity is built
+ * and the memory used does not depend on the number of rows.
+ * Tasks are exported with the name of their project, in the formats read back by {@link TaskImporter}:
+ * <ul>
+ *     <li>CSV files start with a header naming the columns, and quote the fields holding commas, quotes
+ *     or line breaks, following RFC 4180;</li>
+ *     <li>JSON files hold an array of objects, with a member per column.</li>
+ * </ul>
+ */
+public class TaskExporter {
+
+    // Size of the buffer between the encoder and the stream
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Database from which the rows are read
+    private final AppDatabase database;
+
+    /**
+     * Constructor to initialize the TaskExporter.
+     *
+     * @param database the database from which the rows are exported
+     */
+    public TaskExporter(@NonNull AppDatabase database) {
+        this.database = database;
+    }
+
+    /**
+     * Exports every task, with the columns "name", "project" and "timestamp".
+     * The stream is flushed but not closed.
+     *
+     * @param output the stream to write to
+     * @param format the format of the file
+     * @param gzip   whether to compress the file with gzip
+     * @return the number of exported tasks
+     * @throws IOException if the stream cannot be written
+     */
+    @WorkerThread
+    public long exportTasks(@NonNull OutputStream output, @NonNull TaskImporter.Format format, boolean gzip)
+            throws IOException {
+        try (Cursor cursor = database.taskDao().getTasksForExport()) {
+            long rows = export(cursor, output, format, gzip);
+            Log.d("TaskExporter", "Exported " + rows + " tasks.");
+            return rows;
+        }
+    }
+
+    /**
+     * Exports every project, with the columns "id", "name" and "color".
+     * The stream is flushed but not closed.
+     *
+     * @param output the stream to write to
+     * @param format the format of the file
+     * @param gzip   whether to compress the file with gzip
+     * @return the number of exported projects
+     * @throws IOException if the stream cannot be written
+     */
+    @WorkerThread
+    public long exportProjects(@NonNull OutputStream output, @NonNull TaskImporter.Format format, boolean gzip)
+            throws IOException {
+        try (Cursor cursor = database.projectDao().getProjectsForExport()) {
+            long rows = export(cursor, output, format, gzip);
+            Log.d("TaskExporter", "Exported " + rows + " projects.");
+            return rows;
+        }
+    }
+
+    /**
+     * Writes every row of a cursor to a stream.
+     *
+     * @param cursor the rows to export
+     * @param output the stream to write to
+     * @param format the format of the file
+     * @param gzip   whether to compress the file with gzip
+     * @return the number of exported rows
+     * @throws IOException if the stream cannot be written
+     */
+    private static long export(Cursor cursor, OutputStream output, TaskImporter.Format format, boolean gzip)
+            throws IOException {
+        GZIPOutputStream compressed = gzip ? new GZIPOutputStream(output, BUFFER_SIZE) : null;
+        Writer writer = new BufferedWriter(
+                new OutputStreamWriter(compressed != null ? compressed : output, StandardCharsets.UTF_8), BUFFER_SIZE);
+        long rows = format == TaskImporter.Format.CSV ? writeCsv(cursor, writer) : writeJson(cursor, writer);
+        writer.flush();
+        if (compressed != null) {
+            // Writes the gzip trailer without closing the caller's stream
+            compressed.finish();
+        }
+        output.flush();
+        return rows;
+    }
+
+    /**
+     * Writes the rows of a cursor as CSV, after a header naming the columns.
+     *
+     * @param cursor the rows to export
+     * @param writer the writer to write to
+     * @return the number of exported rows
+     * @throws IOException if the writer fails
+     */
+    private static long writeCsv(Cursor cursor, Writer writer) throws IOException {
+        int columns = cursor.getColumnCount();
+        for (int i = 0; i < columns; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeCsvField(writer, cursor.getColumnName(i));
+        }
+        writer.write("\r\n");
+
+        long rows = 0;
+        while (cursor.moveToNext()) {
+            for (int i = 0; i < columns; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                int type = cursor.getType(i);
+                if (type == Cursor.FIELD_TYPE_INTEGER) {
+                    writer.write(Long.toString(cursor.getLong(i)));
+                } else if (type != Cursor.FIELD_TYPE_NULL) {
+                    writeCsvField(writer, cursor.getString(i));
+                }
+            }
+            writer.write("\r\n");
+            rows++;
+        }
+        return rows;
+    }
+
+    /**
+     * Writes a CSV field, quoted if it holds a comma, a quote or a line break.
+     *
+     * @param writer the writer to write to
+     * @param value  the value of the field
+     * @throws IOException if the writer fails
+     */
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        boolean quoted = false;
+        for (int i = 0; i < value.length() && !quoted; i++) {
+            char c = value.charAt(i);
+            quoted = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quoted) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    /**
+     * Writes the rows of a cursor as a JSON array of objects, with a member per column.
+     *
+     * @param cursor the rows to export
+     * @param writer the writer to write to
+     * @return the number of exported rows
+     * @throws IOException if the writer fails
+     */
+    private static long writeJson(Cursor cursor, Writer writer) throws IOException {
+        // Not closed, since closing it would close the caller's stream
+        JsonWriter json = new JsonWriter(writer);
+        int columns = cursor.getColumnCount();
+        String[] names = new String[columns];
+        for (int i = 0; i < columns; i++) {
+            names[i] = cursor.getColumnName(i);
+        }
+
+        long rows = 0;
+        json.beginArray();
+        while (cursor.moveToNext()) {
+            json.beginObject();
+            for (int i = 0; i < columns; i++) {
+                json.name(names[i]);
+                int type = cursor.getType(i);
+                if (type == Cursor.FIELD_TYPE_INTEGER) {
+                    json.value(cursor.getLong(i));
+                } else if (type == Cursor.FIELD_TYPE_NULL) {
+                    json.nullValue();
+                } else {
+                    json.value(cursor.getString(i));
+                }
+            }
+            json.endObject();
+            rows++;
+        }
+        json.endArray();
+        json.flush();
+        return rows;
+    }
+}
@@ -0,0 +1,529 @@
+package com.cleanup.todoc.repository;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.cleanup.todoc.model.ImportCheckpoint;
+import com.cleanup.todoc.model.Project;
+import com.cleanup.todoc.model.Task;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Imports tasks in bulk from a CSV or JSON file.
+ * <p>
+ * The file is parsed as a stream, one row at a time, and the tasks are written in chunks of a fixed size,
+ * each in its own transaction. Only one chunk is held in memory, so the size of the file does not matter.
+ * Each transaction also records how many rows of the file are committed, so an import interrupted by a crash
+ * resumes after the last committed chunk when the same file is imported again under the same source identifier.
+ * <p>
+ * Projects are referenced by name, case-insensitively. Rows naming an unknown project, or missing a name,
+ * are skipped and counted.
+ * <ul>
+ *     <li>CSV files start with a header naming the columns "name", "project" and optionally "timestamp",
+ *     in any order; fields follow RFC 4180, so they may be quoted and contain commas, quotes and line breaks.</li>
+ *     <li>JSON files hold an array of objects with the members "name", "project" and optionally "timestamp".</li>
+ * </ul>
+ * Rows without a timestamp are created at the time of the import.
+ */
+public class TaskImporter {
+
+    /**
+     * Number of tasks written by each transaction.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    /**
+     * Formats of the imported files.
+     */
+    public enum Format {
+        CSV,
+        JSON
+    }
+
+    /**
+     * Listener notified after each committed chunk.
+     */
+    public interface ProgressListener {
+
+        /**
+         * Called on the importing thread after a chunk has been committed.
+         *
+         * @param importedTasks the number of tasks imported so far by this run
+         * @param skippedRows   the number of rows skipped so far by this run
+         */
+        void onProgress(long importedTasks, long skippedRows);
+    }
+
+    /**
+     * Outcome of an import.
+     */
+    public static class Result {
+
+        /**
+         * The number of tasks imported by this run.
+         */
+        public final long importedTasks;
+
+        /**
+         * The number of rows skipped by this run, because of an unknown project or a missing name.
+         */
+        public final long skippedRows;
+
+        /**
+         * The number of rows committed by a previous, interrupted run, which were not read again.
+         */
+        public final long resumedFrom;
+
+        /**
+         * Instantiates a new Result.
+         *
+         * @param importedTasks the number of tasks imported by this run
+         * @param skippedRows   the number of rows skipped by this run
+         * @param resumedFrom   the number of rows committed by a previous run
+         */
+        public Result(long importedTasks, long skippedRows, long resumedFrom) {
+            this.importedTasks = importedTasks;
+            this.skippedRows = skippedRows;
+            this.resumedFrom = resumedFrom;
+        }
+    }
+
+    // Database in which the chunks are committed
+    private final AppDatabase database;
+    // Number of tasks written by each transaction
+    private final int chunkSize;
+
+    /**
+     * Constructor to initialize the TaskImporter with the default chunk size.
+     *
+     * @param database the database in which the tasks are imported
+     */
+    public TaskImporter(@NonNull AppDatabase database) {
+        this(database, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructor to initialize the TaskImporter.
+     *
+     * @param database  the database in which the tasks are imported
+     * @param chunkSize the number of tasks written by each transaction
+     */
+    public TaskImporter(@NonNull AppDatabase database, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        this.database = database;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Imports the tasks of a file, resuming after the rows committed by a previous run of the same source.
+     * The stream is not closed.
+     *
+     * @param input    the content of the file
+     * @param format   the format of the file
+     * @param sourceId the identifier of the file, e.g. its URI, under which the progress is recorded
+     * @param listener the listener notified after each committed chunk, or null
+     * @return the outcome of the import
+     * @throws IOException if the file cannot be read or is malformed; the committed chunks are kept
+     */
+    @WorkerThread
+    @NonNull
+    public Result importTasks(@NonNull InputStream input, @NonNull Format format, @NonNull String sourceId,
+                              @Nullable ProgressListener listener) throws IOException {
+        Map<String, Long> projectIds = loadProjectIds();
+        ImportCheckpointDao checkpointDao = database.importCheckpointDao();
+        TaskDao taskDao = database.taskDao();
+
+        Long committed = checkpointDao.getCommittedRows(sourceId);
+        long resumedFrom = committed != null ? committed : 0;
+        long now = System.currentTimeMillis();
+
+        Reader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        RowReader rows = format == Format.CSV ? new CsvRowReader(reader) : new JsonRowReader(reader);
+
+        // Rows committed by a previous run are parsed but not written again
+        long consumedRows = 0;
+        while (consumedRows < resumedFrom && rows.next() != null) {
+            consumedRows++;
+        }
+        if (resumedFrom > 0) {
+            Log.d("TaskImporter", "Resuming " + sourceId + " after " + resumedFrom + " rows.");
+        }
+
+        List<Task> chunk = new ArrayList<>(chunkSize);
+        long importedTasks = 0;
+        long skippedRows = 0;
+        Row row;
+        while ((row = rows.next()) != null) {
+            consumedRows++;
+            Long projectId = row.project != null ? projectIds.get(normalize(row.project)) : null;
+            if (projectId == null || row.name == null || row.name.trim().isEmpty() || !row.valid) {
+                skippedRows++;
+            } else {
+                chunk.add(new Task(0, projectId, row.name.trim(), row.timestamp != null ? row.timestamp : now));
+            }
+            if (chunk.size() == chunkSize) {
+                commitChunk(taskDao, checkpointDao, chunk, sourceId, consumedRows);
+                importedTasks += chunk.size();
+                chunk.clear();
+                if (listener != null) {
+                    listener.onProgress(importedTasks, skippedRows);
+                }
+            }
+        }
+
+        // The last chunk also forgets the progress, so that the same file can be imported again later
+        final List<Task> lastChunk = chunk;
+        database.runInTransaction(() -> {
+            if (!lastChunk.isEmpty()) {
+                taskDao.insertAll(lastChunk);
+            }
+            checkpointDao.deleteCheckpoint(sourceId);
+        });
+        importedTasks += lastChunk.size();
+        if (listener != null) {
+            listener.onProgress(importedTasks, skippedRows);
+        }
+        Log.d("TaskImporter", "Imported " + importedTasks + " tasks from " + sourceId
+                + ", skipped " + skippedRows + " rows.");
+        return new Result(importedTasks, skippedRows, resumedFrom);
+    }
+
+    /**
+     * Writes a chunk of tasks and the number of rows it completes in a single transaction.
+     *
+     * @param taskDao       the DAO writing the tasks
+     * @param checkpointDao the DAO recording the progress
+     * @param chunk         the tasks to write
+     * @param sourceId      the identifier of the imported file
+     * @param consumedRows  the number of rows of the file read so far, including this chunk
+     */
+    private void commitChunk(TaskDao taskDao, ImportCheckpointDao checkpointDao, List<Task> chunk,
+                             String sourceId, long consumedRows) {
+        database.runInTransaction(() -> {
+            taskDao.insertAll(chunk);
+            checkpointDao.saveCheckpoint(new ImportCheckpoint(sourceId, consumedRows));
+        });
+    }
+
+    /**
+     * Reads the identifiers of the projects, by normalized name.
+     *
+     * @return the identifiers of the projects
+     */
+    private Map<String, Long> loadProjectIds() {
+        Map<String, Long> projectIds = new HashMap<>();
+        for (Project project : database.projectDao().getAllProjects()) {
+            projectIds.put(normalize(project.getName()), project.getId());
+        }
+        return projectIds;
+    }
+
+    /**
+     * Normalizes a project name so that names differing by case or surrounding spaces match.
+     *
+     * @param name the project name
+     * @return the normalized name
+     */
+    private static String normalize(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * A row of the imported file.
+     */
+    private static class Row {
+        // Name of the task, or null if missing
+        final String name;
+        // Name of the project, or null if missing
+        final String project;
+        // Creation timestamp, or null if missing
+        final Long timestamp;
+        // Whether every present field could be parsed
+        final boolean valid;
+
+        /**
+         * Instantiates a new Row.
+         *
+         * @param name      the name of the task
+         * @param project   the name of the project
+         * @param timestamp the text of the creation timestamp
+         * @param valid     whether the other fields could be read
+         */
+        Row(@Nullable String name, @Nullable String project, @Nullable String timestamp, boolean valid) {
+            this.name = name;
+            this.project = project;
+            Long parsed = null;
+            boolean validTimestamp = valid;
+            if (timestamp != null && !timestamp.trim().isEmpty()) {
+                try {
+                    parsed = Long.parseLong(timestamp.trim());
+                } catch (NumberFormatException e) {
+                    validTimestamp = false;
+                }
+            }
+            this.timestamp = parsed;
+            this.valid = validTimestamp;
+        }
+    }
+
+    /**
+     * Source of the rows of a file, read one at a time.
+     */
+    private interface RowReader {
+
+        /**
+         * Reads the next row.
+         *
+         * @return the next row, or null at the end of the file
+         * @throws IOException if the file cannot be read or is malformed
+         */
+        @Nullable
+        Row next() throws IOException;
+    }
+
+    /**
+     * Reads the rows of a CSV file with a header, following RFC 4180. Blank lines are ignored.
+     */
+    private static class CsvRowReader implements RowReader {
+        // Source of the characters
+        private final Reader reader;
+        // Positions of the columns, -1 when absent
+        private int nameColumn = -1;
+        private int projectColumn = -1;
+        private int timestampColumn = -1;
+        // Whether the header has been read
+        private boolean headerRead;
+        // Character read ahead, -2 when none
+        private int pushedBack = -2;
+
+        /**
+         * Instantiates a new CsvRowReader.
+         *
+         * @param reader the source of the characters
+         */
+        CsvRowReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * Reads the next row, reading the header first.
+         *
+         * @return the next row, or null at the end of the file
+         * @throws IOException if the file cannot be read, or the header lacks a required column
+         */
+        @Nullable
+        @Override
+        public Row next() throws IOException {
+            if (!headerRead) {
+                headerRead = true;
+                List<String> header = nextRecord();
+                if (header == null) {
+                    return null;
+                }
+                for (int i = 0; i < header.size(); i++) {
+                    String column = normalize(header.get(i));
+                    if (column.equals("name")) {
+                        nameColumn = i;
+                    } else if (column.equals("project")) {
+                        projectColumn = i;
+                    } else if (column.equals("timestamp")) {
+                        timestampColumn = i;
+                    }
+                }
+                if (nameColumn < 0 || projectColumn < 0) {
+                    throw new IOException("CSV header must name the columns \"name\" and \"project\"");
+                }
+            }
+            List<String> fields = nextRecord();
+            if (fields == null) {
+                return null;
+            }
+            return new Row(field(fields, nameColumn), field(fields, projectColumn), field(fields, timestampColumn),
+                    true);
+        }
+
+        /**
+         * Returns a field of a record.
+         *
+         * @param fields the fields of the record
+         * @param column the position of the field, -1 when the column is absent
+         * @return the field, or null if absent
+         */
+        @Nullable
+        private static String field(List<String> fields, int column) {
+            return column >= 0 && column < fields.size() ? fields.get(column) : null;
+        }
+
+        /**
+         * Reads the fields of the next non-blank record.
+         *
+         * @return the fields of the record, or null at the end of the file
+         * @throws IOException if the file cannot be read, or a quoted field is not closed
+         */
+        @Nullable
+        private List<String> nextRecord() throws IOException {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean blank = true;
+            int c;
+            while ((c = read()) != -1) {
+                if (quoted) {
+                    if (c == '"') {
+                        int next = read();
+                        if (next == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            unread(next);
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                    blank = false;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                    blank = false;
+                } else if (c == '\r' || c == '\n') {
+                    if (c == '\r') {
+                        int next = read();
+                        if (next != '\n') {
+                            unread(next);
+                        }
+                    }
+                    if (!blank) {
+                        fields.add(field.toString());
+                        return fields;
+                    }
+                } else {
+                    field.append((char) c);
+                    blank = false;
+                }
+            }
+            if (quoted) {
+                throw new IOException("Unterminated quoted field in CSV");
+            }
+            if (blank) {
+                return null;
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+
+        /**
+         * Reads a character, or the one read ahead.
+         *
+         * @return the character, or -1 at the end of the file
+         * @throws IOException if the file cannot be read
+         */
+        private int read() throws IOException {
+            if (pushedBack != -2) {
+                int c = pushedBack;
+                pushedBack = -2;
+                return c;
+            }
+            return reader.read();
+        }
+
+        /**
+         * Keeps a character read ahead for the next read.
+         *
+         * @param c the character, or -1 at the end of the file
+         */
+        private void unread(int c) {
+            pushedBack = c;
+        }
+    }
+
+    /**
+     * Reads the rows of a JSON array of objects. Unknown members are ignored.
+     */
+    private static class JsonRowReader implements RowReader {
+        // Streaming JSON parser
+        private final JsonReader reader;
+        // Whether the opening bracket of the array has been read
+        private boolean started;
+
+        /**
+         * Instantiates a new JsonRowReader.
+         *
+         * @param reader the source of the characters
+         */
+        JsonRowReader(Reader reader) {
+            this.reader = new JsonReader(reader);
+        }
+
+        /**
+         * Reads the next object of the array.
+         *
+         * @return the next row, or null at the end of the array
+         * @throws IOException if the file cannot be read or is not an array of objects
+         */
+        @Nullable
+        @Override
+        public Row next() throws IOException {
+            try {
+                if (!started) {
+                    started = true;
+                    reader.beginArray();
+                }
+                if (!reader.hasNext()) {
+                    reader.endArray();
+                    return null;
+                }
+                String name = null;
+                String project = null;
+                String timestamp = null;
+                boolean valid = true;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String member = reader.nextName();
+                    JsonToken token = reader.peek();
+                    if (token != JsonToken.STRING && token != JsonToken.NUMBER) {
+                        // Nested values, booleans and nulls are not valid for any member
+                        reader.skipValue();
+                        boolean known = member.equals("name") || member.equals("project") || member.equals("timestamp");
+                        if (known && !(token == JsonToken.NULL && member.equals("timestamp"))) {
+                            valid = false;
+                        }
+                        continue;
+                    }
+                    String value = reader.nextString();
+                    if (member.equals("name")) {
+                        name = value;
+                    } else if (member.equals("project")) {
+                        project = value;
+                    } else if (member.equals("timestamp")) {
+                        timestamp = value;
+                    }
+                }
+                reader.endObject();
+                return new Row(name, project, timestamp, valid);
+            } catch (IllegalStateException e) {
+                // Thrown by JsonReader when the structure does not match
+                throw new IOException("JSON file must hold an array of objects", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package com.cleanup.todoc.repository;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.room.InvalidationTracker;
+
+import com.cleanup.todoc.model.Task;
+import com.cleanup.todoc.model.TaskRow;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Source of keyset-paginated task pages.
+ * A page is identified by the last task of the previous page, so loading any page costs an index seek
+ * instead of skipping over all the preceding rows as an OFFSET would.
+ * Pages are served from the {@link TaskCache} when the table is small enough to be held in memory.
+ * Pages filtered by project are always read from the database, on the indices led by the project.
+ * The tasks of every page share the instances of their projects, filled in by the {@link ProjectCache}.
+ * A task read again without change keeps the instance of its previous read, so that reloads of the list
+ * retain no new rows and unchanged rows are compared by identity.
+ * <p>
+ * Inserts and deletions waiting on the write pipeline can be laid over the pages, so that the list shows them
+ * right away instead of after the commit and the reload. Once a write is settled, committed or failed,
+ * it is removed from the overlay and the list is reloaded from the committed state, dropping failed writes.
+ */
+public class TaskPageSource {
+    // DAO for accessing task data
+    private final TaskDao taskDao;
+    // Sorted copy of the tasks, which also relays the changes of the "tasks" table
+    private final TaskCache taskCache;
+    // Writes waiting on the write pipeline, shown over the committed pages
+    private final PendingTaskWrites pendingWrites = new PendingTaskWrites();
+
+    /**
+     * Constructor to initialize the TaskPageSource with a cache of the default size.
+     *
+     * @param taskDao             the DAO for accessing task data
+     * @param invalidationTracker the tracker notifying changes of the "tasks" and "projects" tables
+     * @param projectCache        the shared instances of the projects
+     */
+    public TaskPageSource(@NonNull TaskDao taskDao, @NonNull InvalidationTracker invalidationTracker,
+                          @NonNull ProjectCache projectCache) {
+        this(taskDao, invalidationTracker, 0, projectCache);
+    }
+
+    /**
+     * Constructor to initialize the TaskPageSource with a cache of the default size,
+     * notifying the changes of the tasks at most once per coalescing window.
+     *
+     * @param taskDao                the DAO for accessing task data
+     * @param invalidationTracker    the tracker notifying changes of the "tasks" and "projects" tables
+     * @param coalescingWindowMillis the window, in milliseconds, whose changes are notified once
+     * @param projectCache           the shared instances of the projects
+     */
+    public TaskPageSource(@NonNull TaskDao taskDao, @NonNull InvalidationTracker invalidationTracker,
+                          long coalescingWindowMillis, @NonNull ProjectCache projectCache) {
+        this(taskDao, new TaskCache(taskDao, invalidationTracker, TaskCache.DEFAULT_MAX_SIZE, coalescingWindowMillis,
+                projectCache));
+    }
+
+    /**
+     * Constructor to initialize the TaskPageSource.
+     *
+     * @param taskDao   the DAO for accessing task data
+     * @param taskCache the sorted copy of the tasks
+     */
+    public TaskPageSource(@NonNull TaskDao taskDao, @NonNull TaskCache taskCache) {
+        this.taskDao = taskDao;
+        this.taskCache = taskCache;
+    }
+
+    /**
+     * Fills in the project of rows read from the database outside of the pages, such as search results,
+     * and replaces the rows of unchanged tasks by their previous instances.
+     *
+     * @param rows the rows read from the database, whose elements are replaced
+     * @return the rows
+     */
+    @WorkerThread
+    @NonNull
+    List<TaskRow> internRows(@NonNull List<TaskRow> rows) {
+        return taskCache.internRows(rows);
+    }
+
+    /**
+     * Reports tasks updated in place, whose cached copies must be reloaded.
+     * Must be called once the update is committed.
+     */
+    public void onTasksUpdated() {
+        taskCache.markUpdated();
+    }
+
+    /**
+     * Reports tasks updated in place, so that only their cached copies are reloaded.
+     * Must be called once the update is committed.
+     *
+     * @param taskIds the identifiers of the updated tasks
+     */
+    public void onTasksUpdated(@NonNull List<Long> taskIds) {
+        taskCache.markUpdated(taskIds);
+    }
+
+    /**
+     * Shows a task being inserted in the pages until the insert is settled, and reloads the list right away.
+     *
+     * @param task         the task being inserted
+     * @param projectName  the name of the project of the task
+     * @param projectColor the color of the project of the task
+     * @return the row shown until the insert is settled, to give to {@link #removePendingInsert(TaskRow)}
+     */
+    @NonNull
+    public TaskRow addPendingInsert(@NonNull Task task, @NonNull String projectName, @ColorInt int projectColor) {
+        TaskRow row = pendingWrites.addInsert(task, projectName, projectColor);
+        taskCache.notifyChanged();
+        return row;
+    }
+
+    /**
+     * Stops showing a task being inserted once the insert is committed or has failed,
+     * and reloads the list from the committed state right away.
+     *
+     * @param row the row returned by {@link #addPendingInsert(Task, String, int)}
+     */
+    public void removePendingInsert(@NonNull TaskRow row) {
+        // The committed task must be read in the same reload which drops its pending row
+        taskCache.markStale();
+        pendingWrites.removeInsert(row);
+        taskCache.notifyChanged();
+    }
+
+    /**
+     * Hides tasks being deleted from the pages until the deletion is settled, and reloads the list right away.
+     *
+     * @param taskIds the identifiers of the tasks being deleted
+     */
+    public void addPendingDeletions(@NonNull List<Long> taskIds) {
+        pendingWrites.addDeletions(taskIds);
+        taskCache.notifyChanged();
+    }
+
+    /**
+     * Stops hiding tasks being deleted once the deletion is committed or has failed,
+     * and reloads the list from the committed state right away.
+     *
+     * @param taskIds the identifiers given to {@link #addPendingDeletions(List)}
+     */
+    public void removePendingDeletions(@NonNull List<Long> taskIds) {
+        taskCache.markStale();
+        // The deleted tasks are gone, and the tasks whose deletion failed are read again
+        taskCache.evictRows(taskIds);
+        pendingWrites.removeDeletions(taskIds);
+        taskCache.notifyChanged();
+    }
+
+    /**
+     * Loads a page of tasks in the given order.
+     *
+     * @param sortOrder the order of the tasks
+     * @param afterKey  the last task of the previous page, or null to load the first page
+     * @param pageSize  the maximum number of tasks to load
+     * @return the tasks of the page, fewer than {@code pageSize} when the end of the list is reached
+     */
+    @WorkerThread
+    @NonNull
+    public List<TaskRow> loadPage(@NonNull TaskSortOrder sortOrder, @Nullable TaskRow afterKey, int pageSize) {
+        return loadPage(sortOrder, Collections.emptySet(), afterKey, pageSize);
+    }
+
+    /**
+     * Loads a page of the tasks of some projects in the given order.
+     * <p>
+     * The tasks of each project are read with a seek on the index led by the project and the sort key,
+     * then the pages of the projects are merged, so that no query has to sort the rows it reads.
+     *
+     * @param sortOrder  the order of the tasks
+     * @param projectIds the identifiers of the projects of the tasks, or an empty set for the tasks of all projects
+     * @param afterKey   the last task of the previous page, or null to load the first page
+     * @param pageSize   the maximum number of tasks to load
+     * @return the tasks of the page, fewer than {@code pageSize} when the end of the list is reached
+     */
+    @WorkerThread
+    @NonNull
+    public List<TaskRow> loadPage(@NonNull TaskSortOrder sortOrder, @NonNull Set<Long> projectIds,
+                                  @Nullable TaskRow afterKey, int pageSize) {
+        PendingTaskWrites.Snapshot pending = pendingWrites.snapshot();
+        if (pending == null) {
+            return loadCommittedPage(sortOrder, projectIds, afterKey, pageSize);
+        }
+        // Read past the page size, so that the page is still full once the tasks being deleted are dropped
+        int committedSize = pageSize + pending.getDeletionCount();
+        List<TaskRow> committed = loadCommittedPage(sortOrder, projectIds, afterKey, committedSize);
+        return pending.apply(committed, committed.size() < committedSize, comparator(sortOrder), projectIds,
+                afterKey, pageSize);
+    }
+
+    /**
+     * Loads a page of the committed tasks of some projects in the given order, from the cache or the database.
+     *
+     * @param sortOrder  the order of the tasks
+     * @param projectIds the identifiers of the projects of the tasks, or an empty set for the tasks of all projects
+     * @param afterKey   the last task of the previous page, or null to load the first page
+     * @param pageSize   the maximum number of tasks to load
+     * @return the tasks of the page, fewer than {@code pageSize} when the end of the list is reached
+     */
+    private List<TaskRow> loadCommittedPage(TaskSortOrder sortOrder, Set<Long> projectIds,
+                                            @Nullable TaskRow afterKey, int pageSize) {
+        if (!projectIds.isEmpty()) {
+            return taskCache.internRows(loadFilteredPage(sortOrder, projectIds, afterKey, pageSize));
+        }
+        List<TaskRow> cachedPage = taskCache.loadPage(sortOrder, afterKey, pageSize);
+        if (cachedPage != null) {
+            return cachedPage;
+        }
+        return taskCache.internRows(loadDatabasePage(sortOrder, afterKey, pageSize));
+    }
+
+    /**
+     * Loads a page of the tasks from the database.
+     *
+     * @param sortOrder the order of the tasks
+     * @param afterKey  the last task of the previous page, or null to load the first page
+     * @param pageSize  the maximum number of tasks to load
+     * @return the tasks of the page
+     */
+    private List<TaskRow> loadDatabasePage(TaskSortOrder sortOrder, @Nullable TaskRow afterKey, int pageSize) {
+        if (afterKey == null) {
+            switch (sortOrder) {
+                case ALPHABETICAL:
+                    return taskDao.getFirstPageSortedAlphabetically(pageSize);
+                case ALPHABETICAL_INVERTED:
+                    return taskDao.getFirstPageSortedAlphabeticallyInverted(pageSize);
+                case RECENT_FIRST:
+                    return taskDao.getFirstPageSortedByDateRecentFirst(pageSize);
+                case OLD_FIRST:
+                    return taskDao.getFirstPageSortedByDateOldFirst(pageSize);
+                default:
+                    return taskDao.getFirstPage(pageSize);
+            }
+        }
+        switch (sortOrder) {
+            case ALPHABETICAL:
+                return taskDao.getPageAfterSortedAlphabetically(afterKey.taskName, afterKey.taskId, pageSize);
+            case ALPHABETICAL_INVERTED:
+                return taskDao.getPageAfterSortedAlphabeticallyInverted(afterKey.taskName, afterKey.taskId, pageSize);
+            case RECENT_FIRST:
+                return taskDao.getPageAfterSortedByDateRecentFirst(afterKey.taskCreationTimestamp, afterKey.taskId, pageSize);
+            case OLD_FIRST:
+                return taskDao.getPageAfterSortedByDateOldFirst(afterKey.taskCreationTimestamp, afterKey.taskId, pageSize);
+            default:
+                return taskDao.getPageAfter(afterKey.taskId, pageSize);
+        }
+    }
+
+    /**
+     * Loads a page of the tasks of some projects, merging the pages read for each project.
+     *
+     * @param sortOrder  the order of the tasks
+     * @param projectIds the identifiers of the projects of the tasks
+     * @param afterKey   the last task of the previous page, or null to load the first page
+     * @param pageSize   the maximum number of tasks to load
+     * @return the tasks of the page
+     */
+    private List<TaskRow> loadFilteredPage(TaskSortOrder sortOrder, Set<Long> projectIds,
+                                           @Nullable TaskRow afterKey, int pageSize) {
+        List<TaskRow> page = new ArrayList<>();
+        for (long projectId : projectIds) {
+            page.addAll(loadProjectPage(sortOrder, projectId, afterKey, pageSize));
+        }
+        if (projectIds.size() > 1) {
+            Collections.sort(page, comparator(sortOrder));
+            if (page.size() > pageSize) {
+                page.subList(pageSize, page.size()).clear();
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Loads a page of the tasks of a project from the database.
+     *
+     * @param sortOrder the order of the tasks
+     * @param projectId the identifier of the project of the tasks
+     * @param afterKey  the last task of the previous page, or null to load the first page
+     * @param pageSize  the maximum number of tasks to load
+     * @return the tasks of the page
+     */
+    private List<TaskRow> loadProjectPage(TaskSortOrder sortOrder, long projectId, @Nullable TaskRow afterKey,
+                                          int pageSize) {
+        if (afterKey == null) {
+            switch (sortOrder) {
+                case ALPHABETICAL:
+                    return taskDao.getFirstPageOfProjectSortedAlphabetically(projectId, pageSize);
+                case ALPHABETICAL_INVERTED:
+                    return taskDao.getFirstPageOfProjectSortedAlphabeticallyInverted(projectId, pageSize);
+                case RECENT_FIRST:
+                    return taskDao.getFirstPageOfProjectSortedByDateRecentFirst(projectId, pageSize);
+                case OLD_FIRST:
+                    return taskDao.getFirstPageOfProjectSortedByDateOldFirst(projectId, pageSize);
+                default:
+                    return taskDao.getFirstPageOfProject(projectId, pageSize);
+            }
+        }
+        switch (sortOrder) {
+            case ALPHABETICAL:
+                return taskDao.getPageOfProjectAfterSortedAlphabetically(projectId, afterKey.taskName,
+                        afterKey.taskId, pageSize);
+            case ALPHABETICAL_INVERTED:
+                return taskDao.getPageOfProjectAfterSortedAlphabeticallyInverted(projectId, afterKey.taskName,
+                        afterKey.taskId, pageSize);
+            case RECENT_FIRST:
+                return taskDao.getPageOfProjectAfterSortedByDateRecentFirst(projectId,
+                        afterKey.taskCreationTimestamp, afterKey.taskId, pageSize);
+            case OLD_FIRST:
+                return taskDao.getPageOfProjectAfterSortedByDateOldFirst(projectId,
+                        afterKey.taskCreationTimestamp, afterKey.taskId, pageSize);
+            default:
+                return taskDao.getPageOfProjectAfter(projectId, afterKey.taskId, pageSize);
+        }
+    }
+
+    /**
+     * Returns the comparator of the tasks in the given order, matching the ORDER BY clause of its queries.
+     *
+     * @param sortOrder the order of the tasks
+     * @return the comparator of the tasks
+     */
+    @NonNull
+    public static Comparator<TaskRow> comparator(@NonNull TaskSortOrder sortOrder) {
+        switch (sortOrder) {
+            case ALPHABETICAL:
+                return TaskCache.BY_NAME;
+            case ALPHABETICAL_INVERTED:
+                return Collections.reverseOrder(TaskCache.BY_NAME);
+            case RECENT_FIRST:
+                return Collections.reverseOrder(TaskCache.BY_TIMESTAMP);
+            case OLD_FIRST:
+                return TaskCache.BY_TIMESTAMP;
+            default:
+                return TaskCache.BY_ID;
+        }
+    }
+
+    /**
+     * Registers a callback run, on a background thread, every time the "tasks" table changes,
+     * or once per coalescing window while it keeps changing.
+     *
+     * @param callback the callback to run
+     */
+    @WorkerThread
+    public void addInvalidationCallback(@NonNull Runnable callback) {
+        taskCache.addInvalidationCallback(callback);
+    }
+
+    /**
+     * Unregisters a callback previously registered with {@link #addInvalidationCallback(Runnable)}.
+     *
+     * @param callback the callback to unregister
+     */
+    @WorkerThread
+    public void removeInvalidationCallback(@NonNull Runnable callback) {
+        taskCache.removeInvalidationCallback(callback);
+    }
+}
@@ -0,0 +1,175 @@
+package com.cleanup.todoc.repository;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+import androidx.room.RoomDatabase;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Deferred purge of the tombstoned tasks.
+ * Deleting a task only tombstones it, so that the user can restore it for a while. Once that grace period is over,
+ * the tombstones are deleted for good in large batches, when the main thread has nothing else to do.
+ * A purge waits for a whole grace period after it is requested, so that it covers every task deleted until then.
+ * Each batch is a short transaction on the write executor, which is handed back between batches
+ * so that the writes of the user are not delayed by the whole purge.
+ */
+public class TaskPurger {
+
+    /**
+     * Default time, in milliseconds, during which a tombstoned task can still be restored.
+     */
+    public static final long DEFAULT_GRACE_PERIOD_MS = 10_000;
+
+    /**
+     * Default maximum number of tasks deleted by a single transaction.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    // Database used to open the purge transactions
+    private final RoomDatabase database;
+    // DAO deleting the tombstoned tasks
+    private final TaskDao taskDao;
+    // Executor of the database writes, running one task at a time
+    private final Executor writeExecutor;
+    private final long gracePeriodMillis;
+    private final int batchSize;
+    // Handler of the main thread, whose idle time starts the purge
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Whether a purge is waiting for its grace period, for the main thread to be idle, or running
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    // Whether a purge has been requested while another one was scheduled, so must follow it
+    private final AtomicBoolean requestedAgain = new AtomicBoolean();
+
+    /**
+     * Constructor to initialize the TaskPurger with the default grace period and batch size.
+     *
+     * @param database      the database used to open the purge transactions
+     * @param taskDao       the DAO deleting the tombstoned tasks
+     * @param writeExecutor the executor of the database writes, which must run one task at a time
+     */
+    public TaskPurger(@NonNull RoomDatabase database, @NonNull TaskDao taskDao, @NonNull Executor writeExecutor) {
+        this(database, taskDao, writeExecutor, DEFAULT_GRACE_PERIOD_MS, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructor to initialize the TaskPurger.
+     *
+     * @param database          the database used to open the purge transactions
+     * @param taskDao           the DAO deleting the tombstoned tasks
+     * @param writeExecutor     the executor of the database writes, which must run one task at a time
+     * @param gracePeriodMillis the time, in milliseconds, during which a tombstoned task can still be restored
+     * @param batchSize         the maximum number of tasks deleted by a single transaction
+     */
+    public TaskPurger(@NonNull RoomDatabase database, @NonNull TaskDao taskDao, @NonNull Executor writeExecutor,
+                      long gracePeriodMillis, int batchSize) {
+        this.database = database;
+        this.taskDao = taskDao;
+        this.writeExecutor = writeExecutor;
+        this.gracePeriodMillis = gracePeriodMillis;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Purges the tasks deleted so far once their grace period is over, when the main thread is idle.
+     * If a purge is already waiting or running, another one follows it, so that the tasks deleted meanwhile
+     * are purged too. May be called from any thread.
+     */
+    public void purgeWhenIdle() {
+        if (!scheduled.compareAndSet(false, true)) {
+            requestedAgain.set(true);
+            return;
+        }
+        // The tasks deleted right before the request are still within their grace period until then
+        mainHandler.postDelayed(() -> Looper.myQueue().addIdleHandler(() -> {
+            startPurge();
+            // Only run once, the next purge is requested by the next deletion
+            return false;
+        }), gracePeriodMillis);
+    }
+
+    /**
+     * Deletes for good, batch after batch, every task tombstoned before the given time.
+     * Must not be called on the main thread.
+     *
+     * @param deletedBefore the time before which the tasks must have been tombstoned
+     * @return the number of tasks deleted
+     */
+    @WorkerThread
+    public int purge(long deletedBefore) {
+        int purged = 0;
+        int batch;
+        do {
+            batch = purgeBatch(deletedBefore);
+            purged += batch;
+        } while (batch == batchSize);
+        return purged;
+    }
+
+    /**
+     * Starts purging the tasks whose grace period is over on the write executor.
+     */
+    private void startPurge() {
+        long deletedBefore = System.currentTimeMillis() - gracePeriodMillis;
+        try {
+            writeExecutor.execute(() -> continuePurge(deletedBefore, 0));
+        } catch (RejectedExecutionException e) {
+            finishPurge();
+            Log.w("TaskPurger", "Purge rejected by the write executor.", e);
+        }
+    }
+
+    /**
+     * Deletes one batch of tombstoned tasks, then queues the next batch behind the writes queued meanwhile,
+     * until a batch comes back incomplete.
+     *
+     * @param deletedBefore the time before which the tasks must have been tombstoned
+     * @param purgedSoFar   the number of tasks deleted by the previous batches
+     */
+    private void continuePurge(long deletedBefore, int purgedSoFar) {
+        int purged;
+        try {
+            purged = purgedSoFar + purgeBatch(deletedBefore);
+        } catch (RuntimeException e) {
+            finishPurge();
+            Log.w("TaskPurger", "Purge of the deleted tasks failed.", e);
+            return;
+        }
+        if (purged - purgedSoFar == batchSize) {
+            try {
+                writeExecutor.execute(() -> continuePurge(deletedBefore, purged));
+                return;
+            } catch (RejectedExecutionException e) {
+                Log.w("TaskPurger", "Purge interrupted by the write executor.", e);
+            }
+        }
+        finishPurge();
+        Log.d("TaskPurger", "Deleted tasks purged: " + purged);
+    }
+
+    /**
+     * Marks the purge as over, and schedules the purge requested meanwhile, if any.
+     */
+    private void finishPurge() {
+        scheduled.set(false);
+        if (requestedAgain.getAndSet(false)) {
+            purgeWhenIdle();
+        }
+    }
+
+    /**
+     * Deletes one batch of tombstoned tasks in its own transaction.
+     *
+     * @param deletedBefore the time before which the tasks must have been tombstoned
+     * @return the number of tasks deleted
+     */
+    private int purgeBatch(long deletedBefore) {
+        return database.runInTransaction(() -> taskDao.purgeDeletedTasks(deletedBefore, batchSize));
+    }
+}
@@ -2,30 +2,70 @@ package com.cleanup.todoc.repository;
 
 import android.util.Log;
 
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
 import androidx.lifecycle.LiveData;
 
 import com.cleanup.todoc.model.Task;
+import com.cleanup.todoc.model.TaskRow;
+import com.cleanup.todoc.model.TaskWithProject;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Future;
 
 /**
  * Repository for managing Task data operations.
  * Provides a clean API to the data source.
+ * <p>
+ * Inserts given the display of their project, and deletions, are applied optimistically: the pages show them
+ * as soon as they are queued, then are reconciled with the committed state once the write is settled,
+ * which drops the writes the database rejected.
  */
 public class TaskRepository {
     // DAO for accessing task data
     public final TaskDao taskDao;
-    // LiveData for holding the list of all tasks
-    private LiveData<List<Task>> allTasks;
+    // Single-writer pipeline applying inserts and deletes
+    private final TaskWriteQueue writeQueue;
+    // Source of keyset-paginated task pages
+    private final TaskPageSource pageSource;
+    // Purge of the deleted tasks, null if they are never purged
+    @Nullable
+    private final TaskPurger purger;
+    // LiveData for holding the list of all tasks, created on first use
+    private LiveData<List<TaskWithProject>> allTasks;
+
+    /**
+     * Constructor to initialize the TaskRepository without purging the deleted tasks.
+     *
+     * @param taskDao    the DAO for accessing task data
+     * @param writeQueue the pipeline applying task writes
+     * @param pageSource the source of keyset-paginated task pages
+     */
+    public TaskRepository(TaskDao taskDao, TaskWriteQueue writeQueue, TaskPageSource pageSource) {
+        this(taskDao, writeQueue, pageSource, null);
+    }
 
     /**
      * Constructor to initialize the TaskRepository.
      *
-     * @param taskDao the DAO for accessing task data
+     * @param taskDao    the DAO for accessing task data
+     * @param writeQueue the pipeline applying task writes
+     * @param pageSource the source of keyset-paginated task pages
+     * @param purger     the purge of the deleted tasks, or null to keep them
      */
-    public TaskRepository(TaskDao taskDao) {
+    public TaskRepository(TaskDao taskDao, TaskWriteQueue writeQueue, TaskPageSource pageSource,
+                          @Nullable TaskPurger purger) {
         this.taskDao = taskDao;
-        allTasks = taskDao.getAllTasksLiveData();
+        this.writeQueue = writeQueue;
+        this.pageSource = pageSource;
+        this.purger = purger;
+        // Moved tasks keep their identifier, so the cached pages cannot notice the move by themselves
+        writeQueue.setUpdateListener(pageSource::onTasksUpdated);
         Log.d("TaskRepository", "TaskRepository initialized.");
     }
 
@@ -34,67 +74,173 @@ public class TaskRepository {
      *
      * @return LiveData containing the list of all tasks
      */
-    public LiveData<List<Task>> getAllTasks() {
+    public synchronized LiveData<List<TaskWithProject>> getAllTasks() {
+        if (allTasks == null) {
+            allTasks = taskDao.getAllTasksLiveData();
+        }
         return allTasks;
     }
 
+    /**
+     * Getter for the source of keyset-paginated task pages.
+     *
+     * @return the page source backing the paged task list
+     */
+    public TaskPageSource getPageSource() {
+        return pageSource;
+    }
+
+    /**
+     * Searches the tasks whose name contains words starting with every word of the given text.
+     * The search goes through the full-text index, so it does not scan the table.
+     *
+     * @param text  the text typed by the user
+     * @param limit the maximum number of tasks to return
+     * @return the matching tasks, best matches first; empty if the text contains no word
+     */
+    @WorkerThread
+    @NonNull
+    public List<TaskRow> searchTasks(@NonNull String text, int limit) {
+        List<String> words = splitWords(text);
+        if (words.isEmpty()) {
+            return Collections.emptyList();
+        }
+        StringBuilder match = new StringBuilder();
+        for (String word : words) {
+            if (match.length() > 0) {
+                match.append(' ');
+            }
+            match.append(word).append('*');
+        }
+        return pageSource.internRows(taskDao.searchTasks(match.toString(), words.get(0), limit));
+    }
+
+    /**
+     * Splits a text into lower-case words made of letters and digits only,
+     * so that no character of the user can be read as an FTS operator.
+     *
+     * @param text the text to split
+     * @return the words of the text
+     */
+    private static List<String> splitWords(String text) {
+        List<String> words = new ArrayList<>();
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
     /**
      * Inserts a task into the database.
-     * Runs the insertion in a separate thread to avoid blocking the main thread.
+     * The insertion is queued on the write pipeline and committed along with other pending writes.
      *
      * @param task the task to insert
+     * @return a future completed once the insertion has been committed
      */
-    public void insertTask(Task task) {
-        new Thread(() -> {
-            taskDao.insertTask(task);
-        }).start();
+    public Future<Void> insertTask(Task task) {
+        return writeQueue.enqueueInsert(task);
     }
 
     /**
-     * Deletes a task from the database.
-     * Runs the deletion in a separate thread to avoid blocking the main thread.
+     * Inserts a task into the database, showing it in the list right away.
+     * The list shows the task with a temporary identifier until the insertion is committed,
+     * and drops it if the insertion fails, e.g. because the project no longer exists.
+     *
+     * @param task         the task to insert
+     * @param projectName  the name of the project of the task, as displayed in the list
+     * @param projectColor the color of the project of the task, as displayed in the list
+     * @return a future completed once the insertion has been committed
+     */
+    public Future<Void> insertTask(Task task, @NonNull String projectName, @ColorInt int projectColor) {
+        TaskRow pendingRow = pageSource.addPendingInsert(task, projectName, projectColor);
+        return writeQueue.enqueueInsert(task, () -> pageSource.removePendingInsert(pendingRow));
+    }
+
+    /**
+     * Deletes a task. The task is tombstoned, so that it disappears from every list
+     * but can be restored by {@link #restoreTask(Task)} until it is purged.
+     * The deletion is queued on the write pipeline and committed along with other pending writes,
+     * while the list hides the task right away.
      *
      * @param task the task to delete
+     * @return a future completed once the deletion has been committed
      */
-    public void deleteTask(Task task) {
-        new Thread(() -> {
-            taskDao.deleteTask(task);
-        }).start();
+    public Future<Void> deleteTask(Task task) {
+        return deleteTasks(Collections.singletonList(task.getId()));
     }
 
     /**
-     * Retrieves all tasks sorted alphabetically by name.
+     * Deletes several tasks at once, in a single transaction however many they are.
+     * The tasks are tombstoned, so that they can be restored by {@link #restoreTasks(List)} until they are purged.
+     * The list hides them right away, and shows them again if the deletion fails.
      *
-     * @return LiveData containing the list of tasks sorted alphabetically
+     * @param taskIds the identifiers of the tasks to delete
+     * @return a future completed once the deletion has been committed
+     * @throws IllegalArgumentException if a task is still being inserted, see {@link TaskRow#isPending()}
      */
-    public LiveData<List<Task>> getAllTasksSortedAlphabetically() {
-        return taskDao.getAllTasksSortedAlphabetically();
+    public Future<Void> deleteTasks(List<Long> taskIds) {
+        checkCommitted(taskIds);
+        pageSource.addPendingDeletions(taskIds);
+        return writeQueue.enqueueTombstone(taskIds, () -> pageSource.removePendingDeletions(taskIds));
     }
 
     /**
-     * Retrieves all tasks sorted alphabetically by name in inverted order.
+     * Restores a deleted task which has not been purged yet.
+     * The restoration is queued on the write pipeline and committed along with other pending writes.
      *
-     * @return LiveData containing the list of tasks sorted alphabetically in inverted order
+     * @param task the task to restore
+     * @return a future completed once the restoration has been committed
      */
-    public LiveData<List<Task>> getAllTasksSortedAlphabeticallyInverted() {
-        return taskDao.getAllTasksSortedAlphabeticallyInverted();
+    public Future<Void> restoreTask(Task task) {
+        return writeQueue.enqueueRestore(task);
     }
 
     /**
-     * Retrieves all tasks sorted by date with the most recent first.
+     * Restores several deleted tasks which have not been purged yet, in a single transaction.
      *
-     * @return LiveData containing the list of tasks sorted by date with the most recent first
+     * @param taskIds the identifiers of the tasks to restore
+     * @return a future completed once the restoration has been committed
      */
-    public LiveData<List<Task>> getAllTasksSortedByDateRecentFirst() {
-        return taskDao.getAllTasksSortedByDateRecentFirst();
+    public Future<Void> restoreTasks(List<Long> taskIds) {
+        return writeQueue.enqueueRestore(taskIds);
     }
 
     /**
-     * Retrieves all tasks sorted by date with the oldest first.
+     * Moves several tasks to another project, in a single transaction however many they are.
      *
-     * @return LiveData containing the list of tasks sorted by date with the oldest first
+     * @param taskIds   the identifiers of the tasks to move
+     * @param projectId the identifier of the project receiving the tasks
+     * @return a future completed once the move has been committed
+     * @throws IllegalArgumentException if a task is still being inserted, see {@link TaskRow#isPending()}
+     */
+    public Future<Void> moveTasks(List<Long> taskIds, long projectId) {
+        checkCommitted(taskIds);
+        return writeQueue.enqueueMove(taskIds, projectId);
+    }
+
+    /**
+     * Checks that none of the tasks has the temporary identifier of a task still being inserted,
+     * which no statement would find: the write would be lost, and the task would come back once committed.
+     *
+     * @param taskIds the identifiers of the tasks to write
+     * @throws IllegalArgumentException if a task is still being inserted
+     */
+    private static void checkCommitted(List<Long> taskIds) {
+        for (Long taskId : taskIds) {
+            if (taskId >= TaskRow.FIRST_PENDING_ID) {
+                throw new IllegalArgumentException("Task " + taskId + " is not committed yet");
+            }
+        }
+    }
+
+    /**
+     * Purges the deleted tasks which can no longer be restored, once the application is idle.
      */
-    public LiveData<List<Task>> getAllTasksSortedByDateOldFirst() {
-        return taskDao.getAllTasksSortedByDateOldFirst();
+    public void purgeDeletedTasks() {
+        if (purger != null) {
+            purger.purgeWhenIdle();
+        }
     }
-}
\ No newline at end of file
+}
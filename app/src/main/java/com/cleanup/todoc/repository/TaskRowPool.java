@@ -0,0 +1,113 @@
+package com.cleanup.todoc.repository;
+
+import androidx.annotation.NonNull;
+import androidx.collection.LongSparseArray;
+
+import com.cleanup.todoc.model.Project;
+import com.cleanup.todoc.model.TaskRow;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pool of the task rows last read, keyed by task identifier, which lets a load reuse the row of the previous load
+ * when the content of the task did not change.
+ * <p>
+ * A row read again replaces itself by the pooled row whose content hash and columns match, so that the list holds
+ * one instance per unchanged task from one load to the next: the rows just read become garbage right away instead of
+ * being retained, and the differences between two lists are found by identity. A row whose content changed takes
+ * the place of the pooled one. Rows must be resolved against the {@link ProjectCache} before being pooled,
+ * since the instance of their project is part of their content. Rows are immutable, so a pooled row is never
+ * modified by the lists sharing it.
+ * <p>
+ * The rows of the tasks which disappear, deleted or moved away, are evicted as soon as the cache notices it.
+ * Once full, the pool evicts the rows read least recently, such as those of pages scrolled away from,
+ * so that a large table keeps the rows of the pages in use instead of starting over on every new page.
+ */
+public class TaskRowPool {
+
+    // Last row read for each task, least recently read first, guarded by this
+    private final LinkedHashMap<Long, TaskRow> rows;
+
+    /**
+     * Constructor to initialize the TaskRowPool.
+     *
+     * @param maxSize the maximum number of rows held
+     */
+    public TaskRowPool(int maxSize) {
+        this.rows = new LinkedHashMap<Long, TaskRow>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, TaskRow> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Replaces the rows of a list, read without their project, by the pooled rows of the same columns
+     * which point at the current instance of their project, so that the rows of unchanged tasks
+     * need not be resolved again. The other rows are left to be resolved, then given to {@link #intern(List)}.
+     *
+     * @param list     the rows just read, whose elements are replaced
+     * @param projects the current instances of the projects, by identifier
+     * @return the number of rows replaced by a pooled row
+     */
+    public synchronized int reuse(@NonNull List<TaskRow> list, @NonNull LongSparseArray<Project> projects) {
+        int reused = 0;
+        for (int i = 0, size = list.size(); i < size; i++) {
+            TaskRow row = list.get(i);
+            TaskRow pooled = rows.get(row.taskId);
+            if (pooled != null && pooled != row && pooled.project != null
+                    && pooled.project == projects.get(row.projectId) && pooled.hasSameColumns(row)) {
+                list.set(i, pooled);
+                reused++;
+            }
+        }
+        return reused;
+    }
+
+    /**
+     * Replaces the rows of a list by the pooled rows of the same content, and pools the others.
+     *
+     * @param list the rows just read, whose elements are replaced
+     * @return the number of rows replaced by a pooled row
+     */
+    public synchronized int intern(@NonNull List<TaskRow> list) {
+        int reused = 0;
+        for (int i = 0, size = list.size(); i < size; i++) {
+            TaskRow row = list.get(i);
+            TaskRow pooled = rows.get(row.taskId);
+            if (pooled == row) {
+                reused++;
+            } else if (pooled != null && pooled.hasSameContent(row)) {
+                list.set(i, pooled);
+                reused++;
+            } else {
+                rows.put(row.taskId, row);
+            }
+        }
+        return reused;
+    }
+
+    /**
+     * Evicts the rows of tasks which are no longer listed, such as deleted tasks.
+     *
+     * @param taskIds the identifiers of the tasks
+     */
+    public synchronized void evict(@NonNull Collection<Long> taskIds) {
+        for (Long taskId : taskIds) {
+            rows.remove(taskId);
+        }
+    }
+
+    /**
+     * Returns the number of rows held.
+     *
+     * @return the number of pooled rows
+     */
+    public synchronized int size() {
+        return rows.size();
+    }
+}
@@ -0,0 +1,31 @@
+package com.cleanup.todoc.repository;
+
+/**
+ * The orders in which the list of tasks can be displayed.
+ */
+public enum TaskSortOrder {
+    /**
+     * Creation order, as the tasks were inserted.
+     */
+    DEFAULT,
+
+    /**
+     * Alphabetical order by name.
+     */
+    ALPHABETICAL,
+
+    /**
+     * Inverted alphabetical order by name.
+     */
+    ALPHABETICAL_INVERTED,
+
+    /**
+     * By creation date, the most recent first.
+     */
+    RECENT_FIRST,
+
+    /**
+     * By creation date, the oldest first.
+     */
+    OLD_FIRST
+}
@@ -0,0 +1,662 @@
+package com.cleanup.todoc.repository;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.room.RoomDatabase;
+
+import com.cleanup.todoc.metrics.Counter;
+import com.cleanup.todoc.metrics.Histogram;
+import com.cleanup.todoc.metrics.Metrics;
+import com.cleanup.todoc.metrics.Timer;
+import com.cleanup.todoc.model.Task;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Single-writer pipeline for the "tasks" table.
+ * Mutations are queued and applied by a drain task running on the write executor, which coalesces every mutation
+ * that arrives within a short window into a single Room transaction. At most one drain task is scheduled at a time,
+ * and it hands the executor back after each transaction so that other writes are not starved.
+ * The queue is bounded: when it is full, enqueuing blocks until the writer catches up.
+ * Mutations of many tasks at once, such as the deletion of a selection, are a single mutation of the queue,
+ * so that they are committed in one transaction however many tasks they concern.
+ */
+public class TaskWriteQueue {
+
+    /**
+     * Default maximum number of pending mutations before producers are blocked.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * Default time window, in milliseconds, during which mutations are coalesced into one transaction.
+     */
+    public static final long DEFAULT_COALESCE_WINDOW_MS = 10;
+
+    /**
+     * Maximum number of mutations applied in a single transaction.
+     */
+    static final int MAX_BATCH_SIZE = 500;
+
+    /**
+     * Maximum number of task identifiers bound to a single statement, below the 999 variables SQLite accepts
+     * before version 3.32, so that the statement keeps room for its other arguments.
+     */
+    static final int MAX_IDS_PER_STATEMENT = 900;
+
+    // Database used to open the write transactions
+    private final RoomDatabase database;
+    // DAO for writing task data
+    private final TaskDao taskDao;
+    // Pending mutations, bounded to apply backpressure on producers
+    private final BlockingQueue<Mutation> queue;
+    // Coalescing window in nanoseconds
+    private final long coalesceWindowNanos;
+    // Executor running the drain task, one task at a time
+    private final Executor writeExecutor;
+    // Executor created by this queue, shut down with it
+    @Nullable
+    private final ExecutorService ownedExecutor;
+    // Whether a drain task is scheduled or running
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private volatile boolean shutdown;
+    // Callback run after a transaction updated tasks in place
+    @Nullable
+    private volatile UpdateListener updateListener;
+
+    // Time from the queuing of a mutation to its commit
+    private volatile Timer latencyTimer = Metrics.DISABLED.timer("writeQueue.latency");
+    // Time spent in the transaction of a batch
+    private volatile Timer transactionTimer = Metrics.DISABLED.timer("writeQueue.transaction");
+    // Number of mutations of each batch
+    private volatile Histogram batchSizes = Metrics.DISABLED.histogram("writeQueue.batchSize");
+    // Number of batches retried mutation by mutation
+    private volatile Counter failedBatches = Metrics.DISABLED.counter("writeQueue.failedBatches");
+
+    /**
+     * Constructor to initialize the TaskWriteQueue with the default capacity and coalescing window,
+     * applying the mutations on a thread of its own.
+     *
+     * @param database the database used to open the write transactions
+     * @param taskDao  the DAO for writing task data
+     */
+    public TaskWriteQueue(@NonNull RoomDatabase database, @NonNull TaskDao taskDao) {
+        this(database, taskDao, newWriterThread(), true, DEFAULT_CAPACITY, DEFAULT_COALESCE_WINDOW_MS);
+    }
+
+    /**
+     * Constructor to initialize the TaskWriteQueue with the default capacity and coalescing window.
+     *
+     * @param database      the database used to open the write transactions
+     * @param taskDao       the DAO for writing task data
+     * @param writeExecutor the executor of the database writes, which must run one task at a time
+     */
+    public TaskWriteQueue(@NonNull RoomDatabase database, @NonNull TaskDao taskDao, @NonNull Executor writeExecutor) {
+        this(database, taskDao, writeExecutor, false, DEFAULT_CAPACITY, DEFAULT_COALESCE_WINDOW_MS);
+    }
+
+    /**
+     * Constructor to initialize the TaskWriteQueue, applying the mutations on a thread of its own.
+     *
+     * @param database             the database used to open the write transactions
+     * @param taskDao              the DAO for writing task data
+     * @param capacity             the maximum number of pending mutations
+     * @param coalesceWindowMillis the time window, in milliseconds, during which mutations are coalesced
+     */
+    public TaskWriteQueue(@NonNull RoomDatabase database, @NonNull TaskDao taskDao,
+                          int capacity, long coalesceWindowMillis) {
+        this(database, taskDao, newWriterThread(), true, capacity, coalesceWindowMillis);
+    }
+
+    /**
+     * Constructor to initialize the TaskWriteQueue.
+     *
+     * @param database             the database used to open the write transactions
+     * @param taskDao              the DAO for writing task data
+     * @param writeExecutor        the executor running the drain task
+     * @param ownsExecutor         whether the executor must be shut down with the queue
+     * @param capacity             the maximum number of pending mutations
+     * @param coalesceWindowMillis the time window, in milliseconds, during which mutations are coalesced
+     */
+    private TaskWriteQueue(@NonNull RoomDatabase database, @NonNull TaskDao taskDao, @NonNull Executor writeExecutor,
+                           boolean ownsExecutor, int capacity, long coalesceWindowMillis) {
+        this.database = database;
+        this.taskDao = taskDao;
+        this.queue = new LinkedBlockingQueue<>(capacity);
+        this.coalesceWindowNanos = TimeUnit.MILLISECONDS.toNanos(coalesceWindowMillis);
+        this.writeExecutor = writeExecutor;
+        this.ownedExecutor = ownsExecutor ? (ExecutorService) writeExecutor : null;
+    }
+
+    /**
+     * Creates a single writer thread, started right away so that no thread is created while mutations are queued.
+     *
+     * @return the executor of the writer thread
+     */
+    private static ExecutorService newWriterThread() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "TaskWriteQueue");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.prestartAllCoreThreads();
+        return executor;
+    }
+
+    /**
+     * Queues the insertion of a task.
+     * Blocks the caller while the queue is full.
+     *
+     * @param task the task to insert
+     * @return a future completed once the insertion has been committed
+     */
+    @NonNull
+    public Future<Void> enqueueInsert(@NonNull Task task) {
+        return enqueueInsert(task, null);
+    }
+
+    /**
+     * Queues the insertion of a task, running a callback once it is settled.
+     * Blocks the caller while the queue is full.
+     *
+     * @param task        the task to insert
+     * @param whenSettled the callback run once the insertion has been committed or has failed, or null
+     * @return a future completed once the insertion has been committed
+     */
+    @NonNull
+    public Future<Void> enqueueInsert(@NonNull Task task, @Nullable Runnable whenSettled) {
+        return enqueue(new Mutation(Mutation.INSERT, task, whenSettled));
+    }
+
+    /**
+     * Queues the deletion of a task.
+     * Blocks the caller while the queue is full.
+     *
+     * @param task the task to delete
+     * @return a future completed once the deletion has been committed
+     */
+    @NonNull
+    public Future<Void> enqueueDelete(@NonNull Task task) {
+        return enqueue(new Mutation(Mutation.DELETE, task.getId()));
+    }
+
+    /**
+     * Queues the tombstoning of a task, which hides it until it is restored or purged.
+     * Blocks the caller while the queue is full.
+     *
+     * @param task the task to tombstone
+     * @return a future completed once the tombstone has been committed
+     */
+    @NonNull
+    public Future<Void> enqueueTombstone(@NonNull Task task) {
+        return enqueue(new Mutation(Mutation.TOMBSTONE, task.getId()));
+    }
+
+    /**
+     * Queues the tombstoning of several tasks, committed together in a single transaction.
+     * Blocks the caller while the queue is full.
+     *
+     * @param taskIds the identifiers of the tasks to tombstone
+     * @return a future completed once the tombstones have been committed
+     */
+    @NonNull
+    public Future<Void> enqueueTombstone(@NonNull List<Long> taskIds) {
+        return enqueueTombstone(taskIds, null);
+    }
+
+    /**
+     * Queues the tombstoning of several tasks, committed together in a single transaction,
+     * running a callback once they are settled.
+     * Blocks the caller while the queue is full.
+     *
+     * @param taskIds     the identifiers of the tasks to tombstone
+     * @param whenSettled the callback run once the tombstones have been committed or have failed, or null
+     * @return a future completed once the tombstones have been committed
+     */
+    @NonNull
+    public Future<Void> enqueueTombstone(@NonNull List<Long> taskIds, @Nullable Runnable whenSettled) {
+        return enqueue(new Mutation(Mutation.TOMBSTONE, taskIds, 0, whenSettled));
+    }
+
+    /**
+     * Queues the restoration of a tombstoned task.
+     * Blocks the caller while the queue is full.
+     *
+     * @param task the task to restore
+     * @return a future completed once the restoration has been committed
+     */
+    @NonNull
+    public Future<Void> enqueueRestore(@NonNull Task task) {
+        return enqueue(new Mutation(Mutation.RESTORE, task.getId()));
+    }
+
+    /**
+     * Queues the restoration of several tombstoned tasks, committed together in a single transaction.
+     * Blocks the caller while the queue is full.
+     *
+     * @param taskIds the identifiers of the tasks to restore
+     * @return a future completed once the restorations have been committed
+     */
+    @NonNull
+    public Future<Void> enqueueRestore(@NonNull List<Long> taskIds) {
+        return enqueue(new Mutation(Mutation.RESTORE, taskIds, 0));
+    }
+
+    /**
+     * Queues the move of several tasks to another project, committed together in a single transaction.
+     * Blocks the caller while the queue is full.
+     *
+     * @param taskIds   the identifiers of the tasks to move
+     * @param projectId the identifier of the project receiving the tasks
+     * @return a future completed once the move has been committed
+     */
+    @NonNull
+    public Future<Void> enqueueMove(@NonNull List<Long> taskIds, long projectId) {
+        return enqueue(new Mutation(Mutation.MOVE, taskIds, projectId));
+    }
+
+    /**
+     * Sets the callback run on the writer thread once a transaction has updated tasks in place,
+     * which the change of the row count does not reveal.
+     *
+     * @param updateListener the callback to run, or null to remove it
+     */
+    public void setUpdateListener(@Nullable UpdateListener updateListener) {
+        this.updateListener = updateListener;
+    }
+
+    /**
+     * Records the latency of the mutations, the duration and size of the batches, and their failures.
+     * Must be called before mutations are queued.
+     *
+     * @param metrics the metrics receiving the measures
+     */
+    public void setMetrics(@NonNull Metrics metrics) {
+        latencyTimer = metrics.timer("writeQueue.latency");
+        transactionTimer = metrics.timer("writeQueue.transaction");
+        batchSizes = metrics.histogram("writeQueue.batchSize");
+        failedBatches = metrics.counter("writeQueue.failedBatches");
+    }
+
+    /**
+     * Returns the number of mutations waiting to be applied.
+     *
+     * @return the number of pending mutations
+     */
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    /**
+     * Stops applying mutations. Pending mutations are failed with a {@link RejectedExecutionException}.
+     * A transaction already running is committed.
+     */
+    public void shutdown() {
+        shutdown = true;
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdownNow();
+        }
+        failPending(new RejectedExecutionException("TaskWriteQueue has been shut down"));
+    }
+
+    /**
+     * Puts a mutation in the queue, waiting for free space if necessary, and makes sure a drain task is scheduled.
+     *
+     * @param mutation the mutation to queue
+     * @return the future of the mutation
+     */
+    private Future<Void> enqueue(Mutation mutation) {
+        if (shutdown) {
+            mutation.future.fail(new RejectedExecutionException("TaskWriteQueue has been shut down"));
+            return mutation.future;
+        }
+        mutation.queuedAt = latencyTimer.start();
+        try {
+            queue.put(mutation);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            mutation.future.fail(e);
+            return mutation.future;
+        }
+        scheduleDrain();
+        return mutation.future;
+    }
+
+    /**
+     * Schedules a drain task on the write executor, unless one is already scheduled or running.
+     */
+    private void scheduleDrain() {
+        if (!draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            writeExecutor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            draining.set(false);
+            failPending(e);
+        }
+    }
+
+    /**
+     * Drain task: collects whatever arrives within the coalescing window, applies the whole batch in one transaction,
+     * then schedules itself again if mutations are still pending.
+     */
+    private void drain() {
+        try {
+            List<Mutation> batch = new ArrayList<>();
+            try {
+                if (!shutdown) {
+                    collectBatch(batch);
+                }
+            } catch (InterruptedException e) {
+                // Shutdown requested while waiting for late arrivals
+                Thread.currentThread().interrupt();
+            }
+            if (shutdown) {
+                RejectedExecutionException rejected =
+                        new RejectedExecutionException("TaskWriteQueue has been shut down");
+                for (Mutation mutation : batch) {
+                    mutation.future.fail(rejected);
+                }
+                failPending(rejected);
+                return;
+            }
+            applyBatch(batch);
+        } finally {
+            // Reset even if a callback or an error escaped the batch, or producers would block on the full queue
+            draining.set(false);
+            // A mutation queued while the batch was applied found the flag set and did not schedule a drain
+            if (!shutdown && !queue.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+    }
+
+    /**
+     * Takes the mutations already queued, then waits for late arrivals until the coalescing window closes
+     * or the batch is full.
+     *
+     * @param batch the list receiving the mutations, in arrival order
+     * @throws InterruptedException if the queue is shut down while waiting
+     */
+    private void collectBatch(List<Mutation> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + coalesceWindowNanos;
+        while (batch.size() < MAX_BATCH_SIZE) {
+            // Grab everything already queued before waiting for late arrivals
+            queue.drainTo(batch, MAX_BATCH_SIZE - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= MAX_BATCH_SIZE || remaining <= 0) {
+                break;
+            }
+            Mutation next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+    }
+
+    /**
+     * Fails every mutation still waiting in the queue.
+     *
+     * @param error the error given to their futures
+     */
+    private void failPending(Exception error) {
+        Mutation pending;
+        while ((pending = queue.poll()) != null) {
+            pending.future.fail(error);
+        }
+    }
+
+    /**
+     * Applies a batch of mutations in a single transaction and completes their futures.
+     * If the transaction fails, each mutation is retried on its own so that only the faulty ones fail.
+     *
+     * @param batch the mutations to apply, in arrival order
+     */
+    private void applyBatch(List<Mutation> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        batchSizes.record(batch.size());
+        try {
+            long start = transactionTimer.start();
+            database.runInTransaction(() -> applyInOrder(batch));
+            transactionTimer.stop(start);
+            notifyUpdates(batch);
+            for (Mutation mutation : batch) {
+                complete(mutation);
+            }
+        } catch (RuntimeException batchError) {
+            failedBatches.increment();
+            Log.w("TaskWriteQueue", "Batch of " + batch.size() + " mutations failed, retrying one by one.", batchError);
+            for (Mutation mutation : batch) {
+                try {
+                    database.runInTransaction(() -> applyInOrder(Collections.singletonList(mutation)));
+                    notifyUpdates(Collections.singletonList(mutation));
+                    complete(mutation);
+                } catch (RuntimeException e) {
+                    mutation.future.fail(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Completes the future of a committed mutation, recording how long it waited for its commit.
+     *
+     * @param mutation the committed mutation
+     */
+    private void complete(Mutation mutation) {
+        latencyTimer.stop(mutation.queuedAt);
+        mutation.future.complete();
+    }
+
+    /**
+     * Runs the update listener if committed mutations updated tasks in place.
+     *
+     * @param committed the mutations which have just been committed
+     */
+    private void notifyUpdates(List<Mutation> committed) {
+        UpdateListener listener = updateListener;
+        if (listener == null) {
+            return;
+        }
+        List<Long> updatedIds = null;
+        for (Mutation mutation : committed) {
+            if (mutation.kind == Mutation.MOVE) {
+                if (updatedIds == null) {
+                    updatedIds = new ArrayList<>();
+                }
+                updatedIds.addAll(mutation.taskIds);
+            }
+        }
+        if (updatedIds != null) {
+            try {
+                listener.onTasksUpdated(updatedIds);
+            } catch (RuntimeException e) {
+                // The writes are committed, a failing listener must neither retry nor fail them
+                Log.e("TaskWriteQueue", "Update listener failed.", e);
+            }
+        }
+    }
+
+    /**
+     * Applies mutations in order, grouping consecutive mutations of the same kind
+     * into one insertAll, deleteTasksById, tombstoneTasks, restoreTasks or moveTasks call.
+     *
+     * @param batch the mutations to apply, in arrival order
+     */
+    private void applyInOrder(List<Mutation> batch) {
+        List<Mutation> run = new ArrayList<>();
+        for (Mutation mutation : batch) {
+            if (!run.isEmpty() && !mutation.joins(run.get(0))) {
+                applyRun(run);
+                run = new ArrayList<>();
+            }
+            run.add(mutation);
+        }
+        if (!run.isEmpty()) {
+            applyRun(run);
+        }
+    }
+
+    /**
+     * Applies a run of mutations of the same kind.
+     * The identifiers of the tasks are bound by chunks, each chunk being a single statement of the transaction.
+     *
+     * @param run the mutations, all of the same kind and, for moves, to the same project
+     */
+    private void applyRun(List<Mutation> run) {
+        Mutation first = run.get(0);
+        if (first.kind == Mutation.INSERT) {
+            List<Task> tasks = new ArrayList<>(run.size());
+            for (Mutation mutation : run) {
+                tasks.add(mutation.task);
+            }
+            taskDao.insertAll(tasks);
+            return;
+        }
+        List<Long> taskIds = new ArrayList<>();
+        for (Mutation mutation : run) {
+            taskIds.addAll(mutation.taskIds);
+        }
+        long now = System.currentTimeMillis();
+        for (int start = 0; start < taskIds.size(); start += MAX_IDS_PER_STATEMENT) {
+            List<Long> chunk = taskIds.subList(start, Math.min(taskIds.size(), start + MAX_IDS_PER_STATEMENT));
+            switch (first.kind) {
+                case Mutation.DELETE:
+                    taskDao.deleteTasksById(chunk);
+                    break;
+                case Mutation.TOMBSTONE:
+                    taskDao.tombstoneTasks(chunk, now);
+                    break;
+                case Mutation.RESTORE:
+                    taskDao.restoreTasks(chunk);
+                    break;
+                default:
+                    taskDao.moveTasks(chunk, first.projectId);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Callback notified of the tasks updated in place by a committed transaction.
+     */
+    public interface UpdateListener {
+        /**
+         * Called on the writer thread once the transaction is committed.
+         *
+         * @param taskIds the identifiers of the updated tasks
+         */
+        void onTasksUpdated(@NonNull List<Long> taskIds);
+    }
+
+    /**
+     * A queued write on the "tasks" table.
+     */
+    private static final class Mutation {
+        static final int INSERT = 0;
+        static final int DELETE = 1;
+        static final int TOMBSTONE = 2;
+        static final int RESTORE = 3;
+        static final int MOVE = 4;
+
+        final int kind;
+        // Task to insert, null for the other kinds
+        @Nullable
+        final Task task;
+        // Identifiers of the tasks concerned, empty for insertions
+        final List<Long> taskIds;
+        // Project receiving the tasks of a move
+        final long projectId;
+        final MutationFuture future;
+        // Time at which the mutation was queued, 0 when the latency is not recorded
+        long queuedAt;
+
+        Mutation(int kind, Task task, @Nullable Runnable whenSettled) {
+            this.kind = kind;
+            this.task = task;
+            this.taskIds = Collections.emptyList();
+            this.projectId = 0;
+            this.future = new MutationFuture(whenSettled);
+        }
+
+        Mutation(int kind, long taskId) {
+            this(kind, Collections.singletonList(taskId), 0);
+        }
+
+        Mutation(int kind, List<Long> taskIds, long projectId) {
+            this(kind, taskIds, projectId, null);
+        }
+
+        Mutation(int kind, List<Long> taskIds, long projectId, @Nullable Runnable whenSettled) {
+            this.kind = kind;
+            this.task = null;
+            this.taskIds = taskIds;
+            this.projectId = projectId;
+            this.future = new MutationFuture(whenSettled);
+        }
+
+        /**
+         * Returns whether this mutation can be applied by the same statements as another one.
+         *
+         * @param other the first mutation of the run
+         * @return true if both are of the same kind and, for moves, to the same project
+         */
+        boolean joins(Mutation other) {
+            return kind == other.kind && (kind != MOVE || projectId == other.projectId);
+        }
+    }
+
+    /**
+     * Future completed by the writer thread once the mutation is committed or has failed,
+     * then running the callback of the mutation, if any.
+     */
+    private static final class MutationFuture extends FutureTask<Void> {
+        @Nullable
+        private final Runnable whenSettled;
+
+        MutationFuture(@Nullable Runnable whenSettled) {
+            super(() -> null);
+            this.whenSettled = whenSettled;
+        }
+
+        @Override
+        protected void done() {
+            if (whenSettled == null) {
+                return;
+            }
+            try {
+                whenSettled.run();
+            } catch (RuntimeException e) {
+                // Would otherwise escape from the writer thread, and retry a batch already committed
+                Log.e("TaskWriteQueue", "Settlement callback failed.", e);
+            }
+        }
+
+        void complete() {
+            set(null);
+        }
+
+        void fail(Throwable error) {
+            setException(error);
+        }
+    }
+}
@@ -17,7 +17,7 @@ import androidx.lifecycle.ViewModelProvider;
 
 import com.cleanup.todoc.R;
 import com.cleanup.todoc.application.AddTaskViewModel;
-import com.cleanup.todoc.model.Project;
+import com.cleanup.todoc.model.ProjectRow;
 import com.cleanup.todoc.model.Task;
 import com.cleanup.todoc.di.AppInjector;
 import com.cleanup.todoc.application.ViewModelFactory;
@@ -33,6 +33,8 @@ public class AddTaskFragment extends Fragment {
     private EditText txtTaskName;
     private Spinner projectSpinner;
     private Button fabAddTask;
+    // Adapter of the spinner, updated in place on every emission of the projects
+    private ArrayAdapter<ProjectRow> projectsAdapter;
 
     private AddTaskViewModel addTaskViewModel;
 
@@ -43,25 +45,6 @@ public class AddTaskFragment extends Fragment {
         // Required empty public constructor
     }
 
-    /**
-     * Called to do initial creation of a fragment.
-     * Initializes the ViewModel.
-     *
-     * @param savedInstanceState If the fragment is being re-created from a previous saved state, this is the state.
-     */
-    @Override
-    public void onCreate(@Nullable Bundle savedInstanceState) {
-        super.onCreate(savedInstanceState);
-
-        ViewModelFactory factory = new ViewModelFactory(
-                AppInjector.provideProjectRepository(),
-                AppInjector.provideTaskRepository()
-        );
-
-        // Initialize the ViewModel
-        addTaskViewModel = new ViewModelProvider(this, factory).get(AddTaskViewModel.class);
-    }
-
     /**
      * Called to have the fragment instantiate its user interface view.
      *
@@ -86,7 +69,7 @@ public class AddTaskFragment extends Fragment {
 
     /**
      * Called immediately after onCreateView(LayoutInflater, ViewGroup, Bundle) has returned, but before any saved state has been restored in to the view.
-     * Initializes the spinner with project data and sets up the button click listener.
+     * Sets up the button click listener, and waits for the repositories before binding the ViewModel.
      *
      * @param view               The View returned by onCreateView(LayoutInflater, ViewGroup, Bundle).
      * @param savedInstanceState If non-null, this fragment is being re-constructed from a previous saved state as given here.
@@ -95,17 +78,39 @@ public class AddTaskFragment extends Fragment {
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
 
-        // Observe the list of projects from the ViewModel and populate the spinner when the data changes
-        addTaskViewModel.getAllProjects().observe(getViewLifecycleOwner(), projects -> {
-            // Create an ArrayAdapter using the list of projects and set it to the spinner
-            ArrayAdapter<Project> adapter = new ArrayAdapter<>(requireContext(),
-                    android.R.layout.simple_spinner_item, projects);
-            adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
-            projectSpinner.setAdapter(adapter);
-        });
-
         // Set the click listener for the add task button
         fabAddTask.setOnClickListener(v -> addTask());
+
+        // Create the adapter of the spinner once, the projects are filled in as they are emitted
+        projectsAdapter = new ArrayAdapter<>(requireContext(), android.R.layout.simple_spinner_item);
+        projectsAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        projectSpinner.setAdapter(projectsAdapter);
+
+        AppInjector.whenReady(getViewLifecycleOwner(), this::bindViewModel);
+    }
+
+    /**
+     * Creates the ViewModel if needed, and initializes the spinner with project data.
+     */
+    private void bindViewModel() {
+        if (addTaskViewModel == null) {
+            ViewModelFactory factory = new ViewModelFactory(
+                    AppInjector.provideProjectRepository(),
+                    AppInjector.provideTaskRepository()
+            );
+
+            // Initialize the ViewModel
+            addTaskViewModel = new ViewModelProvider(this, factory).get(AddTaskViewModel.class);
+        }
+
+        // Observe the list of projects with their number of tasks and populate the spinner when the data changes
+        addTaskViewModel.getProjectRows().observe(getViewLifecycleOwner(), projects -> {
+            // Replace the projects of the adapter, which keeps the selected position, and redraw the spinner once
+            projectsAdapter.setNotifyOnChange(false);
+            projectsAdapter.clear();
+            projectsAdapter.addAll(projects);
+            projectsAdapter.notifyDataSetChanged();
+        });
     }
 
     /**
@@ -116,7 +121,7 @@ public class AddTaskFragment extends Fragment {
         // Get the task name from the EditText
         String taskName = txtTaskName.getText().toString();
         // Get the selected project from the spinner
-        Project selectedProject = (Project) projectSpinner.getSelectedItem();
+        ProjectRow selectedProject = (ProjectRow) projectSpinner.getSelectedItem();
 
         // Validate the task name
         if (TextUtils.isEmpty(taskName.trim())) {
@@ -125,7 +130,7 @@ public class AddTaskFragment extends Fragment {
             return;
         }
 
-        // Validate the selected project
+        // Validate the selected project, which is only available once the ViewModel is bound
         if (selectedProject == null) {
             // Handle the case when no project is selected
             return;
@@ -134,13 +139,13 @@ public class AddTaskFragment extends Fragment {
         // Create a new Task object with the input data
         Task newTask = new Task(
                 0,  // Task ID (0 for new task)
-                selectedProject,  // Selected project
+                selectedProject.getId(),  // Selected project
                 taskName,  // Task name
                 new Date().getTime()  // Current timestamp
         );
 
-        // Add the new task using the ViewModel
-        addTaskViewModel.addTask(newTask);
+        // Add the new task using the ViewModel, which shows it in the list before it is committed
+        addTaskViewModel.addTask(newTask, selectedProject);
 
         // Navigate back to the previous fragment or activity
         requireActivity().onBackPressed();
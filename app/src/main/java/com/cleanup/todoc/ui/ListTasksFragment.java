@@ -1,6 +1,7 @@
 package com.cleanup.todoc.ui;
 
 import android.os.Bundle;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.Menu;
 import android.view.MenuInflater;
@@ -11,33 +12,73 @@ import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.StringRes;
+import androidx.appcompat.app.AlertDialog;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.view.ActionMode;
+import androidx.appcompat.widget.SearchView;
 import androidx.fragment.app.Fragment;
-import androidx.lifecycle.LiveData;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.google.android.material.snackbar.Snackbar;
+
 import com.cleanup.todoc.R;
 import com.cleanup.todoc.application.ListTasksViewModel;
+import com.cleanup.todoc.application.TaskWindow;
+import com.cleanup.todoc.metrics.Metrics;
+import com.cleanup.todoc.model.ProjectRow;
 import com.cleanup.todoc.model.Task;
+import com.cleanup.todoc.model.TaskRow;
 import com.cleanup.todoc.di.AppInjector;
 import com.cleanup.todoc.application.ViewModelFactory;
+import com.cleanup.todoc.repository.TaskSortOrder;
 
-import java.util.ArrayList;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * A fragment responsible for displaying a list of tasks and providing filtering options.
  * This fragment shows a list of tasks fetched from a ViewModel and allows the user to filter and delete tasks.
+ * A deleted task can be restored from the snackbar shown right after its deletion.
+ * A long click on a task starts selecting tasks, which can then be deleted or moved to another project all at once.
  */
-public class ListTasksFragment extends Fragment implements TasksAdapter.DeleteTaskListener {
+public class ListTasksFragment extends Fragment implements TasksAdapter.DeleteTaskListener,
+        TasksAdapter.SelectionListener {
+
+    // Time, in milliseconds, during which a deleted task can be restored, shorter than the grace period of the purge
+    private static final int UNDO_DURATION_MS = 5000;
 
     private RecyclerView recyclerView;
+    private LinearLayoutManager layoutManager;
     private TextView lblNoTasks;
+    private TextView lblSummary;
 
     private ListTasksViewModel listTasksViewModel;
     private TasksAdapter tasksAdapter;
 
+    // Absolute position of the first task displayed by the adapter, and the order it was loaded in
+    private int displayedOffset;
+    private TaskSortOrder displayedSortOrder;
+    // Projects whose tasks are displayed by the adapter, empty when all of them are
+    private Set<Long> displayedProjectIds;
+    // Latest list of the projects, offered by the project filter
+    private List<ProjectRow> latestProjects = Collections.emptyList();
+    // Latest window of loaded tasks, displayed again when the search is closed
+    @Nullable
+    private TaskWindow latestWindow;
+    // Bar offering the actions on the selected tasks, null while no task is selected
+    @Nullable
+    private ActionMode selectionMode;
+    // Debug overlay of the metrics, null until first shown
+    @Nullable
+    private MetricsOverlay metricsOverlay;
+
     /**
      * Required empty public constructor for fragment instantiation.
      */
@@ -47,7 +88,7 @@ public class ListTasksFragment extends Fragment implements TasksAdapter.DeleteTa
 
     /**
      * Called to do initial creation of a fragment.
-     * Initializes the ViewModel and the adapter, and sets the options menu.
+     * Initializes the adapter and sets the options menu. The ViewModel is created once the repositories are ready.
      *
      * @param savedInstanceState If the fragment is being re-created from a previous saved state, this is the state.
      */
@@ -55,15 +96,10 @@ public class ListTasksFragment extends Fragment implements TasksAdapter.DeleteTa
     public void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
 
-        ViewModelFactory factory = new ViewModelFactory(
-                AppInjector.provideProjectRepository(),
-                AppInjector.provideTaskRepository()
-        );
-
-        // Initialize the ViewModel
-        listTasksViewModel = new ViewModelProvider(this, factory).get(ListTasksViewModel.class);
-        // Initialize the adapter with an empty list and set the delete task listener
-        tasksAdapter = new TasksAdapter(new ArrayList<>(), this);
+        // Initialize the adapter with an empty list and set the delete task listener, diffing lists on the background pool,
+        // which never runs a diff on the main thread submitting it
+        tasksAdapter = new TasksAdapter(this, AppInjector.provideExecutors().background(), AppInjector.provideMetrics());
+        tasksAdapter.setSelectionListener(this);
         // Indicate that this fragment has an options menu
         setHasOptionsMenu(true);
     }
@@ -85,20 +121,43 @@ public class ListTasksFragment extends Fragment implements TasksAdapter.DeleteTa
         // Initialize UI components
         recyclerView = view.findViewById(R.id.list_tasks);
         lblNoTasks = view.findViewById(R.id.lbl_no_task);
+        lblSummary = view.findViewById(R.id.lbl_summary);
 
         // Set the layout manager and adapter for the RecyclerView
-        recyclerView.setLayoutManager(new LinearLayoutManager(requireContext()));
+        layoutManager = new LinearLayoutManager(requireContext());
+        recyclerView.setLayoutManager(layoutManager);
         recyclerView.setAdapter(tasksAdapter);
 
-        // Observe initially unsorted tasks
-        observeTasks(listTasksViewModel.getAllTasks());
+        // Load the pages around the visible tasks while scrolling
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                reportVisibleRange();
+            }
+        });
 
         return view;
     }
 
+    /**
+     * Called when the view previously created by onCreateView(LayoutInflater, ViewGroup, Bundle) has been detached from the fragment.
+     * Ends the selection of tasks, whose bar belongs to the activity, and hides the overlay of the metrics.
+     */
+    @Override
+    public void onDestroyView() {
+        if (selectionMode != null) {
+            selectionMode.finish();
+        }
+        if (metricsOverlay != null) {
+            metricsOverlay.hide();
+            metricsOverlay = null;
+        }
+        super.onDestroyView();
+    }
+
     /**
      * Called immediately after onCreateView(LayoutInflater, ViewGroup, Bundle) has returned, but before any saved state has been restored in to the view.
-     * Sets up the observer for the task list and handles UI visibility based on the task list content.
+     * Waits for the repositories, which are initialized in the background, before binding the ViewModel.
      *
      * @param view               The View returned by onCreateView(LayoutInflater, ViewGroup, Bundle).
      * @param savedInstanceState If non-null, this fragment is being re-constructed from a previous saved state as given here.
@@ -107,45 +166,148 @@ public class ListTasksFragment extends Fragment implements TasksAdapter.DeleteTa
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
 
-        // Observe changes in the task list and update the UI accordingly
-        listTasksViewModel.getAllTasks().observe(getViewLifecycleOwner(), tasks -> {
-            tasksAdapter.updateTasks(tasks);
-
-            // Show or hide the "no tasks" label based on the task list content
-            if (tasks.isEmpty()) {
-                lblNoTasks.setVisibility(View.VISIBLE);
-                recyclerView.setVisibility(View.GONE);
-            } else {
-                lblNoTasks.setVisibility(View.GONE);
-                recyclerView.setVisibility(View.VISIBLE);
+        AppInjector.whenReady(getViewLifecycleOwner(), this::bindViewModel);
+    }
+
+    /**
+     * Creates the ViewModel if needed, and sets up the observers for the window of loaded tasks and for the search results.
+     * The options menu is created again, now that the ViewModel can handle it.
+     */
+    private void bindViewModel() {
+        if (listTasksViewModel == null) {
+            ViewModelFactory factory = new ViewModelFactory(
+                    AppInjector.provideProjectRepository(),
+                    AppInjector.provideTaskRepository()
+            );
+
+            // Initialize the ViewModel
+            listTasksViewModel = new ViewModelProvider(this, factory).get(ListTasksViewModel.class);
+            requireActivity().invalidateOptionsMenu();
+        }
+
+        // Observe the window of loaded tasks and the search results, and update the UI accordingly
+        listTasksViewModel.getTaskWindow().observe(getViewLifecycleOwner(), this::onWindowChanged);
+        listTasksViewModel.getSearchResults().observe(getViewLifecycleOwner(), this::onSearchResultsChanged);
+        listTasksViewModel.getProjectRows().observe(getViewLifecycleOwner(), this::onProjectRowsChanged);
+    }
+
+    /**
+     * Called when the number of tasks of a project changes. Shows the total number of tasks and of projects
+     * holding them above the list, or nothing when there is no task.
+     *
+     * @param projects Every project with the number of its tasks.
+     */
+    private void onProjectRowsChanged(List<ProjectRow> projects) {
+        latestProjects = projects;
+        int taskCount = 0;
+        int projectCount = 0;
+        for (ProjectRow project : projects) {
+            if (project.getTaskCount() > 0) {
+                taskCount += project.getTaskCount();
+                projectCount++;
             }
-        });
+        }
+        if (taskCount == 0) {
+            lblSummary.setVisibility(View.GONE);
+        } else {
+            lblSummary.setText(getString(R.string.tasks_summary, taskCount, projectCount));
+            lblSummary.setVisibility(View.VISIBLE);
+        }
     }
 
     /**
-     * Observes changes in the list of tasks and updates the UI accordingly.
+     * Called when the window of loaded tasks changes. It is only displayed while no text is searched.
      *
-     * @param tasksLiveData The LiveData representing the list of tasks to observe.
+     * @param window The new window of tasks.
      */
-    private void observeTasks(LiveData<List<Task>> tasksLiveData) {
-        // Observe the given LiveData for task list changes
-        tasksLiveData.observe(getViewLifecycleOwner(), tasks -> {
-            tasksAdapter.updateTasks(tasks);
+    private void onWindowChanged(TaskWindow window) {
+        latestWindow = window;
+        if (!isSearching()) {
+            displayWindow(window);
+        }
+    }
 
-            // Show or hide the "no tasks" label based on the task list content
-            if (tasks.isEmpty()) {
-                lblNoTasks.setVisibility(View.VISIBLE);
-                recyclerView.setVisibility(View.GONE);
-            } else {
-                lblNoTasks.setVisibility(View.GONE);
-                recyclerView.setVisibility(View.VISIBLE);
+    /**
+     * Called when the results of the search change. They replace the list while a text is searched,
+     * and the window of loaded tasks is displayed again once the search is cleared.
+     *
+     * @param results The tasks matching the searched text.
+     */
+    private void onSearchResultsChanged(List<TaskRow> results) {
+        if (isSearching()) {
+            tasksAdapter.updateTasks(results, null);
+            updateEmptyState(results.isEmpty(), R.string.no_search_result);
+        } else if (latestWindow != null) {
+            displayWindow(latestWindow);
+        }
+    }
+
+    /**
+     * Returns whether a text is searched.
+     *
+     * @return true if the search results replace the list of tasks
+     */
+    private boolean isSearching() {
+        return !listTasksViewModel.getSearchQuery().isEmpty();
+    }
+
+    /**
+     * Displays a window of loaded tasks.
+     * Pages dropped or reloaded before the visible tasks are dispatched as removals or insertions,
+     * so the layout manager keeps the visible tasks in place.
+     *
+     * @param window The window of tasks to display.
+     */
+    private void displayWindow(TaskWindow window) {
+        tasksAdapter.updateTasks(window.getTasks(), () -> {
+            // A recreated fragment keeps the scroll position restored by the RecyclerView
+            boolean listChanged = displayedSortOrder != null && (window.getSortOrder() != displayedSortOrder
+                    || !window.getProjectIds().equals(displayedProjectIds));
+            displayedOffset = window.getOffset();
+            displayedSortOrder = window.getSortOrder();
+            displayedProjectIds = window.getProjectIds();
+            if (listChanged) {
+                layoutManager.scrollToPosition(0);
             }
         });
+
+        updateEmptyState(window.isEmpty(), R.string.no_task);
+    }
+
+    /**
+     * Shows the label in place of the list when there is nothing to display.
+     *
+     * @param empty   Whether there is nothing to display.
+     * @param message The text of the label.
+     */
+    private void updateEmptyState(boolean empty, @StringRes int message) {
+        if (empty) {
+            lblNoTasks.setText(message);
+            lblNoTasks.setVisibility(View.VISIBLE);
+            recyclerView.setVisibility(View.GONE);
+        } else {
+            lblNoTasks.setVisibility(View.GONE);
+            recyclerView.setVisibility(View.VISIBLE);
+        }
+    }
+
+    /**
+     * Reports the absolute positions of the visible tasks to the ViewModel so that pages are loaded ahead of scrolling.
+     */
+    private void reportVisibleRange() {
+        if (listTasksViewModel == null || isSearching()) {
+            return;
+        }
+        int firstVisible = layoutManager.findFirstVisibleItemPosition();
+        int lastVisible = layoutManager.findLastVisibleItemPosition();
+        if (firstVisible != RecyclerView.NO_POSITION) {
+            listTasksViewModel.loadAround(displayedOffset + firstVisible, displayedOffset + lastVisible);
+        }
     }
 
     /**
      * Called when a task is deleted from the list.
-     * Notifies the ViewModel to delete the specified task.
+     * Notifies the ViewModel to delete the specified task, and offers to restore it for a while.
      *
      * @param task The task to be deleted.
      */
@@ -153,23 +315,174 @@ public class ListTasksFragment extends Fragment implements TasksAdapter.DeleteTa
     public void onDeleteTask(Task task) {
         // Call the ViewModel to delete the specified task
         listTasksViewModel.deleteTask(task);
+        showUndo(getString(R.string.task_deleted), () -> listTasksViewModel.restoreTask(task));
+    }
+
+    /**
+     * Called when the selection of tasks changes. Shows the bar of the actions on the selected tasks
+     * with their number, or hides it once the selection is over.
+     *
+     * @param selectedCount The number of selected tasks.
+     */
+    @Override
+    public void onSelectionChanged(int selectedCount) {
+        if (selectedCount == 0) {
+            if (selectionMode != null) {
+                selectionMode.finish();
+            }
+            return;
+        }
+        if (selectionMode == null) {
+            selectionMode = ((AppCompatActivity) requireActivity()).startSupportActionMode(selectionCallback);
+        }
+        if (selectionMode != null) {
+            selectionMode.setTitle(getResources().getQuantityString(R.plurals.tasks_selected, selectedCount, selectedCount));
+        }
+    }
+
+    /**
+     * Deletes every selected task at once, and offers to restore them all for a while.
+     */
+    private void deleteSelectedTasks() {
+        List<Long> taskIds = tasksAdapter.getSelectedTaskIds();
+        listTasksViewModel.deleteTasks(taskIds);
+        tasksAdapter.clearSelection();
+        showUndo(getResources().getQuantityString(R.plurals.tasks_deleted, taskIds.size(), taskIds.size()),
+                () -> listTasksViewModel.restoreTasks(taskIds));
+    }
+
+    /**
+     * Shows a dialog to pick the project receiving every selected task.
+     */
+    private void showMoveSelectedTasks() {
+        // The list may change while the dialog is shown, the picked position refers to this one
+        List<ProjectRow> projects = latestProjects;
+        CharSequence[] names = new CharSequence[projects.size()];
+        for (int i = 0; i < projects.size(); i++) {
+            names[i] = projects.get(i).toString();
+        }
+
+        new AlertDialog.Builder(requireContext())
+                .setTitle(R.string.move_tasks_to)
+                .setItems(names, (dialog, which) -> {
+                    listTasksViewModel.moveTasks(tasksAdapter.getSelectedTaskIds(), projects.get(which).getId());
+                    tasksAdapter.clearSelection();
+                })
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
+    }
+
+    /**
+     * Offers to undo a deletion for a while.
+     * Once the offer is over, the deleted tasks are purged when their grace period is over.
+     *
+     * @param message The text describing the deletion.
+     * @param undo    The restoration of the deleted tasks.
+     */
+    private void showUndo(CharSequence message, Runnable undo) {
+        Snackbar.make(requireView(), message, UNDO_DURATION_MS)
+                .setAction(R.string.undo, v -> undo.run())
+                .addCallback(new Snackbar.Callback() {
+                    @Override
+                    public void onDismissed(Snackbar snackbar, int event) {
+                        if (event != DISMISS_EVENT_ACTION) {
+                            listTasksViewModel.purgeDeletedTasks();
+                        }
+                    }
+                })
+                .show();
     }
 
+    /**
+     * Handles the bar of the actions on the selected tasks. Closing the bar ends the selection.
+     */
+    private final ActionMode.Callback selectionCallback = new ActionMode.Callback() {
+        @Override
+        public boolean onCreateActionMode(ActionMode mode, Menu menu) {
+            mode.getMenuInflater().inflate(R.menu.selection, menu);
+            return true;
+        }
+
+        @Override
+        public boolean onPrepareActionMode(ActionMode mode, Menu menu) {
+            return false;
+        }
+
+        @Override
+        public boolean onActionItemClicked(ActionMode mode, MenuItem item) {
+            switch (item.getItemId()) {
+                case R.id.action_delete_selected:
+                    deleteSelectedTasks();
+                    return true;
+                case R.id.action_move_selected:
+                    showMoveSelectedTasks();
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        @Override
+        public void onDestroyActionMode(ActionMode mode) {
+            selectionMode = null;
+            tasksAdapter.clearSelection();
+        }
+    };
+
     /**
      * Initializes the contents of the fragment's standard options menu.
+     * The menu stays empty until the ViewModel is created. The items of the metrics are shown when they record.
      *
      * @param menu     The options menu in which you place your items.
      * @param inflater The MenuInflater object that can be used to inflate any views in the fragment.
      */
     @Override
     public void onCreateOptionsMenu(@NonNull Menu menu, @NonNull MenuInflater inflater) {
-        inflater.inflate(R.menu.actions, menu);
+        if (listTasksViewModel != null) {
+            inflater.inflate(R.menu.actions, menu);
+            setupSearchView(menu.findItem(R.id.action_search));
+            boolean metricsEnabled = AppInjector.provideMetrics().isEnabled();
+            menu.findItem(R.id.action_metrics_overlay).setVisible(metricsEnabled)
+                    .setChecked(metricsOverlay != null && metricsOverlay.isShown());
+            menu.findItem(R.id.action_metrics_dump).setVisible(metricsEnabled);
+        }
         super.onCreateOptionsMenu(menu, inflater);
     }
 
+    /**
+     * Sets up the search box of the options menu, restoring the text searched before a configuration change.
+     *
+     * @param searchItem The menu item holding the search box.
+     */
+    private void setupSearchView(MenuItem searchItem) {
+        SearchView searchView = (SearchView) searchItem.getActionView();
+        searchView.setQueryHint(getString(R.string.search_hint));
+
+        String query = listTasksViewModel.getSearchQuery();
+        if (!query.isEmpty()) {
+            searchItem.expandActionView();
+            searchView.setQuery(query, false);
+        }
+
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String text) {
+                listTasksViewModel.setSearchQuery(text);
+                return true;
+            }
+
+            @Override
+            public boolean onQueryTextChange(String text) {
+                // Debounced by the ViewModel, which only searches once the user stops typing
+                listTasksViewModel.setSearchQuery(text);
+                return true;
+            }
+        });
+    }
+
     /**
      * Called when an item in the options menu is selected.
-     * Handles the selection of different filtering options and observes the corresponding task list.
+     * Handles the selection of different filtering options and reloads the task list in the corresponding order.
      *
      * @param item The menu item that was selected.
      * @return boolean Return false to allow normal menu processing to proceed, true to consume it here.
@@ -178,23 +491,107 @@ public class ListTasksFragment extends Fragment implements TasksAdapter.DeleteTa
     public boolean onOptionsItemSelected(@NonNull MenuItem item) {
         switch (item.getItemId()) {
             case R.id.filter_alphabetical:
-                // Observe tasks sorted alphabetically
-                observeTasks(listTasksViewModel.getAllTasksSortedAlphabetically());
+                // Display tasks sorted alphabetically
+                listTasksViewModel.setSortOrder(TaskSortOrder.ALPHABETICAL);
                 return true;
             case R.id.filter_alphabetical_inverted:
-                // Observe tasks sorted alphabetically inverted
-                observeTasks(listTasksViewModel.getAllTasksSortedAlphabeticallyInverted());
+                // Display tasks sorted alphabetically inverted
+                listTasksViewModel.setSortOrder(TaskSortOrder.ALPHABETICAL_INVERTED);
                 return true;
             case R.id.filter_oldest_first:
-                // Observe tasks sorted by oldest first
-                observeTasks(listTasksViewModel.getAllTasksSortedByDateOldFirst());
+                // Display tasks sorted by oldest first
+                listTasksViewModel.setSortOrder(TaskSortOrder.OLD_FIRST);
                 return true;
             case R.id.filter_recent_first:
-                // Observe tasks sorted by most recent first
-                observeTasks(listTasksViewModel.getAllTasksSortedByDateRecentFirst());
+                // Display tasks sorted by most recent first
+                listTasksViewModel.setSortOrder(TaskSortOrder.RECENT_FIRST);
+                return true;
+            case R.id.filter_by_project:
+                // Let the user pick the projects whose tasks are displayed
+                showProjectFilter();
+                return true;
+            case R.id.action_metrics_overlay:
+                // Show or hide the summary of the metrics above the screen
+                item.setChecked(toggleMetricsOverlay());
+                return true;
+            case R.id.action_metrics_dump:
+                dumpMetrics();
                 return true;
             default:
                 return super.onOptionsItemSelected(item);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Shows the overlay of the metrics if it is hidden, hides it otherwise.
+     *
+     * @return true if the overlay is now shown
+     */
+    private boolean toggleMetricsOverlay() {
+        if (metricsOverlay == null) {
+            metricsOverlay = new MetricsOverlay(requireActivity().findViewById(android.R.id.content),
+                    AppInjector.provideMetrics());
+        }
+        if (metricsOverlay.isShown()) {
+            metricsOverlay.hide();
+            return false;
+        }
+        metricsOverlay.show();
+        return true;
+    }
+
+    /**
+     * Dumps the metrics in a JSON file of the files directory of the application, in the background,
+     * then tells the user where it has been written.
+     */
+    private void dumpMetrics() {
+        Metrics metrics = AppInjector.provideMetrics();
+        File directory = requireContext().getFilesDir();
+        View view = requireView();
+        AppInjector.provideExecutors().background().execute(() -> {
+            try {
+                File file = metrics.dump(directory);
+                Log.d("ListTasksFragment", "Metrics dumped to " + file);
+                view.post(() -> Snackbar.make(view, view.getContext().getString(R.string.metrics_dumped, file.getName()),
+                        Snackbar.LENGTH_LONG).show());
+            } catch (IOException e) {
+                Log.w("ListTasksFragment", "Metrics could not be dumped.", e);
+                view.post(() -> Snackbar.make(view, R.string.metrics_dump_failed, Snackbar.LENGTH_LONG).show());
+            }
+        });
+    }
+
+    /**
+     * Shows a dialog to pick the projects whose tasks are displayed, checking the projects currently displayed.
+     * Checking no project, or choosing "all", displays the tasks of every project.
+     */
+    private void showProjectFilter() {
+        // The list may change while the dialog is shown, the checked positions refer to this one
+        List<ProjectRow> projects = latestProjects;
+        Set<Long> currentFilter = listTasksViewModel.getProjectFilter().getValue();
+        CharSequence[] names = new CharSequence[projects.size()];
+        boolean[] checked = new boolean[projects.size()];
+        for (int i = 0; i < projects.size(); i++) {
+            ProjectRow project = projects.get(i);
+            names[i] = project.toString();
+            checked[i] = currentFilter != null && currentFilter.contains(project.getId());
+        }
+
+        new AlertDialog.Builder(requireContext())
+                .setTitle(R.string.filter_by_project)
+                .setMultiChoiceItems(names, checked, (dialog, which, isChecked) -> checked[which] = isChecked)
+                .setPositiveButton(android.R.string.ok, (dialog, which) -> {
+                    Set<Long> projectIds = new HashSet<>();
+                    for (int i = 0; i < checked.length; i++) {
+                        if (checked[i]) {
+                            projectIds.add(projects.get(i).getId());
+                        }
+                    }
+                    listTasksViewModel.setProjectFilter(projectIds);
+                })
+                .setNeutralButton(R.string.filter_all_projects,
+                        (dialog, which) -> listTasksViewModel.setProjectFilter(Collections.emptySet()))
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
+    }
+}
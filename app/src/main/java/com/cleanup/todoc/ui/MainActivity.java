@@ -1,6 +1,7 @@
 package com.cleanup.todoc.ui;
 
 import android.os.Bundle;
+import android.os.Trace;
 import android.view.View;
 
 import androidx.appcompat.app.AppCompatActivity;
@@ -22,18 +23,22 @@ public class MainActivity extends AppCompatActivity {
      */
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        Trace.beginSection("Todoc:MainActivity.onCreate");
         super.onCreate(savedInstanceState);
-        setContentView(R.layout.main_fragment_container);
 
-        // Initialize AppInjector for dependency injection
+        // Start the initialization of AppInjector first, so that the database opens while the views are inflated
         AppInjector.init(this.getApplication());
 
+        setContentView(R.layout.main_fragment_container);
+
         // Check if this is the first creation of the activity
         if (savedInstanceState == null) {
             // Add the ListTasksFragment to the activity
+            Trace.beginSection("Todoc:ListTasksFragment.add");
             getSupportFragmentManager().beginTransaction()
                     .replace(R.id.fragment_container, new ListTasksFragment())
                     .commitNow();
+            Trace.endSection();
         }
 
         // Set a click listener on the FloatingActionButton to navigate to AddTaskFragment
@@ -55,5 +60,6 @@ public class MainActivity extends AppCompatActivity {
                 findViewById(R.id.fab_add_task).setVisibility(View.VISIBLE);
             }
         });
+        Trace.endSection();
     }
 }
\ No newline at end of file
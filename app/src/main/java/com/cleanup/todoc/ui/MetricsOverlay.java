@@ -0,0 +1,90 @@
+package com.cleanup.todoc.ui;
+
+import android.graphics.Typeface;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Gravity;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+
+import com.cleanup.todoc.R;
+import com.cleanup.todoc.metrics.Metrics;
+
+/**
+ * Debug overlay showing the summary of the metrics above the screen, refreshed every second while shown.
+ * It does not take touches, so the screen below stays usable.
+ */
+@MainThread
+class MetricsOverlay {
+
+    // Delay, in milliseconds, between two refreshes of the summary
+    private static final long REFRESH_MILLIS = 1000;
+
+    @NonNull
+    private final FrameLayout container;
+    @NonNull
+    private final Metrics metrics;
+    @NonNull
+    private final TextView summary;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Refreshes the summary, then schedules the next refresh
+    private final Runnable refresh = new Runnable() {
+        @Override
+        public void run() {
+            summary.setText(metrics.summary());
+            mainHandler.postDelayed(this, REFRESH_MILLIS);
+        }
+    };
+
+    /**
+     * Constructor to initialize the MetricsOverlay.
+     *
+     * @param container the content view of the activity, above which the summary is shown
+     * @param metrics   the metrics to show
+     */
+    MetricsOverlay(@NonNull FrameLayout container, @NonNull Metrics metrics) {
+        this.container = container;
+        this.metrics = metrics;
+        this.summary = new TextView(container.getContext());
+        summary.setTypeface(Typeface.MONOSPACE);
+        summary.setTextSize(10);
+        summary.setTextColor(ContextCompat.getColor(container.getContext(), android.R.color.white));
+        summary.setBackgroundColor(ContextCompat.getColor(container.getContext(), R.color.metrics_overlay));
+        summary.setClickable(false);
+        summary.setFocusable(false);
+    }
+
+    /**
+     * Returns whether the overlay is shown.
+     *
+     * @return true if the summary is above the screen
+     */
+    boolean isShown() {
+        return summary.getParent() != null;
+    }
+
+    /**
+     * Shows the overlay and starts refreshing it.
+     */
+    void show() {
+        if (isShown()) {
+            return;
+        }
+        container.addView(summary, new FrameLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                ViewGroup.LayoutParams.WRAP_CONTENT, Gravity.BOTTOM));
+        refresh.run();
+    }
+
+    /**
+     * Hides the overlay and stops refreshing it.
+     */
+    void hide() {
+        mainHandler.removeCallbacks(refresh);
+        container.removeView(summary);
+    }
+}
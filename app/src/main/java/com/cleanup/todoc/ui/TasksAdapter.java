@@ -7,25 +7,71 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.appcompat.widget.AppCompatImageView;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.cleanup.todoc.R;
-import com.cleanup.todoc.model.Project;
+import com.cleanup.todoc.metrics.Metrics;
+import com.cleanup.todoc.metrics.Timer;
 import com.cleanup.todoc.model.Task;
+import com.cleanup.todoc.model.TaskRow;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 /**
  * <p>Adapter which handles the list of tasks to display in the dedicated RecyclerView.</p>
- * <p>This adapter binds task data to the views in the RecyclerView.</p>
+ * <p>This adapter binds task data to the views in the RecyclerView.
+ * New lists are compared to the displayed one on a background thread, so that only the rows which changed are updated.</p>
+ * <p>A long click on a task starts selecting tasks: clicks then add tasks to the selection or remove them from it,
+ * until the selection is cleared. The selection is kept by identifier, so it survives the reloading of the list.</p>
  */
 public class TasksAdapter extends RecyclerView.Adapter<TasksAdapter.TaskViewHolder> {
     /**
-     * The list of tasks the adapter deals with.
+     * Identifies tasks by their id and compares the content displayed in their row.
+     */
+    static final DiffUtil.ItemCallback<TaskRow> DIFF_CALLBACK = new DiffUtil.ItemCallback<TaskRow>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull TaskRow oldItem, @NonNull TaskRow newItem) {
+            if (oldItem.taskId == newItem.taskId) {
+                return true;
+            }
+            // A task shown while its insert is pending keeps its row once committed under its real id
+            return oldItem.isPending() && !newItem.isPending()
+                    && oldItem.taskCreationTimestamp == newItem.taskCreationTimestamp
+                    && oldItem.projectId == newItem.projectId
+                    && oldItem.taskName.equals(newItem.taskName);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull TaskRow oldItem, @NonNull TaskRow newItem) {
+            // Unchanged tasks keep their instance from one load to the next
+            if (oldItem == newItem) {
+                return true;
+            }
+            // The committed task must be bound again, to become deletable and selectable
+            return oldItem.taskId == newItem.taskId
+                    && oldItem.taskName.equals(newItem.taskName)
+                    && oldItem.taskCreationTimestamp == newItem.taskCreationTimestamp
+                    && oldItem.projectId == newItem.projectId
+                    && oldItem.projectName.equals(newItem.projectName)
+                    && oldItem.projectColor == newItem.projectColor;
+        }
+    };
+
+    /**
+     * Computes the differences between the displayed list of tasks and the new ones.
      */
     @NonNull
-    private List<Task> tasks;
+    private final AsyncListDiffer<TaskRow> differ;
 
     /**
      * The listener for when a task needs to be deleted.
@@ -33,25 +79,160 @@ public class TasksAdapter extends RecyclerView.Adapter<TasksAdapter.TaskViewHold
     @NonNull
     private final DeleteTaskListener deleteTaskListener;
 
+    /**
+     * Times the binding of the rows.
+     */
+    @NonNull
+    private final Timer bindTimer;
+
+    /**
+     * The identifiers of the selected tasks, in the order they were selected.
+     */
+    @NonNull
+    private final Set<Long> selectedTaskIds = new LinkedHashSet<>();
+
+    /**
+     * The listener for when the selection changes, if any.
+     */
+    @Nullable
+    private SelectionListener selectionListener;
+
+    /**
+     * Instantiates a new TasksAdapter, computing the differences between lists on the shared background executor of RecyclerView.
+     *
+     * @param deleteTaskListener the listener for when a task needs to be deleted.
+     */
+    TasksAdapter(@NonNull final DeleteTaskListener deleteTaskListener) {
+        this(deleteTaskListener, null);
+    }
+
     /**
      * Instantiates a new TasksAdapter.
      *
-     * @param tasks the list of tasks the adapter deals with to set.
      * @param deleteTaskListener the listener for when a task needs to be deleted.
+     * @param diffExecutor the executor on which the differences between lists are computed, or null for the default one.
+     */
+    public TasksAdapter(@NonNull final DeleteTaskListener deleteTaskListener, @Nullable final Executor diffExecutor) {
+        this(deleteTaskListener, diffExecutor, Metrics.DISABLED);
+    }
+
+    /**
+     * Instantiates a new TasksAdapter timing the binding of its rows under "adapter.bind".
+     *
+     * @param deleteTaskListener the listener for when a task needs to be deleted.
+     * @param diffExecutor the executor on which the differences between lists are computed, or null for the default one.
+     * @param metrics the metrics receiving the binding times.
      */
-    TasksAdapter(@NonNull final List<Task> tasks, @NonNull final DeleteTaskListener deleteTaskListener) {
-        this.tasks = tasks;
+    public TasksAdapter(@NonNull final DeleteTaskListener deleteTaskListener, @Nullable final Executor diffExecutor,
+                        @NonNull final Metrics metrics) {
         this.deleteTaskListener = deleteTaskListener;
+        this.bindTimer = metrics.timer("adapter.bind");
+        AsyncDifferConfig.Builder<TaskRow> config = new AsyncDifferConfig.Builder<>(DIFF_CALLBACK);
+        if (diffExecutor != null) {
+            config.setBackgroundThreadExecutor(diffExecutor);
+        }
+        this.differ = new AsyncListDiffer<>(new AdapterListUpdateCallback(this), config.build());
     }
 
     /**
-     * Updates the list of tasks the adapter deals with and notifies the data set change.
+     * Submits a new list of tasks. The differences with the displayed list are computed on a background thread,
+     * then only the rows which changed are notified.
      *
      * @param tasks the list of tasks the adapter deals with to set.
+     * @param commitCallback called on the main thread once the list is displayed, may be dropped if a newer list is submitted before.
      */
-    void updateTasks(@NonNull final List<Task> tasks) {
-        this.tasks = tasks;
-        notifyDataSetChanged();
+    public void updateTasks(@NonNull final List<TaskRow> tasks, @Nullable final Runnable commitCallback) {
+        differ.submitList(tasks, commitCallback);
+    }
+
+    /**
+     * Returns the list of tasks currently displayed.
+     *
+     * @return the displayed tasks.
+     */
+    @NonNull
+    public List<TaskRow> getTasks() {
+        return differ.getCurrentList();
+    }
+
+    /**
+     * Sets the listener for when the selection changes.
+     *
+     * @param selectionListener the listener to set, or null to remove it.
+     */
+    public void setSelectionListener(@Nullable final SelectionListener selectionListener) {
+        this.selectionListener = selectionListener;
+    }
+
+    /**
+     * Returns whether tasks are being selected.
+     *
+     * @return true if at least one task is selected.
+     */
+    public boolean isSelecting() {
+        return !selectedTaskIds.isEmpty();
+    }
+
+    /**
+     * Returns the identifiers of the selected tasks.
+     *
+     * @return a copy of the identifiers, in the order the tasks were selected.
+     */
+    @NonNull
+    public List<Long> getSelectedTaskIds() {
+        return new ArrayList<>(selectedTaskIds);
+    }
+
+    /**
+     * Adds a task to the selection, or removes it if it is already selected.
+     *
+     * @param taskId the identifier of the task.
+     */
+    public void toggleSelection(long taskId) {
+        if (!selectedTaskIds.remove(taskId)) {
+            selectedTaskIds.add(taskId);
+        }
+        notifyTaskChanged(taskId);
+        dispatchSelectionChanged();
+    }
+
+    /**
+     * Clears the selection, which ends the selection of tasks.
+     */
+    public void clearSelection() {
+        if (selectedTaskIds.isEmpty()) {
+            return;
+        }
+        List<Long> cleared = getSelectedTaskIds();
+        selectedTaskIds.clear();
+        for (Long taskId : cleared) {
+            notifyTaskChanged(taskId);
+        }
+        dispatchSelectionChanged();
+    }
+
+    /**
+     * Binds again the row of a task, if it is displayed.
+     *
+     * @param taskId the identifier of the task.
+     */
+    private void notifyTaskChanged(long taskId) {
+        List<TaskRow> tasks = differ.getCurrentList();
+        for (int position = 0; position < tasks.size(); position++) {
+            if (tasks.get(position).taskId == taskId) {
+                notifyItemChanged(position);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Notifies the selection listener of the number of selected tasks.
+     */
+    private void dispatchSelectionChanged() {
+        if (selectionListener != null) {
+            selectionListener.onSelectionChanged(selectedTaskIds.size());
+        }
     }
 
     @NonNull
@@ -65,12 +246,15 @@ public class TasksAdapter extends RecyclerView.Adapter<TasksAdapter.TaskViewHold
     @Override
     public void onBindViewHolder(@NonNull TaskViewHolder taskViewHolder, int position) {
         // Bind the task data to the view holder
-        taskViewHolder.bind(tasks.get(position));
+        long start = bindTimer.start();
+        TaskRow row = differ.getCurrentList().get(position);
+        taskViewHolder.bind(row, selectedTaskIds.contains(row.taskId));
+        bindTimer.stop(start);
     }
 
     @Override
     public int getItemCount() {
-        return tasks.size();
+        return differ.getCurrentList().size();
     }
 
     /**
@@ -85,6 +269,18 @@ public class TasksAdapter extends RecyclerView.Adapter<TasksAdapter.TaskViewHold
         void onDeleteTask(Task task);
     }
 
+    /**
+     * Listener for the selection of tasks.
+     */
+    public interface SelectionListener {
+        /**
+         * Called when a task is added to the selection or removed from it, or when the selection is cleared.
+         *
+         * @param selectedCount the number of selected tasks, 0 once the selection is over.
+         */
+        void onSelectionChanged(int selectedCount);
+    }
+
     /**
      * <p>ViewHolder for task items in the tasks list.</p>
      */
@@ -114,6 +310,16 @@ public class TasksAdapter extends RecyclerView.Adapter<TasksAdapter.TaskViewHold
          */
         private final DeleteTaskListener deleteTaskListener;
 
+        /**
+         * The identifier of the bound task.
+         */
+        private long taskId;
+
+        /**
+         * Whether the bound task is still being inserted, and can be neither deleted nor selected.
+         */
+        private boolean pending;
+
         /**
          * Instantiates a new TaskViewHolder.
          *
@@ -136,33 +342,46 @@ public class TasksAdapter extends RecyclerView.Adapter<TasksAdapter.TaskViewHold
                 @Override
                 public void onClick(View view) {
                     final Object tag = view.getTag();
-                    if (tag instanceof Task) {
+                    if (tag instanceof TaskRow) {
                         // Call the delete task listener when delete icon is clicked
-                        TaskViewHolder.this.deleteTaskListener.onDeleteTask((Task) tag);
+                        TaskViewHolder.this.deleteTaskListener.onDeleteTask(((TaskRow) tag).toTask());
                     }
                 }
             });
+
+            // A long click starts the selection, then clicks add tasks to it or remove them from it
+            itemView.setOnLongClickListener(view -> {
+                if (pending) {
+                    return false;
+                }
+                toggleSelection(taskId);
+                return true;
+            });
+            itemView.setOnClickListener(view -> {
+                if (isSelecting() && !pending) {
+                    toggleSelection(taskId);
+                }
+            });
         }
 
         /**
-         * Binds a task to the item view.
+         * Binds a task and its project to the item view.
          *
-         * @param task the task to bind in the item view.
+         * @param row      the task to bind in the item view, along with the name and color of its project.
+         * @param selected whether the task is selected.
          */
-        void bind(Task task) {
-            lblTaskName.setText(task.getName());
-            imgDelete.setTag(task); // Set the task as the tag for the delete icon
-
-            final Project taskProject = task.getProject();
-            if (taskProject != null) {
-                // Set the project color and name if the project is not null
-                imgProject.setSupportImageTintList(ColorStateList.valueOf(taskProject.getColor()));
-                lblProjectName.setText(taskProject.getName());
-            } else {
-                // Hide the project icon and clear the project name if the project is null
-                imgProject.setVisibility(View.INVISIBLE);
-                lblProjectName.setText("");
-            }
+        void bind(TaskRow row, boolean selected) {
+            taskId = row.taskId;
+            pending = row.isPending();
+            itemView.setActivated(selected);
+            lblTaskName.setText(row.taskName);
+            imgDelete.setTag(row); // Set the row as the tag for the delete icon
+            // A task is deletable once its insert is committed, under the identifier the database gave it
+            imgDelete.setVisibility(pending ? View.INVISIBLE : View.VISIBLE);
+
+            // Rows are resolved against the project cache, which knows every project of the tasks
+            imgProject.setSupportImageTintList(ColorStateList.valueOf(row.projectColor));
+            lblProjectName.setText(row.projectName);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,122 @@
+package com.cleanup.todoc;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.cleanup.todoc.model.Project;
+import com.cleanup.todoc.model.ProjectWithStats;
+import com.cleanup.todoc.model.Task;
+import com.cleanup.todoc.model.TaskRow;
+import com.cleanup.todoc.repository.AppDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Test class for the migrations of AppDatabase.
+ * Databases of older versions are created with their original schema, then opened through Room, which validates the migrated schema.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class AppDatabaseMigrationTest {
+
+    private static final String DATABASE_NAME = "migration_test_database";
+
+    private Context context;
+    private AppDatabase database;
+
+    /**
+     * Remove any database left by a previous test.
+     */
+    @Before
+    public void setup() {
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    /**
+     * Close and remove the database after each test.
+     */
+    @After
+    public void tearDown() {
+        if (database != null) {
+            database.close();
+        }
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    /**
+     * Test that migrating a version 3 database, whose tasks embed their project, keeps every task and its project,
+     * indexes the existing task names for the search, computes the aggregates of each project,
+     * and lets tasks be tombstoned.
+     */
+    @Test
+    public void migrate3ToLatestKeepsTasksAndProjects() {
+        File file = context.getDatabasePath(DATABASE_NAME);
+        file.getParentFile().mkdirs();
+        SQLiteDatabase legacy = SQLiteDatabase.openOrCreateDatabase(file, null);
+        legacy.execSQL("CREATE TABLE IF NOT EXISTS `projects` (`projectId` INTEGER NOT NULL, `projectName` TEXT NOT NULL, "
+                + "`projectColor` INTEGER NOT NULL, PRIMARY KEY(`projectId`))");
+        legacy.execSQL("CREATE TABLE IF NOT EXISTS `tasks` (`taskId` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                + "`projectId` INTEGER NOT NULL, `projectName` TEXT NOT NULL, `projectColor` INTEGER NOT NULL, "
+                + "`taskName` TEXT NOT NULL, `creation_timestamp` INTEGER NOT NULL, "
+                + "FOREIGN KEY(`projectId`) REFERENCES `projects`(`projectId`) ON UPDATE NO ACTION ON DELETE NO ACTION )");
+        legacy.execSQL("CREATE INDEX IF NOT EXISTS `index_tasks_projectId` ON `tasks` (`projectId`)");
+        legacy.execSQL("CREATE INDEX IF NOT EXISTS `index_tasks_taskName_taskId` ON `tasks` (`taskName`, `taskId`)");
+        legacy.execSQL("CREATE INDEX IF NOT EXISTS `index_tasks_creation_timestamp_taskId` ON `tasks` (`creation_timestamp`, `taskId`)");
+        legacy.execSQL("INSERT INTO projects VALUES (1, 'Projet Tartampion', -1385775)");
+        legacy.execSQL("INSERT INTO projects VALUES (2, 'Projet Lucidia', -4927046)");
+        legacy.execSQL("INSERT INTO tasks VALUES (1, 1, 'Projet Tartampion', -1385775, 'Task 1', 1000)");
+        legacy.execSQL("INSERT INTO tasks VALUES (2, 2, 'Projet Lucidia', -4927046, 'Task 2', 2000)");
+        // A deleted task whose identifier must not be reused
+        legacy.execSQL("INSERT INTO tasks VALUES (3, 2, 'Projet Lucidia', -4927046, 'Task 3', 3000)");
+        legacy.execSQL("DELETE FROM tasks WHERE taskId = 3");
+        legacy.setVersion(3);
+        legacy.close();
+
+        database = Room.databaseBuilder(context, AppDatabase.class, DATABASE_NAME)
+                .addMigrations(AppDatabase.MIGRATION_2_3, AppDatabase.MIGRATION_3_4, AppDatabase.MIGRATION_4_5,
+                        AppDatabase.MIGRATION_5_6, AppDatabase.MIGRATION_6_7,
+                        AppDatabase.MIGRATION_7_8, AppDatabase.MIGRATION_8_9)
+                .allowMainThreadQueries()
+                .build();
+
+        List<TaskRow> tasks = database.taskDao().getFirstPage(10);
+        assertEquals(2, tasks.size());
+        assertEquals("Task 1", tasks.get(0).taskName);
+        assertEquals(1000, tasks.get(0).taskCreationTimestamp);
+        assertEquals(2L, tasks.get(1).projectId);
+
+        database.taskDao().insertTask(new Task(0, new Project(1L, "Projet Tartampion", -1385775), "Task 4", 4000));
+        assertEquals(4L, database.taskDao().getPageAfter(2L, 10).get(0).taskId);
+
+        // Tasks migrated from version 3 and inserted afterwards are both found by the search
+        assertEquals(3, database.taskDao().searchTasks("task*", "task", 10).size());
+
+        // Aggregates computed from the migrated tasks, then kept up to date by the triggers
+        List<ProjectWithStats> stats = database.projectDao().getProjectsWithStats();
+        assertEquals(2, stats.get(0).getTaskCount());
+        assertEquals(Long.valueOf(1000), stats.get(0).oldestTimestamp);
+        assertEquals(Long.valueOf(4000), stats.get(0).newestTimestamp);
+        assertEquals(1, stats.get(1).getTaskCount());
+        assertEquals(Long.valueOf(2000), stats.get(1).newestTimestamp);
+
+        // Tombstoned tasks leave the list and the aggregates, through the triggers created again for them
+        database.taskDao().tombstoneTasks(Collections.singletonList(1L), 5000);
+        assertEquals(2, database.taskDao().getFirstPage(10).size());
+        stats = database.projectDao().getProjectsWithStats();
+        assertEquals(1, stats.get(0).getTaskCount());
+        assertEquals(Long.valueOf(4000), stats.get(0).oldestTimestamp);
+    }
+}
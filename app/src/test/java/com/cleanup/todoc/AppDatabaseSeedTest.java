@@ -0,0 +1,105 @@
+package com.cleanup.todoc;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.cleanup.todoc.repository.AppDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+
+/**
+ * Test class for the seeding stage of AppDatabase.
+ * Writes to the projects table are counted by a trigger added to the database file between two launches.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class AppDatabaseSeedTest {
+
+    private static final String DATABASE_NAME = "seed_test_database";
+
+    private Context context;
+    private AppDatabase database;
+
+    /**
+     * Remove any database left by a previous test.
+     */
+    @Before
+    public void setup() {
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    /**
+     * Close and remove the database after each test.
+     */
+    @After
+    public void tearDown() {
+        if (database != null) {
+            database.close();
+        }
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    /**
+     * Test that the projects are readable by the very first query, without waiting for a background task.
+     */
+    @Test
+    public void coldStartSeedsProjectsBeforeFirstQuery() {
+        database = AppDatabase.buildDatabase(context, DATABASE_NAME);
+
+        assertEquals(3, countProjects());
+    }
+
+    /**
+     * Test that opening an existing database does not write the seed again.
+     */
+    @Test
+    public void warmStartWritesNoSeed() {
+        database = AppDatabase.buildDatabase(context, DATABASE_NAME);
+        assertEquals(3, countProjects());
+        database.close();
+
+        // Count every insertion attempted on the projects table, including the ones ignored by a conflict
+        File file = context.getDatabasePath(DATABASE_NAME);
+        SQLiteDatabase raw = SQLiteDatabase.openOrCreateDatabase(file, null);
+        raw.execSQL("CREATE TABLE project_writes (n INTEGER)");
+        raw.execSQL("CREATE TRIGGER count_project_writes BEFORE INSERT ON projects "
+                + "BEGIN INSERT INTO project_writes VALUES (1); END");
+        raw.close();
+
+        database = AppDatabase.buildDatabase(context, DATABASE_NAME);
+        assertEquals(3, countProjects());
+        database.close();
+        database = null;
+
+        raw = SQLiteDatabase.openOrCreateDatabase(file, null);
+        try (Cursor cursor = raw.rawQuery("SELECT COUNT(*) FROM project_writes", null)) {
+            cursor.moveToFirst();
+            assertEquals(0, cursor.getInt(0));
+        } finally {
+            raw.close();
+        }
+    }
+
+    /**
+     * Opens the database through Room, running its creation or migrations, and counts the projects.
+     *
+     * @return the number of projects
+     */
+    private int countProjects() {
+        try (Cursor cursor = database.getOpenHelper().getReadableDatabase().query("SELECT COUNT(*) FROM projects")) {
+            cursor.moveToFirst();
+            return cursor.getInt(0);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.cleanup.todoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.cleanup.todoc.di.AppExecutors;
+import com.cleanup.todoc.di.InstrumentedExecutor;
+import com.cleanup.todoc.di.SerialExecutor;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Unit tests for the executors shared by the application.
+ */
+public class AppExecutorsTest {
+
+    // Executor under test, shut down after each test
+    private InstrumentedExecutor executor;
+
+    /**
+     * Shuts the executor down after each test.
+     */
+    @After
+    public void tearDown() throws Exception {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Tests that synchronous executors run the tasks on the calling thread and still count them.
+     */
+    @Test
+    public void synchronousExecutorsRunOnCallingThread() {
+        AppExecutors executors = AppExecutors.synchronous();
+        List<Thread> threads = new ArrayList<>();
+
+        executors.dbRead().execute(() -> threads.add(Thread.currentThread()));
+        executors.dbWrite().execute(() -> threads.add(Thread.currentThread()));
+        executors.cpu().execute(() -> threads.add(Thread.currentThread()));
+        executors.background().execute(() -> threads.add(Thread.currentThread()));
+
+        assertEquals(Collections.nCopies(4, Thread.currentThread()), threads);
+        assertEquals(1, executors.dbRead().getCompletedCount());
+        assertEquals(0, executors.dbRead().getQueueDepth());
+        assertEquals(0, executors.dbRead().getActiveCount());
+    }
+
+    /**
+     * Tests that a pool reports its queued and running tasks, and how long they waited and ran.
+     */
+    @Test
+    public void boundedPoolReportsQueueDepthActiveCountAndTimes() throws Exception {
+        executor = InstrumentedExecutor.newBounded("test", 1, 4);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        executor.execute(() -> {
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        executor.execute(() -> {
+        });
+        executor.execute(() -> {
+        });
+
+        assertEquals(1, executor.getActiveCount());
+        assertEquals(2, executor.getQueueDepth());
+
+        Thread.sleep(20);
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(3, executor.getCompletedCount());
+        assertEquals(0, executor.getQueueDepth());
+        assertEquals(0, executor.getActiveCount());
+        // Both queued tasks waited for the first one, which ran for at least 20ms
+        assertTrue(executor.getTotalWaitNanos() >= 2 * TimeUnit.MILLISECONDS.toNanos(20));
+        assertTrue(executor.getTotalRunNanos() >= TimeUnit.MILLISECONDS.toNanos(20));
+    }
+
+    /**
+     * Tests that a task submitted to a full pool runs on the calling thread instead of growing the queue.
+     */
+    @Test
+    public void fullPoolRunsTaskOnCaller() throws Exception {
+        executor = InstrumentedExecutor.newBounded("test", 1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        executor.execute(() -> {
+        });
+
+        List<Thread> threads = new ArrayList<>();
+        executor.execute(() -> threads.add(Thread.currentThread()));
+
+        assertEquals(Collections.singletonList(Thread.currentThread()), threads);
+        release.countDown();
+    }
+
+    /**
+     * Tests that the database pools never run a task on the calling thread, however many tasks are waiting.
+     */
+    @Test
+    public void databasePoolNeverRunsTaskOnCaller() throws Exception {
+        executor = InstrumentedExecutor.newUnbounded("test", 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(AppExecutors.QUEUE_CAPACITY * 2);
+        for (int i = 0; i < AppExecutors.QUEUE_CAPACITY * 2; i++) {
+            executor.execute(() -> {
+                threads.add(Thread.currentThread());
+                done.countDown();
+            });
+        }
+        assertTrue(threads.isEmpty());
+        release.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertFalse(threads.contains(Thread.currentThread()));
+    }
+
+    /**
+     * Tests that the background pool of the default executors, which diffs the lists submitted by the main thread,
+     * never runs a task on the calling thread, even past the capacity of the CPU pool.
+     */
+    @Test
+    public void backgroundPoolNeverRunsTaskOnCaller() throws Exception {
+        AppExecutors executors = AppExecutors.createDefault();
+        executor = executors.background();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(AppExecutors.QUEUE_CAPACITY * 2);
+        for (int i = 0; i < AppExecutors.QUEUE_CAPACITY * 2; i++) {
+            executor.execute(() -> {
+                threads.add(Thread.currentThread());
+                done.countDown();
+            });
+        }
+        assertTrue(threads.isEmpty());
+        release.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertFalse(threads.contains(Thread.currentThread()));
+        executors.dbRead().shutdownNow();
+        executors.dbWrite().shutdownNow();
+        executors.cpu().shutdownNow();
+    }
+
+    /**
+     * Tests that a serial executor over a pool of several threads runs its tasks one at a time, in order.
+     */
+    @Test
+    public void serialExecutorKeepsOrderOnSharedPool() throws Exception {
+        executor = InstrumentedExecutor.newBounded("test", 4, 256);
+        SerialExecutor serialExecutor = new SerialExecutor(executor);
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        AtomicBoolean running = new AtomicBoolean();
+        AtomicBoolean overlapped = new AtomicBoolean();
+        CountDownLatch done = new CountDownLatch(100);
+
+        for (int i = 0; i < 100; i++) {
+            final int index = i;
+            serialExecutor.execute(() -> {
+                if (!running.compareAndSet(false, true)) {
+                    overlapped.set(true);
+                }
+                order.add(index);
+                running.set(false);
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertFalse(overlapped.get());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Integer.valueOf(i), order.get(i));
+        }
+    }
+
+    /**
+     * Waits for a latch, ignoring interruptions.
+     *
+     * @param latch the latch to wait for
+     */
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.cleanup.todoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+
+import androidx.annotation.NonNull;
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LifecycleRegistry;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.cleanup.todoc.di.AppInjector;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for the background initialization of AppInjector.
+ * The initialization is given to a recording executor, so that the test decides when it runs.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class AppInjectorTest {
+
+    // Tasks given to the initialization executor, not run yet
+    private final List<Runnable> pendingTasks = new ArrayList<>();
+
+    // Rule to allow LiveData to work synchronously in unit tests
+    @Rule
+    public InstantTaskExecutorRule instantExecutorRule = new InstantTaskExecutorRule();
+
+    /**
+     * Forgets the repositories after each test.
+     */
+    @After
+    public void tearDown() {
+        AppInjector.reset();
+    }
+
+    /**
+     * Tests that init returns without opening the database, which is left to the executor.
+     */
+    @Test
+    public void initDefersDatabaseToExecutor() {
+        Application application = ApplicationProvider.getApplicationContext();
+
+        AppInjector.init(application, pendingTasks::add);
+
+        assertEquals(1, pendingTasks.size());
+        assertFalse(AppInjector.isReady().getValue());
+        assertNull(AppInjector.provideTaskRepository());
+
+        pendingTasks.get(0).run();
+
+        assertTrue(AppInjector.isReady().getValue());
+        assertNotNull(AppInjector.provideProjectRepository());
+        assertNotNull(AppInjector.provideTaskRepository());
+    }
+
+    /**
+     * Tests that the initialization is only started once, e.g. when the activity is recreated.
+     */
+    @Test
+    public void initIsStartedOnce() {
+        Application application = ApplicationProvider.getApplicationContext();
+
+        AppInjector.init(application, pendingTasks::add);
+        AppInjector.init(application, pendingTasks::add);
+
+        assertEquals(1, pendingTasks.size());
+    }
+
+    /**
+     * Tests that screens waiting for the repositories are resumed once, when they become available.
+     */
+    @Test
+    public void whenReadyRunsOnceInitialized() {
+        TestLifecycleOwner owner = new TestLifecycleOwner();
+        int[] runs = new int[1];
+        AppInjector.init(ApplicationProvider.getApplicationContext(), pendingTasks::add);
+
+        AppInjector.whenReady(owner, () -> runs[0]++);
+        assertEquals(0, runs[0]);
+
+        pendingTasks.get(0).run();
+        assertEquals(1, runs[0]);
+
+        // Later changes of the readiness do not run the action again
+        AppInjector.reset();
+        AppInjector.init(ApplicationProvider.getApplicationContext(), pendingTasks::add);
+        pendingTasks.get(1).run();
+        assertEquals(1, runs[0]);
+    }
+
+    /**
+     * Lifecycle owner kept in the resumed state.
+     */
+    private static final class TestLifecycleOwner implements LifecycleOwner {
+        private final LifecycleRegistry registry = new LifecycleRegistry(this);
+
+        TestLifecycleOwner() {
+            registry.setCurrentState(Lifecycle.State.RESUMED);
+        }
+
+        @NonNull
+        @Override
+        public Lifecycle getLifecycle() {
+            return registry;
+        }
+    }
+}
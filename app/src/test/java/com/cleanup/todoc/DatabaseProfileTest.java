@@ -0,0 +1,97 @@
+package com.cleanup.todoc;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.cleanup.todoc.repository.AppDatabase;
+import com.cleanup.todoc.repository.DatabaseProfile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/**
+ * Test class for the profile of the connections of AppDatabase.
+ * The concurrency of the reads and writes it enables is measured by the instrumented DatabaseConcurrencyTest,
+ * on the connection pool of a real device.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DatabaseProfileTest {
+
+    private static final String DATABASE_NAME = "profile_test_database";
+
+    private Context context;
+    private AppDatabase database;
+
+    /**
+     * Remove any database left by a previous test.
+     */
+    @Before
+    public void setup() {
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    /**
+     * Close and remove the database after each test.
+     */
+    @After
+    public void tearDown() {
+        if (database != null) {
+            database.close();
+        }
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    /**
+     * Test that the profile of the application asks for write-ahead logging with synchronous=NORMAL.
+     */
+    @Test
+    public void applicationProfileUsesWriteAheadLogging() {
+        DatabaseProfile profile = DatabaseProfile.writeAheadLogging(Runnable::run, Runnable::run);
+
+        assertEquals(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING, profile.getJournalMode());
+        assertEquals(DatabaseProfile.Synchronous.NORMAL, profile.getSynchronous());
+    }
+
+    /**
+     * Test that the write connection of a database opened with a profile commits with its synchronous level.
+     */
+    @Test
+    public void writeConnectionUsesTheSynchronousLevel() {
+        database = AppDatabase.buildDatabase(context, DATABASE_NAME,
+                DatabaseProfile.writeAheadLogging(Runnable::run, Runnable::run));
+        assertEquals(1, queryInt("PRAGMA synchronous"));
+
+        database.close();
+        database = AppDatabase.buildDatabase(context, DATABASE_NAME, new DatabaseProfile(
+                RoomDatabase.JournalMode.TRUNCATE, DatabaseProfile.Synchronous.FULL, Runnable::run, Runnable::run));
+        assertEquals(2, queryInt("PRAGMA synchronous"));
+    }
+
+    /**
+     * Runs a query on the write connection and returns the integer it reads.
+     * The query runs in a transaction, since read-only statements may otherwise go to a read connection.
+     *
+     * @param sql the query
+     * @return the first column of the first row
+     */
+    private int queryInt(String sql) {
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+        db.beginTransaction();
+        try (Cursor cursor = db.query(sql)) {
+            cursor.moveToFirst();
+            return cursor.getInt(0);
+        } finally {
+            db.endTransaction();
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.cleanup.todoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.lifecycle.LiveData;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.cleanup.todoc.metrics.Metrics;
+import com.cleanup.todoc.model.Project;
+import com.cleanup.todoc.model.ProjectRow;
+import com.cleanup.todoc.model.Task;
+import com.cleanup.todoc.repository.AppDatabase;
+import com.cleanup.todoc.repository.InvalidationCoalescer;
+import com.cleanup.todoc.repository.ProjectCache;
+import com.cleanup.todoc.repository.ProjectDao;
+import com.cleanup.todoc.repository.ProjectRepository;
+import com.cleanup.todoc.repository.TaskDao;
+import com.cleanup.todoc.repository.TaskPageSource;
+import com.cleanup.todoc.repository.TaskSortOrder;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test class for the coalescing of the invalidations of the tables, which collapses the reloads of a burst of writes.
+ * Each insertion of the bursts below is its own transaction, so that Room dispatches one invalidation per task.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class InvalidationCoalescingTest {
+
+    private static final int BURST_SIZE = 1000;
+    private static final long WINDOW_MILLIS = 100;
+
+    /**
+     * Allows LiveData and the invalidation of Room to work synchronously in tests.
+     */
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    private AppDatabase database;
+    private TaskDao taskDao;
+    private Project project;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Setup the in-memory database with a project before each test.
+     */
+    @Before
+    public void setup() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        taskDao = database.taskDao();
+        project = new Project(1L, "Test Project", 0x00FF00);
+        database.projectDao().insertAll(Collections.singletonList(project));
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    /**
+     * Stop the timer and close the database after each test.
+     */
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+        database.close();
+    }
+
+    /**
+     * Test that the invalidations received within a window run the target once, and later ones run it again.
+     */
+    @Test
+    public void invalidationsWithinAWindowRunTheTargetOnce() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        InvalidationCoalescer coalescer = new InvalidationCoalescer(scheduler, 200, runs::incrementAndGet);
+
+        for (int i = 0; i < BURST_SIZE; i++) {
+            coalescer.invalidate();
+        }
+        assertEquals(0, runs.get());
+        Thread.sleep(600);
+        assertEquals(1, runs.get());
+
+        coalescer.invalidate();
+        Thread.sleep(600);
+        assertEquals(2, runs.get());
+    }
+
+    /**
+     * Test that a window of zero runs the target on every invalidation, as before the coalescing.
+     */
+    @Test
+    public void windowOfZeroRunsEveryInvalidation() {
+        AtomicInteger runs = new AtomicInteger();
+        InvalidationCoalescer coalescer = new InvalidationCoalescer(0, runs::incrementAndGet);
+
+        for (int i = 0; i < BURST_SIZE; i++) {
+            coalescer.invalidate();
+        }
+        assertEquals(BURST_SIZE, runs.get());
+    }
+
+    /**
+     * Test that a burst of 1k inserts reloads the list once per window instead of once per insert,
+     * and that the last reload sees every inserted task.
+     */
+    @Test
+    public void burstOfInsertsReloadsTheListOncePerWindow() throws Exception {
+        AtomicInteger uncoalescedReloads = new AtomicInteger();
+        AtomicInteger coalescedReloads = new AtomicInteger();
+        TaskPageSource uncoalesced = new TaskPageSource(taskDao, database.getInvalidationTracker(),
+                new ProjectCache(database.projectDao(), database.getInvalidationTracker()));
+        TaskPageSource coalesced = new TaskPageSource(taskDao, database.getInvalidationTracker(), WINDOW_MILLIS,
+                new ProjectCache(database.projectDao(), database.getInvalidationTracker()));
+        uncoalesced.addInvalidationCallback(uncoalescedReloads::incrementAndGet);
+        coalesced.addInvalidationCallback(coalescedReloads::incrementAndGet);
+
+        long burstMillis = insertBurst();
+        Thread.sleep(WINDOW_MILLIS * 3);
+
+        assertEquals(BURST_SIZE, uncoalescedReloads.get());
+        assertTrue(coalescedReloads.get() >= 1);
+        assertTrue("Reloaded " + coalescedReloads.get() + " times in " + burstMillis + " ms",
+                coalescedReloads.get() <= burstMillis / WINDOW_MILLIS + 2);
+        assertEquals(BURST_SIZE, coalesced.loadPage(TaskSortOrder.DEFAULT, null, BURST_SIZE * 2).size());
+    }
+
+    /**
+     * Test that a burst of 1k inserts runs the query of the project rows once per window,
+     * and that the last result counts every inserted task.
+     */
+    @Test
+    public void burstOfInsertsQueriesTheProjectRowsOncePerWindow() throws Exception {
+        Metrics metrics = new Metrics(true);
+        ProjectDao projectDao = metrics.instrument(ProjectDao.class, database.projectDao());
+        ProjectRepository projectRepository = new ProjectRepository(projectDao, database.getInvalidationTracker(),
+                Runnable::run, WINDOW_MILLIS);
+        LiveData<List<ProjectRow>> projectRows = projectRepository.getProjectRows();
+        projectRows.observeForever(rows -> {
+        });
+        assertEquals(1, queryCount(metrics));
+
+        long burstMillis = insertBurst();
+        Thread.sleep(WINDOW_MILLIS * 3);
+
+        long queries = queryCount(metrics) - 1;
+        assertTrue(queries >= 1);
+        assertTrue("Queried " + queries + " times in " + burstMillis + " ms",
+                queries <= burstMillis / WINDOW_MILLIS + 2);
+        assertEquals(BURST_SIZE, projectRows.getValue().get(0).getTaskCount());
+    }
+
+    /**
+     * Inserts the tasks of the burst one transaction at a time.
+     *
+     * @return the duration of the burst, in milliseconds
+     */
+    private long insertBurst() {
+        long start = System.nanoTime();
+        for (int i = 0; i < BURST_SIZE; i++) {
+            taskDao.insertTask(new Task(0, project, "Task " + i, i));
+        }
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    /**
+     * Returns the number of times the project rows have been queried.
+     *
+     * @param metrics the metrics of the decorated DAO
+     * @return the number of queries
+     */
+    private static long queryCount(Metrics metrics) {
+        return metrics.timer("dao.ProjectDao.getProjectRows").getHistogram().getCount();
+    }
+}
@@ -0,0 +1,163 @@
+package com.cleanup.todoc;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.lifecycle.Observer;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.cleanup.todoc.application.ListTasksViewModel;
+import com.cleanup.todoc.application.TaskWindow;
+import com.cleanup.todoc.model.Project;
+import com.cleanup.todoc.model.Task;
+import com.cleanup.todoc.model.TaskRow;
+import com.cleanup.todoc.repository.AppDatabase;
+import com.cleanup.todoc.repository.ProjectCache;
+import com.cleanup.todoc.repository.TaskDao;
+import com.cleanup.todoc.repository.TaskPageSource;
+import com.cleanup.todoc.repository.TaskRepository;
+import com.cleanup.todoc.repository.TaskSortOrder;
+import com.cleanup.todoc.repository.TaskWriteQueue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Checks against a real database that the list of tasks is backed by a single query, whatever the number of sort changes.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ListTasksQueryTest {
+
+    private static final TaskSortOrder[] SORT_ORDERS = {
+            TaskSortOrder.ALPHABETICAL,
+            TaskSortOrder.ALPHABETICAL_INVERTED,
+            TaskSortOrder.RECENT_FIRST,
+            TaskSortOrder.OLD_FIRST
+    };
+
+    private final Project project = new Project(1L, "Test Project", 0x00FF00);
+
+    private AppDatabase database;
+    private TaskWriteQueue writeQueue;
+    private CountingPageSource pageSource;
+    private ListTasksViewModel listTasksViewModel;
+    private final Observer<TaskWindow> windowObserver = window -> {
+    };
+
+    /**
+     * Allows LiveData and the invalidation of Room to work synchronously in tests.
+     */
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    /**
+     * Setup the in-memory database and a ViewModel loading its pages on the test thread.
+     */
+    @Before
+    public void setup() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        database.projectDao().insertAll(Collections.singletonList(project));
+
+        TaskDao taskDao = database.taskDao();
+        writeQueue = new TaskWriteQueue(database, taskDao);
+        pageSource = new CountingPageSource(taskDao, database);
+        listTasksViewModel = new ListTasksViewModel(new TaskRepository(taskDao, writeQueue, pageSource), Runnable::run);
+    }
+
+    /**
+     * Release the observer, the write queue and the database after each test.
+     */
+    @After
+    public void tearDown() {
+        listTasksViewModel.getTaskWindow().removeObserver(windowObserver);
+        writeQueue.shutdown();
+        database.close();
+    }
+
+    /**
+     * Test that after many sort changes, a single query is listening to the tasks, and a change of the tasks runs it once.
+     */
+    @Test
+    public void sortChangesKeepOneActiveQuery() {
+        listTasksViewModel.getTaskWindow().observeForever(windowObserver);
+
+        for (int i = 0; i < 20; i++) {
+            listTasksViewModel.setSortOrder(SORT_ORDERS[i % SORT_ORDERS.length]);
+        }
+        assertEquals(1, pageSource.activeCallbacks);
+
+        pageSource.loads = 0;
+        database.taskDao().insertTask(new Task(0, project, "Task", 1000));
+
+        assertEquals(1, pageSource.activeCallbacks);
+        assertEquals(1, pageSource.loads);
+        assertEquals(TaskSortOrder.OLD_FIRST, pageSource.lastSortOrder);
+        assertEquals(1, listTasksViewModel.getTaskWindow().getValue().getTasks().size());
+    }
+
+    /**
+     * Test that selecting the order already displayed does not query the tasks again.
+     */
+    @Test
+    public void selectingSameSortOrderDoesNotReload() {
+        listTasksViewModel.getTaskWindow().observeForever(windowObserver);
+        listTasksViewModel.setSortOrder(TaskSortOrder.RECENT_FIRST);
+
+        pageSource.loads = 0;
+        for (int i = 0; i < 5; i++) {
+            listTasksViewModel.setSortOrder(TaskSortOrder.RECENT_FIRST);
+        }
+
+        assertEquals(0, pageSource.loads);
+    }
+
+    /**
+     * Page source counting the queries run and the invalidation callbacks registered.
+     */
+    private static class CountingPageSource extends TaskPageSource {
+        int loads;
+        int activeCallbacks;
+        TaskSortOrder lastSortOrder;
+
+        CountingPageSource(TaskDao taskDao, AppDatabase database) {
+            super(taskDao, database.getInvalidationTracker(),
+                    new ProjectCache(database.projectDao(), database.getInvalidationTracker()));
+        }
+
+        @Override
+        public List<TaskRow> loadPage(@NonNull TaskSortOrder sortOrder, @NonNull Set<Long> projectIds,
+                                      @Nullable TaskRow afterKey, int pageSize) {
+            loads++;
+            lastSortOrder = sortOrder;
+            return super.loadPage(sortOrder, projectIds, afterKey, pageSize);
+        }
+
+        @Override
+        public void addInvalidationCallback(@NonNull Runnable callback) {
+            activeCallbacks++;
+            super.addInvalidationCallback(callback);
+        }
+
+        @Override
+        public void removeInvalidationCallback(@NonNull Runnable callback) {
+            activeCallbacks--;
+            super.removeInvalidationCallback(callback);
+        }
+    }
+}
@@ -2,14 +2,18 @@ package com.cleanup.todoc;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 
 import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
 import androidx.lifecycle.LiveData;
 
 import com.cleanup.todoc.application.ListTasksViewModel;
+import com.cleanup.todoc.application.TaskWindow;
 import com.cleanup.todoc.model.Project;
 import com.cleanup.todoc.model.Task;
+import com.cleanup.todoc.repository.TaskPageSource;
 import com.cleanup.todoc.repository.TaskRepository;
+import com.cleanup.todoc.repository.TaskSortOrder;
 import com.cleanup.todoc.application.ViewModelFactory;
 
 import org.junit.Before;
@@ -21,6 +25,7 @@ import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.robolectric.RobolectricTestRunner;
 
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -30,11 +35,11 @@ import java.util.List;
 @RunWith(RobolectricTestRunner.class)
 public class ListTasksViewModelTest {
 
-    // Mocked TaskRepository and LiveData for tasks
+    // Mocked TaskRepository and source of the pages of tasks
     @Mock
     TaskRepository mockTaskRepository;
     @Mock
-    LiveData<List<Task>> mockLiveDataTasks;
+    TaskPageSource mockPageSource;
 
     // Instance of ListTasksViewModel under test
     private ListTasksViewModel listTasksViewModel;
@@ -51,8 +56,8 @@ public class ListTasksViewModelTest {
         // Initialize mocks
         MockitoAnnotations.openMocks(this);
 
-        // Configure the mockTaskRepository to return the mock LiveData when getAllTasks() is called
-        Mockito.when(mockTaskRepository.getAllTasks()).thenReturn(mockLiveDataTasks);
+        // Configure the mockTaskRepository to return the mock page source, loading empty pages
+        Mockito.when(mockTaskRepository.getPageSource()).thenReturn(mockPageSource);
 
         // Initialize ViewModelFactory with the mocked repositories
         ViewModelFactory factory = new ViewModelFactory(null, mockTaskRepository); // Pass null for projectRepository (not needed)
@@ -61,19 +66,6 @@ public class ListTasksViewModelTest {
         listTasksViewModel = factory.create(ListTasksViewModel.class);
     }
 
-    /**
-     * Tests that getAllTasks() returns the expected LiveData containing the list of tasks.
-     */
-    @Test
-    public void getAllTasks_ReturnsLiveDataTasks() {
-        // Act: Retrieve the LiveData of all tasks from the ViewModel
-        LiveData<List<Task>> result = listTasksViewModel.getAllTasks();
-
-        // Assert: Verify that the LiveData is not null and is the same as the mocked LiveData
-        assertNotNull(result);
-        assertEquals(mockLiveDataTasks, result);
-    }
-
     /**
      * Tests that deleteTask() calls the deleteTask() method of the TaskRepository with the correct task.
      */
@@ -91,66 +83,66 @@ public class ListTasksViewModelTest {
     }
 
     /**
-     * Tests that getAllTasksSortedAlphabetically() returns the expected LiveData containing the list of tasks sorted alphabetically.
+     * Tests that restoreTask() calls the restoreTask() method of the TaskRepository with the correct task.
      */
     @Test
-    public void getAllTasksSortedAlphabetically_ReturnsLiveDataTasks() {
-        // Arrange: Configure the mockTaskRepository to return the mock LiveData for sorted tasks
-        Mockito.when(mockTaskRepository.getAllTasksSortedAlphabetically()).thenReturn(mockLiveDataTasks);
+    public void restoreTask_CallsTaskRepositoryRestoreTask() {
+        // Arrange: Create a sample project and a deleted task to restore
+        Project project = new Project(1L, "Test Project", 0xFF0000);
+        Task deletedTask = new Task(1L, project, "Test Task", System.currentTimeMillis());
+        listTasksViewModel.deleteTask(deletedTask);
 
-        // Act: Retrieve the LiveData of sorted tasks from the ViewModel
-        LiveData<List<Task>> result = listTasksViewModel.getAllTasksSortedAlphabetically();
+        // Act: Restore the task using the ViewModel
+        listTasksViewModel.restoreTask(deletedTask);
 
-        // Assert: Verify that the LiveData is not null and is the same as the mocked LiveData
-        assertNotNull(result);
-        assertEquals(mockLiveDataTasks, result);
+        // Assert: Verify that the restoreTask() method was called with the correct task
+        Mockito.verify(mockTaskRepository).restoreTask(deletedTask);
     }
 
     /**
-     * Tests that getAllTasksSortedAlphabeticallyInverted() returns the expected LiveData containing the list of tasks sorted alphabetically in inverted order.
+     * Tests that deleteTasks() and moveTasks() hand the selected tasks to the TaskRepository at once.
      */
     @Test
-    public void getAllTasksSortedAlphabeticallyInverted_ReturnsLiveDataTasks() {
-        // Arrange: Configure the mockTaskRepository to return the mock LiveData for sorted tasks in inverted order
-        Mockito.when(mockTaskRepository.getAllTasksSortedAlphabeticallyInverted()).thenReturn(mockLiveDataTasks);
+    public void selectedTasks_AreDeletedAndMovedAtOnce() {
+        // Arrange: Select a few tasks
+        List<Long> selectedTaskIds = Arrays.asList(3L, 1L, 2L);
 
-        // Act: Retrieve the LiveData of sorted tasks in inverted order from the ViewModel
-        LiveData<List<Task>> result = listTasksViewModel.getAllTasksSortedAlphabeticallyInverted();
+        // Act: Move the selected tasks, then delete them
+        listTasksViewModel.moveTasks(selectedTaskIds, 2L);
+        listTasksViewModel.deleteTasks(selectedTaskIds);
 
-        // Assert: Verify that the LiveData is not null and is the same as the mocked LiveData
-        assertNotNull(result);
-        assertEquals(mockLiveDataTasks, result);
+        // Assert: Verify that each operation was a single call with every selected task
+        Mockito.verify(mockTaskRepository).moveTasks(selectedTaskIds, 2L);
+        Mockito.verify(mockTaskRepository).deleteTasks(selectedTaskIds);
     }
 
     /**
-     * Tests that getAllTasksSortedByDateRecentFirst() returns the expected LiveData containing the list of tasks sorted by date with the most recent first.
+     * Tests that setSortOrder() updates the sort order exposed by the ViewModel.
      */
     @Test
-    public void getAllTasksSortedByDateRecentFirst_ReturnsLiveDataTasks() {
-        // Arrange: Configure the mockTaskRepository to return the mock LiveData for tasks sorted by date (recent first)
-        Mockito.when(mockTaskRepository.getAllTasksSortedByDateRecentFirst()).thenReturn(mockLiveDataTasks);
+    public void setSortOrder_UpdatesSortOrder() {
+        // Assert: The tasks are displayed in the default order at first
+        assertEquals(TaskSortOrder.DEFAULT, listTasksViewModel.getSortOrder().getValue());
 
-        // Act: Retrieve the LiveData of tasks sorted by date (recent first) from the ViewModel
-        LiveData<List<Task>> result = listTasksViewModel.getAllTasksSortedByDateRecentFirst();
+        // Act: Change the sort order
+        listTasksViewModel.setSortOrder(TaskSortOrder.ALPHABETICAL);
 
-        // Assert: Verify that the LiveData is not null and is the same as the mocked LiveData
-        assertNotNull(result);
-        assertEquals(mockLiveDataTasks, result);
+        // Assert: Verify that the new sort order is exposed
+        assertEquals(TaskSortOrder.ALPHABETICAL, listTasksViewModel.getSortOrder().getValue());
     }
 
     /**
-     * Tests that getAllTasksSortedByDateOldFirst() returns the expected LiveData containing the list of tasks sorted by date with the oldest first.
+     * Tests that getTaskWindow() returns the same LiveData whatever the sort order.
      */
     @Test
-    public void getAllTasksSortedByDateOldFirst_ReturnsLiveDataTasks() {
-        // Arrange: Configure the mockTaskRepository to return the mock LiveData for tasks sorted by date (oldest first)
-        Mockito.when(mockTaskRepository.getAllTasksSortedByDateOldFirst()).thenReturn(mockLiveDataTasks);
-
-        // Act: Retrieve the LiveData of tasks sorted by date (oldest first) from the ViewModel
-        LiveData<List<Task>> result = listTasksViewModel.getAllTasksSortedByDateOldFirst();
-
-        // Assert: Verify that the LiveData is not null and is the same as the mocked LiveData
-        assertNotNull(result);
-        assertEquals(mockLiveDataTasks, result);
+    public void getTaskWindow_ReturnsSameLiveDataForEverySortOrder() {
+        // Act: Retrieve the LiveData before and after changing the sort order
+        LiveData<TaskWindow> before = listTasksViewModel.getTaskWindow();
+        listTasksViewModel.setSortOrder(TaskSortOrder.RECENT_FIRST);
+        LiveData<TaskWindow> after = listTasksViewModel.getTaskWindow();
+
+        // Assert: Verify that a single LiveData is exposed
+        assertNotNull(before);
+        assertSame(before, after);
     }
-}
\ No newline at end of file
+}
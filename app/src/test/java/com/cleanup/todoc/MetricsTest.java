@@ -0,0 +1,229 @@
+package com.cleanup.todoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.cleanup.todoc.metrics.Counter;
+import com.cleanup.todoc.metrics.Histogram;
+import com.cleanup.todoc.metrics.Metrics;
+import com.cleanup.todoc.metrics.TimedLiveData;
+import com.cleanup.todoc.metrics.Timer;
+import com.cleanup.todoc.model.Project;
+import com.cleanup.todoc.model.Task;
+import com.cleanup.todoc.repository.AppDatabase;
+import com.cleanup.todoc.repository.ProjectDao;
+import com.cleanup.todoc.repository.TaskDao;
+import com.cleanup.todoc.repository.TaskWriteQueue;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test class for the metrics of the hot paths, and for the DAO decorator and LiveData recording into them.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class MetricsTest {
+
+    // Rule to allow LiveData to work synchronously in unit tests
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    private AppDatabase database;
+    private Metrics metrics;
+
+    /**
+     * Setup the in-memory database and enabled metrics before each test.
+     */
+    @Before
+    public void setup() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        metrics = new Metrics(true);
+    }
+
+    /**
+     * Close the database after each test.
+     */
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    /**
+     * Test that percentiles are known within a quarter of their value, and never exceed the maximum.
+     */
+    @Test
+    public void histogramPercentilesAreBoundedByTheirBucket() {
+        Histogram histogram = metrics.histogram("values");
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500_500, histogram.getSum());
+        assertEquals(1000, histogram.getMax());
+        assertEquals(500.5, histogram.getMean(), 0.001);
+        assertBetween(500, 625, histogram.getPercentile(50));
+        assertBetween(950, 1000, histogram.getPercentile(95));
+        assertEquals(1000, histogram.getPercentile(100));
+        assertEquals(1, histogram.getPercentile(0));
+
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, histogram.getPercentile(100));
+
+        metrics.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(50));
+    }
+
+    /**
+     * Test that metrics are created once per name.
+     */
+    @Test
+    public void metricsAreSharedByName() {
+        assertSame(metrics.counter("a"), metrics.counter("a"));
+        assertSame(metrics.histogram("a"), metrics.histogram("a"));
+        assertSame(metrics.timer("a"), metrics.timer("a"));
+        assertNotSame(metrics.counter("a"), metrics.counter("b"));
+    }
+
+    /**
+     * Test that disabled metrics record nothing and leave the DAOs undecorated.
+     */
+    @Test
+    public void disabledMetricsRecordNothing() {
+        Metrics disabled = Metrics.DISABLED;
+        Counter counter = disabled.counter("counter");
+        Timer timer = disabled.timer("timer");
+        counter.increment();
+        disabled.histogram("histogram").record(42);
+        assertEquals(0, timer.start());
+        timer.stop(0);
+
+        assertEquals(0, counter.getCount());
+        assertEquals(0, timer.getHistogram().getCount());
+        assertEquals("", disabled.summary());
+        TaskDao taskDao = database.taskDao();
+        assertSame(taskDao, disabled.instrument(TaskDao.class, taskDao));
+    }
+
+    /**
+     * Test that the calls of a decorated DAO are timed by method, and still reach the database.
+     */
+    @Test
+    public void instrumentedDaoTimesEveryCall() {
+        ProjectDao projectDao = metrics.instrument(ProjectDao.class, database.projectDao());
+        TaskDao taskDao = metrics.instrument(TaskDao.class, database.taskDao());
+        Project project = new Project(1L, "Test Project", 0x00FF00);
+        projectDao.insertAll(Collections.singletonList(project));
+        for (int i = 0; i < 10; i++) {
+            taskDao.insertTask(new Task(0, project, "Task " + i, i));
+        }
+
+        assertEquals(10, taskDao.countTasks());
+        assertEquals(1, projectDao.getAllProjects().size());
+        assertEquals(10, metrics.timer("dao.TaskDao.insertTask").getHistogram().getCount());
+        assertEquals(1, metrics.timer("dao.TaskDao.countTasks").getHistogram().getCount());
+        assertEquals(1, metrics.timer("dao.ProjectDao.getAllProjects").getHistogram().getCount());
+        assertTrue(metrics.summary().contains("dao.TaskDao.insertTask n=10"));
+    }
+
+    /**
+     * Test that the write queue records the latency of its mutations and the size of its batches.
+     */
+    @Test
+    public void writeQueueRecordsLatencyAndBatchSizes() throws Exception {
+        Project project = new Project(1L, "Test Project", 0x00FF00);
+        database.projectDao().insertAll(Collections.singletonList(project));
+        TaskWriteQueue writeQueue = new TaskWriteQueue(database, database.taskDao());
+        writeQueue.setMetrics(metrics);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                futures.add(writeQueue.enqueueInsert(new Task(0, project, "Task " + i, i)));
+            }
+            for (Future<Void> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            writeQueue.shutdown();
+        }
+
+        assertEquals(100, metrics.timer("writeQueue.latency").getHistogram().getCount());
+        Histogram batchSizes = metrics.histogram("writeQueue.batchSize");
+        assertEquals(100, batchSizes.getSum());
+        assertEquals(batchSizes.getCount(), metrics.timer("writeQueue.transaction").getHistogram().getCount());
+        assertEquals(0, metrics.counter("writeQueue.failedBatches").getCount());
+    }
+
+    /**
+     * Test that a TimedLiveData times the posting and the dispatch of its values.
+     */
+    @Test
+    public void timedLiveDataTimesDispatch() {
+        TimedLiveData<String> liveData = new TimedLiveData<>("initial", metrics, "livedata.test");
+        List<String> received = new ArrayList<>();
+        liveData.observeForever(received::add);
+
+        liveData.postValue("posted");
+        liveData.setValue("set");
+
+        assertEquals(3, received.size());
+        assertEquals(1, metrics.timer("livedata.test.delay").getHistogram().getCount());
+        assertEquals(2, metrics.timer("livedata.test.dispatch").getHistogram().getCount());
+    }
+
+    /**
+     * Test that the dump is a JSON object holding every metric with its statistics.
+     */
+    @Test
+    public void dumpWritesEveryMetricAsJson() throws Exception {
+        metrics.counter("rows").add(3);
+        metrics.histogram("sizes").record(8);
+        metrics.timer("query").record(2_000_000);
+
+        StringWriter writer = new StringWriter();
+        metrics.dump(writer);
+        JSONObject json = new JSONObject(writer.toString());
+
+        assertTrue(json.getLong("timestamp") > 0);
+        assertEquals(3, json.getJSONObject("counters").getLong("rows"));
+        assertEquals(8, json.getJSONObject("histograms").getJSONObject("sizes").getLong("max"));
+        JSONObject query = json.getJSONObject("timers").getJSONObject("query");
+        assertEquals(1, query.getLong("count"));
+        assertEquals(2_000_000, query.getLong("p99"));
+    }
+
+    /**
+     * Asserts that a value lies within bounds.
+     *
+     * @param min   the smallest expected value
+     * @param max   the largest expected value
+     * @param value the value
+     */
+    private static void assertBetween(long min, long max, long value) {
+        assertTrue(value + " not in [" + min + ", " + max + "]", value >= min && value <= max);
+    }
+}
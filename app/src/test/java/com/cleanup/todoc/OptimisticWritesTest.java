@@ -0,0 +1,233 @@
+package com.cleanup.todoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import android.content.Context;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.cleanup.todoc.model.Project;
+import com.cleanup.todoc.model.Task;
+import com.cleanup.todoc.model.TaskRow;
+import com.cleanup.todoc.repository.AppDatabase;
+import com.cleanup.todoc.repository.ProjectCache;
+import com.cleanup.todoc.repository.TaskDao;
+import com.cleanup.todoc.repository.TaskPageSource;
+import com.cleanup.todoc.repository.TaskRepository;
+import com.cleanup.todoc.repository.TaskSortOrder;
+import com.cleanup.todoc.repository.TaskWriteQueue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test class for the optimistic writes of the TaskRepository: inserts and deletions show in the pages
+ * as soon as they are queued, and the pages are reconciled with the database once they are committed or rejected.
+ * The write executor is held, so that the writes stay pending until the test lets them run.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class OptimisticWritesTest {
+
+    private final Project tartampion = new Project(1L, "Projet Tartampion", 0xFFEADAD1);
+
+    /**
+     * Allows LiveData and the invalidation of Room to work synchronously in tests.
+     */
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    // Drain tasks held by the write executor until the test runs them
+    private final List<Runnable> heldDrains = new ArrayList<>();
+    private AppDatabase database;
+    private TaskDao taskDao;
+    private TaskWriteQueue writeQueue;
+    private TaskPageSource pageSource;
+    private TaskRepository repository;
+
+    /**
+     * Setup the in-memory database with a project and two tasks, and a repository whose writes are held,
+     * before each test.
+     */
+    @Before
+    public void setup() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = AppDatabase.inMemoryBuilder(context)
+                .allowMainThreadQueries()
+                .build();
+        taskDao = database.taskDao();
+        database.projectDao().insertAll(Collections.singletonList(tartampion));
+        taskDao.insertAll(Arrays.asList(new Task(1, tartampion, "Task 1", 1), new Task(2, tartampion, "Task 2", 2)));
+
+        writeQueue = new TaskWriteQueue(database, taskDao, heldDrains::add);
+        pageSource = new TaskPageSource(taskDao, database.getInvalidationTracker(),
+                new ProjectCache(database.projectDao(), database.getInvalidationTracker()));
+        repository = new TaskRepository(taskDao, writeQueue, pageSource);
+    }
+
+    /**
+     * Stop the write queue and close the database after each test.
+     */
+    @After
+    public void tearDown() {
+        writeQueue.shutdown();
+        database.close();
+    }
+
+    /**
+     * Test that an inserted task is listed and reloads the list before it is committed,
+     * then is replaced by the committed task.
+     */
+    @Test
+    public void insertedTaskIsListedBeforeItIsCommitted() throws Exception {
+        AtomicInteger reloads = new AtomicInteger();
+        pageSource.addInvalidationCallback(reloads::incrementAndGet);
+
+        Future<Void> insert = repository.insertTask(new Task(0, tartampion, "Task 3", 3),
+                tartampion.getName(), tartampion.getColor());
+
+        List<TaskRow> page = pageSource.loadPage(TaskSortOrder.DEFAULT, null, 10);
+        assertEquals(3, page.size());
+        assertEquals("Task 3", page.get(2).taskName);
+        assertEquals(tartampion.getName(), page.get(2).projectName);
+        assertEquals(1, reloads.get());
+        assertEquals(2, taskDao.countTasks());
+
+        runHeldDrains();
+        insert.get(5, TimeUnit.SECONDS);
+
+        page = pageSource.loadPage(TaskSortOrder.DEFAULT, null, 10);
+        assertEquals(3, page.size());
+        assertEquals("Task 3", page.get(2).taskName);
+        assertEquals(3, page.get(2).taskId);
+        assertEquals(3, taskDao.countTasks());
+    }
+
+    /**
+     * Test that an inserted task rejected by the database, here for a project which does not exist,
+     * disappears from the list once the insert fails.
+     */
+    @Test
+    public void rejectedInsertIsRolledBack() throws Exception {
+        Project unknown = new Project(42L, "Projet inconnu", 0xFFA3CED2);
+        Future<Void> insert = repository.insertTask(new Task(0, unknown, "Orphan", 3),
+                unknown.getName(), unknown.getColor());
+        assertEquals(3, pageSource.loadPage(TaskSortOrder.DEFAULT, null, 10).size());
+
+        runHeldDrains();
+        try {
+            insert.get(5, TimeUnit.SECONDS);
+            fail("The insert of a task of an unknown project must fail");
+        } catch (ExecutionException expected) {
+            // Foreign key violation
+        }
+
+        List<TaskRow> page = pageSource.loadPage(TaskSortOrder.DEFAULT, null, 10);
+        assertEquals(2, page.size());
+        for (TaskRow row : page) {
+            assertFalse("Orphan".equals(row.taskName));
+        }
+        assertEquals(2, taskDao.countTasks());
+    }
+
+    /**
+     * Test that a deleted task is hidden before the deletion is committed, and stays hidden once it is.
+     */
+    @Test
+    public void deletedTaskIsHiddenBeforeItIsCommitted() throws Exception {
+        Future<Void> deletion = repository.deleteTasks(Collections.singletonList(1L));
+
+        List<TaskRow> page = pageSource.loadPage(TaskSortOrder.DEFAULT, null, 10);
+        assertEquals(1, page.size());
+        assertEquals(2, page.get(0).taskId);
+        assertEquals(2, taskDao.countTasks());
+
+        runHeldDrains();
+        deletion.get(5, TimeUnit.SECONDS);
+
+        page = pageSource.loadPage(TaskSortOrder.DEFAULT, null, 10);
+        assertEquals(1, page.size());
+        assertEquals(2, page.get(0).taskId);
+        assertEquals(1, taskDao.countTasks());
+    }
+
+    /**
+     * Test that a task cannot be deleted before its insert is committed, instead of the deletion being lost,
+     * and that it can be deleted under its real identifier once committed.
+     */
+    @Test
+    public void taskIsDeletableOnceItsInsertIsCommitted() throws Exception {
+        Future<Void> insert = repository.insertTask(new Task(0, tartampion, "Task 3", 3),
+                tartampion.getName(), tartampion.getColor());
+        TaskRow pendingRow = pageSource.loadPage(TaskSortOrder.DEFAULT, null, 10).get(2);
+        assertTrue(pendingRow.isPending());
+
+        try {
+            repository.deleteTasks(Collections.singletonList(pendingRow.taskId));
+            fail("A task being inserted must not be deleted by its temporary identifier");
+        } catch (IllegalArgumentException expected) {
+            // Temporary identifier
+        }
+        try {
+            repository.moveTasks(Collections.singletonList(pendingRow.taskId), tartampion.getId());
+            fail("A task being inserted must not be moved by its temporary identifier");
+        } catch (IllegalArgumentException expected) {
+            // Temporary identifier
+        }
+
+        runHeldDrains();
+        insert.get(5, TimeUnit.SECONDS);
+        TaskRow committedRow = pageSource.loadPage(TaskSortOrder.DEFAULT, null, 10).get(2);
+        assertFalse(committedRow.isPending());
+        assertEquals("Task 3", committedRow.taskName);
+
+        Future<Void> deletion = repository.deleteTasks(Collections.singletonList(committedRow.taskId));
+        runHeldDrains();
+        deletion.get(5, TimeUnit.SECONDS);
+        assertEquals(2, pageSource.loadPage(TaskSortOrder.DEFAULT, null, 10).size());
+        assertEquals(2, taskDao.countTasks());
+    }
+
+    /**
+     * Test that the pages past the first one hold the right tasks while writes are pending:
+     * a deleted task does not leave a hole in the page, and an inserted task lands on the last page.
+     */
+    @Test
+    public void pendingWritesKeepPagesFull() {
+        repository.deleteTasks(Collections.singletonList(1L));
+        repository.insertTask(new Task(0, tartampion, "Task 3", 3), tartampion.getName(), tartampion.getColor());
+
+        List<TaskRow> first = pageSource.loadPage(TaskSortOrder.DEFAULT, null, 1);
+        assertEquals(1, first.size());
+        assertEquals(2, first.get(0).taskId);
+        List<TaskRow> second = pageSource.loadPage(TaskSortOrder.DEFAULT, first.get(0), 1);
+        assertEquals(1, second.size());
+        assertEquals("Task 3", second.get(0).taskName);
+        assertTrue(pageSource.loadPage(TaskSortOrder.DEFAULT, second.get(0), 1).isEmpty());
+    }
+
+    /**
+     * Runs the drain tasks held by the write executor, including those they schedule in turn.
+     */
+    private void runHeldDrains() {
+        while (!heldDrains.isEmpty()) {
+            heldDrains.remove(0).run();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.cleanup.todoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import android.content.Context;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.cleanup.todoc.metrics.Metrics;
+import com.cleanup.todoc.model.Project;
+import com.cleanup.todoc.model.Task;
+import com.cleanup.todoc.model.TaskRow;
+import com.cleanup.todoc.repository.AppDatabase;
+import com.cleanup.todoc.repository.ProjectCache;
+import com.cleanup.todoc.repository.ProjectDao;
+import com.cleanup.todoc.repository.TaskDao;
+import com.cleanup.todoc.repository.TaskPageSource;
+import com.cleanup.todoc.repository.TaskSortOrder;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Test class for the cache of the projects by identifier, and for the tasks sharing its instances.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ProjectCacheTest {
+
+    private final Project tartampion = new Project(1L, "Projet Tartampion", 0xFFEADAD1);
+    private final Project lucidia = new Project(2L, "Projet Lucidia", 0xFFB4CDBA);
+
+    /**
+     * Allows LiveData and the invalidation of Room to work synchronously in tests.
+     */
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    private AppDatabase database;
+    private TaskDao taskDao;
+    private Metrics metrics;
+    private ProjectCache projectCache;
+
+    /**
+     * Setup the in-memory database with two projects and a task of each, and a cache counting its queries,
+     * before each test.
+     */
+    @Before
+    public void setup() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        taskDao = database.taskDao();
+        database.projectDao().insertAll(Arrays.asList(tartampion, lucidia));
+        taskDao.insertAll(Arrays.asList(new Task(1, tartampion, "Task 1", 1), new Task(2, lucidia, "Task 2", 2),
+                new Task(3, tartampion, "Task 3", 3)));
+
+        metrics = new Metrics(true);
+        ProjectDao projectDao = metrics.instrument(ProjectDao.class, database.projectDao());
+        projectCache = new ProjectCache(projectDao, database.getInvalidationTracker());
+    }
+
+    /**
+     * Close the database after each test.
+     */
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    /**
+     * Test that the projects are loaded once, and looked up from memory afterwards.
+     */
+    @Test
+    public void projectsAreLoadedOnce() {
+        assertEquals(tartampion.getName(), projectCache.getProject(1L).getName());
+        assertEquals(lucidia.getColor(), projectCache.getProject(2L).getColor());
+        assertNull(projectCache.getProject(42L));
+        assertSame(projectCache.getProject(1L), projectCache.getProject(1L));
+
+        assertEquals(1, loadCount());
+    }
+
+    /**
+     * Test that a change of the "projects" table loads the projects again.
+     */
+    @Test
+    public void changeOfTheProjectsReloadsTheCache() {
+        Project before = projectCache.getProject(1L);
+
+        database.projectDao().insertAll(Collections.singletonList(new Project(3L, "Projet Circus", 0xFFA3CED2)));
+
+        assertEquals("Projet Circus", projectCache.getProject(3L).getName());
+        assertNotSame(before, projectCache.getProject(1L));
+        assertEquals(2, loadCount());
+    }
+
+    /**
+     * Test that the tasks of the pages, from memory or from the database, share the instances of their projects.
+     */
+    @Test
+    public void tasksShareTheInstancesOfTheirProjects() {
+        TaskPageSource pageSource = new TaskPageSource(taskDao, database.getInvalidationTracker(), 0, projectCache);
+        Project shared = projectCache.getProject(1L);
+
+        List<TaskRow> page = pageSource.loadPage(TaskSortOrder.DEFAULT, null, 10);
+        assertEquals(3, page.size());
+        assertSame(shared, page.get(0).project);
+        assertSame(shared, page.get(2).project);
+        assertSame(shared.projectName, page.get(2).projectName);
+        assertSame(projectCache.getProject(2L), page.get(1).project);
+
+        List<TaskRow> filteredPage = pageSource.loadPage(TaskSortOrder.ALPHABETICAL,
+                Collections.singleton(1L), null, 10);
+        assertEquals(2, filteredPage.size());
+        assertSame(shared, filteredPage.get(0).project);
+        assertSame(shared.projectName, filteredPage.get(1).projectName);
+        assertEquals(1, loadCount());
+    }
+
+    /**
+     * Returns the number of times the projects have been loaded.
+     *
+     * @return the number of queries of every project
+     */
+    private long loadCount() {
+        return metrics.timer("dao.ProjectDao.getAllProjects").getHistogram().getCount();
+    }
+}
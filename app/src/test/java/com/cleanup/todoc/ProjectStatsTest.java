@@ -0,0 +1,169 @@
+package com.cleanup.todoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import android.content.Context;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.lifecycle.LiveData;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.cleanup.todoc.model.Project;
+import com.cleanup.todoc.model.ProjectRow;
+import com.cleanup.todoc.model.ProjectWithStats;
+import com.cleanup.todoc.model.Task;
+import com.cleanup.todoc.repository.AppDatabase;
+import com.cleanup.todoc.repository.ProjectDao;
+import com.cleanup.todoc.repository.TaskDao;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Test class for the aggregates of the tasks of each project, maintained by triggers.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ProjectStatsTest {
+
+    private AppDatabase database;
+    private TaskDao taskDao;
+    private ProjectDao projectDao;
+
+    /**
+     * Allows LiveData to work synchronously in tests.
+     */
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    /**
+     * Setup the in-memory database, with its triggers and two projects, before each test.
+     */
+    @Before
+    public void setup() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = AppDatabase.inMemoryBuilder(context)
+                .allowMainThreadQueries()
+                .build();
+        taskDao = database.taskDao();
+        projectDao = database.projectDao();
+        projectDao.insertAll(Arrays.asList(
+                new Project(1, "Projet Tartampion", 0xFFEADAD1),
+                new Project(2, "Projet Lucidia", 0xFFB4CDBA)));
+    }
+
+    /**
+     * Close the database after each test.
+     */
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    /**
+     * Test that projects without tasks are listed with a count of zero and no timestamps.
+     */
+    @Test
+    public void projectsWithoutTasksHaveNoStats() {
+        List<ProjectWithStats> stats = projectDao.getProjectsWithStats();
+
+        assertEquals(2, stats.size());
+        assertEquals("Projet Tartampion", stats.get(0).getProject().getName());
+        assertEquals(0, stats.get(0).getTaskCount());
+        assertNull(stats.get(0).oldestTimestamp);
+        assertNull(stats.get(0).newestTimestamp);
+    }
+
+    /**
+     * Test that inserted tasks are counted in their project, with the oldest and newest creation times.
+     */
+    @Test
+    public void insertsUpdateStats() {
+        taskDao.insertAll(Arrays.asList(
+                new Task(1, 1, "A", 300),
+                new Task(2, 1, "B", 100),
+                new Task(3, 1, "C", 200),
+                new Task(4, 2, "D", 50)));
+
+        List<ProjectWithStats> stats = projectDao.getProjectsWithStats();
+
+        assertStats(stats.get(0), 3, 100L, 300L);
+        assertStats(stats.get(1), 1, 50L, 50L);
+    }
+
+    /**
+     * Test that deleting the oldest or newest task of a project recomputes the timestamps,
+     * and that deleting its last task resets its stats.
+     */
+    @Test
+    public void deletesUpdateStats() {
+        Task oldest = new Task(1, 1, "A", 100);
+        Task middle = new Task(2, 1, "B", 200);
+        Task newest = new Task(3, 1, "C", 300);
+        taskDao.insertAll(Arrays.asList(oldest, middle, newest));
+
+        taskDao.deleteTask(oldest);
+        assertStats(projectDao.getProjectsWithStats().get(0), 2, 200L, 300L);
+
+        taskDao.deleteTask(newest);
+        assertStats(projectDao.getProjectsWithStats().get(0), 1, 200L, 200L);
+
+        taskDao.deleteTask(middle);
+        assertStats(projectDao.getProjectsWithStats().get(0), 0, null, null);
+    }
+
+    /**
+     * Test that moving a task to another project moves it between the stats of both projects.
+     */
+    @Test
+    public void movesUpdateStats() {
+        taskDao.insertAll(Arrays.asList(
+                new Task(1, 1, "A", 100),
+                new Task(2, 1, "B", 200)));
+
+        database.getOpenHelper().getWritableDatabase().execSQL("UPDATE tasks SET projectId = 2 WHERE taskId = 2");
+
+        List<ProjectWithStats> stats = projectDao.getProjectsWithStats();
+        assertStats(stats.get(0), 1, 100L, 100L);
+        assertStats(stats.get(1), 1, 200L, 200L);
+    }
+
+    /**
+     * Test that the rows of the project spinner carry the name and the number of tasks of each project.
+     */
+    @Test
+    public void projectRowsCarryTaskCount() {
+        taskDao.insertAll(Arrays.asList(
+                new Task(1, 1, "A", 100),
+                new Task(2, 1, "B", 200)));
+
+        LiveData<List<ProjectRow>> rows = projectDao.getProjectRowsLiveData();
+        rows.observeForever(projectRows -> {
+            assertEquals(2, projectRows.size());
+            assertEquals(1L, projectRows.get(0).getId());
+            assertEquals("Projet Tartampion (2)", projectRows.get(0).toString());
+            assertEquals(0, projectRows.get(1).getTaskCount());
+        });
+    }
+
+    /**
+     * Asserts the stats of a project.
+     *
+     * @param stats  the project with its stats
+     * @param count  the expected number of tasks
+     * @param oldest the expected creation time of the oldest task
+     * @param newest the expected creation time of the newest task
+     */
+    private static void assertStats(ProjectWithStats stats, int count, Long oldest, Long newest) {
+        assertEquals(count, stats.getTaskCount());
+        assertEquals(oldest, stats.oldestTimestamp);
+        assertEquals(newest, stats.newestTimestamp);
+    }
+}
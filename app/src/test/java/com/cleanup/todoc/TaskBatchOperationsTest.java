@@ -0,0 +1,193 @@
+package com.cleanup.todoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.cleanup.todoc.model.Project;
+import com.cleanup.todoc.model.ProjectWithStats;
+import com.cleanup.todoc.model.Task;
+import com.cleanup.todoc.model.TaskRow;
+import com.cleanup.todoc.repository.AppDatabase;
+import com.cleanup.todoc.repository.ProjectCache;
+import com.cleanup.todoc.repository.TaskDao;
+import com.cleanup.todoc.repository.TaskPageSource;
+import com.cleanup.todoc.repository.TaskRepository;
+import com.cleanup.todoc.repository.TaskSortOrder;
+import com.cleanup.todoc.repository.TaskWriteQueue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test class for the deletion and the move of the selected tasks, each done at once.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TaskBatchOperationsTest {
+
+    private static final int TASK_COUNT = 5000;
+
+    private final Project tartampion = new Project(1L, "Projet Tartampion", 0xFFEADAD1);
+    private final Project lucidia = new Project(2L, "Projet Lucidia", 0xFFB4CDBA);
+
+    // Number of drain tasks run by the write executor, each applying its batch in one transaction
+    private final AtomicInteger drains = new AtomicInteger();
+    private ExecutorService writeExecutor;
+    private AppDatabase database;
+    private TaskDao taskDao;
+    private TaskWriteQueue writeQueue;
+
+    /**
+     * Setup the in-memory database, with its triggers, holding 5k tasks of the first project,
+     * and a write queue counting its transactions before each test.
+     */
+    @Before
+    public void setup() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = AppDatabase.inMemoryBuilder(context)
+                .allowMainThreadQueries()
+                .build();
+        taskDao = database.taskDao();
+        database.projectDao().insertAll(Arrays.asList(tartampion, lucidia));
+        List<Task> tasks = new ArrayList<>(TASK_COUNT);
+        for (int i = 1; i <= TASK_COUNT; i++) {
+            tasks.add(new Task(i, tartampion, "Task " + i, i));
+        }
+        taskDao.insertAll(tasks);
+
+        writeExecutor = Executors.newSingleThreadExecutor();
+        writeQueue = new TaskWriteQueue(database, taskDao, command -> {
+            drains.incrementAndGet();
+            writeExecutor.execute(command);
+        });
+    }
+
+    /**
+     * Stop the write queue and close the database after each test.
+     */
+    @After
+    public void tearDown() {
+        writeQueue.shutdown();
+        writeExecutor.shutdownNow();
+        database.close();
+    }
+
+    /**
+     * Test that deleting 5k selected tasks, more than a statement can bind, takes a single transaction,
+     * and that restoring them all takes another one.
+     */
+    @Test
+    public void deletingFiveThousandSelectedTasksTakesOneTransaction() throws Exception {
+        List<Long> selected = ids(1, TASK_COUNT);
+
+        writeQueue.enqueueTombstone(selected).get(10, TimeUnit.SECONDS);
+
+        assertEquals(1, drains.get());
+        assertEquals(0, taskDao.countTasks());
+        assertEquals(TASK_COUNT, taskDao.countDeletedTasks());
+        assertEquals(0, taskCount(tartampion));
+
+        writeQueue.enqueueRestore(selected).get(10, TimeUnit.SECONDS);
+
+        assertEquals(2, drains.get());
+        assertEquals(TASK_COUNT, taskDao.countTasks());
+        assertEquals(TASK_COUNT, taskCount(tartampion));
+    }
+
+    /**
+     * Test that moving selected tasks takes a single transaction, updates the aggregates of both projects,
+     * and leaves the tombstoned tasks where they were.
+     */
+    @Test
+    public void movingSelectedTasksUpdatesBothProjects() throws Exception {
+        taskDao.tombstoneTasks(Collections.singletonList(1L), 1000);
+
+        writeQueue.enqueueMove(ids(1, 2000), lucidia.getId()).get(10, TimeUnit.SECONDS);
+
+        assertEquals(1, drains.get());
+        assertEquals(TASK_COUNT - 2000, taskCount(tartampion));
+        assertEquals(1999, taskCount(lucidia));
+        assertEquals(1999, taskDao.getFirstPageOfProject(lucidia.getId(), TASK_COUNT).size());
+
+        // The tombstoned task is restored in its own project
+        taskDao.restoreTasks(Collections.singletonList(1L));
+        assertEquals(TASK_COUNT - 1999, taskCount(tartampion));
+    }
+
+    /**
+     * Test that moved tasks are read from their new project on the pages served from memory,
+     * although the move changes neither the number of tasks nor their identifiers.
+     */
+    @Test
+    public void movedTasksAreReloadedFromTheCache() throws Exception {
+        TaskPageSource pageSource = new TaskPageSource(taskDao, database.getInvalidationTracker(),
+                new ProjectCache(database.projectDao(), database.getInvalidationTracker()));
+        TaskRepository repository = new TaskRepository(taskDao, writeQueue, pageSource);
+        assertEquals(tartampion.getId(), pageSource.loadPage(TaskSortOrder.DEFAULT, null, 10).get(0).projectId);
+
+        repository.moveTasks(ids(1, 10), lucidia.getId()).get(10, TimeUnit.SECONDS);
+
+        List<TaskRow> page = pageSource.loadPage(TaskSortOrder.DEFAULT, null, 20);
+        for (TaskRow row : page) {
+            assertEquals(row.taskId <= 10 ? lucidia.getId() : tartampion.getId(), row.projectId);
+        }
+        assertEquals(lucidia.getName(), page.get(0).projectName);
+    }
+
+    /**
+     * Test that tasks are deleted for good by their identifiers, along with their full-text index entries.
+     */
+    @Test
+    public void deleteByIdRemovesTheRows() {
+        assertEquals(2, taskDao.deleteTasksById(Arrays.asList(1L, 1000L)));
+
+        assertEquals(TASK_COUNT - 2, taskDao.countTasks());
+        assertEquals(0, taskDao.countDeletedTasks());
+        assertTrue(taskDao.searchTasks("1000", "1000", 10).isEmpty());
+    }
+
+    /**
+     * Returns consecutive task identifiers.
+     *
+     * @param first the first identifier
+     * @param last  the last identifier, included
+     * @return the identifiers in ascending order
+     */
+    private static List<Long> ids(long first, long last) {
+        List<Long> ids = new ArrayList<>();
+        for (long id = first; id <= last; id++) {
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    /**
+     * Returns the number of tasks of a project, as maintained by the triggers.
+     *
+     * @param project the project
+     * @return the number of its tasks
+     */
+    private int taskCount(Project project) {
+        for (ProjectWithStats stats : database.projectDao().getProjectsWithStats()) {
+            if (stats.getProject().getId() == project.getId()) {
+                return stats.getTaskCount();
+            }
+        }
+        return 0;
+    }
+}
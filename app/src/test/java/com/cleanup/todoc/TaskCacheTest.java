@@ -0,0 +1,194 @@
+package com.cleanup.todoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import android.content.Context;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.cleanup.todoc.model.Project;
+import com.cleanup.todoc.model.Task;
+import com.cleanup.todoc.model.TaskRow;
+import com.cleanup.todoc.repository.AppDatabase;
+import com.cleanup.todoc.repository.ProjectCache;
+import com.cleanup.todoc.repository.TaskCache;
+import com.cleanup.todoc.repository.TaskDao;
+import com.cleanup.todoc.repository.TaskSortOrder;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Test class for TaskCache.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TaskCacheTest {
+
+    private final Project project = new Project(1L, "Test Project", 0x00FF00);
+
+    private AppDatabase database;
+    private TaskDao taskDao;
+    private TaskCache taskCache;
+
+    /**
+     * Allows the invalidation of Room to run synchronously in tests.
+     */
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    /**
+     * Setup the in-memory database with a few tasks, and a cache over it.
+     */
+    @Before
+    public void setup() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        taskDao = database.taskDao();
+        database.projectDao().insertAll(Collections.singletonList(project));
+        taskDao.insertAll(Arrays.asList(
+                new Task(0, project, "Charlie", 300),
+                new Task(0, project, "Alpha", 100),
+                new Task(0, project, "Bravo", 200)));
+        taskCache = new TaskCache(taskDao, database.getInvalidationTracker(), 10,
+                new ProjectCache(database.projectDao(), database.getInvalidationTracker()));
+    }
+
+    /**
+     * Close the database after each test.
+     */
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    /**
+     * Test that every sort order is served in the same order as the database.
+     */
+    @Test
+    public void pagesMatchDatabaseOrders() {
+        assertEquals(names(taskDao.getFirstPage(10)), names(taskCache.loadPage(TaskSortOrder.DEFAULT, null, 10)));
+        assertEquals(Arrays.asList("Alpha", "Bravo", "Charlie"),
+                names(taskCache.loadPage(TaskSortOrder.ALPHABETICAL, null, 10)));
+        assertEquals(Arrays.asList("Charlie", "Bravo", "Alpha"),
+                names(taskCache.loadPage(TaskSortOrder.ALPHABETICAL_INVERTED, null, 10)));
+        assertEquals(Arrays.asList("Charlie", "Bravo", "Alpha"),
+                names(taskCache.loadPage(TaskSortOrder.RECENT_FIRST, null, 10)));
+        assertEquals(Arrays.asList("Alpha", "Bravo", "Charlie"),
+                names(taskCache.loadPage(TaskSortOrder.OLD_FIRST, null, 10)));
+    }
+
+    /**
+     * Test that pages following a key match the keyset queries of the database.
+     */
+    @Test
+    public void pagesAfterKeyMatchDatabase() {
+        TaskRow bravo = taskCache.loadPage(TaskSortOrder.ALPHABETICAL, null, 10).get(1);
+
+        assertEquals(names(taskDao.getPageAfterSortedAlphabetically(bravo.taskName, bravo.taskId, 10)),
+                names(taskCache.loadPage(TaskSortOrder.ALPHABETICAL, bravo, 10)));
+        assertEquals(names(taskDao.getPageAfterSortedAlphabeticallyInverted(bravo.taskName, bravo.taskId, 10)),
+                names(taskCache.loadPage(TaskSortOrder.ALPHABETICAL_INVERTED, bravo, 10)));
+        assertEquals(names(taskDao.getPageAfterSortedByDateRecentFirst(bravo.taskCreationTimestamp, bravo.taskId, 10)),
+                names(taskCache.loadPage(TaskSortOrder.RECENT_FIRST, bravo, 10)));
+        assertEquals(names(taskDao.getPageAfterSortedByDateOldFirst(bravo.taskCreationTimestamp, bravo.taskId, 1)),
+                names(taskCache.loadPage(TaskSortOrder.OLD_FIRST, bravo, 1)));
+    }
+
+    /**
+     * Test that switching the sort order is served from memory, without any query.
+     */
+    @Test
+    public void sortSwitchNeedsNoDatabase() {
+        taskCache.loadPage(TaskSortOrder.DEFAULT, null, 10);
+        database.close();
+
+        assertEquals(Arrays.asList("Alpha", "Bravo", "Charlie"),
+                names(taskCache.loadPage(TaskSortOrder.ALPHABETICAL, null, 10)));
+        assertEquals(Arrays.asList("Charlie", "Bravo", "Alpha"),
+                names(taskCache.loadPage(TaskSortOrder.RECENT_FIRST, null, 10)));
+    }
+
+    /**
+     * Test that inserts and deletes are applied incrementally, keeping the instances of the unchanged tasks.
+     */
+    @Test
+    public void changesAreAppliedIncrementally() {
+        List<TaskRow> before = taskCache.loadPage(TaskSortOrder.ALPHABETICAL, null, 10);
+        TaskRow alpha = before.get(0);
+        TaskRow charlie = before.get(2);
+
+        taskDao.insertTask(new Task(0, project, "Bingo", 150));
+        taskDao.deleteTask(charlie.toTask());
+
+        List<TaskRow> after = taskCache.loadPage(TaskSortOrder.ALPHABETICAL, null, 10);
+        assertEquals(Arrays.asList("Alpha", "Bingo", "Bravo"), names(after));
+        assertSame(alpha, after.get(0));
+        assertEquals(Arrays.asList("Bravo", "Bingo", "Alpha"),
+                names(taskCache.loadPage(TaskSortOrder.RECENT_FIRST, null, 10)));
+    }
+
+    /**
+     * Test that tombstoned tasks leave the cache, and come back once restored although no task was added.
+     */
+    @Test
+    public void tombstonedTasksLeaveAndRestoredTasksReturn() {
+        TaskRow bravo = taskCache.loadPage(TaskSortOrder.ALPHABETICAL, null, 10).get(1);
+
+        taskDao.tombstoneTasks(Collections.singletonList(bravo.taskId), 1000);
+        assertEquals(Arrays.asList("Alpha", "Charlie"), names(taskCache.loadPage(TaskSortOrder.ALPHABETICAL, null, 10)));
+
+        taskDao.restoreTasks(Collections.singletonList(bravo.taskId));
+        assertEquals(Arrays.asList("Alpha", "Bravo", "Charlie"),
+                names(taskCache.loadPage(TaskSortOrder.ALPHABETICAL, null, 10)));
+    }
+
+    /**
+     * Test that a table growing past the maximum size is no longer cached, and is cached again once it shrinks.
+     */
+    @Test
+    public void largeTablesAreNotCached() {
+        assertNotNull(taskCache.loadPage(TaskSortOrder.DEFAULT, null, 10));
+
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            tasks.add(new Task(0, project, "Task " + i, 1000 + i));
+        }
+        taskDao.insertAll(tasks);
+        assertNull(taskCache.loadPage(TaskSortOrder.DEFAULT, null, 10));
+
+        for (TaskRow row : taskDao.getFirstPage(10)) {
+            taskDao.deleteTask(row.toTask());
+        }
+        assertEquals(3, taskCache.loadPage(TaskSortOrder.DEFAULT, null, 10).size());
+    }
+
+    /**
+     * Returns the names of the given tasks.
+     *
+     * @param tasks the tasks
+     * @return the names of the tasks, in the same order
+     */
+    private static List<String> names(List<TaskRow> tasks) {
+        List<String> names = new ArrayList<>();
+        for (TaskRow row : tasks) {
+            names.add(row.taskName);
+        }
+        return names;
+    }
+}
@@ -13,6 +13,8 @@ import androidx.test.core.app.ApplicationProvider;
 
 import com.cleanup.todoc.model.Project;
 import com.cleanup.todoc.model.Task;
+import com.cleanup.todoc.model.TaskRow;
+import com.cleanup.todoc.model.TaskWithProject;
 import com.cleanup.todoc.repository.AppDatabase;
 import com.cleanup.todoc.repository.ProjectDao;
 import com.cleanup.todoc.repository.TaskDao;
@@ -78,12 +80,13 @@ public class TaskDaoTest {
         taskDao.insertTask(task1);
         taskDao.insertTask(task2);
 
-        LiveData<List<Task>> liveDataTasks = taskDao.getAllTasksLiveData();
+        LiveData<List<TaskWithProject>> liveDataTasks = taskDao.getAllTasksLiveData();
         liveDataTasks.observeForever(tasksList -> {
             assertNotNull(tasksList);
             assertEquals(2, tasksList.size());
-            assertEquals("Task 1", tasksList.get(0).getName());
-            assertEquals("Task 2", tasksList.get(1).getName());
+            assertEquals("Task 1", tasksList.get(0).getTask().getName());
+            assertEquals("Task 2", tasksList.get(1).getTask().getName());
+            assertEquals("Test Project", tasksList.get(0).getProject().getName());
         });
     }
 
@@ -101,13 +104,10 @@ public class TaskDaoTest {
         taskDao.insertTask(task1);
         taskDao.insertTask(task2);
 
-        LiveData<List<Task>> liveDataTasks = taskDao.getAllTasksSortedAlphabetically();
-        liveDataTasks.observeForever(tasksList -> {
-            assertNotNull(tasksList);
-            assertEquals(2, tasksList.size());
-            assertEquals("Task A", tasksList.get(0).getName());
-            assertEquals("Task B", tasksList.get(1).getName());
-        });
+        List<TaskRow> tasksList = taskDao.getFirstPageSortedAlphabetically(10);
+        assertEquals(2, tasksList.size());
+        assertEquals("Task A", tasksList.get(0).taskName);
+        assertEquals("Task B", tasksList.get(1).taskName);
     }
 
     /**
@@ -124,13 +124,10 @@ public class TaskDaoTest {
         taskDao.insertTask(task1);
         taskDao.insertTask(task2);
 
-        LiveData<List<Task>> liveDataTasks = taskDao.getAllTasksSortedAlphabeticallyInverted();
-        liveDataTasks.observeForever(tasksList -> {
-            assertNotNull(tasksList);
-            assertEquals(2, tasksList.size());
-            assertEquals("Task B", tasksList.get(0).getName());
-            assertEquals("Task A", tasksList.get(1).getName());
-        });
+        List<TaskRow> tasksList = taskDao.getFirstPageSortedAlphabeticallyInverted(10);
+        assertEquals(2, tasksList.size());
+        assertEquals("Task B", tasksList.get(0).taskName);
+        assertEquals("Task A", tasksList.get(1).taskName);
     }
 
     /**
@@ -147,13 +144,10 @@ public class TaskDaoTest {
         taskDao.insertTask(task1);
         taskDao.insertTask(task2);
 
-        LiveData<List<Task>> liveDataTasks = taskDao.getAllTasksSortedByDateRecentFirst();
-        liveDataTasks.observeForever(tasksList -> {
-            assertNotNull(tasksList);
-            assertEquals(2, tasksList.size());
-            assertEquals("Task 2", tasksList.get(0).getName());
-            assertEquals("Task 1", tasksList.get(1).getName());
-        });
+        List<TaskRow> tasksList = taskDao.getFirstPageSortedByDateRecentFirst(10);
+        assertEquals(2, tasksList.size());
+        assertEquals("Task 2", tasksList.get(0).taskName);
+        assertEquals("Task 1", tasksList.get(1).taskName);
     }
 
     /**
@@ -170,13 +164,10 @@ public class TaskDaoTest {
         taskDao.insertTask(task1);
         taskDao.insertTask(task2);
 
-        LiveData<List<Task>> liveDataTasks = taskDao.getAllTasksSortedByDateOldFirst();
-        liveDataTasks.observeForever(tasksList -> {
-            assertNotNull(tasksList);
-            assertEquals(2, tasksList.size());
-            assertEquals("Task 1", tasksList.get(0).getName());
-            assertEquals("Task 2", tasksList.get(1).getName());
-        });
+        List<TaskRow> tasksList = taskDao.getFirstPageSortedByDateOldFirst(10);
+        assertEquals(2, tasksList.size());
+        assertEquals("Task 1", tasksList.get(0).taskName);
+        assertEquals("Task 2", tasksList.get(1).taskName);
     }
 
     /**
@@ -192,10 +183,102 @@ public class TaskDaoTest {
 
         taskDao.deleteTask(task1);
 
-        LiveData<List<Task>> liveDataTasks = taskDao.getAllTasksLiveData();
+        LiveData<List<TaskWithProject>> liveDataTasks = taskDao.getAllTasksLiveData();
         liveDataTasks.observeForever(tasksList -> {
             assertNotNull(tasksList);
             assertTrue(tasksList.isEmpty());
         });
     }
-}
\ No newline at end of file
+
+    /**
+     * Test for walking the alphabetical order page by page with keyset pagination, including tasks with the same name.
+     */
+    @Test
+    public void keysetPagesSortedAlphabetically() {
+        Project project = new Project(1L, "Test Project", 0x00FF00);
+        projectDao.insertAll(Collections.singletonList(project));
+
+        taskDao.insertTask(new Task(1L, project, "Task B", 1));
+        taskDao.insertTask(new Task(2L, project, "Task A", 2));
+        taskDao.insertTask(new Task(3L, project, "Task B", 3));
+        taskDao.insertTask(new Task(4L, project, "Task C", 4));
+
+        List<TaskRow> firstPage = taskDao.getFirstPageSortedAlphabetically(2);
+        assertEquals(2, firstPage.size());
+        assertEquals(2L, firstPage.get(0).taskId);
+        assertEquals(1L, firstPage.get(1).taskId);
+
+        TaskRow key = firstPage.get(1);
+        List<TaskRow> secondPage = taskDao.getPageAfterSortedAlphabetically(key.taskName, key.taskId, 2);
+        assertEquals(2, secondPage.size());
+        assertEquals(3L, secondPage.get(0).taskId);
+        assertEquals(4L, secondPage.get(1).taskId);
+
+        key = secondPage.get(1);
+        assertTrue(taskDao.getPageAfterSortedAlphabetically(key.taskName, key.taskId, 2).isEmpty());
+    }
+
+    /**
+     * Test for walking the most recent first order page by page with keyset pagination, including tasks created at the same time.
+     */
+    @Test
+    public void keysetPagesSortedByDateRecentFirst() {
+        Project project = new Project(1L, "Test Project", 0x00FF00);
+        projectDao.insertAll(Collections.singletonList(project));
+
+        taskDao.insertTask(new Task(1L, project, "Task 1", 1000));
+        taskDao.insertTask(new Task(2L, project, "Task 2", 2000));
+        taskDao.insertTask(new Task(3L, project, "Task 3", 2000));
+
+        List<TaskRow> firstPage = taskDao.getFirstPageSortedByDateRecentFirst(2);
+        assertEquals(3L, firstPage.get(0).taskId);
+        assertEquals(2L, firstPage.get(1).taskId);
+
+        TaskRow key = firstPage.get(1);
+        List<TaskRow> secondPage = taskDao.getPageAfterSortedByDateRecentFirst(key.taskCreationTimestamp, key.taskId, 2);
+        assertEquals(1, secondPage.size());
+        assertEquals(1L, secondPage.get(0).taskId);
+    }
+
+    /**
+     * Test for searching tasks by word prefixes through the full-text index, with names starting with the word ranked first.
+     */
+    @Test
+    public void searchTasksByWordPrefix() {
+        Project project = new Project(1L, "Test Project", 0x00FF00);
+        projectDao.insertAll(Collections.singletonList(project));
+
+        taskDao.insertTask(new Task(1L, project, "Appeler le client pour la réunion", 1000));
+        taskDao.insertTask(new Task(2L, project, "Réunion client", 2000));
+        taskDao.insertTask(new Task(3L, project, "Réunion", 3000));
+        taskDao.insertTask(new Task(4L, project, "Ranger le bureau", 4000));
+
+        List<TaskRow> results = taskDao.searchTasks("réun*", "réun", 10);
+        assertEquals(3, results.size());
+        assertEquals(3L, results.get(0).taskId);
+        assertEquals(2L, results.get(1).taskId);
+        assertEquals(1L, results.get(2).taskId);
+        assertEquals(project.getId(), results.get(0).projectId);
+
+        // Every word must match, and the unicode61 tokenizer ignores case and diacritics
+        results = taskDao.searchTasks("reunion* cli*", "reunion", 10);
+        assertEquals(2, results.size());
+        assertEquals(2L, results.get(0).taskId);
+    }
+
+    /**
+     * Test that the full-text index follows the deletions of tasks.
+     */
+    @Test
+    public void searchFollowsDeletedTasks() {
+        Project project = new Project(1L, "Test Project", 0x00FF00);
+        projectDao.insertAll(Collections.singletonList(project));
+
+        Task task = new Task(1L, project, "Ranger le bureau", 1000);
+        taskDao.insertTask(task);
+        assertEquals(1, taskDao.searchTasks("bur*", "bur", 10).size());
+
+        taskDao.deleteTask(task);
+        assertTrue(taskDao.searchTasks("bur*", "bur", 10).isEmpty());
+    }
+}
@@ -0,0 +1,236 @@
+package com.cleanup.todoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.cleanup.todoc.model.Project;
+import com.cleanup.todoc.model.Task;
+import com.cleanup.todoc.repository.AppDatabase;
+import com.cleanup.todoc.repository.TaskExporter;
+import com.cleanup.todoc.repository.TaskImporter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Test class for TaskExporter.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TaskExporterTest {
+
+    // Heap growth allowed while exporting the large table, far below what its tasks take as objects
+    private static final long HEAP_BUDGET_BYTES = 16L * 1024 * 1024;
+
+    private AppDatabase database;
+    private TaskExporter exporter;
+
+    /**
+     * Setup the in-memory database with two projects before each test.
+     */
+    @Before
+    public void setup() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        database.projectDao().insertAll(Arrays.asList(
+                new Project(1, "Projet Tartampion", 0xFFEADAD1),
+                new Project(2, "Projet, \"Lucidia\"", 0xFFB4CDBA)));
+        exporter = new TaskExporter(database);
+    }
+
+    /**
+     * Close the database after each test.
+     */
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    /**
+     * Test that tasks are exported as CSV with their project name, quoting the fields which need it.
+     */
+    @Test
+    public void exportTasksAsCsv() throws Exception {
+        database.taskDao().insertAll(Arrays.asList(
+                new Task(1, 1, "Simple", 10),
+                new Task(2, 2, "Two\nlines", 20)));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long rows = exporter.exportTasks(output, TaskImporter.Format.CSV, false);
+
+        assertEquals(2, rows);
+        assertEquals("name,project,timestamp\r\n"
+                        + "Simple,Projet Tartampion,10\r\n"
+                        + "\"Two\nlines\",\"Projet, \"\"Lucidia\"\"\",20\r\n",
+                output.toString("UTF-8"));
+    }
+
+    /**
+     * Test that exported tasks are imported back identically, here through a gzipped JSON file.
+     */
+    @Test
+    public void gzippedJsonExportImportsBack() throws Exception {
+        database.taskDao().insertAll(Arrays.asList(
+                new Task(1, 1, "Première", 10),
+                new Task(2, 2, "Second \"quoted\"", 20)));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        exporter.exportTasks(output, TaskImporter.Format.JSON, true);
+
+        String json = read(new GZIPInputStream(new ByteArrayInputStream(output.toByteArray())));
+        assertEquals("[{\"name\":\"Première\",\"project\":\"Projet Tartampion\",\"timestamp\":10},"
+                + "{\"name\":\"Second \\\"quoted\\\"\",\"project\":\"Projet, \\\"Lucidia\\\"\",\"timestamp\":20}]", json);
+
+        database.getOpenHelper().getWritableDatabase().execSQL("DELETE FROM tasks");
+        TaskImporter.Result result = new TaskImporter(database).importTasks(
+                new GZIPInputStream(new ByteArrayInputStream(output.toByteArray())),
+                TaskImporter.Format.JSON, "export.json.gz", null);
+        assertEquals(2, result.importedTasks);
+        assertEquals(2, database.taskDao().countTasks());
+    }
+
+    /**
+     * Test that projects are exported with their identifier, name and color.
+     */
+    @Test
+    public void exportProjectsAsCsv() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long rows = exporter.exportProjects(output, TaskImporter.Format.CSV, false);
+
+        assertEquals(2, rows);
+        assertEquals("id,name,color\r\n"
+                        + "1,Projet Tartampion," + 0xFFEADAD1 + "\r\n"
+                        + "2,\"Projet, \"\"Lucidia\"\"\"," + 0xFFB4CDBA + "\r\n",
+                output.toString("UTF-8"));
+    }
+
+    /**
+     * Test that exporting 500k tasks keeps the heap under a fixed budget, the rows never being held together.
+     */
+    @Test
+    public void export500kTasksWithinHeapBudget() throws Exception {
+        int count = 500_000;
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+        db.beginTransaction();
+        try (SupportSQLiteStatement insert = db.compileStatement(
+                "INSERT INTO tasks (projectId, taskName, creation_timestamp) VALUES (1, ?, ?)")) {
+            for (int i = 0; i < count; i++) {
+                insert.bindString(1, "Task number " + i);
+                insert.bindLong(2, i);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        runtime.gc();
+        long baseline = runtime.totalMemory() - runtime.freeMemory();
+        HeapSamplingStream output = new HeapSamplingStream(runtime);
+
+        long rows = exporter.exportTasks(output, TaskImporter.Format.CSV, false);
+
+        assertEquals(count, rows);
+        assertTrue(output.written > 0);
+        assertTrue("Heap grew by " + (output.peak - baseline) + " bytes",
+                output.peak - baseline < HEAP_BUDGET_BYTES);
+    }
+
+    /**
+     * Reads a whole stream as UTF-8 text.
+     *
+     * @param input the stream to read
+     * @return the text
+     * @throws IOException if the stream cannot be read
+     */
+    private static String read(InputStream input) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Stream discarding what is written, sampling the heap retained after a collection every megabyte.
+     */
+    private static class HeapSamplingStream extends OutputStream {
+        // Bytes between two samples
+        private static final long SAMPLE_INTERVAL = 1024 * 1024;
+
+        // Runtime whose heap is sampled
+        private final Runtime runtime;
+        // Number of bytes written so far
+        long written;
+        // Highest heap usage sampled
+        long peak;
+
+        /**
+         * Instantiates a new HeapSamplingStream.
+         *
+         * @param runtime the runtime whose heap is sampled
+         */
+        HeapSamplingStream(Runtime runtime) {
+            this.runtime = runtime;
+        }
+
+        /**
+         * Discards a byte.
+         *
+         * @param b the byte
+         */
+        @Override
+        public void write(int b) {
+            count(1);
+        }
+
+        /**
+         * Discards bytes.
+         *
+         * @param b   the buffer
+         * @param off the offset in the buffer
+         * @param len the number of bytes
+         */
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count(len);
+        }
+
+        /**
+         * Counts written bytes, sampling the heap when crossing a megabyte.
+         *
+         * @param len the number of bytes written
+         */
+        private void count(int len) {
+            long before = written;
+            written += len;
+            if (before / SAMPLE_INTERVAL != written / SAMPLE_INTERVAL) {
+                runtime.gc();
+                peak = Math.max(peak, runtime.totalMemory() - runtime.freeMemory());
+            }
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.cleanup.todoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.cleanup.todoc.model.Project;
+import com.cleanup.todoc.repository.AppDatabase;
+import com.cleanup.todoc.repository.TaskImporter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Test class for TaskImporter.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TaskImporterTest {
+
+    private AppDatabase database;
+
+    /**
+     * Setup the in-memory database with two projects before each test.
+     */
+    @Before
+    public void setup() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        database.projectDao().insertAll(Arrays.asList(
+                new Project(1, "Projet Tartampion", 0xFFEADAD1),
+                new Project(2, "Projet Lucidia", 0xFFB4CDBA)));
+    }
+
+    /**
+     * Close the database after each test.
+     */
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    /**
+     * Test that a CSV file is imported with quoted fields, columns in any order and project names in any case.
+     */
+    @Test
+    public void importCsvWithQuotedFields() throws Exception {
+        String csv = "timestamp,Project,name\r\n"
+                + "10,Projet Tartampion,Simple\r\n"
+                + "20,projet lucidia,\"Comma, and \"\"quotes\"\"\"\r\n"
+                + "\r\n"
+                + "30,PROJET TARTAMPION,\"Two\nlines\"\n";
+
+        TaskImporter.Result result = new TaskImporter(database)
+                .importTasks(stream(csv), TaskImporter.Format.CSV, "tasks.csv", null);
+
+        assertEquals(3, result.importedTasks);
+        assertEquals(0, result.skippedRows);
+        assertEquals(Arrays.asList("Simple|1|10", "Comma, and \"quotes\"|2|20", "Two\nlines|1|30"), readTasks());
+    }
+
+    /**
+     * Test that a JSON file is imported, ignoring unknown members.
+     */
+    @Test
+    public void importJson() throws Exception {
+        String json = "[{\"name\": \"First\", \"project\": \"Projet Lucidia\", \"timestamp\": 5, \"done\": false},"
+                + " {\"project\": \"Projet Tartampion\", \"name\": \"Second\", \"timestamp\": \"6\"}]";
+
+        TaskImporter.Result result = new TaskImporter(database)
+                .importTasks(stream(json), TaskImporter.Format.JSON, "tasks.json", null);
+
+        assertEquals(2, result.importedTasks);
+        assertEquals(Arrays.asList("First|2|5", "Second|1|6"), readTasks());
+    }
+
+    /**
+     * Test that rows with an unknown project, no name or an invalid timestamp are skipped and counted.
+     */
+    @Test
+    public void invalidRowsAreSkipped() throws Exception {
+        String csv = "name,project,timestamp\n"
+                + "Kept,Projet Lucidia,1\n"
+                + "Unknown project,Projet Circus,2\n"
+                + ",Projet Lucidia,3\n"
+                + "Bad timestamp,Projet Lucidia,yesterday\n";
+
+        TaskImporter.Result result = new TaskImporter(database)
+                .importTasks(stream(csv), TaskImporter.Format.CSV, "tasks.csv", null);
+
+        assertEquals(1, result.importedTasks);
+        assertEquals(3, result.skippedRows);
+        assertEquals(Arrays.asList("Kept|2|1"), readTasks());
+    }
+
+    /**
+     * Test that the tasks are committed in chunks, progress being reported after each one.
+     */
+    @Test
+    public void progressIsReportedAfterEachChunk() throws Exception {
+        List<Long> progress = new ArrayList<>();
+
+        TaskImporter.Result result = new TaskImporter(database, 4)
+                .importTasks(stream(csv(10)), TaskImporter.Format.CSV, "tasks.csv",
+                        (importedTasks, skippedRows) -> progress.add(importedTasks));
+
+        assertEquals(10, result.importedTasks);
+        assertEquals(Arrays.asList(4L, 8L, 10L), progress);
+        assertNull(database.importCheckpointDao().getCommittedRows("tasks.csv"));
+    }
+
+    /**
+     * Test that an import interrupted by a failure resumes after the last committed chunk, without duplicates.
+     */
+    @Test
+    public void interruptedImportResumesAfterLastCommittedChunk() throws Exception {
+        String csv = csv(10);
+        // Fail in the middle of the seventh row, after the first chunk of three rows and part of the second
+        int failAt = csv.indexOf("Task 7");
+        TaskImporter importer = new TaskImporter(database, 3);
+        try {
+            importer.importTasks(new FailingInputStream(csv.getBytes(StandardCharsets.UTF_8), failAt),
+                    TaskImporter.Format.CSV, "tasks.csv", null);
+            fail("The import should have failed");
+        } catch (IOException expected) {
+            // The crash happens here
+        }
+        assertEquals(Long.valueOf(6), database.importCheckpointDao().getCommittedRows("tasks.csv"));
+        assertEquals(6, readTasks().size());
+
+        TaskImporter.Result result = importer.importTasks(stream(csv), TaskImporter.Format.CSV, "tasks.csv", null);
+
+        assertEquals(6, result.resumedFrom);
+        assertEquals(4, result.importedTasks);
+        List<String> expected = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            expected.add("Task " + i + "|1|" + i);
+        }
+        assertEquals(expected, readTasks());
+        assertNull(database.importCheckpointDao().getCommittedRows("tasks.csv"));
+    }
+
+    /**
+     * Builds a CSV file of tasks numbered from 1, all in the first project.
+     *
+     * @param count the number of tasks
+     * @return the content of the file
+     */
+    private static String csv(int count) {
+        StringBuilder csv = new StringBuilder("name,project,timestamp\n");
+        for (int i = 1; i <= count; i++) {
+            csv.append("Task ").append(i).append(",Projet Tartampion,").append(i).append('\n');
+        }
+        return csv.toString();
+    }
+
+    /**
+     * Wraps a text in a stream.
+     *
+     * @param text the text
+     * @return a stream of the UTF-8 bytes of the text
+     */
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads every task as "name|projectId|timestamp", in insertion order.
+     *
+     * @return the tasks
+     */
+    private List<String> readTasks() {
+        List<String> tasks = new ArrayList<>();
+        try (Cursor cursor = database.getOpenHelper().getReadableDatabase()
+                .query("SELECT taskName, projectId, creation_timestamp FROM tasks ORDER BY taskId")) {
+            while (cursor.moveToNext()) {
+                tasks.add(cursor.getString(0) + "|" + cursor.getLong(1) + "|" + cursor.getLong(2));
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Stream failing once a given number of bytes has been read, as if the process died mid-import.
+     */
+    private static class FailingInputStream extends InputStream {
+        // Content of the stream
+        private final byte[] bytes;
+        // Number of bytes readable before the failure
+        private final int failAt;
+        // Number of bytes read so far
+        private int position;
+
+        /**
+         * Instantiates a new FailingInputStream.
+         *
+         * @param bytes  the content of the stream
+         * @param failAt the number of bytes readable before the failure
+         */
+        FailingInputStream(byte[] bytes, int failAt) {
+            this.bytes = bytes;
+            this.failAt = failAt;
+        }
+
+        /**
+         * Reads a byte, failing past the limit.
+         *
+         * @return the byte read
+         * @throws IOException once the limit is reached
+         */
+        @Override
+        public int read() throws IOException {
+            if (position >= failAt) {
+                throw new IOException("Simulated crash");
+            }
+            return bytes[position++] & 0xFF;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.cleanup.todoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.cleanup.todoc.application.TaskPager;
+import com.cleanup.todoc.application.TaskWindow;
+import com.cleanup.todoc.model.Project;
+import com.cleanup.todoc.model.Task;
+import com.cleanup.todoc.model.TaskRow;
+import com.cleanup.todoc.repository.AppDatabase;
+import com.cleanup.todoc.repository.ProjectCache;
+import com.cleanup.todoc.repository.TaskPageSource;
+import com.cleanup.todoc.repository.TaskSortOrder;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Test class for TaskPager.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TaskPagerTest {
+
+    private static final int TASK_COUNT = 1000;
+    private static final int PAGE_SIZE = 50;
+    private static final int PREFETCH_DISTANCE = 10;
+    private static final int MAX_PAGES = 3;
+
+    private AppDatabase database;
+    private Project project;
+    private TaskPageSource pageSource;
+    private TaskPager taskPager;
+
+    /**
+     * Allows LiveData to work synchronously in tests.
+     */
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    /**
+     * Setup the in-memory database with tasks, and a pager loading on the test thread.
+     */
+    @Before
+    public void setup() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+
+        project = new Project(1L, "Test Project", 0x00FF00);
+        database.projectDao().insertAll(Collections.singletonList(project));
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < TASK_COUNT; i++) {
+            tasks.add(new Task(0, project, String.format("Task %04d", i), i));
+        }
+        database.taskDao().insertAll(tasks);
+
+        pageSource = new TaskPageSource(database.taskDao(), database.getInvalidationTracker(),
+                new ProjectCache(database.projectDao(), database.getInvalidationTracker()));
+        taskPager = new TaskPager(pageSource, Runnable::run, PAGE_SIZE, PREFETCH_DISTANCE, MAX_PAGES);
+        taskPager.start();
+    }
+
+    /**
+     * Close the pager and the database after each test.
+     */
+    @After
+    public void tearDown() {
+        taskPager.close();
+        database.close();
+    }
+
+    /**
+     * Test that only the first page is loaded initially.
+     */
+    @Test
+    public void startLoadsFirstPage() {
+        TaskWindow window = taskPager.getWindow().getValue();
+
+        assertEquals(PAGE_SIZE, window.getTasks().size());
+        assertEquals(0, window.getOffset());
+        assertFalse(window.hasMoreBefore());
+        assertTrue(window.hasMoreAfter());
+    }
+
+    /**
+     * Test that scrolling to the end walks every task once while never holding more than the maximum number of pages.
+     */
+    @Test
+    public void scrollingKeepsBoundedPagesInMemory() {
+        List<Long> seenIds = new ArrayList<>();
+        TaskWindow window = taskPager.getWindow().getValue();
+        while (true) {
+            for (TaskRow row : window.getTasks()) {
+                long id = row.taskId;
+                if (!seenIds.contains(id)) {
+                    seenIds.add(id);
+                }
+            }
+            assertTrue(window.getTasks().size() <= MAX_PAGES * PAGE_SIZE);
+            if (!window.hasMoreAfter()) {
+                break;
+            }
+            int last = window.getOffset() + window.getTasks().size() - 1;
+            taskPager.loadAround(last - 5, last);
+            window = taskPager.getWindow().getValue();
+        }
+
+        assertEquals(TASK_COUNT, seenIds.size());
+        assertTrue(window.hasMoreBefore());
+    }
+
+    /**
+     * Test that scrolling back to the top reloads the dropped pages from their keys.
+     */
+    @Test
+    public void scrollingBackReloadsDroppedPages() {
+        taskPager.setSortOrder(TaskSortOrder.ALPHABETICAL_INVERTED);
+        for (int i = 0; i < 6; i++) {
+            TaskWindow window = taskPager.getWindow().getValue();
+            int last = window.getOffset() + window.getTasks().size() - 1;
+            taskPager.loadAround(last - 5, last);
+        }
+        assertTrue(taskPager.getWindow().getValue().hasMoreBefore());
+
+        for (int i = 0; i < 6; i++) {
+            TaskWindow window = taskPager.getWindow().getValue();
+            taskPager.loadAround(window.getOffset(), window.getOffset() + 5);
+        }
+
+        TaskWindow window = taskPager.getWindow().getValue();
+        assertEquals(0, window.getOffset());
+        assertFalse(window.hasMoreBefore());
+        assertEquals("Task 0999", window.getTasks().get(0).taskName);
+    }
+
+    /**
+     * Test that tasks inserted and deleted before a scrolled window move it to its new position,
+     * and that scrolling back to the top from there neither repeats nor skips a task.
+     */
+    @Test
+    public void writesBeforeTheWindowMoveIt() {
+        taskPager.setSortOrder(TaskSortOrder.OLD_FIRST);
+        for (int i = 0; i < 6; i++) {
+            TaskWindow window = taskPager.getWindow().getValue();
+            int last = window.getOffset() + window.getTasks().size() - 1;
+            taskPager.loadAround(last - 5, last);
+        }
+        TaskWindow window = taskPager.getWindow().getValue();
+        assertTrue(window.hasMoreBefore());
+        long firstTaskId = window.getTasks().get(0).taskId;
+
+        // 30 tasks older than all the others are inserted, and 45 tasks of the first pages are deleted
+        List<Task> olderTasks = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            olderTasks.add(new Task(0, project, "Older task " + i, -100 + i));
+        }
+        database.taskDao().insertAll(olderTasks);
+        List<Long> deletedIds = new ArrayList<>();
+        for (long id = 11; id <= 55; id++) {
+            deletedIds.add(id);
+        }
+        database.taskDao().tombstoneTasks(deletedIds, 1L);
+        database.getInvalidationTracker().refreshVersionsSync();
+
+        window = taskPager.getWindow().getValue();
+        assertWindowMatchesList(window);
+        assertTrue(taskIds(window).contains(firstTaskId));
+
+        for (int i = 0; i < 20 && window.hasMoreBefore(); i++) {
+            taskPager.loadAround(window.getOffset(), window.getOffset() + 5);
+            window = taskPager.getWindow().getValue();
+            assertWindowMatchesList(window);
+        }
+        assertEquals(0, window.getOffset());
+        assertFalse(window.hasMoreBefore());
+    }
+
+    /**
+     * Asserts that the window holds the tasks found at its offset in the whole list.
+     *
+     * @param window the window published by the pager
+     */
+    private void assertWindowMatchesList(TaskWindow window) {
+        List<Long> expected = new ArrayList<>();
+        for (TaskRow row : pageSource.loadPage(window.getSortOrder(), null, TASK_COUNT * 2)) {
+            expected.add(row.taskId);
+        }
+        List<Long> actual = taskIds(window);
+        assertEquals(expected.subList(window.getOffset(), window.getOffset() + actual.size()), actual);
+    }
+
+    /**
+     * Returns the identifiers of the tasks of a window, in order.
+     *
+     * @param window the window published by the pager
+     * @return the identifiers of the tasks
+     */
+    private static List<Long> taskIds(TaskWindow window) {
+        List<Long> taskIds = new ArrayList<>();
+        for (TaskRow row : window.getTasks()) {
+            taskIds.add(row.taskId);
+        }
+        return taskIds;
+    }
+}
@@ -0,0 +1,163 @@
+package com.cleanup.todoc;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.Context;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.cleanup.todoc.application.TaskPager;
+import com.cleanup.todoc.application.TaskWindow;
+import com.cleanup.todoc.model.Project;
+import com.cleanup.todoc.model.Task;
+import com.cleanup.todoc.model.TaskRow;
+import com.cleanup.todoc.repository.AppDatabase;
+import com.cleanup.todoc.repository.ProjectCache;
+import com.cleanup.todoc.repository.TaskPageSource;
+import com.cleanup.todoc.repository.TaskSortOrder;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Test class for the pages of the tasks filtered by project.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TaskProjectFilterTest {
+
+    private static final int TASK_COUNT = 90;
+    private static final int PAGE_SIZE = 7;
+
+    private AppDatabase database;
+    private TaskPageSource pageSource;
+
+    /**
+     * Allows LiveData to work synchronously in tests.
+     */
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    /**
+     * Setup the in-memory database with the tasks of three projects, with repeated names and timestamps.
+     */
+    @Before
+    public void setup() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        database.projectDao().insertAll(Arrays.asList(
+                new Project(1, "Projet Tartampion", 0xFFEADAD1),
+                new Project(2, "Projet Lucidia", 0xFFB4CDBA),
+                new Project(3, "Projet Circus", 0xFFA3CED2)));
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < TASK_COUNT; i++) {
+            tasks.add(new Task(0, 1 + i % 3, "Task " + (i * 7) % 10, (i * 13) % 20));
+        }
+        database.taskDao().insertAll(tasks);
+        pageSource = new TaskPageSource(database.taskDao(), database.getInvalidationTracker(),
+                new ProjectCache(database.projectDao(), database.getInvalidationTracker()));
+    }
+
+    /**
+     * Close the database after each test.
+     */
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    /**
+     * Test that paging through the tasks of one project returns each of its tasks once, in the requested order.
+     */
+    @Test
+    public void singleProjectPagesMatchFilteredList() {
+        for (TaskSortOrder sortOrder : TaskSortOrder.values()) {
+            assertPagesMatch(sortOrder, Collections.singleton(2L));
+        }
+    }
+
+    /**
+     * Test that merging the pages of several projects returns each of their tasks once, in the requested order.
+     */
+    @Test
+    public void multipleProjectPagesMatchFilteredList() {
+        for (TaskSortOrder sortOrder : TaskSortOrder.values()) {
+            assertPagesMatch(sortOrder, new HashSet<>(Arrays.asList(1L, 3L)));
+        }
+    }
+
+    /**
+     * Test that the rows of a page carry the name and color of their project.
+     */
+    @Test
+    public void rowsCarryTheirProject() {
+        List<TaskRow> page = pageSource.loadPage(TaskSortOrder.DEFAULT, Collections.singleton(1L), null, PAGE_SIZE);
+
+        assertEquals("Projet Tartampion", page.get(0).projectName);
+        assertEquals(0xFFEADAD1, page.get(0).projectColor);
+    }
+
+    /**
+     * Test that the pager reloads its first page with the filter and publishes it with the window.
+     */
+    @Test
+    public void pagerAppliesProjectFilter() {
+        TaskPager taskPager = new TaskPager(pageSource, Runnable::run, PAGE_SIZE, 2, 3);
+        taskPager.start();
+
+        taskPager.setProjectFilter(Collections.singleton(3L));
+
+        TaskWindow window = taskPager.getWindow().getValue();
+        assertEquals(Collections.singleton(3L), window.getProjectIds());
+        assertEquals(PAGE_SIZE, window.getTasks().size());
+        for (TaskRow row : window.getTasks()) {
+            assertEquals(3L, row.projectId);
+        }
+        taskPager.close();
+    }
+
+    /**
+     * Asserts that paging through the tasks of some projects returns the same tasks, in the same order,
+     * as filtering and sorting the whole table.
+     *
+     * @param sortOrder  the order of the tasks
+     * @param projectIds the identifiers of the projects of the tasks
+     */
+    private void assertPagesMatch(TaskSortOrder sortOrder, Set<Long> projectIds) {
+        List<Long> expected = new ArrayList<>();
+        for (TaskRow row : pageSource.loadPage(sortOrder, null, TASK_COUNT)) {
+            if (projectIds.contains(row.projectId)) {
+                expected.add(row.taskId);
+            }
+        }
+
+        List<Long> actual = new ArrayList<>();
+        TaskRow afterKey = null;
+        List<TaskRow> page;
+        do {
+            page = pageSource.loadPage(sortOrder, projectIds, afterKey, PAGE_SIZE);
+            for (TaskRow row : page) {
+                actual.add(row.taskId);
+            }
+            if (!page.isEmpty()) {
+                afterKey = page.get(page.size() - 1);
+            }
+        } while (page.size() == PAGE_SIZE);
+
+        assertEquals(sortOrder.name(), expected, actual);
+    }
+}
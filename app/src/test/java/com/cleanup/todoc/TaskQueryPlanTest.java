@@ -0,0 +1,221 @@
+package com.cleanup.todoc;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.cleanup.todoc.repository.AppDatabase;
+import com.cleanup.todoc.repository.TaskDao;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/**
+ * Checks with EXPLAIN QUERY PLAN that every TaskDao query is served by an index.
+ * The SQL below mirrors the @Query annotations of TaskDao, which are not readable at runtime.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TaskQueryPlanTest {
+
+    private AppDatabase database;
+
+    /**
+     * Setup the in-memory database, with the partial index of the tombstones, before each test.
+     * A full index on the tombstones would let SQLite serve "deleted_at IS NULL" from it and sort the result.
+     */
+    @Before
+    public void setup() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = AppDatabase.inMemoryBuilder(context)
+                .allowMainThreadQueries()
+                .build();
+    }
+
+    /**
+     * Close the database after each test.
+     */
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    /**
+     * Test that the full sorted lists walk an index instead of sorting in a temporary B-tree.
+     */
+    @Test
+    public void sortedListsUseIndices() {
+        assertIndexedScan("SELECT * FROM tasks WHERE deleted_at IS NULL ORDER BY taskName ASC");
+        assertIndexedScan("SELECT * FROM tasks WHERE deleted_at IS NULL ORDER BY taskName DESC");
+        assertIndexedScan("SELECT * FROM tasks WHERE deleted_at IS NULL ORDER BY creation_timestamp DESC");
+        assertIndexedScan("SELECT * FROM tasks WHERE deleted_at IS NULL ORDER BY creation_timestamp ASC");
+    }
+
+    /**
+     * Test that the first pages walk an index and stop after the limit.
+     */
+    @Test
+    public void firstPagesUseIndices() {
+        assertIndexedScan(TaskDao.TASK_ROWS + "ORDER BY taskId ASC LIMIT ?", 50);
+        assertIndexedScan(TaskDao.TASK_ROWS + "ORDER BY taskName ASC, taskId ASC LIMIT ?", 50);
+        assertIndexedScan(TaskDao.TASK_ROWS + "ORDER BY taskName DESC, taskId DESC LIMIT ?", 50);
+        assertIndexedScan(TaskDao.TASK_ROWS + "ORDER BY creation_timestamp DESC, taskId DESC LIMIT ?", 50);
+        assertIndexedScan(TaskDao.TASK_ROWS + "ORDER BY creation_timestamp ASC, taskId ASC LIMIT ?", 50);
+    }
+
+    /**
+     * Test that the following pages seek directly to their key.
+     */
+    @Test
+    public void nextPagesSeekOnIndices() {
+        assertIndexedSearch(TaskDao.TASK_ROWS + "AND taskId > ? ORDER BY taskId ASC LIMIT ?", 10L, 50);
+        assertIndexedSearch(TaskDao.TASK_ROWS + "AND taskName >= ? AND (taskName > ? OR taskId > ?) "
+                + "ORDER BY taskName ASC, taskId ASC LIMIT ?", "Task", "Task", 10L, 50);
+        assertIndexedSearch(TaskDao.TASK_ROWS + "AND taskName <= ? AND (taskName < ? OR taskId < ?) "
+                + "ORDER BY taskName DESC, taskId DESC LIMIT ?", "Task", "Task", 10L, 50);
+        assertIndexedSearch(TaskDao.TASK_ROWS + "AND creation_timestamp <= ? "
+                + "AND (creation_timestamp < ? OR taskId < ?) "
+                + "ORDER BY creation_timestamp DESC, taskId DESC LIMIT ?", 1000L, 1000L, 10L, 50);
+        assertIndexedSearch(TaskDao.TASK_ROWS + "AND creation_timestamp >= ? "
+                + "AND (creation_timestamp > ? OR taskId > ?) "
+                + "ORDER BY creation_timestamp ASC, taskId ASC LIMIT ?", 1000L, 1000L, 10L, 50);
+    }
+
+    /**
+     * Test that the pages of a project, first or following, seek on an index led by the project in every order.
+     */
+    @Test
+    public void projectPagesSeekOnProjectIndices() {
+        String rows = TaskDao.TASK_ROWS;
+        assertIndexedSearch(rows + "AND tasks.projectId = ? ORDER BY tasks.taskId ASC LIMIT ?", 1L, 50);
+        assertIndexedSearch(rows + "AND tasks.projectId = ? AND tasks.taskId > ? "
+                + "ORDER BY tasks.taskId ASC LIMIT ?", 1L, 10L, 50);
+        assertIndexedSearch(rows + "AND tasks.projectId = ? "
+                + "ORDER BY tasks.taskName ASC, tasks.taskId ASC LIMIT ?", 1L, 50);
+        assertIndexedSearch(rows + "AND tasks.projectId = ? AND tasks.taskName >= ? "
+                + "AND (tasks.taskName > ? OR tasks.taskId > ?) "
+                + "ORDER BY tasks.taskName ASC, tasks.taskId ASC LIMIT ?", 1L, "Task", "Task", 10L, 50);
+        assertIndexedSearch(rows + "AND tasks.projectId = ? "
+                + "ORDER BY tasks.taskName DESC, tasks.taskId DESC LIMIT ?", 1L, 50);
+        assertIndexedSearch(rows + "AND tasks.projectId = ? AND tasks.taskName <= ? "
+                + "AND (tasks.taskName < ? OR tasks.taskId < ?) "
+                + "ORDER BY tasks.taskName DESC, tasks.taskId DESC LIMIT ?", 1L, "Task", "Task", 10L, 50);
+        assertIndexedSearch(rows + "AND tasks.projectId = ? "
+                + "ORDER BY tasks.creation_timestamp DESC, tasks.taskId DESC LIMIT ?", 1L, 50);
+        assertIndexedSearch(rows + "AND tasks.projectId = ? AND tasks.creation_timestamp <= ? "
+                + "AND (tasks.creation_timestamp < ? OR tasks.taskId < ?) "
+                + "ORDER BY tasks.creation_timestamp DESC, tasks.taskId DESC LIMIT ?", 1L, 1000L, 1000L, 10L, 50);
+        assertIndexedSearch(rows + "AND tasks.projectId = ? "
+                + "ORDER BY tasks.creation_timestamp ASC, tasks.taskId ASC LIMIT ?", 1L, 50);
+        assertIndexedSearch(rows + "AND tasks.projectId = ? AND tasks.creation_timestamp >= ? "
+                + "AND (tasks.creation_timestamp > ? OR tasks.taskId > ?) "
+                + "ORDER BY tasks.creation_timestamp ASC, tasks.taskId ASC LIMIT ?", 1L, 1000L, 1000L, 10L, 50);
+    }
+
+    /**
+     * Test that deletions by primary key and the foreign key lookups of the projects seek on an index.
+     */
+    @Test
+    public void keyLookupsUseIndices() {
+        assertIndexedSearch("DELETE FROM tasks WHERE taskId = ?", 1L);
+        // Lookup run by SQLite on the child table when a project is deleted or its key changes
+        assertIndexedSearch("SELECT * FROM tasks WHERE projectId = ?", 1L);
+    }
+
+    /**
+     * Test that the triggers recomputing the oldest and newest task of a project seek on the foreign key index.
+     */
+    @Test
+    public void projectStatsRecomputeSeeksOnIndex() {
+        assertIndexedSearch("SELECT MIN(creation_timestamp) FROM tasks "
+                + "WHERE projectId = ? AND deleted_at IS NULL", 1L);
+        assertIndexedSearch("SELECT MAX(creation_timestamp) FROM tasks "
+                + "WHERE projectId = ? AND deleted_at IS NULL", 1L);
+    }
+
+    /**
+     * Test that the purge and the count of the tombstones go through the partial index of the tombstones.
+     */
+    @Test
+    public void tombstonesUsePartialIndex() {
+        assertIndexedSearch("SELECT taskId FROM tasks WHERE deleted_at <= ? LIMIT ?", 1000L, 500);
+        assertTrue(explain("DELETE FROM tasks WHERE taskId IN "
+                + "(SELECT taskId FROM tasks WHERE deleted_at <= ? LIMIT ?)", 1000L, 500)
+                .contains("index_tasks_deleted_at"));
+        assertTrue(explain("SELECT COUNT(*) FROM tasks WHERE deleted_at IS NOT NULL")
+                .contains("index_tasks_deleted_at"));
+    }
+
+    /**
+     * Test that the search goes through the full-text index and only looks up the matching tasks by primary key.
+     */
+    @Test
+    public void searchUsesFullTextIndex() {
+        String plan = explain("SELECT tasks.taskId, tasks.projectId, tasks.taskName, tasks.creation_timestamp "
+                + "FROM tasks_fts JOIN tasks ON tasks.taskId = tasks_fts.rowid "
+                + "WHERE tasks_fts MATCH ? AND tasks.deleted_at IS NULL ORDER BY substr(lower(tasks.taskName), 1, length(?)) = ? DESC, "
+                + "length(tasks.taskName) ASC, tasks.taskId ASC LIMIT ?", "task*", "task", "task", 50);
+        for (String step : plan.split("\n")) {
+            if (step.startsWith("SCAN")) {
+                assertTrue("Scan outside of the full-text index\n" + plan, step.contains("VIRTUAL TABLE"));
+            }
+        }
+        assertTrue("No primary key lookup of the tasks\n" + plan, plan.contains("PRIMARY KEY"));
+    }
+
+    /**
+     * Asserts that a query walks an index in order: it may visit the whole table,
+     * but never scans it without an index nor sorts it in a temporary B-tree.
+     *
+     * @param sql  the query to check
+     * @param args the arguments of the query
+     */
+    private void assertIndexedScan(String sql, Object... args) {
+        String plan = explain(sql, args);
+        assertFalse("Temporary B-tree sort for " + sql + "\n" + plan, plan.contains("USE TEMP B-TREE"));
+        for (String step : plan.split("\n")) {
+            if (step.startsWith("SCAN")) {
+                assertTrue("Scan without index for " + sql + "\n" + plan,
+                        step.contains("USING INDEX") || step.contains("USING COVERING INDEX"));
+            }
+        }
+    }
+
+    /**
+     * Asserts that a query seeks directly to its rows, without any scan nor temporary B-tree.
+     *
+     * @param sql  the query to check
+     * @param args the arguments of the query
+     */
+    private void assertIndexedSearch(String sql, Object... args) {
+        String plan = explain(sql, args);
+        assertFalse("Temporary B-tree sort for " + sql + "\n" + plan, plan.contains("USE TEMP B-TREE"));
+        assertFalse("Scan for " + sql + "\n" + plan, plan.contains("SCAN"));
+        assertTrue("No index search for " + sql + "\n" + plan, plan.contains("SEARCH"));
+    }
+
+    /**
+     * Runs EXPLAIN QUERY PLAN on a query.
+     *
+     * @param sql  the query to explain
+     * @param args the arguments of the query
+     * @return the detail column of every step of the plan, one per line
+     */
+    private String explain(String sql, Object... args) {
+        StringBuilder plan = new StringBuilder();
+        try (Cursor cursor = database.query(new SimpleSQLiteQuery("EXPLAIN QUERY PLAN " + sql, args))) {
+            int detailIndex = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                plan.append(cursor.getString(detailIndex)).append('\n');
+            }
+        }
+        return plan.toString();
+    }
+}
@@ -0,0 +1,211 @@
+package com.cleanup.todoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import android.content.Context;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.cleanup.todoc.metrics.Metrics;
+import com.cleanup.todoc.model.Project;
+import com.cleanup.todoc.model.Task;
+import com.cleanup.todoc.model.TaskRow;
+import com.cleanup.todoc.repository.AppDatabase;
+import com.cleanup.todoc.repository.ProjectCache;
+import com.cleanup.todoc.repository.TaskDao;
+import com.cleanup.todoc.repository.TaskPageSource;
+import com.cleanup.todoc.repository.TaskRepository;
+import com.cleanup.todoc.repository.TaskRowPool;
+import com.cleanup.todoc.repository.TaskSortOrder;
+import com.cleanup.todoc.repository.TaskWriteQueue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test class for the reuse of the task rows from one load to the next, and for the reload of the tasks moved
+ * to another project, which only reads the moved tasks again.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TaskRowPoolTest {
+
+    private static final int TASK_COUNT = 1000;
+
+    private final Project tartampion = new Project(1L, "Projet Tartampion", 0xFFEADAD1);
+    private final Project lucidia = new Project(2L, "Projet Lucidia", 0xFFB4CDBA);
+
+    /**
+     * Allows LiveData and the invalidation of Room to work synchronously in tests.
+     */
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    private ExecutorService writeExecutor;
+    private AppDatabase database;
+    private Metrics metrics;
+    private TaskDao taskDao;
+    private TaskWriteQueue writeQueue;
+
+    /**
+     * Setup the in-memory database holding 1k tasks of the first project, read through a DAO counting its queries,
+     * before each test.
+     */
+    @Before
+    public void setup() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = AppDatabase.inMemoryBuilder(context)
+                .allowMainThreadQueries()
+                .build();
+        database.projectDao().insertAll(Arrays.asList(tartampion, lucidia));
+        List<Task> tasks = new ArrayList<>(TASK_COUNT);
+        for (int i = 1; i <= TASK_COUNT; i++) {
+            tasks.add(new Task(i, tartampion, "Task " + i, i));
+        }
+        database.taskDao().insertAll(tasks);
+
+        metrics = new Metrics(true);
+        taskDao = metrics.instrument(TaskDao.class, database.taskDao());
+        writeExecutor = Executors.newSingleThreadExecutor();
+        writeQueue = new TaskWriteQueue(database, taskDao, writeExecutor);
+    }
+
+    /**
+     * Stop the write queue and close the database after each test.
+     */
+    @After
+    public void tearDown() {
+        writeQueue.shutdown();
+        writeExecutor.shutdownNow();
+        database.close();
+    }
+
+    /**
+     * Test that a row read again without change is replaced by its previous instance,
+     * and that a row whose content changed replaces it.
+     */
+    @Test
+    public void unchangedRowsKeepTheirInstance() {
+        TaskRowPool pool = new TaskRowPool(10);
+        TaskRow first = new TaskRow(1, 1, "Task 1", 1, "Projet Tartampion", 0xFFEADAD1);
+        TaskRow second = new TaskRow(2, 1, "Task 2", 2, "Projet Tartampion", 0xFFEADAD1);
+        assertEquals(0, pool.intern(new ArrayList<>(Arrays.asList(first, second))));
+
+        List<TaskRow> reread = new ArrayList<>(Arrays.asList(
+                new TaskRow(1, 1, "Task 1", 1, "Projet Tartampion", 0xFFEADAD1),
+                new TaskRow(2, 2, "Task 2", 2, "Projet Lucidia", 0xFFB4CDBA)));
+        TaskRow moved = reread.get(1);
+        assertEquals(1, pool.intern(reread));
+
+        assertSame(first, reread.get(0));
+        assertSame(moved, reread.get(1));
+        List<TaskRow> again = new ArrayList<>(Collections.singletonList(
+                new TaskRow(2, 2, "Task 2", 2, "Projet Lucidia", 0xFFB4CDBA)));
+        pool.intern(again);
+        assertSame(moved, again.get(0));
+    }
+
+    /**
+     * Test that a full pool evicts the row read least recently instead of growing past its maximum size,
+     * and keeps the others.
+     */
+    @Test
+    public void fullPoolEvictsLeastRecentlyReadRow() {
+        TaskRowPool pool = new TaskRowPool(2);
+        TaskRow first = new TaskRow(1, 1, "Task 1", 1, "Projet Tartampion", 0xFFEADAD1);
+        pool.intern(new ArrayList<>(Arrays.asList(first,
+                new TaskRow(2, 1, "Task 2", 2, "Projet Tartampion", 0xFFEADAD1))));
+        pool.intern(new ArrayList<>(Collections.singletonList(
+                new TaskRow(1, 1, "Task 1", 1, "Projet Tartampion", 0xFFEADAD1))));
+        pool.intern(new ArrayList<>(Collections.singletonList(
+                new TaskRow(3, 1, "Task 3", 3, "Projet Tartampion", 0xFFEADAD1))));
+        assertEquals(2, pool.size());
+
+        List<TaskRow> reread = new ArrayList<>(Arrays.asList(
+                new TaskRow(1, 1, "Task 1", 1, "Projet Tartampion", 0xFFEADAD1),
+                new TaskRow(2, 1, "Task 2", 2, "Projet Tartampion", 0xFFEADAD1)));
+        assertEquals(1, pool.intern(reread));
+        assertSame(first, reread.get(0));
+    }
+
+    /**
+     * Test that the rows of the tasks which disappeared are evicted, and no longer reused.
+     */
+    @Test
+    public void evictedRowsAreNotReused() {
+        TaskRowPool pool = new TaskRowPool(10);
+        TaskRow first = new TaskRow(1, 1, "Task 1", 1, "Projet Tartampion", 0xFFEADAD1);
+        pool.intern(new ArrayList<>(Arrays.asList(first,
+                new TaskRow(2, 1, "Task 2", 2, "Projet Tartampion", 0xFFEADAD1))));
+
+        pool.evict(Collections.singletonList(1L));
+        assertEquals(1, pool.size());
+
+        List<TaskRow> reread = new ArrayList<>(Collections.singletonList(
+                new TaskRow(1, 1, "Task 1", 1, "Projet Tartampion", 0xFFEADAD1)));
+        assertEquals(0, pool.intern(reread));
+        assertNotSame(first, reread.get(0));
+    }
+
+    /**
+     * Test that the pages read from the database twice hold the same instances.
+     */
+    @Test
+    public void databasePagesReuseTheirRows() {
+        TaskPageSource pageSource = new TaskPageSource(taskDao, database.getInvalidationTracker(),
+                new ProjectCache(database.projectDao(), database.getInvalidationTracker()));
+        List<TaskRow> first = pageSource.loadPage(TaskSortOrder.ALPHABETICAL, Collections.singleton(1L), null, 50);
+        List<TaskRow> second = pageSource.loadPage(TaskSortOrder.ALPHABETICAL, Collections.singleton(1L), null, 50);
+
+        assertEquals(50, second.size());
+        for (int i = 0; i < second.size(); i++) {
+            assertSame(first.get(i), second.get(i));
+        }
+    }
+
+    /**
+     * Test that moving tasks reloads the moved tasks only, and leaves the other cached rows as they were.
+     */
+    @Test
+    public void movedTasksAreReloadedAlone() throws Exception {
+        TaskPageSource pageSource = new TaskPageSource(taskDao, database.getInvalidationTracker(),
+                new ProjectCache(database.projectDao(), database.getInvalidationTracker()));
+        TaskRepository repository = new TaskRepository(taskDao, writeQueue, pageSource);
+        List<TaskRow> before = pageSource.loadPage(TaskSortOrder.DEFAULT, null, 20);
+        long previousProjectId = before.get(0).projectId;
+        String previousProjectName = before.get(0).projectName;
+
+        repository.moveTasks(Arrays.asList(1L, 2L, 3L), lucidia.getId()).get(5, TimeUnit.SECONDS);
+        List<TaskRow> after = pageSource.loadPage(TaskSortOrder.DEFAULT, null, 20);
+
+        assertEquals(1, metrics.timer("dao.TaskDao.getFirstPage").getHistogram().getCount());
+        assertEquals(1, metrics.timer("dao.TaskDao.getTaskRowsById").getHistogram().getCount());
+        for (int i = 0; i < 3; i++) {
+            assertNotSame(before.get(i), after.get(i));
+            assertEquals(lucidia.getId(), after.get(i).projectId);
+            assertEquals(lucidia.getName(), after.get(i).projectName);
+            // The rows already listed are immutable, they keep showing the state they were read in
+            assertEquals(previousProjectId, before.get(i).projectId);
+            assertSame(previousProjectName, before.get(i).projectName);
+        }
+        for (int i = 3; i < after.size(); i++) {
+            assertSame(before.get(i), after.get(i));
+        }
+        assertEquals(3, pageSource.loadPage(TaskSortOrder.DEFAULT, Collections.singleton(lucidia.getId()), null, 20)
+                .size());
+    }
+}
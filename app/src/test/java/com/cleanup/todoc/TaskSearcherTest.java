@@ -0,0 +1,154 @@
+package com.cleanup.todoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.lifecycle.Observer;
+
+import com.cleanup.todoc.application.TaskSearcher;
+import com.cleanup.todoc.model.Project;
+import com.cleanup.todoc.model.Task;
+import com.cleanup.todoc.model.TaskRow;
+import com.cleanup.todoc.repository.TaskPageSource;
+import com.cleanup.todoc.repository.TaskRepository;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for the debouncing and cancellation of TaskSearcher.
+ * The main looper is paused, so that the debounce delay and the delivery of the results are driven by the test.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TaskSearcherTest {
+
+    private static final long DEBOUNCE_MILLIS = 300;
+
+    @Mock
+    TaskRepository mockTaskRepository;
+    @Mock
+    TaskPageSource mockPageSource;
+
+    private final Project project = new Project(1L, "Test Project", 0x00FF00);
+    private final List<TaskRow> resultsA = Collections.singletonList(
+            new TaskRow(1L, project.getId(), "Alpha", 1000, project.getName(), project.getColor()));
+    private final List<TaskRow> resultsB = Collections.singletonList(
+            new TaskRow(2L, project.getId(), "Bravo", 2000, project.getName(), project.getColor()));
+
+    // Every value published by the searcher
+    private final List<List<TaskRow>> publishedResults = new ArrayList<>();
+    private final Observer<List<TaskRow>> resultsObserver = publishedResults::add;
+
+    private ExecutorService executor;
+    private TaskSearcher taskSearcher;
+
+    // Rule to allow LiveData to work synchronously in unit tests
+    @Rule
+    public InstantTaskExecutorRule instantExecutorRule = new InstantTaskExecutorRule();
+
+    /**
+     * Sets up a searcher over a mocked repository, with the main looper paused.
+     */
+    @Before
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        Mockito.when(mockTaskRepository.getPageSource()).thenReturn(mockPageSource);
+        Mockito.when(mockTaskRepository.searchTasks(Mockito.eq("a"), Mockito.anyInt())).thenReturn(resultsA);
+        Mockito.when(mockTaskRepository.searchTasks(Mockito.eq("b"), Mockito.anyInt())).thenReturn(resultsB);
+
+        ShadowLooper.pauseMainLooper();
+        executor = Executors.newSingleThreadExecutor();
+        taskSearcher = new TaskSearcher(mockTaskRepository, executor, DEBOUNCE_MILLIS);
+        taskSearcher.getResults().observeForever(resultsObserver);
+        publishedResults.clear();
+    }
+
+    /**
+     * Releases the searcher, its executor and the main looper after each test.
+     */
+    @After
+    public void tearDown() {
+        taskSearcher.getResults().removeObserver(resultsObserver);
+        executor.shutdownNow();
+        ShadowLooper.unPauseMainLooper();
+    }
+
+    /**
+     * Tests that keystrokes typed within the debounce delay run a single search, for the last text.
+     */
+    @Test
+    public void keystrokesAreDebounced() throws Exception {
+        taskSearcher.setQuery("b");
+        ShadowLooper.idleMainLooper(100, TimeUnit.MILLISECONDS);
+        taskSearcher.setQuery("ba");
+        ShadowLooper.idleMainLooper(100, TimeUnit.MILLISECONDS);
+        taskSearcher.setQuery("b");
+        ShadowLooper.idleMainLooper(DEBOUNCE_MILLIS - 1, TimeUnit.MILLISECONDS);
+        Mockito.verify(mockTaskRepository, Mockito.never()).searchTasks(Mockito.anyString(), Mockito.anyInt());
+
+        ShadowLooper.idleMainLooper(1, TimeUnit.MILLISECONDS);
+        deliverResults();
+
+        Mockito.verify(mockTaskRepository, Mockito.times(1)).searchTasks(Mockito.anyString(), Mockito.anyInt());
+        Mockito.verify(mockTaskRepository).searchTasks(Mockito.eq("b"), Mockito.anyInt());
+        assertEquals(Collections.singletonList(resultsB), publishedResults);
+    }
+
+    /**
+     * Tests that the results of a search in flight are dropped when the text changes before they are delivered.
+     */
+    @Test
+    public void outdatedResultsAreDropped() throws Exception {
+        taskSearcher.setQuery("a");
+        ShadowLooper.idleMainLooper(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        // The search of "a" completes in the background, but the text changes before its results reach the main thread
+        executor.submit(() -> {
+        }).get();
+        taskSearcher.setQuery("b");
+        ShadowLooper.idleMainLooper(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        deliverResults();
+
+        assertEquals(Collections.singletonList(resultsB), publishedResults);
+    }
+
+    /**
+     * Tests that clearing the text clears the results immediately, without any search.
+     */
+    @Test
+    public void emptyTextClearsResults() throws Exception {
+        taskSearcher.setQuery("a");
+        ShadowLooper.idleMainLooper(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        deliverResults();
+
+        taskSearcher.setQuery("   ");
+
+        assertEquals(2, publishedResults.size());
+        assertTrue(publishedResults.get(1).isEmpty());
+        Mockito.verify(mockTaskRepository, Mockito.times(1)).searchTasks(Mockito.anyString(), Mockito.anyInt());
+    }
+
+    /**
+     * Waits for the searches submitted so far, then runs the delivery of their results on the main looper.
+     */
+    private void deliverResults() throws Exception {
+        executor.submit(() -> {
+        }).get();
+        ShadowLooper.runUiThreadTasks();
+    }
+}
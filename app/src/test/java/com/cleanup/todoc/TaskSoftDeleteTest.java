@@ -0,0 +1,208 @@
+package com.cleanup.todoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.os.Looper;
+import android.os.MessageQueue;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.cleanup.todoc.model.Project;
+import com.cleanup.todoc.model.ProjectWithStats;
+import com.cleanup.todoc.model.Task;
+import com.cleanup.todoc.model.TaskRow;
+import com.cleanup.todoc.repository.AppDatabase;
+import com.cleanup.todoc.repository.TaskDao;
+import com.cleanup.todoc.repository.TaskPurger;
+import com.cleanup.todoc.repository.TaskWriteQueue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test class for the deletion of the tasks through tombstones, their restoration and their purge.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TaskSoftDeleteTest {
+
+    private static final int PURGE_BATCH_SIZE = 10;
+    private static final long PURGE_GRACE_PERIOD_MS = 50;
+
+    private final Project project = new Project(1L, "Projet Tartampion", 0xFFEADAD1);
+
+    private AppDatabase database;
+    private TaskDao taskDao;
+    private TaskWriteQueue writeQueue;
+
+    /**
+     * Setup the in-memory database, with its triggers and partial index, and the write queue before each test.
+     */
+    @Before
+    public void setup() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = AppDatabase.inMemoryBuilder(context)
+                .allowMainThreadQueries()
+                .build();
+        taskDao = database.taskDao();
+        database.projectDao().insertAll(Collections.singletonList(project));
+        taskDao.insertAll(Arrays.asList(
+                new Task(1, project, "Alpha meeting", 100),
+                new Task(2, project, "Bravo meeting", 200),
+                new Task(3, project, "Charlie meeting", 300)));
+        writeQueue = new TaskWriteQueue(database, taskDao);
+    }
+
+    /**
+     * Stop the write queue and close the database after each test.
+     */
+    @After
+    public void tearDown() {
+        writeQueue.shutdown();
+        database.close();
+    }
+
+    /**
+     * Test that a tombstoned task disappears from the pages, the search, the counts and the aggregates of its project,
+     * while its row is kept.
+     */
+    @Test
+    public void tombstonedTaskIsHidden() throws Exception {
+        writeQueue.enqueueTombstone(new Task(3, project, "Charlie meeting", 300)).get(5, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList(1L, 2L), ids(taskDao.getFirstPage(10)));
+        assertEquals(Arrays.asList(1L, 2L), ids(taskDao.searchTasks("meeting*", "meeting", 10)));
+        assertEquals(2, taskDao.countTasks());
+        assertEquals(1, taskDao.countDeletedTasks());
+
+        ProjectWithStats stats = database.projectDao().getProjectsWithStats().get(0);
+        assertEquals(2, stats.getTaskCount());
+        assertEquals(Long.valueOf(200), stats.newestTimestamp);
+    }
+
+    /**
+     * Test that a restored task is listed again, with its project aggregates.
+     */
+    @Test
+    public void restoredTaskIsListedAgain() throws Exception {
+        Task charlie = new Task(3, project, "Charlie meeting", 300);
+        writeQueue.enqueueTombstone(charlie);
+        writeQueue.enqueueRestore(charlie).get(5, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList(1L, 2L, 3L), ids(taskDao.getFirstPage(10)));
+        assertEquals(0, taskDao.countDeletedTasks());
+        ProjectWithStats stats = database.projectDao().getProjectsWithStats().get(0);
+        assertEquals(3, stats.getTaskCount());
+        assertEquals(Long.valueOf(300), stats.newestTimestamp);
+    }
+
+    /**
+     * Test that tombstoning a task twice keeps its first deletion time and only counts it once in the aggregates.
+     */
+    @Test
+    public void tombstoningTwiceIsIgnored() {
+        assertEquals(1, taskDao.tombstoneTasks(Collections.singletonList(1L), 1000));
+        assertEquals(0, taskDao.tombstoneTasks(Collections.singletonList(1L), 2000));
+
+        assertEquals(2, database.projectDao().getProjectsWithStats().get(0).getTaskCount());
+        // Still deleted before the first time only
+        assertEquals(1, taskDao.purgeDeletedTasks(1000, PURGE_BATCH_SIZE));
+    }
+
+    /**
+     * Test that the purge deletes, batch after batch, only the tasks tombstoned before the given time,
+     * and leaves the aggregates untouched.
+     */
+    @Test
+    public void purgeDeletesOldTombstonesInBatches() {
+        List<Task> tasks = new ArrayList<>();
+        List<Long> taskIds = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            tasks.add(new Task(10 + i, project, "Task " + i, 1000 + i));
+            taskIds.add(10L + i);
+        }
+        taskDao.insertAll(tasks);
+        taskDao.tombstoneTasks(taskIds, 5000);
+        // Deleted later, so still within its grace period
+        taskDao.tombstoneTasks(Collections.singletonList(2L), 9000);
+        ProjectWithStats before = database.projectDao().getProjectsWithStats().get(0);
+
+        TaskPurger purger = new TaskPurger(database, taskDao, Runnable::run, 0, PURGE_BATCH_SIZE);
+        assertEquals(25, purger.purge(8000));
+
+        assertEquals(1, taskDao.countDeletedTasks());
+        assertEquals(Arrays.asList(1L, 3L), ids(taskDao.getFirstPage(10)));
+        ProjectWithStats after = database.projectDao().getProjectsWithStats().get(0);
+        assertEquals(before.getTaskCount(), after.getTaskCount());
+        assertEquals(before.newestTimestamp, after.newestTimestamp);
+
+        // The purged tasks left the full-text index along with their rows
+        taskDao.restoreTasks(Collections.singletonList(2L));
+        assertTrue(taskDao.searchTasks("task*", "task", 10).isEmpty());
+        assertEquals(3, taskDao.searchTasks("meeting*", "meeting", 10).size());
+    }
+
+    /**
+     * Test that a purge requested as the undo offer of a single deletion closes purges that deletion
+     * once its grace period is over, without waiting for another deletion.
+     */
+    @Test
+    public void singleDeletionIsPurgedOnceItsGracePeriodIsOver() throws Exception {
+        TaskPurger purger = new TaskPurger(database, taskDao, Runnable::run, PURGE_GRACE_PERIOD_MS, PURGE_BATCH_SIZE);
+        writeQueue.enqueueTombstone(new Task(3, project, "Charlie meeting", 300)).get(5, TimeUnit.SECONDS);
+
+        purger.purgeWhenIdle();
+        ShadowLooper.idleMainLooper();
+        runIdleHandlers();
+        assertEquals(1, taskDao.countDeletedTasks());
+
+        // The tombstones are dated by the wall clock, which the looper of Robolectric does not advance
+        Thread.sleep(PURGE_GRACE_PERIOD_MS);
+        ShadowLooper.idleMainLooper(PURGE_GRACE_PERIOD_MS, TimeUnit.MILLISECONDS);
+        runIdleHandlers();
+        assertEquals(0, taskDao.countDeletedTasks());
+        assertEquals(Arrays.asList(1L, 2L), ids(taskDao.getFirstPage(10)));
+    }
+
+    /**
+     * Runs the idle handlers of the main looper once, as the looper does once it has no message left,
+     * which the looper of Robolectric never does.
+     */
+    @SuppressWarnings("unchecked")
+    private static void runIdleHandlers() throws Exception {
+        Field field = MessageQueue.class.getDeclaredField("mIdleHandlers");
+        field.setAccessible(true);
+        List<MessageQueue.IdleHandler> idleHandlers = (List<MessageQueue.IdleHandler>) field.get(Looper.myQueue());
+        for (MessageQueue.IdleHandler idleHandler : new ArrayList<>(idleHandlers)) {
+            if (!idleHandler.queueIdle()) {
+                Looper.myQueue().removeIdleHandler(idleHandler);
+            }
+        }
+    }
+
+    /**
+     * Returns the identifiers of rows.
+     *
+     * @param rows the rows
+     * @return their identifiers, in the same order
+     */
+    private static List<Long> ids(List<TaskRow> rows) {
+        List<Long> ids = new ArrayList<>();
+        for (TaskRow row : rows) {
+            ids.add(row.taskId);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,156 @@
+package com.cleanup.todoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.cleanup.todoc.model.Project;
+import com.cleanup.todoc.model.Task;
+import com.cleanup.todoc.repository.AppDatabase;
+import com.cleanup.todoc.repository.TaskDao;
+import com.cleanup.todoc.repository.TaskWriteQueue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test class for TaskWriteQueue.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TaskWriteQueueTest {
+
+    private static final int MUTATION_COUNT = 10_000;
+
+    private AppDatabase database;
+    private TaskDao taskDao;
+    private TaskWriteQueue writeQueue;
+    private Project project;
+
+    /**
+     * Setup the in-memory database and the write queue before each test.
+     */
+    @Before
+    public void setup() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        taskDao = database.taskDao();
+
+        project = new Project(1L, "Test Project", 0x00FF00);
+        database.projectDao().insertAll(Collections.singletonList(project));
+
+        writeQueue = new TaskWriteQueue(database, taskDao);
+    }
+
+    /**
+     * Stop the write queue and close the database after each test.
+     */
+    @After
+    public void tearDown() {
+        writeQueue.shutdown();
+        database.close();
+    }
+
+    /**
+     * Test that queued inserts and deletes are all committed and complete their futures.
+     */
+    @Test
+    public void insertsAndDeletesAreCommitted() throws Exception {
+        Task task1 = new Task(1L, project, "Task 1", System.currentTimeMillis());
+        Task task2 = new Task(2L, project, "Task 2", System.currentTimeMillis());
+
+        writeQueue.enqueueInsert(task1);
+        writeQueue.enqueueInsert(task2);
+        writeQueue.enqueueDelete(task1).get(5, TimeUnit.SECONDS);
+
+        List<Task> tasks = taskDao.getAllTasks();
+        assertEquals(1, tasks.size());
+        assertEquals("Task 2", tasks.get(0).getName());
+    }
+
+    /**
+     * Test that a failing mutation only fails its own future, not the whole batch.
+     */
+    @Test
+    public void failingMutationDoesNotFailItsBatch() throws Exception {
+        Project unknownProject = new Project(42L, "Unknown Project", 0xFF0000);
+        Future<Void> valid = writeQueue.enqueueInsert(new Task(0, project, "Valid", System.currentTimeMillis()));
+        Future<Void> invalid = writeQueue.enqueueInsert(new Task(0, unknownProject, "Invalid", System.currentTimeMillis()));
+
+        valid.get(5, TimeUnit.SECONDS);
+        try {
+            invalid.get(5, TimeUnit.SECONDS);
+            fail("Insertion of a task referencing an unknown project should fail");
+        } catch (ExecutionException expected) {
+            // The foreign key constraint rejected the task
+        }
+        assertEquals(1, taskDao.getAllTasks().size());
+    }
+
+    /**
+     * Test that failing callbacks neither fail the committed writes nor stop the queue from applying the next ones.
+     */
+    @Test
+    public void failingCallbacksDoNotStopTheQueue() throws Exception {
+        writeQueue.setUpdateListener(taskIds -> {
+            throw new IllegalStateException("Listener failure");
+        });
+        writeQueue.enqueueInsert(new Task(1L, project, "Task 1", 1), () -> {
+            throw new IllegalStateException("Callback failure");
+        }).get(5, TimeUnit.SECONDS);
+        writeQueue.enqueueMove(Collections.singletonList(1L), project.getId()).get(5, TimeUnit.SECONDS);
+
+        writeQueue.enqueueInsert(new Task(2L, project, "Task 2", 2)).get(5, TimeUnit.SECONDS);
+        assertEquals(2, taskDao.getAllTasks().size());
+    }
+
+    /**
+     * Test that queuing 10k mutations neither spawns threads nor is slower than one transaction per row.
+     */
+    @Test
+    public void burstOfMutationsKeepsThreadCountFlatAndRaisesThroughput() throws Exception {
+        // Baseline: one transaction per row, as the former thread-per-write implementation did
+        long baselineStart = System.nanoTime();
+        for (int i = 0; i < MUTATION_COUNT; i++) {
+            taskDao.insertTask(new Task(0, project, "Baseline " + i, i));
+        }
+        long baselineNanos = System.nanoTime() - baselineStart;
+
+        int threadsBefore = Thread.activeCount();
+        int peakThreads = threadsBefore;
+
+        long queuedStart = System.nanoTime();
+        List<Future<Void>> futures = new ArrayList<>(MUTATION_COUNT);
+        for (int i = 0; i < MUTATION_COUNT; i++) {
+            futures.add(writeQueue.enqueueInsert(new Task(0, project, "Queued " + i, i)));
+            if (i % 500 == 0) {
+                peakThreads = Math.max(peakThreads, Thread.activeCount());
+            }
+        }
+        for (Future<Void> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        long queuedNanos = System.nanoTime() - queuedStart;
+
+        assertEquals(2 * MUTATION_COUNT, taskDao.getAllTasks().size());
+        assertEquals(threadsBefore, peakThreads);
+        assertTrue("Batched writes took " + queuedNanos + "ns, per-row writes took " + baselineNanos + "ns",
+                queuedNanos < baselineNanos);
+    }
+}
@@ -0,0 +1,238 @@
+package com.cleanup.todoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import android.os.Looper;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.cleanup.todoc.model.Project;
+import com.cleanup.todoc.model.TaskRow;
+import com.cleanup.todoc.ui.TasksAdapter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test class for the incremental updates of TasksAdapter.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TasksAdapterTest {
+
+    private static final int TASK_COUNT = 5000;
+
+    private final Project project = new Project(1L, "Test Project", 0x00FF00);
+
+    // Threads on which the differences between lists were computed
+    private final List<Thread> diffThreads = new CopyOnWriteArrayList<>();
+    private ExecutorService diffExecutor;
+    private TasksAdapter tasksAdapter;
+    private CountingObserver observer;
+
+    /**
+     * Setup the adapter with an executor recording the threads computing the differences, and an observer counting notifications.
+     */
+    @Before
+    public void setup() {
+        diffExecutor = Executors.newSingleThreadExecutor();
+        tasksAdapter = new TasksAdapter(task -> {
+        }, command -> diffExecutor.execute(() -> {
+            diffThreads.add(Thread.currentThread());
+            command.run();
+        }));
+        observer = new CountingObserver();
+        tasksAdapter.registerAdapterDataObserver(observer);
+    }
+
+    /**
+     * Shutdown the diff executor after each test.
+     */
+    @After
+    public void tearDown() {
+        ShadowLooper.unPauseMainLooper();
+        diffExecutor.shutdownNow();
+    }
+
+    /**
+     * Test that inserting one task into a list of 5k tasks notifies a single insertion, computed off the main thread.
+     */
+    @Test
+    public void singleInsertDispatchesOneInsertion() throws Exception {
+        List<TaskRow> tasks = createTasks(TASK_COUNT);
+        tasksAdapter.updateTasks(tasks, null);
+        assertEquals(TASK_COUNT, tasksAdapter.getItemCount());
+
+        observer.reset();
+        List<TaskRow> newTasks = new ArrayList<>(tasks);
+        newTasks.add(TASK_COUNT / 2, row(TASK_COUNT + 1, "Inserted task", 0));
+        submitAndWait(newTasks);
+
+        assertEquals(TASK_COUNT + 1, tasksAdapter.getItemCount());
+        assertEquals(1, observer.insertions);
+        assertEquals(1, observer.insertedItems);
+        assertEquals(TASK_COUNT / 2, observer.lastInsertPosition);
+        assertEquals(0, observer.otherNotifications);
+        assertDiffedOffMainThread();
+    }
+
+    /**
+     * Test that a task whose displayed content changes is notified as a change, while unchanged tasks are not rebound.
+     */
+    @Test
+    public void renamedTaskDispatchesOneChange() throws Exception {
+        List<TaskRow> tasks = createTasks(100);
+        tasksAdapter.updateTasks(tasks, null);
+
+        observer.reset();
+        List<TaskRow> newTasks = new ArrayList<>(tasks);
+        newTasks.set(10, row(tasks.get(10).taskId, "Renamed task", 10));
+        // Same content in a new instance, which must not be rebound
+        TaskRow copy = tasks.get(20);
+        newTasks.set(20, row(copy.taskId, copy.taskName, copy.taskCreationTimestamp));
+        submitAndWait(newTasks);
+
+        assertEquals(1, observer.changes);
+        assertEquals(0, observer.insertions);
+        assertEquals(0, observer.otherNotifications);
+        assertDiffedOffMainThread();
+    }
+
+    /**
+     * Test that selecting tasks rebinds only their rows, keeps them in selection order,
+     * and reports the number of selected tasks until the selection is cleared.
+     */
+    @Test
+    public void selectionRebindsOnlySelectedRows() throws Exception {
+        submitAndWait(createTasks(100));
+        List<Integer> selectedCounts = new ArrayList<>();
+        tasksAdapter.setSelectionListener(selectedCounts::add);
+
+        observer.reset();
+        tasksAdapter.toggleSelection(8);
+        tasksAdapter.toggleSelection(5);
+        tasksAdapter.toggleSelection(42);
+        tasksAdapter.toggleSelection(8);
+
+        assertTrue(tasksAdapter.isSelecting());
+        assertEquals(Arrays.asList(5L, 42L), tasksAdapter.getSelectedTaskIds());
+        assertEquals(4, observer.changes);
+
+        tasksAdapter.clearSelection();
+
+        assertFalse(tasksAdapter.isSelecting());
+        assertEquals(6, observer.changes);
+        assertEquals(0, observer.otherNotifications);
+        assertEquals(Arrays.asList(1, 2, 3, 2, 0), selectedCounts);
+    }
+
+    /**
+     * Submits a list, waits for the differences to be computed in the background, then runs the dispatch on the main looper.
+     *
+     * @param tasks the list to submit
+     */
+    private void submitAndWait(List<TaskRow> tasks) throws InterruptedException {
+        ShadowLooper.pauseMainLooper();
+        tasksAdapter.updateTasks(tasks, null);
+        diffExecutor.shutdown();
+        assertTrue(diffExecutor.awaitTermination(10, TimeUnit.SECONDS));
+        ShadowLooper.unPauseMainLooper();
+        ShadowLooper.runUiThreadTasks();
+    }
+
+    /**
+     * Asserts that the differences were computed, and never on the main thread.
+     */
+    private void assertDiffedOffMainThread() {
+        assertFalse(diffThreads.isEmpty());
+        for (Thread thread : diffThreads) {
+            assertNotSame(Looper.getMainLooper().getThread(), thread);
+        }
+    }
+
+    /**
+     * Creates a list of tasks with consecutive ids.
+     *
+     * @param count the number of tasks
+     * @return the tasks
+     */
+    private List<TaskRow> createTasks(int count) {
+        List<TaskRow> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tasks.add(row(i + 1, "Task " + i, i));
+        }
+        return tasks;
+    }
+
+    /**
+     * Creates a row of a task of the test project.
+     *
+     * @param taskId    the identifier of the task
+     * @param name      the name of the task
+     * @param timestamp the creation timestamp of the task
+     * @return the row
+     */
+    private TaskRow row(long taskId, String name, long timestamp) {
+        return new TaskRow(taskId, project.getId(), name, timestamp, project.getName(), project.getColor());
+    }
+
+    /**
+     * Counts the notifications received from the adapter.
+     */
+    private static class CountingObserver extends RecyclerView.AdapterDataObserver {
+        int insertions;
+        int insertedItems;
+        int lastInsertPosition = -1;
+        int changes;
+        int otherNotifications;
+
+        void reset() {
+            insertions = 0;
+            insertedItems = 0;
+            lastInsertPosition = -1;
+            changes = 0;
+            otherNotifications = 0;
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            insertions++;
+            insertedItems += itemCount;
+            lastInsertPosition = positionStart;
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            changes++;
+        }
+
+        @Override
+        public void onChanged() {
+            otherNotifications++;
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            otherNotifications++;
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            otherNotifications++;
+        }
+    }
+}
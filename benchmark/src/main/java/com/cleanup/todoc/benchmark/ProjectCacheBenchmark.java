@@ -0,0 +1,207 @@
+package com.cleanup.todoc.benchmark;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.Context;
+import android.os.Debug;
+import android.util.Log;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.collection.LongSparseArray;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.cleanup.todoc.model.Project;
+import com.cleanup.todoc.model.TaskRow;
+import com.cleanup.todoc.repository.AppDatabase;
+import com.cleanup.todoc.repository.ProjectCache;
+import com.cleanup.todoc.repository.TaskDao;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Benchmarks of the display models of the task list on 10k tasks: tasks holding a copy of their project,
+ * as the {@code @Embedded} and {@code @Relation} mappings build one per row, against tasks sharing the instances
+ * of the {@link ProjectCache}.</p>
+ * <p>Besides the timings, the objects allocated per row and the project objects retained by the 10k tasks,
+ * as held by the task cache, are logged for both.</p>
+ */
+@RunWith(AndroidJUnit4.class)
+public class ProjectCacheBenchmark {
+
+    // Number of tasks of the table, the size of the task cache
+    private static final int ROWS = 10_000;
+    // Number of projects of the table
+    private static final int PROJECTS = 3;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private AppDatabase database;
+    private TaskDao taskDao;
+    private ProjectCache projectCache;
+
+    /**
+     * Opens a database holding 10k tasks spread over the three projects.
+     */
+    @Before
+    public void setup() throws Exception {
+        Context context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase("project_cache_benchmark");
+        database = AppDatabase.buildDatabase(context, "project_cache_benchmark");
+        taskDao = database.taskDao();
+        database.projectDao().insertAll(Arrays.asList(
+                new Project(1L, "Projet Tartampion", 0xFFEADAD1),
+                new Project(2L, "Projet Lucidia", 0xFFB4CDBA),
+                new Project(3L, "Projet Circus", 0xFFA3CED2)));
+        projectCache = new ProjectCache(database.projectDao(), database.getInvalidationTracker());
+
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+        db.beginTransaction();
+        try (SupportSQLiteStatement insert = db.compileStatement(
+                "INSERT INTO tasks (projectId, taskName, creation_timestamp) VALUES (?, ?, ?)")) {
+            for (int i = 0; i < ROWS; i++) {
+                insert.bindLong(1, 1 + i % PROJECTS);
+                insert.bindString(2, "Task number " + i);
+                insert.bindLong(3, i);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Closes and removes the database.
+     */
+    @After
+    public void tearDown() {
+        database.close();
+        ApplicationProvider.getApplicationContext().deleteDatabase("project_cache_benchmark");
+    }
+
+    /**
+     * Measures reading the 10k tasks and giving each its own copy of its project.
+     */
+    @Test
+    public void readWithProjectCopies10k() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            readWithProjectCopies();
+        }
+    }
+
+    /**
+     * Measures reading the 10k tasks and pointing each at the shared instance of its project.
+     */
+    @Test
+    public void readWithSharedProjects10k() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            readWithSharedProjects();
+        }
+    }
+
+    /**
+     * Checks that the tasks resolved by the cache retain a single instance of each project and of its name,
+     * and logs the objects allocated per row and the project objects retained by both.
+     */
+    @Test
+    public void allocationsAndRetainedProjects() {
+        // Warm up both paths, which also loads the cache, so that the counts leave out the compilation of the statements
+        List<TaskRow> copies = readWithProjectCopies();
+        List<TaskRow> shared = readWithSharedProjects();
+        assertEquals(ROWS, copies.size());
+        assertEquals(ROWS, shared.size());
+
+        int retainedCopies = countDistinctProjects(copies);
+        int retainedShared = countDistinctProjects(shared);
+        Log.d("ProjectCacheBenchmark", "Project objects retained by " + ROWS + " tasks: copies "
+                + retainedCopies + ", shared " + retainedShared);
+        assertEquals(PROJECTS * 2, retainedShared);
+
+        Debug.startAllocCounting();
+        try {
+            Debug.resetThreadAllocCount();
+            Debug.resetThreadAllocSize();
+            readWithProjectCopies();
+            logAllocations("copies");
+
+            Debug.resetThreadAllocCount();
+            Debug.resetThreadAllocSize();
+            readWithSharedProjects();
+            logAllocations("shared projects");
+        } finally {
+            Debug.stopAllocCounting();
+        }
+    }
+
+    /**
+     * Reads the tasks and gives each a copy of its project, as the mappings of Room build one per row.
+     *
+     * @return the tasks
+     */
+    private List<TaskRow> readWithProjectCopies() {
+        List<TaskRow> rows = taskDao.getFirstPage(ROWS);
+        LongSparseArray<Project> projects = projectCache.getProjects();
+        for (int i = 0; i < rows.size(); i++) {
+            TaskRow row = rows.get(i);
+            Project project = projects.get(row.projectId);
+            // A mapping reads the name of the project of each row into a string of its own
+            rows.set(i, row.withProject(
+                    new Project(row.projectId, new String(project.projectName), project.projectColor)));
+        }
+        return rows;
+    }
+
+    /**
+     * Reads the tasks and points each at the shared instance of its project.
+     *
+     * @return the tasks
+     */
+    private List<TaskRow> readWithSharedProjects() {
+        List<TaskRow> rows = taskDao.getFirstPage(ROWS);
+        projectCache.resolve(rows);
+        return rows;
+    }
+
+    /**
+     * Counts the distinct project and project name instances referenced by the tasks.
+     *
+     * @param rows the tasks
+     * @return the number of distinct instances
+     */
+    private static int countDistinctProjects(List<TaskRow> rows) {
+        Map<Object, Boolean> instances = new IdentityHashMap<>();
+        for (TaskRow row : rows) {
+            instances.put(row.project, Boolean.TRUE);
+            instances.put(row.projectName, Boolean.TRUE);
+        }
+        return instances.size();
+    }
+
+    /**
+     * Logs the objects and bytes allocated by the current thread since the last reset, per row read.
+     *
+     * @param path the name of the path which has been read
+     */
+    private static void logAllocations(String path) {
+        int count = Debug.getThreadAllocCount();
+        int size = Debug.getThreadAllocSize();
+        Log.d("ProjectCacheBenchmark", "Allocations of the " + path + ": " + (float) count / ROWS
+                + " objects and " + (float) size / ROWS + " bytes per row");
+    }
+}
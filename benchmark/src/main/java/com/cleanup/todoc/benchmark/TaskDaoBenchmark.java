@@ -0,0 +1,232 @@
+package com.cleanup.todoc.benchmark;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.Context;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.cleanup.todoc.model.Project;
+import com.cleanup.todoc.model.Task;
+import com.cleanup.todoc.repository.AppDatabase;
+import com.cleanup.todoc.repository.TaskDao;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Benchmarks of the TaskDao operations over tables of 1k, 10k and 100k tasks.
+ * <p>
+ * The benchmark library writes the results of every run to a JSON report, named after the package,
+ * which Gradle pulls into build/outputs/connected_android_test_additional_output so that runs of two commits
+ * can be compared. Every benchmark starts from a new database file, built with the triggers, indexes and migrations
+ * of the application so that the writes pay what they cost in the application, and seeded with the tasks of its size.
+ * The write benchmarks restore the table after each measure.
+ */
+@RunWith(Parameterized.class)
+public class TaskDaoBenchmark {
+
+    // Number of tasks written by the batch benchmarks
+    private static final int BATCH_SIZE = 100;
+
+    private static final String[] WORDS = {"appeler", "client", "réunion", "ranger", "bureau", "envoyer", "facture",
+            "préparer", "présentation", "relire", "contrat", "planifier", "sprint", "corriger", "rapport"};
+
+    private final Project project = new Project(1L, "Projet Tartampion", 0xFFEADAD1);
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    // Number of tasks in the table while measuring
+    private final int rows;
+
+    private AppDatabase database;
+    private TaskDao taskDao;
+
+    /**
+     * Returns the table sizes every benchmark runs with.
+     *
+     * @return the number of tasks of each run
+     */
+    @Parameterized.Parameters(name = "rows={0}")
+    public static Collection<Object[]> sizes() {
+        return Arrays.asList(new Object[][]{{1_000}, {10_000}, {100_000}});
+    }
+
+    /**
+     * Constructor to initialize the benchmark for a table size.
+     *
+     * @param rows the number of tasks in the table while measuring
+     */
+    public TaskDaoBenchmark(int rows) {
+        this.rows = rows;
+    }
+
+    /**
+     * Creates the database of the table size, whose seeded projects include the project of the tasks, and fills it.
+     */
+    @Before
+    public void setup() {
+        Context context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(databaseName());
+        database = AppDatabase.buildDatabase(context, databaseName());
+        taskDao = database.taskDao();
+        database.runInTransaction(() -> taskDao.insertAll(newTasks(1, rows)));
+    }
+
+    /**
+     * Checks that the benchmark left the table as it found it, then closes and deletes the database.
+     */
+    @After
+    public void tearDown() {
+        try {
+            assertEquals(rows, taskDao.countTasks());
+        } finally {
+            database.close();
+            ApplicationProvider.getApplicationContext().deleteDatabase(databaseName());
+        }
+    }
+
+    /**
+     * Returns the name of the database file of the table size.
+     *
+     * @return the name of the database file
+     */
+    private String databaseName() {
+        return "dao_benchmark_" + rows;
+    }
+
+    /**
+     * Measures the insertion of a single task.
+     */
+    @Test
+    public void insertTask() {
+        BenchmarkState state = benchmarkRule.getState();
+        Task task = newTasks(rows + 1, 1).get(0);
+        while (state.keepRunning()) {
+            taskDao.insertTask(task);
+            state.pauseTiming();
+            taskDao.deleteTask(task);
+            state.resumeTiming();
+        }
+    }
+
+    /**
+     * Measures the insertion of a batch of tasks one by one, each in its own transaction.
+     */
+    @Test
+    public void insertTaskLoop() {
+        BenchmarkState state = benchmarkRule.getState();
+        List<Task> batch = newTasks(rows + 1, BATCH_SIZE);
+        while (state.keepRunning()) {
+            for (Task task : batch) {
+                taskDao.insertTask(task);
+            }
+            state.pauseTiming();
+            taskDao.deleteTasks(batch);
+            state.resumeTiming();
+        }
+    }
+
+    /**
+     * Measures the insertion of the same batch of tasks in a single transaction.
+     */
+    @Test
+    public void insertAll() {
+        BenchmarkState state = benchmarkRule.getState();
+        List<Task> batch = newTasks(rows + 1, BATCH_SIZE);
+        while (state.keepRunning()) {
+            taskDao.insertAll(batch);
+            state.pauseTiming();
+            taskDao.deleteTasks(batch);
+            state.resumeTiming();
+        }
+    }
+
+    /**
+     * Measures the deletion of a single task.
+     */
+    @Test
+    public void deleteTask() {
+        BenchmarkState state = benchmarkRule.getState();
+        Task task = newTasks(rows + 1, 1).get(0);
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            taskDao.insertTask(task);
+            state.resumeTiming();
+            taskDao.deleteTask(task);
+        }
+    }
+
+    /**
+     * Measures the loading of every task sorted alphabetically.
+     */
+    @Test
+    public void getAllTasksSortedAlphabetically() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            taskDao.getFirstPageSortedAlphabetically(rows);
+        }
+    }
+
+    /**
+     * Measures the loading of every task sorted alphabetically, inverted.
+     */
+    @Test
+    public void getAllTasksSortedAlphabeticallyInverted() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            taskDao.getFirstPageSortedAlphabeticallyInverted(rows);
+        }
+    }
+
+    /**
+     * Measures the loading of every task, most recent first.
+     */
+    @Test
+    public void getAllTasksSortedByDateRecentFirst() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            taskDao.getFirstPageSortedByDateRecentFirst(rows);
+        }
+    }
+
+    /**
+     * Measures the loading of every task, oldest first.
+     */
+    @Test
+    public void getAllTasksSortedByDateOldFirst() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            taskDao.getFirstPageSortedByDateOldFirst(rows);
+        }
+    }
+
+    /**
+     * Creates tasks with consecutive identifiers, so that the write benchmarks can delete exactly what they inserted.
+     *
+     * @param firstId the identifier of the first task
+     * @param count   the number of tasks to create
+     * @return the new tasks
+     */
+    private List<Task> newTasks(long firstId, int count) {
+        List<Task> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long id = firstId + i;
+            String name = WORDS[(int) (id % WORDS.length)] + " " + WORDS[(int) (id * 7 % WORDS.length)] + " " + id;
+            tasks.add(new Task(id, project, name, id * 1_000));
+        }
+        return tasks;
+    }
+}
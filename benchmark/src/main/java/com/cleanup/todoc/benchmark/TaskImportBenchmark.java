@@ -0,0 +1,147 @@
+package com.cleanup.todoc.benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.cleanup.todoc.model.Project;
+import com.cleanup.todoc.repository.AppDatabase;
+import com.cleanup.todoc.repository.TaskImporter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmarks of the TaskImporter: the throughput of a 10k-row CSV import, and the memory used by a 1M-row one.
+ * The input files are generated on the fly, so that neither the file nor the test holds all the rows.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TaskImportBenchmark {
+
+    // Rows of the file imported by the throughput benchmark
+    private static final int THROUGHPUT_ROWS = 10_000;
+    // Rows of the file imported by the memory check
+    private static final int LARGE_ROWS = 1_000_000;
+    // Heap growth allowed during the large import, far below what a million tasks take in memory
+    private static final long MAX_HEAP_GROWTH_BYTES = 16L * 1024 * 1024;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private AppDatabase database;
+
+    /**
+     * Opens an empty database holding the project referenced by the generated files.
+     */
+    @Before
+    public void setup() {
+        Context context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase("import_benchmark");
+        database = AppDatabase.buildDatabase(context, "import_benchmark");
+        database.projectDao().insertAll(Collections.singletonList(new Project(1L, "Projet Tartampion", 0xFFEADAD1)));
+    }
+
+    /**
+     * Closes and removes the database.
+     */
+    @After
+    public void tearDown() {
+        database.close();
+        ApplicationProvider.getApplicationContext().deleteDatabase("import_benchmark");
+    }
+
+    /**
+     * Measures the import of a 10k-row CSV file, in chunks of the default size.
+     */
+    @Test
+    public void importCsv10k() throws Exception {
+        BenchmarkState state = benchmarkRule.getState();
+        TaskImporter importer = new TaskImporter(database);
+        while (state.keepRunning()) {
+            importer.importTasks(new GeneratedCsvStream(THROUGHPUT_ROWS), TaskImporter.Format.CSV, "benchmark", null);
+            state.pauseTiming();
+            database.getOpenHelper().getWritableDatabase().execSQL("DELETE FROM tasks");
+            state.resumeTiming();
+        }
+    }
+
+    /**
+     * Checks that the heap does not grow with the size of the file while importing 1M rows.
+     */
+    @Test
+    public void import1MInBoundedMemory() throws Exception {
+        Runtime runtime = Runtime.getRuntime();
+        runtime.gc();
+        long baseline = runtime.totalMemory() - runtime.freeMemory();
+        AtomicLong peak = new AtomicLong();
+
+        TaskImporter.Result result = new TaskImporter(database).importTasks(new GeneratedCsvStream(LARGE_ROWS),
+                TaskImporter.Format.CSV, "benchmark", (importedTasks, skippedRows) -> {
+                    if (importedTasks % 100_000 == 0) {
+                        // Only count what survives a collection, i.e. what the import retains
+                        runtime.gc();
+                        peak.set(Math.max(peak.get(), runtime.totalMemory() - runtime.freeMemory()));
+                    }
+                });
+
+        assertEquals(LARGE_ROWS, result.importedTasks);
+        assertEquals(LARGE_ROWS, database.taskDao().countTasks());
+        assertTrue("Heap grew by " + (peak.get() - baseline) + " bytes",
+                peak.get() - baseline < MAX_HEAP_GROWTH_BYTES);
+    }
+
+    /**
+     * CSV file of numbered tasks in the first project, generated one row at a time as it is read.
+     */
+    private static class GeneratedCsvStream extends InputStream {
+        // Number of rows to generate
+        private final int rows;
+        // Bytes of the current line
+        private byte[] line = "name,project,timestamp\n".getBytes(StandardCharsets.UTF_8);
+        // Position in the current line
+        private int position;
+        // Number of rows generated so far
+        private int generated;
+
+        /**
+         * Instantiates a new GeneratedCsvStream.
+         *
+         * @param rows the number of rows to generate
+         */
+        GeneratedCsvStream(int rows) {
+            this.rows = rows;
+        }
+
+        /**
+         * Reads the next byte, generating the next row when the current one is consumed.
+         *
+         * @return the next byte, or -1 once every row has been read
+         */
+        @Override
+        public int read() {
+            if (position == line.length) {
+                if (generated == rows) {
+                    return -1;
+                }
+                generated++;
+                line = ("Task " + generated + ",Projet Tartampion," + generated + "\n").getBytes(StandardCharsets.UTF_8);
+                position = 0;
+            }
+            return line[position++] & 0xFF;
+        }
+    }
+}
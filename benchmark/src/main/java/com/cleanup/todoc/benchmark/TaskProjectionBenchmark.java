@@ -0,0 +1,287 @@
+package com.cleanup.todoc.benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.database.AbstractWindowedCursor;
+import android.database.Cursor;
+import android.os.Debug;
+import android.util.Log;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.collection.LongSparseArray;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.cleanup.todoc.model.Project;
+import com.cleanup.todoc.model.Task;
+import com.cleanup.todoc.model.TaskRow;
+import com.cleanup.todoc.model.TaskWithProject;
+import com.cleanup.todoc.repository.AppDatabase;
+import com.cleanup.todoc.repository.ProjectCache;
+import com.cleanup.todoc.repository.TaskDao;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>Benchmarks of the projection read by the task list on 50k tasks: the {@link TaskRow} rows, whose projects
+ * are filled in from the {@link ProjectCache}, against the {@link TaskWithProject} relation they replaced.</p>
+ * <p>The relation is read by a copy of the code Room generates for it: the tasks query,
+ * a first pass over its cursor collecting the projects, the projects query, then a second pass
+ * building the tasks, all in a transaction. Besides the timings, the cursor windows filled and the objects
+ * allocated per row by each path are logged.</p>
+ */
+@RunWith(AndroidJUnit4.class)
+public class TaskProjectionBenchmark {
+
+    // Number of tasks of the table
+    private static final int ROWS = 50_000;
+    // Number of tasks of a page of the list
+    private static final int PAGE_SIZE = 50;
+    // Query of the tasks read by the relation, as it was declared on the DAO
+    private static final String RELATION_TASKS = "SELECT * FROM tasks ORDER BY taskId ASC LIMIT ?";
+    // Query of the rows read for the list
+    private static final String TASK_ROWS = TaskDao.TASK_ROWS + "ORDER BY taskId ASC LIMIT ?";
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private AppDatabase database;
+    private TaskDao taskDao;
+    private ProjectCache projectCache;
+
+    /**
+     * Opens a database holding 50k tasks spread over the three projects.
+     */
+    @Before
+    public void setup() throws Exception {
+        Context context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase("projection_benchmark");
+        database = AppDatabase.buildDatabase(context, "projection_benchmark");
+        taskDao = database.taskDao();
+        database.projectDao().insertAll(Arrays.asList(
+                new Project(1L, "Projet Tartampion", 0xFFEADAD1),
+                new Project(2L, "Projet Lucidia", 0xFFB4CDBA),
+                new Project(3L, "Projet Circus", 0xFFA3CED2)));
+        projectCache = new ProjectCache(database.projectDao(), database.getInvalidationTracker());
+
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+        db.beginTransaction();
+        try (SupportSQLiteStatement insert = db.compileStatement(
+                "INSERT INTO tasks (projectId, taskName, creation_timestamp) VALUES (?, ?, ?)")) {
+            for (int i = 0; i < ROWS; i++) {
+                insert.bindLong(1, 1 + i % 3);
+                insert.bindString(2, "Task number " + i);
+                insert.bindLong(3, i);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Closes and removes the database.
+     */
+    @After
+    public void tearDown() {
+        database.close();
+        ApplicationProvider.getApplicationContext().deleteDatabase("projection_benchmark");
+    }
+
+    /**
+     * Measures reading the 50k tasks and filling in the name and color of their project from the cache.
+     */
+    @Test
+    public void readTaskRows50k() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            readTaskRows(ROWS);
+        }
+    }
+
+    /**
+     * Measures reading the 50k tasks with their project through the relation.
+     */
+    @Test
+    public void readRelation50k() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            readRelation(ROWS);
+        }
+    }
+
+    /**
+     * Measures reading the 50k tasks page by page, as the list scrolls through them.
+     */
+    @Test
+    public void pageTaskRows50k() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            List<TaskRow> page = readTaskRows(PAGE_SIZE);
+            while (page.size() == PAGE_SIZE) {
+                page = taskDao.getPageAfter(page.get(PAGE_SIZE - 1).taskId, PAGE_SIZE);
+                projectCache.resolve(page);
+            }
+        }
+    }
+
+    /**
+     * Checks that the rows fill fewer cursor windows than the relation, which walks the tasks twice,
+     * and logs the windows filled and the objects allocated per row by both.
+     */
+    @Test
+    public void windowFillsAndAllocationsPerRow() {
+        int rowFills = countWindowFills(TASK_ROWS, 1);
+        // The tasks are walked twice, then the projects once
+        int relationFills = countWindowFills(RELATION_TASKS, 2)
+                + countWindowFills("SELECT * FROM projects WHERE projectId IN (1, 2, 3)", 1);
+        Log.d("TaskProjectionBenchmark", "Cursor windows filled for " + ROWS + " rows: rows "
+                + rowFills + ", relation " + relationFills);
+        assertTrue("Rows filled " + rowFills + " windows, relation " + relationFills,
+                rowFills < relationFills);
+
+        // Warm up both paths so that the counts leave out the compilation of the statements
+        assertEquals(ROWS, readTaskRows(ROWS).size());
+        assertEquals(ROWS, readRelation(ROWS).size());
+
+        Debug.startAllocCounting();
+        try {
+            Debug.resetThreadAllocCount();
+            Debug.resetThreadAllocSize();
+            readTaskRows(ROWS);
+            logAllocations("rows");
+
+            Debug.resetThreadAllocCount();
+            Debug.resetThreadAllocSize();
+            readRelation(ROWS);
+            logAllocations("relation");
+        } finally {
+            Debug.stopAllocCounting();
+        }
+    }
+
+    /**
+     * Reads the first tasks and fills in their project from the cache, as the list does.
+     *
+     * @param limit the number of tasks to read
+     * @return the tasks with the name and color of their project
+     */
+    private List<TaskRow> readTaskRows(int limit) {
+        List<TaskRow> rows = taskDao.getFirstPage(limit);
+        projectCache.resolve(rows);
+        return rows;
+    }
+
+    /**
+     * Reads the first tasks with their project the way Room reads a {@link TaskWithProject} relation.
+     *
+     * @param limit the number of tasks to read
+     * @return the tasks with their project
+     */
+    private List<TaskWithProject> readRelation(int limit) {
+        database.beginTransaction();
+        try (Cursor cursor = database.query(new SimpleSQLiteQuery(RELATION_TASKS, new Object[]{limit}))) {
+            int idIndex = cursor.getColumnIndexOrThrow("taskId");
+            int projectIdIndex = cursor.getColumnIndexOrThrow("projectId");
+            int nameIndex = cursor.getColumnIndexOrThrow("taskName");
+            int timestampIndex = cursor.getColumnIndexOrThrow("creation_timestamp");
+
+            LongSparseArray<Project> projects = new LongSparseArray<>();
+            while (cursor.moveToNext()) {
+                projects.put(cursor.getLong(projectIdIndex), null);
+            }
+            cursor.moveToPosition(-1);
+            readProjects(projects);
+
+            List<TaskWithProject> tasks = new ArrayList<>(cursor.getCount());
+            while (cursor.moveToNext()) {
+                Task task = new Task(cursor.getLong(idIndex), cursor.getLong(projectIdIndex),
+                        cursor.getString(nameIndex), cursor.getLong(timestampIndex));
+                tasks.add(new TaskWithProject(task, projects.get(cursor.getLong(projectIdIndex))));
+            }
+            database.setTransactionSuccessful();
+            return tasks;
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    /**
+     * Reads the projects whose identifiers are the keys of an array, and stores them in it.
+     *
+     * @param projects the array whose keys are the identifiers of the projects to read
+     */
+    private void readProjects(LongSparseArray<Project> projects) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM projects WHERE projectId IN (");
+        Object[] ids = new Object[projects.size()];
+        for (int i = 0; i < ids.length; i++) {
+            sql.append(i == 0 ? "?" : ",?");
+            ids[i] = projects.keyAt(i);
+        }
+        sql.append(")");
+        try (Cursor cursor = database.query(new SimpleSQLiteQuery(sql.toString(), ids))) {
+            int idIndex = cursor.getColumnIndexOrThrow("projectId");
+            int nameIndex = cursor.getColumnIndexOrThrow("projectName");
+            int colorIndex = cursor.getColumnIndexOrThrow("projectColor");
+            while (cursor.moveToNext()) {
+                long id = cursor.getLong(idIndex);
+                projects.put(id, new Project(id, cursor.getString(nameIndex), cursor.getInt(colorIndex)));
+            }
+        }
+    }
+
+    /**
+     * Walks every row of a query, and counts how many times its cursor window has been filled.
+     *
+     * @param sql    the query, whose only argument is the number of rows when it has one
+     * @param passes the number of times the rows are walked
+     * @return the number of windows filled
+     */
+    private int countWindowFills(String sql, int passes) {
+        Object[] args = sql.contains("?") ? new Object[]{ROWS} : new Object[0];
+        int fills = 0;
+        try (Cursor cursor = database.query(new SimpleSQLiteQuery(sql, args))) {
+            AbstractWindowedCursor windowedCursor = (AbstractWindowedCursor) cursor;
+            int windowStart = -1;
+            for (int pass = 0; pass < passes; pass++) {
+                cursor.moveToPosition(-1);
+                while (cursor.moveToNext()) {
+                    // A window is filled each time the cursor moves outside of the rows it holds
+                    int start = windowedCursor.getWindow().getStartPosition();
+                    if (start != windowStart) {
+                        windowStart = start;
+                        fills++;
+                    }
+                }
+            }
+        }
+        return fills;
+    }
+
+    /**
+     * Logs the objects and bytes allocated by the current thread since the last reset, per row read.
+     *
+     * @param path the name of the path which has been read
+     */
+    private static void logAllocations(String path) {
+        int count = Debug.getThreadAllocCount();
+        int size = Debug.getThreadAllocSize();
+        Log.d("TaskProjectionBenchmark", "Allocations of the " + path + ": " + (float) count / ROWS
+                + " objects and " + (float) size / ROWS + " bytes per row");
+    }
+}
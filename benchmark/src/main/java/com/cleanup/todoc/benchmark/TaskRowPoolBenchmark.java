@@ -0,0 +1,210 @@
+package com.cleanup.todoc.benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.os.Debug;
+import android.util.Log;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.cleanup.todoc.model.Project;
+import com.cleanup.todoc.model.TaskRow;
+import com.cleanup.todoc.repository.AppDatabase;
+import com.cleanup.todoc.repository.ProjectCache;
+import com.cleanup.todoc.repository.TaskCache;
+import com.cleanup.todoc.repository.TaskDao;
+import com.cleanup.todoc.repository.TaskSortOrder;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>Benchmarks of the refresh of the task list on 10k cached tasks after some of them are moved to another project:
+ * the reload of every task against the reload of the moved tasks alone, both reusing the rows of unchanged tasks.</p>
+ * <p>A refresh brings the cache up to date and reads the pages displayed by the list. Besides the timings,
+ * the objects allocated per refresh by both are logged, and the reload of the moved tasks must allocate
+ * at least ten times fewer.</p>
+ */
+@RunWith(AndroidJUnit4.class)
+public class TaskRowPoolBenchmark {
+
+    // Number of tasks of the table, the size of the task cache
+    private static final int ROWS = TaskCache.DEFAULT_MAX_SIZE;
+    // Number of tasks moved before each refresh
+    private static final int MOVED = 10;
+    // Number of tasks of a page of the list, and number of pages it holds
+    private static final int PAGE_SIZE = 50;
+    private static final int PAGES = 4;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private AppDatabase database;
+    private TaskDao taskDao;
+    private TaskCache taskCache;
+    // Identifiers of the moved tasks
+    private final List<Long> movedIds = new ArrayList<>();
+    // Project receiving the moved tasks next
+    private long targetProject = 2;
+
+    /**
+     * Opens a database holding 10k tasks spread over the three projects, and loads them in the cache.
+     */
+    @Before
+    public void setup() throws Exception {
+        Context context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase("row_pool_benchmark");
+        database = AppDatabase.buildDatabase(context, "row_pool_benchmark");
+        taskDao = database.taskDao();
+        database.projectDao().insertAll(Arrays.asList(
+                new Project(1L, "Projet Tartampion", 0xFFEADAD1),
+                new Project(2L, "Projet Lucidia", 0xFFB4CDBA),
+                new Project(3L, "Projet Circus", 0xFFA3CED2)));
+
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+        db.beginTransaction();
+        try (SupportSQLiteStatement insert = db.compileStatement(
+                "INSERT INTO tasks (projectId, taskName, creation_timestamp) VALUES (?, ?, ?)")) {
+            for (int i = 0; i < ROWS; i++) {
+                insert.bindLong(1, 1 + i % 3);
+                insert.bindString(2, "Task number " + i);
+                insert.bindLong(3, i);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        for (long id = 1; id <= MOVED; id++) {
+            movedIds.add(id * (ROWS / MOVED));
+        }
+
+        taskCache = new TaskCache(taskDao, database.getInvalidationTracker(), TaskCache.DEFAULT_MAX_SIZE, 0,
+                new ProjectCache(database.projectDao(), database.getInvalidationTracker()));
+        assertEquals(PAGE_SIZE, refresh().size());
+    }
+
+    /**
+     * Closes and removes the database.
+     */
+    @After
+    public void tearDown() {
+        database.close();
+        ApplicationProvider.getApplicationContext().deleteDatabase("row_pool_benchmark");
+    }
+
+    /**
+     * Measures refreshing the list after a move by reloading every task.
+     */
+    @Test
+    public void refreshReloadingEveryTask10k() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            move();
+            state.resumeTiming();
+            taskCache.markUpdated();
+            refresh();
+        }
+    }
+
+    /**
+     * Measures refreshing the list after a move by reloading the moved tasks alone.
+     */
+    @Test
+    public void refreshReloadingMovedTasks10k() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            move();
+            state.resumeTiming();
+            taskCache.markUpdated(movedIds);
+            refresh();
+        }
+    }
+
+    /**
+     * Checks that reloading the moved tasks alone allocates at least ten times fewer objects per refresh
+     * than reloading every task, and logs the allocations of both.
+     */
+    @Test
+    public void allocationsPerRefresh() {
+        // Warm up both paths so that the counts leave out the compilation of the statements
+        move();
+        taskCache.markUpdated();
+        refresh();
+        move();
+        taskCache.markUpdated(movedIds);
+        refresh();
+
+        Debug.startAllocCounting();
+        try {
+            move();
+            Debug.resetThreadAllocCount();
+            Debug.resetThreadAllocSize();
+            taskCache.markUpdated();
+            refresh();
+            int everyTask = Debug.getThreadAllocCount();
+            logAllocations("reload of every task");
+
+            move();
+            Debug.resetThreadAllocCount();
+            Debug.resetThreadAllocSize();
+            taskCache.markUpdated(movedIds);
+            refresh();
+            int movedTasks = Debug.getThreadAllocCount();
+            logAllocations("reload of the moved tasks");
+
+            assertTrue("Moved tasks allocated " + movedTasks + " objects, every task " + everyTask,
+                    movedTasks * 10 <= everyTask);
+        } finally {
+            Debug.stopAllocCounting();
+        }
+    }
+
+    /**
+     * Moves the tasks to the next project, outside of the cache.
+     */
+    private void move() {
+        taskDao.moveTasks(movedIds, targetProject);
+        targetProject = targetProject % 3 + 1;
+    }
+
+    /**
+     * Brings the cache up to date, and reads the pages held by the list.
+     *
+     * @return the first page
+     */
+    private List<TaskRow> refresh() {
+        List<TaskRow> first = taskCache.loadPage(TaskSortOrder.ALPHABETICAL, null, PAGE_SIZE);
+        List<TaskRow> page = first;
+        for (int i = 1; i < PAGES; i++) {
+            page = taskCache.loadPage(TaskSortOrder.ALPHABETICAL, page.get(page.size() - 1), PAGE_SIZE);
+        }
+        return first;
+    }
+
+    /**
+     * Logs the objects and bytes allocated by the current thread since the last reset, per refresh.
+     *
+     * @param path the name of the path which has been measured
+     */
+    private static void logAllocations(String path) {
+        Log.d("TaskRowPoolBenchmark", "Allocations of the " + path + ": " + Debug.getThreadAllocCount()
+                + " objects and " + Debug.getThreadAllocSize() + " bytes per refresh of " + ROWS + " tasks");
+    }
+}